@@ -1,9 +1,23 @@
+import importer.FailureDetailsPolicy;
 import importer.IBatchImporter;
+import importer.ImportPipeline;
+import importer.NameTable;
+import importer.ReportParser;
+import importer.StorageIdGenerator;
 import importer.jdbc.BatchJdbcImporter;
+import importer.jdbc.ImportSession;
+import importer.jdbc.JdbcImportManifest;
+import importer.jdbc.MultiRowJdbcImporter;
+import importer.jdbc.SequenceBlockIdGenerator;
+import importer.jdbc.ShardedJdbcImporter;
+import importer.jdbc.TextCodec;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.sql.DataSource;
 
@@ -26,6 +40,9 @@ public class Global extends GlobalSettings {
 
 	private Injector injector;
 	private FolderManager folderManager;
+	private BatchJdbcImporter importer;
+	private ImportSession folderSession;
+	private ShardedJdbcImporter shardedImporter;
 	
 	@Override
 	public void onStart(Application application) {
@@ -46,6 +63,13 @@ public class Global extends GlobalSettings {
 	public void onStop(Application app) {
 		super.onStop(app);
 		folderManager.shutDown();
+		if (shardedImporter != null) {
+			shardedImporter.close();
+		}
+		else {
+			importer.close();
+			folderSession.close();
+		}
 	}
 
 	@Override
@@ -57,13 +81,47 @@ public class Global extends GlobalSettings {
 	 * Initialize and start the background file watcher.
 	 * If we can't start the file watcher due to any Exceptions then we re-throw.
 	 * This will prevent the entire application from starting which I think is what we want.
+	 * The importer and Folder data can each keep a long-lived session if a maximum # of imports per session is 
+	 * configured. Each serializes the use of its session, e.g. between the pipeline's writer and the watch thread. 
+	 * If a # of shards is configured, reports are imported by that many writers, each with sessions of its own, 
+	 * partitioned by folder. Replaces and deletes wait until no other writer is importing, see ShardedJdbcImporter.
 	 */	
 	private ImportFileWatcher initialiseFolderWatcher() {
 		final Path watchFolder = getWatchFolderPath();
 		final DataSource ds =  DB.getDataSource();
-		final IFolderData fd = new JdbcFolderData(ds);
-		final IBatchImporter importer = new BatchJdbcImporter(ds, fd, 1000);
-		final ImportFileWatcher watcher = new ImportFileWatcher(watchFolder, importer);
+		final Integer sessionMaxImports = Play.application().configuration().getInt("importer.session.maxImports");
+		final StorageIdGenerator storageIds = initialiseStorageIdGenerator(ds);
+		final Integer rowsPerInsert = Play.application().configuration().getInt("importer.rowsPerInsert");
+		final Integer shards = Play.application().configuration().getInt("importer.shards");
+		final List<IBatchImporter> writers;
+		if (shards != null) {
+			shardedImporter = new ShardedJdbcImporter(ds, shards, sessionMaxImports != null ? sessionMaxImports : 1, 
+				fd -> newImporter(ds, fd, storageIds, rowsPerInsert));
+			writers = Collections.nCopies(shards, shardedImporter);
+		}
+		else {
+			folderSession = sessionMaxImports == null ? ImportSession.perUse(ds) : new ImportSession(ds, sessionMaxImports);
+			importer = newImporter(ds, new JdbcFolderData(ds, folderSession), storageIds, rowsPerInsert);
+			if (sessionMaxImports != null) {
+				importer.setSessionMaxImports(sessionMaxImports);
+			}
+			writers = Collections.singletonList(importer);
+		}
+		final Boolean isTailing = Play.application().configuration().getBoolean("importer.tailing");
+		final ReportParser parser = initialiseReportParser().setStorageIdGenerator(storageIds);
+		final ImportFileWatcher watcher = 
+			new ImportFileWatcher(watchFolder, writers.get(0), parser, isTailing != null && isTailing);
+		final Boolean isManifested = Play.application().configuration().getBoolean("importer.manifest");
+		if (isManifested != null && isManifested) {
+			watcher.setImportManifest(new JdbcImportManifest(ds));
+		}
+		
+		final Integer parseWorkers = Play.application().configuration().getInt("importer.pipeline.parseWorkers");
+		if (parseWorkers != null) {
+			final Integer rowQueueCapacity = Play.application().configuration().getInt("importer.pipeline.rowQueueCapacity");
+			watcher.setImportPipeline(new ImportPipeline(parser, writers, parseWorkers, 
+				rowQueueCapacity != null ? rowQueueCapacity : 10000));
+		}
 
 		try { watcher.start(); } 
 		catch (IOException e) { Throwables.propagate(e); }
@@ -71,6 +129,68 @@ public class Global extends GlobalSettings {
 		return watcher;
 	}
 	
+	/*
+	 * Batches hold 1000 Test Cases unless bounds are configured for the batch size to be adapted within. Failure 
+	 * details over 4k chars are packed unless another threshold is configured.
+	 */
+	private static BatchJdbcImporter newImporter(DataSource ds, IFolderData fd, StorageIdGenerator storageIds, 
+			Integer rowsPerInsert) {
+		final BatchJdbcImporter importer = rowsPerInsert == null 
+			? new BatchJdbcImporter(ds, fd, storageIds, 1000) 
+			: new MultiRowJdbcImporter(ds, fd, storageIds, 1000, rowsPerInsert);
+		final Integer minBatchSize = Play.application().configuration().getInt("importer.adaptiveBatchSize.min");
+		final Integer maxBatchSize = Play.application().configuration().getInt("importer.adaptiveBatchSize.max");
+		if (minBatchSize != null && maxBatchSize != null) {
+			importer.setAdaptiveBatchSize(minBatchSize, maxBatchSize);
+		}
+		final Long packThresholdChars = Play.application().configuration().getLong("importer.failureDetails.packThresholdChars");
+		if (packThresholdChars != null) {
+			importer.setDetailCodec(new TextCodec(packThresholdChars));
+		}
+		return importer;
+	}
+	
+	/*
+	 * The parser's engine defaults to CURSOR. Parallel parsing of large aggregated reports is enabled if a minimum 
+	 * file size is configured. Names are deduplicated per import unless a process wide name table size is configured. 
+	 * Failure details over the configured size are spilled to temporary files / truncated.
+	 */
+	private ReportParser initialiseReportParser() {
+		final String engine = Play.application().configuration().getString("importer.engine");
+		final ReportParser parser = engine == null ? new ReportParser() : new ReportParser(ReportParser.Engine.valueOf(engine));
+		final Long parallelSuitesMinBytes = Play.application().configuration().getLong("importer.parallelSuites.minFileBytes");
+		
+		if (parallelSuitesMinBytes != null) { 
+			parser.setParallelSuiteParsing(ForkJoinPool.commonPool(), parallelSuitesMinBytes); 
+		}
+		
+		final Long nameTableMaxSize = Play.application().configuration().getLong("importer.nameTable.maxSize");
+		if (nameTableMaxSize != null) {
+			parser.setNameTable(NameTable.bounded(nameTableMaxSize));
+		}
+		
+		final Integer spillThresholdChars = Play.application().configuration().getInt("importer.failureDetails.spillThresholdChars");
+		final Long maxChars = Play.application().configuration().getLong("importer.failureDetails.maxChars");
+		if (spillThresholdChars != null || maxChars != null) {
+			parser.setFailureDetailsPolicy(new FailureDetailsPolicy(
+				spillThresholdChars != null ? spillThresholdChars : FailureDetailsPolicy.DEFAULT.getSpillThresholdChars(), 
+				maxChars != null ? maxChars : FailureDetailsPolicy.DEFAULT.getMaxChars()));
+		}
+		return parser;
+	}
+	
+	/*
+	 * Storage ids are time-ordered UUIDs unless ids from the database sequence ("sequence") or random UUIDs ("random") 
+	 * are configured.
+	 */
+	private StorageIdGenerator initialiseStorageIdGenerator(DataSource ds) {
+		final String storageIds = Play.application().configuration().getString("importer.storageIds");
+		
+		if ("sequence".equals(storageIds)) return new SequenceBlockIdGenerator(ds);
+		if ("random".equals(storageIds)) return StorageIdGenerator.random();
+		return StorageIdGenerator.timeOrdered();
+	}
+	
 	private Path getWatchFolderPath() {
 		File targetFolder = new File(Play.application().configuration().getString("watchFolder"));
 		
@@ -7,8 +7,11 @@ import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
 import events.FolderEvents;
 import folderManager.FileSystemEvent;
 import importer.IBatchImporter;
+import importer.IImportManifest;
+import importer.ImportPipeline;
+import importer.ReportCheckpoint;
+import importer.ReportFingerprint;
 import importer.ReportParser;
-import importer.ReportedTestElement;
 import importer.events.ImportEvents;
 
 import java.io.File;
@@ -24,6 +27,7 @@ import java.nio.file.WatchService;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -50,15 +54,36 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
  * Monitors a defined folder and its sub-tree for changes that would trigger changes in
  * the data store:
  * <ul>
- * <li> Creation of a new Test Report file will trigger a batch import of the file's content into the data store.
- * <li> Deletion of a Test Report will flag the corresponding data in the data store as having no corresponding report.
+ * <li> Creation of a new Test Report file will trigger a batch import of the file's content into the data store. 
+ * Gzipped reports and zip / tar archives of reports are imported without being extracted.
+ * Reports are routed by file extension, see {@link ReportParser}: binary reports (<i>.rjb</i>) written by producers 
+ * with a {@link importer.BinaryReportWriter} skip XML parsing altogether.
+ * <li> Deletion of a Test Report will delete the corresponding data from the data store, see
+ * {@link IBatchImporter#doDelete(Path)}.
  * <li> Modification of a Test Report will trigger a deletion of existing data corresponding to the file and a 
- * fresh batch import.
+ * fresh batch import, in one transaction, see {@link IBatchImporter#doReplace(Path, ReportParser)}. Modifications 
+ * that leave the report's modified time as it was when it was imported (e.g. those of the copy that created it) are 
+ * ignored.
  * </ul>
  * 
- * TODO: This is work in progress. The only currently implemented function is triggering an import when a new file is 
- * created in the watch folder. Future work will evolve the other functions as we need better data management over the 
- * DB and probably another table to track each folder and its status. 
+ * In tailing mode, reports that are still being written are imported as they grow. Each import parses the part of the 
+ * report written since the previous one, from a per file {@link ReportCheckpoint}, so that results appear while the 
+ * run that writes the report is still going. Creation and each modification of a report trigger an import, until 
+ * the report is complete.
+ * 
+ * Otherwise, new reports are imported on the watch thread, one after the other, unless an {@link ImportPipeline} is
+ * set. New reports are then handed to the pipeline, whose parse of a report overlaps with the writes of the reports 
+ * before it. The watch thread blocks while the pipeline is full.
+ * 
+ * If an {@link IImportManifest} is set, each report is fingerprinted before it is parsed (see 
+ * {@link ReportFingerprint}) and skipped if its content is the same as when it was last imported, so a report that
+ * is delivered again (e.g. a result folder that CI copies again) costs a pass to hash it rather than an import. A 
+ * report whose content has changed since it was imported replaces the data of its previous import, see 
+ * {@link IBatchImporter#doReplace(Path, ReportParser)}. The manifest isn't used when tailing.
+ * 
+ * TODO: This is work in progress. Deleted and renamed folders aren't yet reflected in the data store. Future work 
+ * will evolve these functions as we need better data management over the DB and probably another table to track each 
+ * folder and its status. 
  */
 public class ImportFileWatcher {
 
@@ -66,12 +91,19 @@ public class ImportFileWatcher {
 	private final static String WATCH_THREAD_ID = "file-watch-worker-%d";
 		
 	private final IBatchImporter importer;
+	private final ReportParser parser;
 	private final Path rootFolder;
+	private final boolean isTailing;
 	
 	private final ListeningExecutorService watcherThreadExec = initialiseWatcherThreadExecutor();
 	private final WatchService watchService  = initializeWatchService();
 	private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
 	private final List<Subscriber<? super FileSystemEvent>> subscribers = Lists.newCopyOnWriteArrayList();	
+	private final Map<Path, ReportCheckpoint> checkpoints = new ConcurrentHashMap<>();
+	private ImportPipeline pipeline = null;
+	private IImportManifest manifest = null;
+	private final Map<Path, CompletableFuture<Void>> pipelinedFiles = new ConcurrentHashMap<>();
+	private final Map<Path, Long> importedModifiedTimes = new ConcurrentHashMap<>();
 	
 	/**
 	 * Creates a new ImportFileWatcher instance.
@@ -80,11 +112,65 @@ public class ImportFileWatcher {
 	 * @param importer Used to import new files into the data store.
 	 */
 	public ImportFileWatcher(final Path rootFolder, final IBatchImporter importer) {
+		this(rootFolder, importer, new ReportParser());
+	}
+	
+	/**
+	 * Creates a new ImportFileWatcher instance.
+	 * @param rootFolder The root folder that will be watched. All sub folders and their contents will 
+	 * be monitored.
+	 * @param importer Used to import new files into the data store.
+	 * @param parser Used to parse new files.
+	 */
+	public ImportFileWatcher(final Path rootFolder, final IBatchImporter importer, final ReportParser parser) {
+		this(rootFolder, importer, parser, false);
+	}
+	
+	/**
+	 * Creates a new ImportFileWatcher instance.
+	 * @param rootFolder The root folder that will be watched. All sub folders and their contents will 
+	 * be monitored.
+	 * @param importer Used to import new files into the data store. Must support resumable imports if tailing.
+	 * @param parser Used to parse new files.
+	 * @param isTailing True to import reports as they are written, see 
+	 * {@link IBatchImporter#doImport(Path, ReportParser, ReportCheckpoint)}.
+	 */
+	public ImportFileWatcher(final Path rootFolder, final IBatchImporter importer, final ReportParser parser, 
+			final boolean isTailing) {
 		Preconditions.checkNotNull(rootFolder, "rootFolder must not be null.");
 		Preconditions.checkNotNull(importer, "importer");
+		Preconditions.checkNotNull(parser, "parser must not be null.");
 		
 		this.rootFolder = rootFolder;
 		this.importer = importer;
+		this.parser = parser;
+		this.isTailing = isTailing;
+	}
+	
+	/**
+	 * Imports new reports through the given pipeline rather than on the watch thread. Must be set before the watcher
+	 * is started. Tailed reports are still imported on the watch thread, so that each is imported in order.
+	 * @param pipeline Imports new reports. Closed when the watcher is stopped. Must not be null.
+	 * @return This object.
+	 */
+	public ImportFileWatcher setImportPipeline(final ImportPipeline pipeline) {
+		Preconditions.checkNotNull(pipeline, "pipeline must not be null.");
+		
+		this.pipeline = pipeline;
+		return this;
+	}
+	
+	/**
+	 * Skips reports whose content has already been imported, and replaces the data of reports whose content has 
+	 * changed. Must be set before the watcher is started.
+	 * @param manifest Records the imported reports. Must not be null.
+	 * @return This object.
+	 */
+	public ImportFileWatcher setImportManifest(final IImportManifest manifest) {
+		Preconditions.checkNotNull(manifest, "manifest must not be null.");
+		
+		this.manifest = manifest;
+		return this;
 	}
 	
 	/**
@@ -130,6 +216,7 @@ public class ImportFileWatcher {
 		
 		watcherThreadExec.shutdown();
 		closeWatchService();
+		if (pipeline != null) { pipeline.close(); }
 		
 		logger.info("Stopped Import File Watcher.");
 	}
@@ -179,8 +266,8 @@ public class ImportFileWatcher {
 		final Path srcFileOrFolder = path.resolve(event.context());
 		try {
 			if (eventType == ENTRY_CREATE) { handleCreated(srcFileOrFolder); }
-			else if (eventType == ENTRY_MODIFY) { /* TODO */ logger.debug("Processing Modified Folder: " + srcFileOrFolder); }
-			else if (eventType == ENTRY_DELETE) { /* TODO */ logger.debug("Deleted Folder: " + srcFileOrFolder); }
+			else if (eventType == ENTRY_MODIFY) { handleModified(srcFileOrFolder); }
+			else if (eventType == ENTRY_DELETE) { handleDeleted(srcFileOrFolder); }
 			else { unhandledWatchEvent(eventType, srcFileOrFolder); }
 		}
 		catch(Exception ex) {
@@ -260,6 +347,34 @@ public class ImportFileWatcher {
 		traverseFolder(folder).forEach(fileInFolder -> importFromFile(fileInFolder));
 	}
 	
+	/*
+	 * Modified reports are resumed from their checkpoint when tailing, and checked against the manifest if there is 
+	 * one. Otherwise their data is replaced.
+	 */
+	private void handleModified(final Path srcFileOrFolder) {
+		if (!Files.isRegularFile(srcFileOrFolder)) { logger.debug("Processing Modified Folder: " + srcFileOrFolder); }
+		else if (isTailing || manifest != null) { importFromFile(srcFileOrFolder); }
+		else { replaceFromFile(srcFileOrFolder); }
+	}
+	
+	/*
+	 * The data of a deleted report is deleted, and the report is removed from the manifest, so that it is imported if
+	 * it is delivered again.
+	 */
+	private void handleDeleted(final Path srcFileOrFolder) {
+		checkpoints.remove(srcFileOrFolder);
+		importedModifiedTimes.remove(srcFileOrFolder);
+		if (watchKeys.containsValue(srcFileOrFolder)) {
+			/* TODO */ logger.debug("Deleted Folder: " + srcFileOrFolder);
+			return;
+		}
+		
+		joinPipelined(srcFileOrFolder);
+		if (manifest != null) { manifest.remove(srcFileOrFolder); }
+		final int deletedEntryCount = importer.doDelete(srcFileOrFolder);
+		logger.debug("Deleted " + deletedEntryCount + " entries of deleted file: " + srcFileOrFolder);
+	}
+	
 	private void importFromFile(final Path filePath) {
 		/*
 		 * We may get a folder passed in as a result of recursive folder traversal.
@@ -267,13 +382,111 @@ public class ImportFileWatcher {
 		 */
 		if (Files.isDirectory(filePath)) return;
 		
+		if (isTailing) {
+			tailFile(filePath);
+			return;
+		}
+		
+		joinPipelined(filePath);
+		final ReportFingerprint imported = manifest != null ? manifest.get(filePath) : null;
+		final ReportFingerprint fingerprint = manifest != null ? ReportFingerprint.of(filePath, imported) : null;
+		if (fingerprint != null && fingerprint.hasSameContent(imported)) {
+			logger.debug("Skipping file whose content has already been imported: " + filePath);
+			if (fingerprint != imported) { manifest.put(filePath, fingerprint); }
+			return;
+		}
+		
+		if (manifest == null) { importedModifiedTimes.put(filePath, lastModifiedMillis(filePath)); }
+		if (imported == null && pipeline != null) {
+			pipelineFile(filePath, fingerprint);
+			return;
+		}
+		
 		subscribers.forEach(s -> s.onNext(ImportEvents.started(filePath)));
-		final Stream<ReportedTestElement> testCaseEntries = new ReportParser().parse(filePath);
-		final int importedEntryCount = importer.doImport(testCaseEntries);
+		final int importedEntryCount = imported == null 
+			? importer.doImport(filePath, parser) 
+			: importer.doReplace(filePath, parser);
+		if (fingerprint != null) { manifest.put(filePath, fingerprint); }
 		logger.debug("Imported " + importedEntryCount + " entries from file: " + filePath);
 		subscribers.forEach(s -> s.onNext(ImportEvents.successful(filePath)));
 	}
 	
+	/*
+	 * Hands the report to the pipeline. Its outcome is published, and recorded in the manifest, from the pipeline's 
+	 * writer thread. Reports that replace an earlier import are imported on the watch thread instead.
+	 */
+	private void pipelineFile(final Path filePath, final ReportFingerprint fingerprint) {
+		subscribers.forEach(s -> s.onNext(ImportEvents.started(filePath)));
+		final CompletableFuture<Void> pipelined = pipeline.submit(filePath).thenAccept(result -> {
+			if (result.isSuccessful()) {
+				if (fingerprint != null) { manifest.put(filePath, fingerprint); }
+				logger.debug("Imported " + result.getImportedEntryCount() + " entries from file: " + filePath);
+				subscribers.forEach(s -> s.onNext(ImportEvents.successful(filePath)));
+			}
+			else {
+				subscribers.forEach(s -> s.onNext(ImportEvents.failed(filePath, ENTRY_CREATE)));
+			}
+		});
+		pipelinedFiles.put(filePath, pipelined);
+		pipelined.thenRun(() -> pipelinedFiles.remove(filePath, pipelined));
+	}
+	
+	/*
+	 * Replaces the data of a report that has been modified since it was imported, or since before the watcher started.
+	 */
+	private void replaceFromFile(final Path filePath) {
+		joinPipelined(filePath);
+		final long modifiedMillis = lastModifiedMillis(filePath);
+		final Long importedModifiedMillis = importedModifiedTimes.put(filePath, modifiedMillis);
+		if (importedModifiedMillis != null && importedModifiedMillis == modifiedMillis) {
+			logger.debug("Ignoring modification of file that is unchanged since it was imported: " + filePath);
+			return;
+		}
+		
+		subscribers.forEach(s -> s.onNext(ImportEvents.started(filePath)));
+		final int importedEntryCount = importer.doReplace(filePath, parser);
+		logger.debug("Replaced the entries of file with " + importedEntryCount + " entries: " + filePath);
+		subscribers.forEach(s -> s.onNext(ImportEvents.successful(filePath)));
+	}
+	
+	/*
+	 * Wait for an earlier delivery of the report that is still in the pipeline, so that it is imported (and in the 
+	 * manifest) before the report is imported again or deleted.
+	 */
+	private void joinPipelined(final Path filePath) {
+		final CompletableFuture<Void> pipelined = pipelinedFiles.get(filePath);
+		if (pipelined != null) { pipelined.join(); }
+	}
+	
+	private static long lastModifiedMillis(final Path filePath) {
+		try {
+			return Files.getLastModifiedTime(filePath).toMillis();
+		}
+		catch (IOException e) {
+			throw Throwables.propagate(e);
+		}
+	}
+	
+	/*
+	 * Imports the part of the report written since its checkpoint. The checkpoint of a complete report is kept until
+	 * the report is deleted, so that modifications of it are ignored. An import that fails is rolled back, so the 
+	 * report's checkpoint is kept and the next modification retries from it.
+	 */
+	private void tailFile(final Path filePath) {
+		final ReportCheckpoint from = checkpoints.getOrDefault(filePath, ReportCheckpoint.START);
+		if (from.isComplete()) {
+			logger.debug("Ignoring modification of completely imported file: " + filePath);
+			return;
+		}
+		
+		subscribers.forEach(s -> s.onNext(ImportEvents.started(filePath)));
+		final ReportCheckpoint checkpoint = importer.doImport(filePath, parser, from);
+		checkpoints.put(filePath, checkpoint);
+		logger.debug("Imported " + (checkpoint.getElementCount() - from.getElementCount()) + " entries from file: " + filePath 
+			+ ". " + checkpoint);
+		subscribers.forEach(s -> s.onNext(ImportEvents.successful(filePath)));
+	}
+	
 	/*
 	 * Unchecked wrapper for recursive folder traversal.
 	 */
@@ -1,10 +1,10 @@
 package folderManager;
 
 import static java.util.stream.Collectors.toMap;
+import importer.jdbc.ImportSession;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -25,18 +25,24 @@ import com.google.common.cache.CacheLoader;
 
 /**
  * Extends {@link CacheLoader} to provide an RDBMS backed loader for the in-memory Folder cache. 
+ * Single Folders are loaded with a parameterized statement prepared in the Folder data's {@link ImportSession}.
  */
 class FolderCacheLoader extends CacheLoader<Path, Optional<Folder>> {
 	
 	private final DataSource ds;
+	private final ImportSession session;
 	
 	/**
 	 * @param ds Provides access to the RDBMS.
+	 * @param session The session that single Folders are loaded in. Shared with the Folder data, which it is 
+	 * synchronized on.
 	 */
-	public FolderCacheLoader(DataSource ds) {
+	public FolderCacheLoader(DataSource ds, ImportSession session) {
 		Preconditions.checkNotNull(ds, "ds must not be null.");
+		Preconditions.checkNotNull(session, "session must not be null.");
 		
 		this.ds = ds;		
+		this.session = session;
 	}		
 	
 	/**
@@ -49,23 +55,30 @@ class FolderCacheLoader extends CacheLoader<Path, Optional<Folder>> {
 	public Optional<Folder> load(Path path) {
 		Preconditions.checkNotNull(path, "path must not be null.");
 		
-		String query = String.format(JdbcFolderData.loadFolderSQL, path.toString());
-		
-		ResultSet rs = null;
 		Optional<Folder> folderOpt = Optional.empty();
+		
+		synchronized (session) {
+			session.begin();
+			boolean isCommitted = false;
+			try {
+				PreparedStatement q = session.prepare(JdbcFolderData.loadFolderByPathSQL);
+				q.setString(1, path.toString());
 				
-		try (Connection conn = ds.getConnection(); 
-				PreparedStatement q = conn.prepareStatement(query)){
-			
-			rs = q.executeQuery();
-			
-			if (hasRows(rs)) { 
-				Folder loadedFolder = fromRow(rs);
-				folderOpt = Optional.of(loadedFolder); 
+				try (ResultSet rs = q.executeQuery()) {
+					if (hasRows(rs)) { 
+						Folder loadedFolder = fromRow(rs);
+						folderOpt = Optional.of(loadedFolder); 
+					}
+				}
+				session.commit();
+				isCommitted = true;
+				
+			} catch (SQLException e) {
+				Throwables.propagate(e);
+			}
+			finally {
+				session.end(isCommitted);
 			}
-			
-		} catch (SQLException e) {
-			Throwables.propagate(e);
 		}
 		
 		return folderOpt;
@@ -1,7 +1,8 @@
 package folderManager;
 
+import importer.jdbc.ImportSession;
+
 import java.nio.file.Path;
-import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -27,6 +28,9 @@ import com.google.common.collect.ImmutableCollection;
  * 
  * {@link JdbcFolderData} also maintains an in-memory cache of Folder data using a 
  * {@link LoadingCache}.
+ * 
+ * Folders are read and written through an {@link ImportSession}, one statement at a time, each in a transaction of
+ * its own. A long-lived session saves checking out a connection and preparing a statement for every Folder touched.
  */
 public class JdbcFolderData implements IFolderData {
 	
@@ -56,6 +60,11 @@ public class JdbcFolderData implements IFolderData {
 	 * Select Folder by Path SQL
 	 */
 	static public final String loadFolderSQL = "select * from folder where path = '%s'";
+	
+	/*
+	 * Select Folder by Path SQL, with the path as a parameter.
+	 */
+	static final String loadFolderByPathSQL = "select * from folder where path = ?";
 
 	/*
 	 * In-memory Folder cache.
@@ -70,18 +79,28 @@ public class JdbcFolderData implements IFolderData {
 	private final FolderCacheLoader folderDataLoader;
 	
 	/*
-	 * JDBC data source for Folder storage
+	 * Session for Folder storage. Used by one thread at a time.
 	 */
-	private final DataSource ds;
+	private final ImportSession session;
 	
 	/**
+	 * Creates Folder data that checks out a connection for each statement.
 	 * @param ds JDBC data source for persistent storage.
 	 */
 	public JdbcFolderData(DataSource ds) {
+		this(ds, ImportSession.perUse(ds));
+	}
+	
+	/**
+	 * @param ds JDBC data source for persistent storage.
+	 * @param session The session that Folders are read and written in. The caller remains responsible for closing it.
+	 */
+	public JdbcFolderData(DataSource ds, ImportSession session) {
 		Preconditions.checkNotNull(ds, "ds must not be null.");
+		Preconditions.checkNotNull(session, "session must not be null.");
 		
-		this.ds = ds;
-		this.folderDataLoader = new FolderCacheLoader(ds);
+		this.session = session;
+		this.folderDataLoader = new FolderCacheLoader(ds, session);
 		this.folderCache = CacheBuilder.newBuilder().build(this.folderDataLoader);
 	}
 	
@@ -119,28 +138,24 @@ public class JdbcFolderData implements IFolderData {
 		/*
 		 * Attempt INSERT of folder data. 
 		 */
-		try ( Connection conn = ds.getConnection();
-				PreparedStatement insertFolderStmt = conn.prepareStatement(insertFolderSQL) ){
-			
-			final DateTime now = DateTime.now();
-			final Folder f = new Folder(null, path, Folder.Status.Active, now, now);
-			final Timestamp timeStamp = new Timestamp(now.getMillis());
-			
-			insertFolderStmt.setString		(1, f.getPath().toString());
-			insertFolderStmt.setString		(2, f.getStatus().name());
-			insertFolderStmt.setTimestamp	(3, timeStamp); //createdOn
-			insertFolderStmt.setTimestamp	(4, timeStamp); //updatedOn
-			
-			int affectedRows = insertFolderStmt.executeUpdate();
-			
-			if (affectedRows == 0) throw new RuntimeException("Creating folder row failed, no rows affected.");
-		}
-		catch (SQLException sqlEx) {
-			if (sqlEx.getSQLState().equals(uniqueConstraintErrorCode)) { 
-				/* 
-				 * A Row with the given path already exists so the INSERT has failed the DB uniqueness constraint on "path".
-				 * This is OK. We'll continue on to use the existing stored folder data for the Path instead.
-				 */
+		synchronized (session) {
+			session.begin();
+			boolean isCommitted = false;
+			try {
+				insertFolder(path);
+				session.commit();
+				isCommitted = true;
+			}
+			catch (SQLException sqlEx) {
+				if (sqlEx.getSQLState().equals(uniqueConstraintErrorCode)) { 
+					/* 
+					 * A Row with the given path already exists so the INSERT has failed the DB uniqueness constraint on "path".
+					 * This is OK. We'll continue on to use the existing stored folder data for the Path instead.
+					 */
+				}
+			}
+			finally {
+				session.end(isCommitted);
 			}
 		}
 		/*
@@ -150,6 +165,22 @@ public class JdbcFolderData implements IFolderData {
 		return folderCache.getUnchecked(path).orElseGet(() -> refreshCacheAndRetrieve(path));
 	}
 	
+	private void insertFolder(Path path) throws SQLException {
+		final PreparedStatement insertFolderStmt = session.prepare(insertFolderSQL);
+		final DateTime now = DateTime.now();
+		final Folder f = new Folder(null, path, Folder.Status.Active, now, now);
+		final Timestamp timeStamp = new Timestamp(now.getMillis());
+		
+		insertFolderStmt.setString		(1, f.getPath().toString());
+		insertFolderStmt.setString		(2, f.getStatus().name());
+		insertFolderStmt.setTimestamp	(3, timeStamp); //createdOn
+		insertFolderStmt.setTimestamp	(4, timeStamp); //updatedOn
+		
+		int affectedRows = insertFolderStmt.executeUpdate();
+		
+		if (affectedRows == 0) throw new RuntimeException("Creating folder row failed, no rows affected.");
+	}
+	
 	/* (non-Javadoc)
 	 * @see folderManager.IFolderData#updateFolder(folderManager.Folder)
 	 */
@@ -163,22 +194,31 @@ public class JdbcFolderData implements IFolderData {
 		/*
 		 * Attempt UPDATE of folder data. 
 		 */
-		try ( Connection conn = ds.getConnection();
-				PreparedStatement updateFolderStmt = conn.prepareStatement(updateFolderSQL) ){
-			
-			updateFolderStmt.setString		(1, folder.getPath().toString());
-			updateFolderStmt.setString		(2, folder.getStatus().name());
-			updateFolderStmt.setTimestamp	(3, timeStamp);
-			updateFolderStmt.setLong		(4, folder.getId());
-			
-			int affectedRows = updateFolderStmt.executeUpdate();
-			
-			if (affectedRows == 0) throw new RuntimeException("Updating folder row failed, no rows affected.");
-			
-			folderCache.invalidate(folder.getPath());
-		}
-		catch (Exception ex) {
-			Throwables.propagate(ex);
+		synchronized (session) {
+			session.begin();
+			boolean isCommitted = false;
+			try {
+				final PreparedStatement updateFolderStmt = session.prepare(updateFolderSQL);
+				
+				updateFolderStmt.setString		(1, folder.getPath().toString());
+				updateFolderStmt.setString		(2, folder.getStatus().name());
+				updateFolderStmt.setTimestamp	(3, timeStamp);
+				updateFolderStmt.setLong		(4, folder.getId());
+				
+				int affectedRows = updateFolderStmt.executeUpdate();
+				
+				if (affectedRows == 0) throw new RuntimeException("Updating folder row failed, no rows affected.");
+				
+				session.commit();
+				isCommitted = true;
+				folderCache.invalidate(folder.getPath());
+			}
+			catch (Exception ex) {
+				Throwables.propagate(ex);
+			}
+			finally {
+				session.end(isCommitted);
+			}
 		}
 		
 		return folder.updateTimestamp(now);
@@ -0,0 +1,215 @@
+package importer;
+
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.joda.time.DateTime;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Reads the Junit Reports bundled in a zip or tar (optionally gzipped) archive, one entry after another, straight from
+ * the archive. Nothing is extracted to disk.
+ *
+ * Each entry whose name begins with "TEST-" is parsed by a {@link CursorReportReader} as a report in its own right.
+ * Entries may themselves be gzipped. Binary entries are read into memory and decoded by a {@link BinaryReportReader}. Suites are attributed to the folder containing the archive, and to the file
+ * <i>archive-name!/entry-name</i>.
+ */
+class ArchiveReportReader implements ReportReader {
+
+	private static final int bufferSize = 64 * 1024;
+
+	private final Path archiveLocation;
+	private final InputStream archive;
+	private final EntryCursor entries;
+	private final XMLInputFactory inputFactory;
+	private final NameTable nameTable;
+	private final FailureDetailsPolicy failureDetailsPolicy;
+
+	private final EntrySink entrySink = new EntrySink();
+	private ReportReader entryReader = null;
+	private String entryFile = null;
+
+	/*
+	 * Positions the archive stream at the content of the next file entry.
+	 */
+	@FunctionalInterface
+	private interface EntryCursor {
+		/**
+		 * @return The name of the next file entry, or null if there are no further entries.
+		 */
+		String nextFileEntry() throws IOException;
+	}
+
+	private ArchiveReportReader(Path archiveLocation, InputStream archive, EntryCursor entries, XMLInputFactory inputFactory,
+			NameTable nameTable, FailureDetailsPolicy failureDetailsPolicy) {
+		this.archiveLocation = archiveLocation;
+		this.archive = archive;
+		this.entries = entries;
+		this.inputFactory = inputFactory;
+		this.nameTable = nameTable;
+		this.failureDetailsPolicy = failureDetailsPolicy;
+	}
+
+	/**
+	 * @param archiveLocation The archive file to be read.
+	 * @param format The archive's format. Must be an archive format.
+	 * @param inputFactory Used to create the {@link CursorReportReader} for each entry.
+	 * @param nameTable Provides the qualified / package / local names of parsed elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 * @return A reader positioned before the archive's first entry.
+	 */
+	static ArchiveReportReader open(Path archiveLocation, ReportFormat format, XMLInputFactory inputFactory,
+			NameTable nameTable, FailureDetailsPolicy failureDetailsPolicy) throws IOException {
+
+		InputStream content = new BufferedInputStream(Files.newInputStream(archiveLocation), bufferSize);
+		try {
+			if (format == ReportFormat.ZIP) {
+				ZipInputStream zip = new ZipInputStream(content, StandardCharsets.UTF_8);
+				EntryCursor entries = () -> {
+					for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+						if (!entry.isDirectory()) return entry.getName();
+					}
+					return null;
+				};
+				return new ArchiveReportReader(archiveLocation, zip, entries, inputFactory, nameTable, failureDetailsPolicy);
+			}
+
+			if (format == ReportFormat.TAR_GZIP) {
+				content = new GZIPInputStream(content, bufferSize);
+			}
+			TarArchiveInputStream tar = new TarArchiveInputStream(content);
+			EntryCursor entries = () -> {
+				for (TarArchiveEntry entry = tar.getNextTarEntry(); entry != null; entry = tar.getNextTarEntry()) {
+					if (entry.isFile()) return entry.getName();
+				}
+				return null;
+			};
+			return new ArchiveReportReader(archiveLocation, tar, entries, inputFactory, nameTable, failureDetailsPolicy);
+		}
+		catch(IOException | RuntimeException ex) {
+			content.close();
+			throw ex;
+		}
+	}
+
+	@Override
+	public boolean next(ReportSink sink) throws XMLStreamException {
+		try {
+			while (true) {
+				if (entryReader != null) {
+					entrySink.target = sink;
+					if (entryReader.next(entrySink)) return true;
+					closeEntryReader();
+				}
+
+				if (!openNextReportEntry()) return false;
+			}
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		try { closeEntryReader(); }
+		finally { archive.close(); }
+	}
+
+	/*
+	 * Skips entries that aren't reports. The archive stream is shared by all entries, so the entry's reader is given
+	 * a view of it that isn't closed with the reader.
+	 */
+	private boolean openNextReportEntry() throws IOException, XMLStreamException {
+		for (String name = entries.nextFileEntry(); name != null; name = entries.nextFileEntry()) {
+			String fileName = name.substring(name.lastIndexOf('/') + 1);
+			if (!ImportSource.isReportFileName(fileName)) continue;
+
+			InputStream entryContent = new EntryInputStream(archive);
+			entryFile = archiveLocation.getFileName() + "!/" + name;
+			if (ReportFormat.of(fileName) == ReportFormat.BINARY) {
+				entryReader = new BinaryReportReader(archiveLocation, ByteBuffer.wrap(ByteStreams.toByteArray(entryContent)), 
+					nameTable, failureDetailsPolicy);
+				return true;
+			}
+			
+			if (ReportFormat.of(fileName) == ReportFormat.GZIP) {
+				entryContent = new GZIPInputStream(entryContent, bufferSize);
+			}
+			entryReader = new CursorReportReader(archiveLocation, entryContent, inputFactory, nameTable, failureDetailsPolicy);
+			return true;
+		}
+		return false;
+	}
+
+	private void closeEntryReader() {
+		if (entryReader == null) return;
+		try {
+			entryReader.close();
+		}
+		catch(Exception ex) {
+			Throwables.propagate(ex);
+		}
+		finally {
+			entryReader = null;
+			entryFile = null;
+		}
+	}
+
+	/**
+	 * Attributes the suites of the current entry to the entry, within the archive.
+	 */
+	private class EntrySink implements ReportSink {
+
+		private ReportSink target;
+
+		@Override
+		public void testSuite(String qualifiedName, String packageName, String localName, String time, long durationMicros,
+				Path containingFolder, String containingFile, DateTime timestamp, long testsRun, long totalFailures, long totalErrors,
+				long totalSkipped) {
+			target.testSuite(qualifiedName, packageName, localName, time, durationMicros, containingFolder, entryFile, timestamp,
+				testsRun, totalFailures, totalErrors, totalSkipped);
+		}
+
+		@Override
+		public void testCase(String qualifiedName, String packageName, String localName, String methodName, String time,
+				long durationMicros, boolean isSkipped, FailureInfo.Type failureType, String failureMessage, String exceptionName,
+				FailureDetails failureDetails) {
+			target.testCase(qualifiedName, packageName, localName, methodName, time, durationMicros, isSkipped, failureType,
+				failureMessage, exceptionName, failureDetails);
+		}
+	}
+
+	/**
+	 * The content of the current archive entry. Closing it leaves the archive open.
+	 */
+	private static class EntryInputStream extends FilterInputStream {
+
+		EntryInputStream(InputStream archive) {
+			super(archive);
+		}
+
+		@Override
+		public void close() {
+			// The archive is closed by the ArchiveReportReader.
+		}
+	}
+}
@@ -0,0 +1,274 @@
+package importer;
+
+import static importer.BinaryReportWriter.CASE;
+import static importer.BinaryReportWriter.END;
+import static importer.BinaryReportWriter.ERROR;
+import static importer.BinaryReportWriter.FAILURE;
+import static importer.BinaryReportWriter.HAS_DETAILS;
+import static importer.BinaryReportWriter.HEADER;
+import static importer.BinaryReportWriter.SKIPPED;
+import static importer.BinaryReportWriter.SUITE;
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.joda.time.DateTime;
+
+/**
+ * Reads a binary report (see {@link BinaryReportWriter}) directly from a memory-mapped {@link ByteBuffer}. Field values
+ * are decoded straight from the buffer, without a stream or an intermediate copy of the report. Each name is decoded,
+ * and split into its package / local names, once per report however many records refer to it.
+ *
+ * A report that is malformed, or that ends without its end record, fails with an {@link IllegalStateException}.
+ */
+class BinaryReportReader implements ReportReader {
+
+	private static final int DETAILS_CHUNK_CHARS = 8 * 1024;
+
+	private final Path fileLocation;
+	private final NameTable nameTable;
+	private final FailureDetailsPolicy failureDetailsPolicy;
+	private final ByteBuffer report;
+	private final ByteBuffer view;
+	private final int limit;
+	private final Path containingFolder;
+	private final String containingFile;
+
+	/*
+	 * The names defined so far, by index. Qualified names are looked up in the name table when first used as one.
+	 */
+	private final List<String> definedNames = new ArrayList<>();
+	private final List<NameTable.Names> qualifiedNames = new ArrayList<>();
+
+	private final CharsetDecoder utf8Decoder = StandardCharsets.UTF_8.newDecoder()
+		.onMalformedInput(CodingErrorAction.REPORT)
+		.onUnmappableCharacter(CodingErrorAction.REPORT);
+	private final CharBuffer chars = CharBuffer.allocate(DETAILS_CHUNK_CHARS);
+	private byte[] scratch = new byte[256];
+
+	private int pos = 0;
+	private boolean isEnded = false;
+
+	/**
+	 * @param fileLocation The binary report file that the content originates from. Suites are attributed to this file.
+	 * @param report The report content, from position 0 to its limit. Its position is not changed.
+	 * @param nameTable Provides the qualified / package / local names of read elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 */
+	BinaryReportReader(Path fileLocation, ByteBuffer report, NameTable nameTable, FailureDetailsPolicy failureDetailsPolicy) {
+		this.fileLocation = fileLocation;
+		this.nameTable = nameTable;
+		this.failureDetailsPolicy = failureDetailsPolicy;
+		this.report = report;
+		this.view = report.duplicate();
+		this.limit = report.limit();
+
+		File reportFile = fileLocation.toFile();
+		this.containingFolder = reportFile.getParentFile().toPath();
+		this.containingFile = reportFile.getName();
+
+		for (byte b : HEADER) {
+			if (readByte() != b) throw malformed("not a binary report, or an unsupported version");
+		}
+	}
+
+	/**
+	 * Maps the given report.
+	 * @param fileLocation The binary report file to be read.
+	 * @param nameTable Provides the qualified / package / local names of read elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 * @return A reader of the report.
+	 */
+	static BinaryReportReader open(Path fileLocation, NameTable nameTable, FailureDetailsPolicy failureDetailsPolicy)
+			throws IOException {
+		try (FileChannel channel = FileChannel.open(fileLocation, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Binary report " + fileLocation + " is too large to be mapped.");
+			}
+			return new BinaryReportReader(fileLocation, channel.map(MapMode.READ_ONLY, 0, channel.size()), nameTable,
+				failureDetailsPolicy);
+		}
+	}
+
+	@Override
+	public boolean next(ReportSink sink) {
+		if (isEnded) return false;
+
+		int recordType = readByte();
+		switch (recordType) {
+			case SUITE:
+				readTestSuite(sink);
+				return true;
+			case CASE:
+				readTestCase(sink);
+				return true;
+			case END:
+				if (pos != limit) throw malformed("content after the end record");
+				isEnded = true;
+				return false;
+			default:
+				throw malformed("unknown record type " + recordType);
+		}
+	}
+
+	@Override
+	public void close() {
+	}
+
+	private void readTestSuite(ReportSink sink) {
+		NameTable.Names names = readQualifiedName();
+		String time = readText();
+		if (time == null) throw new IllegalStateException("time was not set.");
+		long durationMicros = readSignedVarLong();
+		DateTime timestamp = new DateTime(readSignedVarLong());
+		long testsRun = readVarLong();
+		long totalFailures = readVarLong();
+		long totalErrors = readVarLong();
+		long totalSkipped = readVarLong();
+
+		sink.testSuite(names.qualifiedName, names.packageName, names.localName, time, durationMicros, containingFolder,
+			containingFile, timestamp, testsRun, totalFailures, totalErrors, totalSkipped);
+	}
+
+	private void readTestCase(ReportSink sink) {
+		NameTable.Names names = readQualifiedName();
+		String methodName = readText();
+		String time = readText();
+		if (time == null) throw new IllegalStateException("time was not set.");
+		long durationMicros = readSignedVarLong();
+		int flags = readByte();
+
+		FailureInfo.Type failureType = (flags & FAILURE) != 0 ? FailureInfo.Type.failure :
+			(flags & ERROR) != 0 ? FailureInfo.Type.error : null;
+		String failureMessage = null;
+		String exceptionName = null;
+		if (failureType != null) {
+			failureMessage = readText();
+			int index = readNameIndex();
+			exceptionName = index < 0 ? null : definedNames.get(index);
+		}
+		FailureDetails failureDetails = (flags & HAS_DETAILS) != 0 ? readDetails() : null;
+
+		sink.testCase(names.qualifiedName, names.packageName, names.localName, methodName, time, durationMicros,
+			(flags & SKIPPED) != 0, failureType, failureMessage, exceptionName, failureDetails);
+	}
+
+	private NameTable.Names readQualifiedName() {
+		int index = readNameIndex();
+		if (index < 0) throw new IllegalStateException("qualifiedName was not set.");
+
+		NameTable.Names qualifiedName = qualifiedNames.get(index);
+		if (qualifiedName == null) {
+			qualifiedName = nameTable.lookup(definedNames.get(index));
+			qualifiedNames.set(index, qualifiedName);
+		}
+		return qualifiedName;
+	}
+
+	/*
+	 * Reads a name, defining it if it is new. Returns its index, or -1 for a null name.
+	 */
+	private int readNameIndex() {
+		long tag = readVarLong();
+		if (tag == 0) return -1;
+
+		if (tag == 1) {
+			definedNames.add(readString(readLength()));
+			qualifiedNames.add(null);
+			return definedNames.size() - 1;
+		}
+
+		if (tag < 0 || tag - 2 >= definedNames.size()) throw malformed("reference to undefined name " + (tag - 2));
+		return (int)(tag - 2);
+	}
+
+	private String readText() {
+		long length = readVarLong();
+		if (length == 0) return null;
+		if (length < 0 || length - 1 > limit - pos) throw malformed("truncated report");
+		return readString((int)(length - 1));
+	}
+
+	private String readString(int length) {
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		view.limit(pos + length).position(pos);
+		view.get(scratch, 0, length);
+		pos += length;
+		return new String(scratch, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * Decodes the details a chunk at a time, straight from the buffer.
+	 */
+	private FailureDetails readDetails() {
+		FailureDetails.Builder details = failureDetailsPolicy.newBuilder();
+		try {
+			for (int length = readLength(); length > 0; length = readLength()) {
+				view.limit(pos + length).position(pos);
+				pos += length;
+
+				utf8Decoder.reset();
+				CoderResult result;
+				do {
+					result = utf8Decoder.decode(view, chars, true);
+					if (result.isError()) throw malformed("invalid UTF-8 in failure details");
+
+					chars.flip();
+					details.append(chars.array(), 0, chars.limit());
+					chars.clear();
+				}
+				while (result.isOverflow());
+			}
+		}
+		catch(RuntimeException ex) {
+			details.discard();
+			throw ex;
+		}
+		return details.build();
+	}
+
+	private int readLength() {
+		long length = readVarLong();
+		if (length < 0 || length > limit - pos) throw malformed("truncated report");
+		return (int)length;
+	}
+
+	private long readSignedVarLong() {
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private long readVarLong() {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte();
+			value |= (long)(b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return value;
+		}
+		throw malformed("varint too long");
+	}
+
+	private int readByte() {
+		if (pos >= limit) throw malformed("truncated report");
+		return report.get(pos++) & 0xFF;
+	}
+
+	private IllegalStateException malformed(String reason) {
+		return new IllegalStateException("Malformed binary report " + fileLocation + " at byte " + pos + ": " + reason + ".");
+	}
+}
@@ -0,0 +1,274 @@
+package importer;
+
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * Writes Junit Reports in the compact binary form (<i>.rjb</i> files), for test runners that would rather not produce
+ * XML. Binary reports carry the same data as the XML reports and are imported the same way, see {@link ReportFormat},
+ * but are read without any markup to scan or text to convert.
+ *
+ * Producers can push field values to the writer as a {@link ReportSink}, or write elements that they have built (see
+ * {@link #element(ReportedTestElement)}). An XML report can be converted by parsing it into a writer. The folder and
+ * file that suites are attributed to aren't written, suites are attributed to the binary report they are read from.
+ *
+ * The report is a header followed by one record per element, in document order, and an end record:
+ * <pre>
+ * report  := 'R' 'J' 'B' version(1) record* END(0)
+ * record  := SUITE(1) name(qualifiedName) text(time) svarint(durationMicros) svarint(timestampMillis)
+ *                     varint(tests) varint(failures) varint(errors) varint(skipped)
+ *          | CASE(2) name(qualifiedName) text(methodName) text(time) svarint(durationMicros) flags
+ *                    [text(message) name(exceptionName)] [details]
+ * flags   := byte, SKIPPED(1) | FAILURE(2) | ERROR(4) | HAS_DETAILS(8). Message and exception name follow a failure
+ *            or error, details follow if they are present.
+ * text    := varint(0) for null | varint(byteLength + 1) UTF-8 bytes
+ * name    := varint(0) for null | varint(1) varint(byteLength) UTF-8 bytes, which defines the next name index
+ *          | varint(index + 2), a reference to a name defined earlier in the report
+ * details := (varint(byteLength) UTF-8 bytes)* varint(0), chunks that each end on a whole char
+ * varint  := unsigned LEB128. svarint is a zig-zag encoded varint.
+ * </pre>
+ * Names repeat from element to element, so each is written (and read) once per report. The end record tells a
+ * complete report from one that was cut short.
+ */
+public class BinaryReportWriter implements ReportSink, AutoCloseable {
+
+	/**
+	 * The file name extension of binary reports.
+	 */
+	public static final String FILE_EXTENSION = ".rjb";
+
+	static final byte[] HEADER = { 'R', 'J', 'B', 1 };
+
+	static final int END = 0;
+	static final int SUITE = 1;
+	static final int CASE = 2;
+
+	static final int SKIPPED = 1;
+	static final int FAILURE = 2;
+	static final int ERROR = 4;
+	static final int HAS_DETAILS = 8;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int DETAILS_CHUNK_CHARS = 8 * 1024;
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private final Map<String, Integer> nameIndexes = new HashMap<>();
+	private int count = 0;
+	private boolean isRecordOpen = false;
+
+	/**
+	 * Writes the report header.
+	 * @param out Receives the report. Closed when the writer is closed. Must not be null.
+	 */
+	public BinaryReportWriter(OutputStream out) {
+		Preconditions.checkNotNull(out, "out must not be null.");
+
+		this.out = out;
+		writeBytes(HEADER, 0, HEADER.length);
+	}
+
+	/**
+	 * @param reportFile The binary report to be written. Replaced if it exists. Must not be null.
+	 * @return A writer of the report.
+	 */
+	public static BinaryReportWriter create(Path reportFile) throws IOException {
+		Preconditions.checkNotNull(reportFile, "reportFile must not be null.");
+
+		return new BinaryReportWriter(Files.newOutputStream(reportFile));
+	}
+
+	/**
+	 * Writes a Test Suite record. The containing folder and file are not written.
+	 */
+	@Override
+	public void testSuite(String qualifiedName, String packageName, String localName, String time, long durationMicros,
+			Path containingFolder, String containingFile, DateTime timestamp, long testsRun, long totalFailures, long totalErrors,
+			long totalSkipped) {
+		Preconditions.checkNotNull(qualifiedName, "qualifiedName must not be null.");
+		Preconditions.checkNotNull(time, "time must not be null.");
+		Preconditions.checkNotNull(timestamp, "timestamp must not be null.");
+
+		isRecordOpen = true;
+		writeByte(SUITE);
+		writeName(qualifiedName);
+		writeText(time);
+		writeSignedVarLong(durationMicros);
+		writeSignedVarLong(timestamp.getMillis());
+		writeVarLong(testsRun);
+		writeVarLong(totalFailures);
+		writeVarLong(totalErrors);
+		writeVarLong(totalSkipped);
+		isRecordOpen = false;
+	}
+
+	/**
+	 * Writes a Test Case record. The writer takes ownership of the failure details. Details of a test case that has no
+	 * failure type are not written.
+	 */
+	@Override
+	public void testCase(String qualifiedName, String packageName, String localName, String methodName, String time,
+			long durationMicros, boolean isSkipped, FailureInfo.Type failureType, String failureMessage, String exceptionName,
+			FailureDetails failureDetails) {
+		try {
+			Preconditions.checkNotNull(qualifiedName, "qualifiedName must not be null.");
+			Preconditions.checkNotNull(time, "time must not be null.");
+
+			boolean hasDetails = failureType != null && failureDetails != null;
+			int flags = (isSkipped ? SKIPPED : 0) | (hasDetails ? HAS_DETAILS : 0);
+			if (failureType != null) {
+				flags |= failureType == FailureInfo.Type.failure ? FAILURE : ERROR;
+			}
+
+			isRecordOpen = true;
+			writeByte(CASE);
+			writeName(qualifiedName);
+			writeText(methodName);
+			writeText(time);
+			writeSignedVarLong(durationMicros);
+			writeByte(flags);
+			if (failureType != null) {
+				writeText(failureMessage);
+				writeName(exceptionName);
+			}
+			if (hasDetails) {
+				writeDetails(failureDetails);
+			}
+			isRecordOpen = false;
+		}
+		finally {
+			if (failureDetails != null) failureDetails.release();
+		}
+	}
+
+	/**
+	 * Writes the end record, unless a record was left part way through by a failure, and closes the stream.
+	 */
+	@Override
+	public void close() {
+		try (OutputStream closing = out) {
+			if (!isRecordOpen) {
+				writeByte(END);
+			}
+			flushBuffer();
+		}
+		catch(IOException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/*
+	 * Details are written a chunk at a time, so spilled details are never read into memory in their entirety. A
+	 * chunk never ends between the chars of a surrogate pair.
+	 */
+	private void writeDetails(FailureDetails details) {
+		try (Reader reader = details.openReader()) {
+			char[] chars = new char[DETAILS_CHUNK_CHARS];
+			int length = 0;
+			for (int read = reader.read(chars, 0, chars.length); read >= 0; read = reader.read(chars, length, chars.length - length)) {
+				length += read;
+				int chunkLength = Character.isHighSurrogate(chars[length - 1]) ? length - 1 : length;
+				if (chunkLength == 0) continue;
+
+				writeLengthPrefixed(new String(chars, 0, chunkLength).getBytes(StandardCharsets.UTF_8), 0);
+				System.arraycopy(chars, chunkLength, chars, 0, length - chunkLength);
+				length -= chunkLength;
+			}
+			if (length > 0) {
+				writeLengthPrefixed(new String(chars, 0, length).getBytes(StandardCharsets.UTF_8), 0);
+			}
+			writeByte(0);
+		}
+		catch(IOException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	private void writeName(String name) {
+		if (name == null) {
+			writeByte(0);
+			return;
+		}
+
+		Integer index = nameIndexes.get(name);
+		if (index != null) {
+			writeVarLong(index + 2);
+			return;
+		}
+
+		nameIndexes.put(name, nameIndexes.size());
+		writeByte(1);
+		writeLengthPrefixed(name.getBytes(StandardCharsets.UTF_8), 0);
+	}
+
+	private void writeText(String text) {
+		if (text == null) {
+			writeByte(0);
+		}
+		else {
+			writeLengthPrefixed(text.getBytes(StandardCharsets.UTF_8), 1);
+		}
+	}
+
+	private void writeLengthPrefixed(byte[] bytes, int lengthOffset) {
+		writeVarLong(bytes.length + lengthOffset);
+		writeBytes(bytes, 0, bytes.length);
+	}
+
+	private void writeSignedVarLong(long value) {
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	private void writeVarLong(long value) {
+		while ((value & ~0x7FL) != 0) {
+			writeByte((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		writeByte((int)value);
+	}
+
+	private void writeByte(int b) {
+		if (count == buffer.length) flushBuffer();
+		buffer[count++] = (byte)b;
+	}
+
+	private void writeBytes(byte[] bytes, int start, int length) {
+		try {
+			if (length > buffer.length - count) {
+				flushBuffer();
+				if (length > buffer.length) {
+					out.write(bytes, start, length);
+					return;
+				}
+			}
+			System.arraycopy(bytes, start, buffer, count, length);
+			count += length;
+		}
+		catch(IOException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	private void flushBuffer() {
+		try {
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+		catch(IOException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+}
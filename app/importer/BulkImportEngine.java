@@ -0,0 +1,200 @@
+package importer;
+
+import static java.util.stream.Collectors.toList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Imports all of the Test Reports from an {@link ImportSource} concurrently.
+ * 
+ * Files are parsed on a bounded work-stealing ({@link ForkJoinPool}) pool and handed to a fixed set of 
+ * {@link IBatchImporter} writers through an {@link ImportPipeline}: each parse pushes the file's elements to a 
+ * bounded row queue that the file's writer imports from (see {@link IBatchImporter#doImport(Stream)}). Files are 
+ * parsed on every thread of the pool however many writers there are, while a parse that gets ahead of its writer 
+ * blocks rather than holding more of the file in memory. The pool never grows beyond its parallelism.
+ * 
+ * A failure to import one file does not affect the others. Each file gets its own {@link FileImportResult}.
+ * 
+ * Small files can be imported several to a transaction (see {@link #setSmallFileTransactions(long, int)}), which saves
+ * a commit per file. If a group of files fails, its transaction is rolled back and its files are imported again one 
+ * at a time, so that only the files that fail on their own are reported as failed.
+ */
+public class BulkImportEngine {
+
+	private final static Logger logger = LoggerFactory.getLogger(BulkImportEngine.class);
+	
+	/*
+	 * The # of parsed elements of a file that can wait to be written.
+	 */
+	private final static int ROW_QUEUE_CAPACITY = 10000;
+	
+	private final ImportPipeline pipeline;
+	private long smallFileMaxBytes = 0;
+	private int smallFilesPerTransaction = 1;
+	
+	/**
+	 * @param parser Used to parse each Test Report. Must not be null.
+	 * @param writers The writers that parsed Test Reports are imported with. Each writer imports one file at 
+	 * a time. Must not be null or empty.
+	 * @param parallelism The maximum # of threads used to parse files. Must be > 0.
+	 */
+	public BulkImportEngine(ReportParser parser, List<IBatchImporter> writers, int parallelism) {
+		Preconditions.checkNotNull(parser, "parser must not be null.");
+		Preconditions.checkNotNull(writers, "writers must not be null.");
+		Preconditions.checkArgument(!writers.isEmpty(), "writers must not be empty.");
+		Preconditions.checkArgument(parallelism > 0, "parallelism must be greater than 0.");
+		
+		/*
+		 * The pool runs the parses in the order they are submitted (asyncMode), as the pipeline requires.
+		 */
+		final ForkJoinPool pool = new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+		this.pipeline = new ImportPipeline(parser, writers, pool, parallelism, ROW_QUEUE_CAPACITY);
+	}
+	
+	/**
+	 * Imports files that are smaller than the given size together, in groups of up to the given # of files. Each group
+	 * is imported in a single transaction, see {@link ImportPipeline#submit(List)}. By default every file is imported 
+	 * on its own.
+	 * @param maxFileBytes Files smaller than this are grouped. Must be >= 0, 0 disables grouping.
+	 * @param filesPerTransaction The maximum # of files in a group. Must be > 0.
+	 * @return This object.
+	 */
+	public BulkImportEngine setSmallFileTransactions(long maxFileBytes, int filesPerTransaction) {
+		Preconditions.checkArgument(maxFileBytes >= 0, "maxFileBytes must not be negative.");
+		Preconditions.checkArgument(filesPerTransaction > 0, "filesPerTransaction must be greater than 0.");
+		
+		this.smallFileMaxBytes = maxFileBytes;
+		this.smallFilesPerTransaction = filesPerTransaction;
+		return this;
+	}
+	
+	/**
+	 * Imports every Test Report in the given source.
+	 * @param source The Test Reports to be imported. Must not be null.
+	 * @return A {@link FileImportResult} for every file in the source.
+	 */
+	public List<FileImportResult> importFrom(ImportSource source) {
+		return importFrom(source, result -> {});
+	}
+	
+	/**
+	 * Imports every Test Report in the given source.
+	 * @param source The Test Reports to be imported. Must not be null.
+	 * @param onFileImported Notified as each file import completes. This may be called from the writer threads.
+	 * @return A {@link FileImportResult} for every file in the source.
+	 */
+	public List<FileImportResult> importFrom(ImportSource source, Consumer<FileImportResult> onFileImported) {
+		Preconditions.checkNotNull(source, "source must not be null.");
+		Preconditions.checkNotNull(onFileImported, "onFileImported must not be null.");
+		
+		final List<List<Path>> groups = group(source.computePaths().map(p -> Paths.get(p)).collect(toList()));
+		
+		final List<CompletableFuture<List<FileImportResult>>> imports = new ArrayList<>(groups.size());
+		for (List<Path> group : groups) {
+			imports.add(submit(group).thenApply(results -> {
+				if (isImported(group, results)) { results.forEach(onFileImported); }
+				return results;
+			}));
+		}
+		
+		final List<FileImportResult> results = new ArrayList<>();
+		for (int i = 0; i < groups.size(); i++) {
+			final List<Path> group = groups.get(i);
+			final List<FileImportResult> groupResults = imports.get(i).join();
+			if (isImported(group, groupResults)) {
+				results.addAll(groupResults);
+				continue;
+			}
+			logger.warn("Failed to import files: " + group + ". Importing them one at a time.", 
+				groupResults.get(0).getFailure().orElse(null));
+			final List<CompletableFuture<FileImportResult>> fileImports = new ArrayList<>(group.size());
+			for (Path file : group) {
+				fileImports.add(pipeline.submit(file).thenApply(result -> {
+					onFileImported.accept(result);
+					return result;
+				}));
+			}
+			fileImports.forEach(fileImport -> results.add(fileImport.join()));
+		}
+		return results;
+	}
+	
+	/**
+	 * Shuts down the parse pool and the writer threads. Imports that are in progress will complete.
+	 */
+	public void shutDown() {
+		pipeline.close();
+	}
+	
+	/*
+	 * Submits a single file on its own, and a group of files to be imported in one transaction.
+	 */
+	private CompletableFuture<List<FileImportResult>> submit(List<Path> group) {
+		return group.size() == 1 
+			? pipeline.submit(group.get(0)).thenApply(Collections::singletonList) 
+			: pipeline.submit(group);
+	}
+	
+	/*
+	 * A single file's result is final, while the files of a group that failed are imported again.
+	 */
+	private static boolean isImported(List<Path> group, List<FileImportResult> results) {
+		return group.size() == 1 || results.get(0).isSuccessful();
+	}
+	
+	/*
+	 * Groups the small files of each folder, in order, and puts every other file in a group of its own. Groups don't 
+	 * span folders, so that a group is written by the one writer that imports its folder (see 
+	 * {@link importer.jdbc.ShardedJdbcImporter}). A file whose size can't be read is imported on its own, where the 
+	 * failure is reported.
+	 */
+	private List<List<Path>> group(List<Path> files) {
+		final List<List<Path>> groups = new ArrayList<>();
+		List<Path> smallFiles = new ArrayList<>();
+		for (Path file : files) {
+			if (!isSmall(file)) {
+				groups.add(Collections.singletonList(file));
+				continue;
+			}
+			if (!smallFiles.isEmpty() && !Objects.equals(smallFiles.get(0).getParent(), file.getParent())) {
+				groups.add(smallFiles);
+				smallFiles = new ArrayList<>();
+			}
+			smallFiles.add(file);
+			if (smallFiles.size() == smallFilesPerTransaction) {
+				groups.add(smallFiles);
+				smallFiles = new ArrayList<>();
+			}
+		}
+		if (!smallFiles.isEmpty()) {
+			groups.add(smallFiles);
+		}
+		return groups;
+	}
+	
+	private boolean isSmall(Path file) {
+		if (smallFilesPerTransaction == 1) return false;
+		try {
+			return Files.size(file) < smallFileMaxBytes;
+		}
+		catch(IOException ex) {
+			return false;
+		}
+	}
+}
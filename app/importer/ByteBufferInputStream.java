@@ -0,0 +1,40 @@
+package importer;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Exposes the remaining content of a {@link ByteBuffer} as an {@link InputStream}.
+ * The buffer is read in place, so a slice of a mapped file can be read without copying it to the heap first.
+ */
+class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer buffer;
+	
+	/**
+	 * @param buffer The buffer to be read. Its position is advanced as the stream is read.
+	 */
+	ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+	
+	@Override
+	public int read() {
+		return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+	}
+	
+	@Override
+	public int read(byte[] bytes, int offset, int length) {
+		if (length == 0) return 0;
+		if (!buffer.hasRemaining()) return -1;
+		
+		int count = Math.min(length, buffer.remaining());
+		buffer.get(bytes, offset, count);
+		return count;
+	}
+	
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
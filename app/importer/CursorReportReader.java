@@ -0,0 +1,231 @@
+package importer;
+
+import static importer.ReportParser.classnameAttr;
+import static importer.ReportParser.errorEl;
+import static importer.ReportParser.errorsAttr;
+import static importer.ReportParser.failureEl;
+import static importer.ReportParser.failuresAttr;
+import static importer.ReportParser.message;
+import static importer.ReportParser.nameAttr;
+import static importer.ReportParser.skippedAttr;
+import static importer.ReportParser.skippedEl;
+import static importer.ReportParser.testcaseEl;
+import static importer.ReportParser.testsAttr;
+import static importer.ReportParser.testsuiteEl;
+import static importer.ReportParser.timeAttr;
+import static importer.ReportParser.timestampAttr;
+import static importer.ReportParser.type;
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.joda.time.DateTime;
+
+/**
+ * Reads a Junit XML Report using the StAX cursor API ({@link XMLStreamReader}).
+ *
+ * Unlike the {@link XMLEventReader} based parsing, no event objects are created per node.
+ * Attributes are read by index and element names are compared by local name directly
+ * from the cursor. The pushed values are identical.
+ */
+class CursorReportReader implements ReportReader {
+
+	private final Path fileLocation;
+	private final FailureDetailsPolicy failureDetailsPolicy;
+	private final ElementFields fields;
+	private final Closeable source;
+	private final XMLStreamReader reader;
+
+	/**
+	 * @param fileLocation The Junit Report file to be read.
+	 * @param inputFactory Used to create the underlying {@link XMLStreamReader}.
+	 * @param nameTable Provides the qualified / package / local names of parsed elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 */
+	CursorReportReader(Path fileLocation, XMLInputFactory inputFactory, NameTable nameTable, FailureDetailsPolicy failureDetailsPolicy) 
+			throws IOException, XMLStreamException {
+		this(fileLocation, Files.newBufferedReader(fileLocation, StandardCharsets.UTF_8), inputFactory, nameTable, failureDetailsPolicy);
+	}
+	
+	/**
+	 * @param fileLocation The Junit Report file that the content originates from. Suites are attributed to this file.
+	 * @param content UTF-8 encoded report content. Closed when this reader is closed.
+	 * @param inputFactory Used to create the underlying {@link XMLStreamReader}.
+	 * @param nameTable Provides the qualified / package / local names of parsed elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 */
+	CursorReportReader(Path fileLocation, InputStream content, XMLInputFactory inputFactory, NameTable nameTable, 
+			FailureDetailsPolicy failureDetailsPolicy) throws IOException, XMLStreamException {
+		this(fileLocation, new InputStreamReader(content, StandardCharsets.UTF_8), inputFactory, nameTable, failureDetailsPolicy);
+	}
+	
+	private CursorReportReader(Path fileLocation, Reader source, XMLInputFactory inputFactory, NameTable nameTable, 
+			FailureDetailsPolicy failureDetailsPolicy) throws IOException, XMLStreamException {
+		this.fileLocation = fileLocation;
+		this.failureDetailsPolicy = failureDetailsPolicy;
+		this.fields = new ElementFields(nameTable);
+		this.source = source;
+		try {
+			this.reader = inputFactory.createXMLStreamReader(source);
+		}
+		catch(XMLStreamException ex) {
+			source.close();
+			throw ex;
+		}
+	}
+
+	@Override
+	public boolean next(ReportSink sink) throws XMLStreamException {
+		while (reader.hasNext()) {
+			if (reader.next() == START_ELEMENT) {
+				String elemName = reader.getLocalName();
+
+				if (testsuiteEl.equals(elemName)) {
+					parseTestSuiteEntry();
+					fields.pushTestSuite(sink, fileLocation);
+					return true;
+				}
+
+				if (testcaseEl.equals(elemName)) {
+					parseTestCaseEntry();
+					fields.pushTestCase(sink);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void close() throws Exception {
+		fields.reset();
+		try { reader.close(); }
+		finally { source.close(); }
+	}
+
+	private void parseTestCaseEntry() throws XMLStreamException {
+		fields.reset();
+
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String attrName = reader.getAttributeLocalName(i);
+			if (classnameAttr.equals(attrName)) {
+				fields.qualifiedName = reader.getAttributeValue(i);
+			}
+			else if (nameAttr.equals(attrName)) {
+				fields.methodName = reader.getAttributeValue(i);
+			}
+			else if (timeAttr.equals(attrName)) {
+				fields.time = reader.getAttributeValue(i);
+			}
+		}
+
+		boolean isTestCaseParsed = false;
+		while (reader.hasNext() && !isTestCaseParsed) {
+			int event = reader.next();
+			if (event == START_ELEMENT) {
+				String elemName = reader.getLocalName();
+
+				if (failureEl.equals(elemName) || errorEl.equals(elemName)) {
+					fields.failureType = failureEl.equals(elemName) ? FailureInfo.Type.failure : FailureInfo.Type.error;
+					parseFailureInfo();
+				}
+
+				if (skippedEl.equals(elemName)) {
+					fields.isSkipped = true;
+				}
+			}
+
+			if (event == END_ELEMENT && testcaseEl.equals(reader.getLocalName())) {
+				isTestCaseParsed = true;
+			}
+		}
+	}
+
+	private void parseFailureInfo() throws XMLStreamException {
+
+		fields.failureMessage = null;
+		fields.exceptionName = null;
+
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String attrName = reader.getAttributeLocalName(i);
+			if (message.equals(attrName)) {
+				fields.failureMessage = reader.getAttributeValue(i);
+			}
+			else if (type.equals(attrName)) {
+				fields.exceptionName = reader.getAttributeValue(i);
+			}
+		}
+
+		/*
+		 * Copy text straight out of the cursor's buffer rather than materialising a String per text node.
+		 */
+		FailureDetails.Builder detailsBuilder = failureDetailsPolicy.newBuilder();
+		try {
+			boolean isReadingChars = true;
+			while (reader.hasNext() && isReadingChars) {
+				int event = reader.next();
+				if (event == CHARACTERS || event == CDATA || event == SPACE) {
+					detailsBuilder.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				}
+				else {
+					isReadingChars = false;
+				}
+			}
+		}
+		catch(XMLStreamException | RuntimeException ex) {
+			detailsBuilder.discard();
+			throw ex;
+		}
+
+		fields.setFailureDetails(detailsBuilder.build());
+	}
+
+	private void parseTestSuiteEntry() {
+		fields.reset();
+
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			String attrName = reader.getAttributeLocalName(i);
+			if (nameAttr.equals(attrName)) {
+				fields.qualifiedName = reader.getAttributeValue(i);
+			}
+			else if (timeAttr.equals(attrName)) {
+				fields.time = reader.getAttributeValue(i);
+			}
+			else if (testsAttr.equals(attrName)) {
+				fields.testsRun = Long.parseLong(reader.getAttributeValue(i));
+				fields.hasTestsRun = true;
+			}
+			else if (timestampAttr.equals(attrName)) {
+				fields.timestamp = DateTime.parse(reader.getAttributeValue(i));
+			}
+			else if (errorsAttr.equals(attrName)) {
+				fields.totalErrors = Long.parseLong(reader.getAttributeValue(i));
+				fields.hasTotalErrors = true;
+			}
+			else if (failuresAttr.equals(attrName)) {
+				fields.totalFailures = Long.parseLong(reader.getAttributeValue(i));
+				fields.hasTotalFailures = true;
+			}
+			else if (skippedAttr.equals(attrName)) {
+				fields.totalSkipped = Long.parseLong(reader.getAttributeValue(i));
+			}
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package importer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Converts the <b>time</b> attributes of Junit Reports (seconds, e.g. "0.012") to whole microseconds, so that
+ * durations can be stored, indexed and aggregated as numbers.
+ *
+ * Times are usually plain decimals, which are converted without allocating. Times formatted with grouping separators
+ * (e.g. "1,234.5"), with a decimal comma (e.g. "0,012") or in scientific notation (e.g. "1.0E-4") are converted too.
+ * Fractions of a microsecond are rounded half up.
+ */
+public final class Durations {
+
+	/**
+	 * The duration of a time that isn't a valid, non-negative number of seconds.
+	 */
+	public static final long UNKNOWN = -1;
+
+	private static final int MICROS_DIGITS = 6;
+	private static final long MICROS_PER_SECOND = 1000000;
+	private static final long MAX_SECONDS = (Long.MAX_VALUE - MICROS_PER_SECOND) / MICROS_PER_SECOND;
+
+	private Durations() {}
+
+	/**
+	 * @param time A time in seconds, as recorded by a junit report "time" attribute. May be null.
+	 * @return The time in whole microseconds, or {@link #UNKNOWN}.
+	 */
+	public static long toMicros(String time) {
+		if (time == null) return UNKNOWN;
+
+		/*
+		 * A comma is a decimal separator if it's the only separator in the time, otherwise it groups digits.
+		 */
+		final int commaIndex = time.indexOf(',');
+		final char decimalSeparator =
+			commaIndex >= 0 && time.indexOf('.') < 0 && time.indexOf(',', commaIndex + 1) < 0 ? ',' : '.';
+
+		long seconds = 0;
+		long micros = 0;
+		int fractionDigits = 0;
+		boolean isFraction = false;
+		boolean isRoundedUp = false;
+		boolean hasDigits = false;
+
+		for (int i = 0; i < time.length(); i++) {
+			final char c = time.charAt(i);
+
+			if (c >= '0' && c <= '9') {
+				hasDigits = true;
+				if (!isFraction) {
+					seconds = seconds * 10 + (c - '0');
+					if (seconds > MAX_SECONDS) return UNKNOWN;
+				}
+				else if (fractionDigits < MICROS_DIGITS) {
+					micros = micros * 10 + (c - '0');
+					fractionDigits++;
+				}
+				else if (fractionDigits == MICROS_DIGITS) {
+					isRoundedUp = c >= '5';
+					fractionDigits++;
+				}
+			}
+			else if (c == decimalSeparator && !isFraction) {
+				isFraction = true;
+			}
+			else if (c == ',' && !isFraction) {
+				continue;
+			}
+			else {
+				return toMicrosExactly(time);
+			}
+		}
+
+		if (!hasDigits) return UNKNOWN;
+
+		for (int i = fractionDigits; i < MICROS_DIGITS; i++) {
+			micros *= 10;
+		}
+		return seconds * MICROS_PER_SECOND + micros + (isRoundedUp ? 1 : 0);
+	}
+
+	/*
+	 * Times that aren't plain decimals, e.g. with an exponent, a sign or surrounding whitespace.
+	 */
+	private static long toMicrosExactly(String time) {
+		try {
+			BigDecimal seconds = new BigDecimal(time.trim());
+			if (seconds.signum() < 0) return UNKNOWN;
+
+			return seconds.movePointRight(MICROS_DIGITS).setScale(0, RoundingMode.HALF_UP).longValueExact();
+		}
+		catch(NumberFormatException | ArithmeticException ex) {
+			return UNKNOWN;
+		}
+	}
+}
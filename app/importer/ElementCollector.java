@@ -0,0 +1,78 @@
+package importer;
+
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.nio.file.Path;
+
+import org.joda.time.DateTime;
+
+/**
+ * Builds a {@link ReportedTestElement} from the field values pushed to it. Adapts the push based
+ * {@link ReportReader#next(ReportSink)} to pull based parsing.
+ */
+class ElementCollector implements ReportSink {
+
+	private final StorageIdGenerator storageIds;
+	private ReportedTestElement element = null;
+
+	/**
+	 * @param storageIds Generates the storage ids of the built elements.
+	 */
+	ElementCollector(StorageIdGenerator storageIds) {
+		this.storageIds = storageIds;
+	}
+
+	/**
+	 * @return The most recently received element, or null if none has been received.
+	 */
+	ReportedTestElement getElement() {
+		return element;
+	}
+
+	@Override
+	public void testSuite(String qualifiedName, String packageName, String localName, String time, long durationMicros,
+			Path containingFolder, String containingFile, DateTime timestamp, long testsRun, long totalFailures, long totalErrors,
+			long totalSkipped) {
+
+		ReportedTestSuiteEntry suiteEntry = new ReportedTestSuiteEntry();
+		suiteEntry.setStorageId(storageIds.nextId());
+		suiteEntry.setNames(qualifiedName, packageName, localName);
+		suiteEntry.setTime(time, durationMicros);
+		suiteEntry
+			.setContainingFolder(containingFolder)
+			.setContainingFile(containingFile)
+			.setTimestamp(timestamp)
+			.setTestsRun(testsRun)
+			.setTotalFailures(totalFailures)
+			.setTotalErrors(totalErrors)
+			.setTotalSkipped(totalSkipped);
+		element = suiteEntry;
+	}
+
+	@Override
+	public void testCase(String qualifiedName, String packageName, String localName, String methodName, String time,
+			long durationMicros, boolean isSkipped, FailureInfo.Type failureType, String failureMessage, String exceptionName,
+			FailureDetails failureDetails) {
+
+		ReportedTestResultEntry testCaseEntry = new ReportedTestResultEntry();
+		testCaseEntry.setStorageId(storageIds.nextId());
+		testCaseEntry.setNames(qualifiedName, packageName, localName);
+		testCaseEntry.setTime(time, durationMicros);
+		if (methodName != null) {
+			testCaseEntry.setMethodName(methodName);
+		}
+		testCaseEntry.setSkipped(isSkipped);
+		if (failureType != null) {
+			testCaseEntry.setFailInfo(new FailureInfo(failureMessage, exceptionName, failureDetails, failureType));
+		}
+		element = testCaseEntry;
+	}
+
+	/**
+	 * Already built elements are kept as they are.
+	 */
+	@Override
+	public void element(ReportedTestElement element) {
+		this.element = element;
+	}
+}
@@ -0,0 +1,119 @@
+package importer;
+
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.joda.time.DateTime;
+
+/**
+ * The field values of the element that a {@link ReportReader} is parsing. Each reader fills a single instance
+ * element after element, and pushes the values to a {@link ReportSink} once the element has been parsed.
+ *
+ * Elements are validated as {@link ReportedTestElement#validateState()} validates them, with the same failures.
+ */
+final class ElementFields {
+
+	private final NameTable nameTable;
+
+	String qualifiedName;
+	String time;
+
+	/*
+	 * testsuite
+	 */
+	DateTime timestamp;
+	long testsRun;
+	long totalFailures;
+	long totalErrors;
+	long totalSkipped;
+	boolean hasTestsRun;
+	boolean hasTotalFailures;
+	boolean hasTotalErrors;
+
+	/*
+	 * testcase
+	 */
+	String methodName;
+	boolean isSkipped;
+	FailureInfo.Type failureType;
+	String failureMessage;
+	String exceptionName;
+	private FailureDetails failureDetails;
+
+	/**
+	 * @param nameTable Provides the qualified / package / local names of pushed elements.
+	 */
+	ElementFields(NameTable nameTable) {
+		this.nameTable = nameTable;
+	}
+
+	/**
+	 * Clears the values of the previous element. Failure details that were parsed but never pushed (because their
+	 * element failed to parse) are released.
+	 */
+	void reset() {
+		qualifiedName = time = methodName = failureMessage = exceptionName = null;
+		timestamp = null;
+		testsRun = totalFailures = totalErrors = totalSkipped = 0;
+		hasTestsRun = hasTotalFailures = hasTotalErrors = isSkipped = false;
+		failureType = null;
+		setFailureDetails(null);
+	}
+
+	/**
+	 * Sets the details of the test case's failure. Details of an earlier failure of the same test case are released.
+	 */
+	void setFailureDetails(FailureDetails failureDetails) {
+		if (this.failureDetails != null) this.failureDetails.release();
+		this.failureDetails = failureDetails;
+	}
+
+	/**
+	 * Validates the values as a Test Suite and passes them to the sink.
+	 * @param fileLocation The report file that the suite is attributed to.
+	 */
+	void pushTestSuite(ReportSink sink, Path fileLocation) {
+		File reportFile = fileLocation.toFile();
+		if (!reportFile.isFile()) {
+			throw new IllegalArgumentException("File Location refer to a valid File: " + fileLocation + ".");
+		}
+		Path containingFolder = reportFile.getParentFile().toPath();
+
+		checkStateNotNull(qualifiedName, "qualifiedName was not set.");
+		checkStateNotNull(time, "time was not set.");
+		checkState(hasTestsRun, "testsRun was not set.");
+		checkStateNotNull(timestamp, "timestamp was not set.");
+		checkState(hasTotalErrors, "totalErrors was not set.");
+		checkState(hasTotalFailures, "totalFailures was not set.");
+
+		NameTable.Names names = nameTable.lookup(qualifiedName);
+		sink.testSuite(names.qualifiedName, names.packageName, names.localName, time, Durations.toMicros(time), containingFolder,
+			reportFile.getName(), timestamp, testsRun, totalFailures, totalErrors, totalSkipped);
+	}
+
+	/**
+	 * Validates the values as a Test Case and passes them to the sink. The sink takes ownership of the failure details.
+	 */
+	void pushTestCase(ReportSink sink) {
+		checkStateNotNull(qualifiedName, "qualifiedName was not set.");
+		checkStateNotNull(time, "time was not set.");
+
+		NameTable.Names names = nameTable.lookup(qualifiedName);
+		FailureDetails details = failureDetails;
+		failureDetails = null;
+		sink.testCase(names.qualifiedName, names.packageName, names.localName, methodName, time, Durations.toMicros(time),
+			isSkipped, failureType, failureMessage, exceptionName, details);
+	}
+
+	private static void checkStateNotNull(Object ref, String errorMessage) {
+		checkState(ref != null, errorMessage);
+	}
+
+	private static void checkState(boolean isValid, String errorMessage) {
+		if (!isValid) {
+			throw new IllegalStateException(errorMessage);
+		}
+	}
+}
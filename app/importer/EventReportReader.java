@@ -0,0 +1,223 @@
+package importer;
+
+import static importer.ReportParser.classnameAttr;
+import static importer.ReportParser.errorEl;
+import static importer.ReportParser.errorsAttr;
+import static importer.ReportParser.failureEl;
+import static importer.ReportParser.failuresAttr;
+import static importer.ReportParser.message;
+import static importer.ReportParser.nameAttr;
+import static importer.ReportParser.skippedAttr;
+import static importer.ReportParser.skippedEl;
+import static importer.ReportParser.testcaseEl;
+import static importer.ReportParser.testsAttr;
+import static importer.ReportParser.testsuiteEl;
+import static importer.ReportParser.timeAttr;
+import static importer.ReportParser.timestampAttr;
+import static importer.ReportParser.type;
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.joda.time.DateTime;
+
+/**
+ * Reads a Junit XML Report using the StAX event API ({@link XMLEventReader}).
+ */
+class EventReportReader implements ReportReader {
+
+	private final Path fileLocation;
+	private final FailureDetailsPolicy failureDetailsPolicy;
+	private final ElementFields fields;
+	private final BufferedReader source;
+	private final XMLEventReader eventReader;
+
+	/**
+	 * @param fileLocation The Junit Report file to be read.
+	 * @param inputFactory Used to create the underlying {@link XMLEventReader}.
+	 * @param nameTable Provides the qualified / package / local names of parsed elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 */
+	EventReportReader(Path fileLocation, XMLInputFactory inputFactory, NameTable nameTable, FailureDetailsPolicy failureDetailsPolicy) 
+			throws IOException, XMLStreamException {
+		this.fileLocation = fileLocation;
+		this.failureDetailsPolicy = failureDetailsPolicy;
+		this.fields = new ElementFields(nameTable);
+		this.source = Files.newBufferedReader(fileLocation, StandardCharsets.UTF_8);
+		try {
+			this.eventReader = inputFactory.createXMLEventReader(source);
+		}
+		catch(XMLStreamException ex) {
+			source.close();
+			throw ex;
+		}
+	}
+
+	@Override
+	public boolean next(ReportSink sink) throws XMLStreamException {
+		while (eventReader.hasNext()) {
+			XMLEvent event = eventReader.nextEvent();
+
+			if (event.isStartElement()) {
+				StartElement startElement = event.asStartElement();
+				String elemName = startElement.getName().getLocalPart();
+
+				if(testsuiteEl.equals(elemName)) {
+					parseTestSuiteEntry(startElement);
+					fields.pushTestSuite(sink, fileLocation);
+					return true;
+				}
+
+				if(testcaseEl.equals(elemName)) {
+					parseTestCaseEntry(startElement, eventReader);
+					fields.pushTestCase(sink);
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public void close() throws Exception {
+		fields.reset();
+		try { eventReader.close(); }
+		finally { source.close(); }
+	}
+
+	private void parseTestCaseEntry(final StartElement testCaseElement, final XMLEventReader eventReader) 
+			throws XMLStreamException {
+		
+		fields.reset();
+		
+		@SuppressWarnings("unchecked")
+		Iterator<Attribute> attributes = testCaseElement.getAttributes();
+		while(attributes.hasNext()) {
+			Attribute attribute = attributes.next();
+			if (attribute.getName().toString().equals(classnameAttr)) {
+		        fields.qualifiedName = attribute.getValue();
+		    }
+			if (attribute.getName().toString().equals(nameAttr)) {
+		        fields.methodName = attribute.getValue();
+		    }
+			if (attribute.getName().toString().equals(timeAttr)) {
+		        fields.time = attribute.getValue();
+		    }
+		}
+		
+		boolean isTestCaseParsed = false;
+		while (eventReader.hasNext() && !isTestCaseParsed) {
+			XMLEvent testCaseElementEvent = eventReader.nextEvent();
+			if (testCaseElementEvent.isStartElement()) {
+				StartElement startElement = testCaseElementEvent.asStartElement();
+				String elemName = startElement.getName().getLocalPart();
+				
+				if(failureEl.equals(elemName) || errorEl.equals(elemName)) {
+					
+					fields.failureType = 
+						failureEl.equals(elemName) ? FailureInfo.Type.failure : FailureInfo.Type.error; 
+					
+					parseFailureInfo(eventReader, startElement);
+				}
+				
+				if (skippedEl.equals(elemName)) {
+					fields.isSkipped = true;
+				}
+			}
+			
+			if (testCaseElementEvent.isEndElement()) {
+				EndElement endElement = testCaseElementEvent.asEndElement();
+				String tcEndElemName = endElement.getName().getLocalPart();
+				if(testcaseEl.equals(tcEndElemName)) {
+					isTestCaseParsed = true;
+				}
+			}
+		}
+	}
+
+	private void parseFailureInfo(final XMLEventReader eventReader, StartElement startElement) throws XMLStreamException {
+		
+		fields.failureMessage = null;
+		fields.exceptionName = null;
+		
+		@SuppressWarnings("unchecked")
+		Iterator<Attribute> failAttributes = startElement.getAttributes();
+		while(failAttributes.hasNext()) {
+			Attribute attribute = failAttributes.next();
+			if (attribute.getName().toString().equals(message)) {
+				fields.failureMessage = attribute.getValue();
+		    }
+			if (attribute.getName().toString().equals(type)) {
+				fields.exceptionName = attribute.getValue();
+		    }
+		}
+		
+		FailureDetails.Builder detailsBuilder = failureDetailsPolicy.newBuilder();
+		try {
+			boolean isReadingChars = true;
+			while (eventReader.hasNext() && isReadingChars) {
+				XMLEvent nextEvent = eventReader.nextEvent();
+				if (nextEvent.isCharacters()) {
+					detailsBuilder.append(nextEvent.asCharacters().getData());
+				}
+				else {
+					isReadingChars = false;
+				}
+			}
+		}
+		catch(XMLStreamException | RuntimeException ex) {
+			detailsBuilder.discard();
+			throw ex;
+		}
+		
+		fields.setFailureDetails(detailsBuilder.build());
+	}
+
+	private void parseTestSuiteEntry(StartElement startElement) {
+		fields.reset();
+		
+		@SuppressWarnings("unchecked")
+		Iterator<Attribute> attributes = startElement.getAttributes();
+		
+		while(attributes.hasNext()) {
+			Attribute attribute = attributes.next();
+			if (attribute.getName().toString().equals(nameAttr)) {
+				fields.qualifiedName = attribute.getValue();
+		    }
+			if (attribute.getName().toString().equals(timeAttr)) {
+				fields.time = attribute.getValue();
+		    }
+			if (attribute.getName().toString().equals(testsAttr)) {
+				fields.testsRun = Long.parseLong(attribute.getValue());
+				fields.hasTestsRun = true;
+		    }
+			if (attribute.getName().toString().equals(timestampAttr)) {
+				fields.timestamp = DateTime.parse(attribute.getValue());
+		    }
+			if (attribute.getName().toString().equals(errorsAttr)) {
+				fields.totalErrors = Long.parseLong(attribute.getValue());
+				fields.hasTotalErrors = true;
+		    }
+			if (attribute.getName().toString().equals(failuresAttr)) {
+				fields.totalFailures = Long.parseLong(attribute.getValue());
+				fields.hasTotalFailures = true;
+		    }
+			if (attribute.getName().toString().equals(skippedAttr)) {
+				fields.totalSkipped = Long.parseLong(attribute.getValue());
+		    }
+		}
+	}
+}
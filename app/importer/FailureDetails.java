@@ -0,0 +1,290 @@
+package importer;
+
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.google.common.base.Throwables;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * The body of a Junit <b>failure</b> / <b>error</b> element.
+ *
+ * Small bodies are held in memory. Bodies larger than the {@link FailureDetailsPolicy}'s spill threshold are written to
+ * a temporary file while the report is parsed, so a test that dumps a very large stack or log does not have to fit in
+ * the heap. Spilled bodies should be streamed with {@link #openReader()} and the file deleted with {@link #release()}
+ * once they have been stored.
+ */
+public class FailureDetails {
+
+	private final static String HASH_ALGORITHM = "SHA-256";
+	private final static int HASH_CHUNK_CHARS = 8 * 1024;
+
+	private final String content;
+	private final Path spillFile;
+	private final long length;
+	private final boolean isTruncated;
+	private String contentHash = null;
+
+	private FailureDetails(String content, Path spillFile, long length, boolean isTruncated) {
+		this.content = content;
+		this.spillFile = spillFile;
+		this.length = length;
+		this.isTruncated = isTruncated;
+	}
+
+	/**
+	 * @param details The details, held in memory. May be null.
+	 * @return The details, or null if details is null.
+	 */
+	public static FailureDetails of(String details) {
+		return details == null ? null : new FailureDetails(details, null, details.length(), false);
+	}
+
+	/**
+	 * @return The # chars in the details.
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * @return True if the details were written to a temporary file rather than held in memory.
+	 */
+	public boolean isSpilled() {
+		return spillFile != null;
+	}
+
+	/**
+	 * @return True if the details were cut short by the {@link FailureDetailsPolicy}'s maximum length.
+	 */
+	public boolean isTruncated() {
+		return isTruncated;
+	}
+
+	/**
+	 * @return A Reader over the details. The caller must close it.
+	 */
+	public Reader openReader() throws IOException {
+		return isSpilled() ? Files.newBufferedReader(spillFile, StandardCharsets.UTF_8) : new StringReader(content);
+	}
+
+	/**
+	 * @return The hex encoded SHA-256 hash of the details, normalised so that details that differ only in their line
+	 * endings, or in whitespace at the ends of lines or of the details, have the same hash. Spilled details are 
+	 * streamed from their file. The hash is computed once.
+	 */
+	public String contentHash() {
+		if (contentHash == null) {
+			try (Reader details = openReader()) {
+				contentHash = hashNormalised(details);
+			}
+			catch(IOException ex) {
+				throw Throwables.propagate(ex);
+			}
+		}
+		return contentHash;
+	}
+
+	/**
+	 * Deletes the temporary file of spilled details. The details can't be read afterwards.
+	 */
+	public void release() {
+		if (!isSpilled()) return;
+		try {
+			Files.deleteIfExists(spillFile);
+		}
+		catch(IOException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Releases the failure details of the given element, if it is a Test Case with spilled details.
+	 */
+	static void release(ReportedTestElement element) {
+		if (element instanceof ReportedTestResultEntry) {
+			FailureInfo failureInfo = ((ReportedTestResultEntry)element).getFailureInfo();
+			if (failureInfo != null && failureInfo.getDetailsContent() != null) {
+				failureInfo.getDetailsContent().release();
+			}
+		}
+	}
+
+	/**
+	 * @return The details. Spilled details are read back into memory in their entirety.
+	 */
+	@Override
+	public String toString() {
+		if (!isSpilled()) return content;
+		try {
+			return new String(Files.readAllBytes(spillFile), StandardCharsets.UTF_8);
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	/*
+	 * Line endings are hashed as \n. Whitespace is hashed once it is followed by text on its line, and line endings
+	 * once they are followed by text, so trailing whitespace and blank lines are dropped. Leading ones are dropped too.
+	 */
+	private static String hashNormalised(Reader details) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		}
+		catch(NoSuchAlgorithmException ex) {
+			throw Throwables.propagate(ex);
+		}
+
+		final StringBuilder normalised = new StringBuilder(HASH_CHUNK_CHARS);
+		final StringBuilder pendingBlanks = new StringBuilder();
+		int pendingLineEnds = 0;
+		boolean hasText = false;
+		boolean isAfterCr = false;
+		for (int c = details.read(); c != -1; c = details.read()) {
+			if (c == '\n' && isAfterCr) {
+				isAfterCr = false;
+				continue;
+			}
+			isAfterCr = c == '\r';
+			if (c == '\r' || c == '\n') {
+				pendingBlanks.setLength(0);
+				pendingLineEnds++;
+			}
+			else if (c == ' ' || c == '\t') {
+				pendingBlanks.append((char)c);
+			}
+			else {
+				if (hasText) {
+					for (; pendingLineEnds > 0; pendingLineEnds--) {
+						normalised.append('\n');
+					}
+					normalised.append(pendingBlanks);
+				}
+				pendingLineEnds = 0;
+				pendingBlanks.setLength(0);
+				hasText = true;
+				normalised.append((char)c);
+				if (normalised.length() >= HASH_CHUNK_CHARS && !Character.isHighSurrogate((char)c)) {
+					digest.update(normalised.toString().getBytes(StandardCharsets.UTF_8));
+					normalised.setLength(0);
+				}
+			}
+		}
+		digest.update(normalised.toString().getBytes(StandardCharsets.UTF_8));
+		return BaseEncoding.base16().lowerCase().encode(digest.digest());
+	}
+
+	/**
+	 * Accumulates details as they are parsed, spilling and truncating them as dictated by a {@link FailureDetailsPolicy}.
+	 */
+	static class Builder {
+
+		private final FailureDetailsPolicy policy;
+		private final StringBuilder buffer = new StringBuilder();
+		private Path spillFile = null;
+		private Writer spillWriter = null;
+		private long length = 0;
+		private boolean isTruncated = false;
+
+		Builder(FailureDetailsPolicy policy) {
+			this.policy = policy;
+		}
+
+		Builder append(char[] chars, int start, int count) {
+			int accepted = accept(count);
+			if (accepted > 0) {
+				buffer.append(chars, start, accepted);
+				afterAppend();
+			}
+			return this;
+		}
+
+		Builder append(CharSequence chars) {
+			int accepted = accept(chars.length());
+			if (accepted > 0) {
+				buffer.append(chars, 0, accepted);
+				afterAppend();
+			}
+			return this;
+		}
+
+		FailureDetails build() {
+			if (isTruncated) {
+				buffer.append(policy.getTruncationMarker());
+			}
+
+			if (spillWriter == null) {
+				return new FailureDetails(buffer.toString(), null, buffer.length(), isTruncated);
+			}
+
+			try {
+				long spilledLength = length + (isTruncated ? policy.getTruncationMarker().length() : 0);
+				flushToSpillFile();
+				spillWriter.close();
+				return new FailureDetails(null, spillFile, spilledLength, isTruncated);
+			}
+			catch(IOException ex) {
+				discard();
+				throw Throwables.propagate(ex);
+			}
+		}
+
+		/*
+		 * Chars beyond the maximum length are dropped.
+		 */
+		private int accept(int count) {
+			long remaining = policy.getMaxChars() - length;
+			if (count > remaining) {
+				isTruncated = true;
+				count = (int)Math.max(0, remaining);
+			}
+			length += count;
+			return count;
+		}
+
+		private void afterAppend() {
+			if (buffer.length() <= policy.getSpillThresholdChars()) return;
+
+			try {
+				if (spillWriter == null) {
+					spillFile = Files.createTempFile(policy.getSpillFolder(), "faildetail", ".txt");
+					spillWriter = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8);
+				}
+				flushToSpillFile();
+			}
+			catch(IOException ex) {
+				discard();
+				throw Throwables.propagate(ex);
+			}
+		}
+
+		private void flushToSpillFile() throws IOException {
+			spillWriter.write(buffer.toString());
+			buffer.setLength(0);
+		}
+
+		/**
+		 * Drops the details, deleting any temporary file. Used if the failure can't be parsed to the end.
+		 */
+		void discard() {
+			try {
+				if (spillWriter != null) spillWriter.close();
+				if (spillFile != null) Files.deleteIfExists(spillFile);
+			}
+			catch(IOException ex) {
+				// Nothing more we can do; the original failure is reported.
+			}
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package importer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Bounds the memory used by the {@link FailureDetails} of a single Test Case while a report is parsed.
+ * <ul>
+ * <li>Details longer than the spill threshold are written to a temporary file in the spill folder.
+ * <li>Details longer than the maximum length are truncated and end with the truncation marker.
+ * </ul>
+ */
+public class FailureDetailsPolicy {
+
+	/**
+	 * Details are held in memory and are never truncated.
+	 */
+	public static final FailureDetailsPolicy DEFAULT = new FailureDetailsPolicy(Integer.MAX_VALUE, Long.MAX_VALUE);
+
+	private static final String defaultTruncationMarker = "\n[truncated]";
+
+	private final int spillThresholdChars;
+	private final long maxChars;
+	private final Path spillFolder;
+	private final String truncationMarker;
+
+	/**
+	 * Creates a policy that spills to the default temporary-file folder.
+	 * @param spillThresholdChars Details longer than this are written to a temporary file. Must be >= 0.
+	 * @param maxChars Details longer than this are truncated. Must be >= 0.
+	 */
+	public FailureDetailsPolicy(int spillThresholdChars, long maxChars) {
+		this(spillThresholdChars, maxChars, Paths.get(System.getProperty("java.io.tmpdir")), defaultTruncationMarker);
+	}
+
+	/**
+	 * @param spillThresholdChars Details longer than this are written to a temporary file. Must be >= 0.
+	 * @param maxChars Details longer than this are truncated. Must be >= 0.
+	 * @param spillFolder The folder that temporary files are created in. Must not be null.
+	 * @param truncationMarker Appended to truncated details. Must not be null.
+	 */
+	public FailureDetailsPolicy(int spillThresholdChars, long maxChars, Path spillFolder, String truncationMarker) {
+		Preconditions.checkArgument(spillThresholdChars >= 0, "spillThresholdChars must not be negative.");
+		Preconditions.checkArgument(maxChars >= 0, "maxChars must not be negative.");
+		Preconditions.checkNotNull(spillFolder, "spillFolder must not be null.");
+		Preconditions.checkNotNull(truncationMarker, "truncationMarker must not be null.");
+
+		this.spillThresholdChars = spillThresholdChars;
+		this.maxChars = maxChars;
+		this.spillFolder = spillFolder;
+		this.truncationMarker = truncationMarker;
+	}
+
+	public int getSpillThresholdChars() {
+		return spillThresholdChars;
+	}
+
+	public long getMaxChars() {
+		return maxChars;
+	}
+
+	public Path getSpillFolder() {
+		return spillFolder;
+	}
+
+	public String getTruncationMarker() {
+		return truncationMarker;
+	}
+
+	/**
+	 * @return A builder for the details of a single failure.
+	 */
+	FailureDetails.Builder newBuilder() {
+		return new FailureDetails.Builder(this);
+	}
+}
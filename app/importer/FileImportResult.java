@@ -0,0 +1,92 @@
+package importer;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * The outcome of importing a single Test Report file.
+ */
+public class FileImportResult {
+
+	private final Path file;
+	private final int importedEntryCount;
+	private final long elapsedMillis;
+	private final Optional<Throwable> failure;
+	
+	private FileImportResult(Path file, int importedEntryCount, long elapsedMillis, Optional<Throwable> failure) {
+		Preconditions.checkNotNull(file, "file must not be null.");
+		
+		this.file = file;
+		this.importedEntryCount = importedEntryCount;
+		this.elapsedMillis = elapsedMillis;
+		this.failure = failure;
+	}
+	
+	/**
+	 * @param file The imported file.
+	 * @param importedEntryCount The # of Test Results imported from the file.
+	 * @param elapsedMillis Time taken to parse and import the file.
+	 * @return A result representing a successful import.
+	 */
+	public static FileImportResult successful(Path file, int importedEntryCount, long elapsedMillis) {
+		return new FileImportResult(file, importedEntryCount, elapsedMillis, Optional.empty());
+	}
+	
+	/**
+	 * @param file The file that failed to import.
+	 * @param failure The cause of the failure. Must not be null.
+	 * @param elapsedMillis Time taken before the import failed.
+	 * @return A result representing a failed import.
+	 */
+	public static FileImportResult failed(Path file, Throwable failure, long elapsedMillis) {
+		Preconditions.checkNotNull(failure, "failure must not be null.");
+		return new FileImportResult(file, 0, elapsedMillis, Optional.of(failure));
+	}
+
+	/**
+	 * @return The Test Report file that this result describes.
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return The # of Test Results imported from the file. 0 if the import failed.
+	 */
+	public int getImportedEntryCount() {
+		return importedEntryCount;
+	}
+
+	/**
+	 * @return Time taken, in milliseconds, to parse and import the file.
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @return The cause of a failed import or {@link Optional#empty()} if the import was successful.
+	 */
+	public Optional<Throwable> getFailure() {
+		return failure;
+	}
+	
+	/**
+	 * @return True if the file was imported without error.
+	 */
+	public boolean isSuccessful() {
+		return !failure.isPresent();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("FileImportResult {file=").append(this.file)
+			.append(", entries=").append(this.importedEntryCount)
+			.append(", millis=").append(this.elapsedMillis)
+			.append(", successful=").append(isSuccessful()).append("}");
+		return sb.toString();
+	}
+}
@@ -1,5 +1,7 @@
 package importer;
 
+import java.nio.file.Path;
+import java.util.List;
 import java.util.stream.Stream;
 
 /**
@@ -9,9 +11,65 @@ public interface IBatchImporter {
 
 	/**
 	 * Import a given {@link Stream} of {@link ReportedTestElement}s to a database.
+	 * The Stream is consumed in order and may be lazily populated (see {@link ReportParser#parse(java.nio.file.Path)}).
+	 * Closing the Stream remains the responsibility of the caller.
 	 * @param testCaseEntries The {@link ReportedTestElement}s to be imported. Must not be null.
 	 * @return The # of imported elements.
 	 */
 	public abstract int doImport(Stream<ReportedTestElement> testCaseEntries);
+	
+	/**
+	 * Parses the given report with the given parser and imports its elements to a database. By default the report is
+	 * parsed to a {@link Stream} and imported by {@link #doImport(Stream)}. Implementations may instead import the 
+	 * report as it is parsed, see {@link ReportParser#parse(Path, ReportSink)}.
+	 * @param report The Junit Report file. Must not be null.
+	 * @param parser The parser for the report. Must not be null.
+	 * @return The # of imported elements.
+	 */
+	public default int doImport(Path report, ReportParser parser) {
+		try (Stream<ReportedTestElement> elements = parser.parse(report)) {
+			return doImport(elements);
+		}
+	}
+	
+	/**
+	 * Imports several reports together, e.g. as a single transaction. If the import fails, none of the reports should 
+	 * be considered imported. By default the reports are imported in turn by {@link #doImport(Path, ReportParser)}.
+	 * @param reports The Junit Report files. Must not be null.
+	 * @param parser The parser for the reports. Must not be null.
+	 * @return The # of imported elements of each report, in the order of the reports.
+	 */
+	public default int[] doImport(List<Path> reports, ReportParser parser) {
+		return reports.stream().mapToInt(report -> doImport(report, parser)).toArray();
+	}
+	
+	/**
+	 * Replaces the data of a report that was imported before with the report's current elements, e.g. as a single
+	 * transaction, so that the report's data is never missing or duplicated.
+	 * @param report The Junit Report file. Must not be null.
+	 * @param parser The parser for the report. Must not be null.
+	 * @return The # of imported elements.
+	 */
+	public abstract int doReplace(Path report, ReportParser parser);
+	
+	/**
+	 * Deletes the data imported from a report, e.g. once the report itself is deleted. Implementations may delete the
+	 * data in several transactions.
+	 * @param report The Junit Report file. Must not be null.
+	 * @return The # of deleted Test Cases.
+	 */
+	public abstract int doDelete(Path report);
+	
+	/**
+	 * Imports the elements of a report that may still be being written, starting from the given checkpoint, see
+	 * {@link ReportParser#parse(Path, ReportCheckpoint, ReportSink)}. Importers that support this keep the context
+	 * that later elements need (e.g. the key of the enclosing Test Suite) in the returned checkpoint.
+	 * @param report The Junit Report file. Must not be null.
+	 * @param parser The parser for the report. Must not be null.
+	 * @param from {@link ReportCheckpoint#START}, or the checkpoint returned by the previous import of the report. 
+	 * Must not be null.
+	 * @return The checkpoint to resume the import from.
+	 */
+	public abstract ReportCheckpoint doImport(Path report, ReportParser parser, ReportCheckpoint from);
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package importer;
+
+import java.nio.file.Path;
+
+/**
+ * Defines API for the record of the Junit Report files that have been imported, and of the content they had when
+ * they were, so that a report that is delivered again with the same content can be skipped rather than imported
+ * again (and its data duplicated).
+ */
+public interface IImportManifest {
+
+	/**
+	 * @param report The Junit Report file. Must not be null.
+	 * @return The fingerprint of the report's content when it was last imported, or null if it hasn't been imported.
+	 */
+	public ReportFingerprint get(Path report);
+
+	/**
+	 * Records that the report has been imported with the given content.
+	 * @param report The Junit Report file. Must not be null.
+	 * @param fingerprint The fingerprint of the imported content. Must not be null.
+	 */
+	public void put(Path report, ReportFingerprint fingerprint);
+
+	/**
+	 * Forgets the report, e.g. once it has been deleted, so that it is imported if it is delivered again.
+	 * @param report The Junit Report file. Must not be null.
+	 */
+	public void remove(Path report);
+}
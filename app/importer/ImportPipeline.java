@@ -0,0 +1,364 @@
+package importer;
+
+import static java.util.stream.Collectors.toList;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Imports files through a staged pipeline: submitted files &rarr; parse workers &rarr; a bounded row queue per file
+ * &rarr; DB writers. Each stage blocks when the next one falls behind, so the parse of one file overlaps with the
+ * writes of the files before it, while a slow database throttles parsing rather than letting parsed elements pile up
+ * on the heap:
+ * <ul>
+ * <li> A parse worker blocks once its file has <i>rowQueueCapacity</i> elements waiting to be written.
+ * <li> {@link #submit(Path)} blocks once <i>parseWorkers</i> files are waiting for a writer.
+ * </ul>
+ * Each writer has a thread of its own and imports one file at a time, see {@link IBatchImporter#doImport(Stream)},
+ * so at most (<i>parseWorkers</i> + # writers) &times; <i>rowQueueCapacity</i> elements are held in memory.
+ *
+ * Files are partitioned between the writers by their containing folder: the files of a folder are all imported by
+ * the same writer, in the order they were submitted, so that writers with a connection each (e.g. the shards of a
+ * {@link importer.jdbc.ShardedJdbcImporter}) never write the same folder's rows at the same time. Several files of a 
+ * folder can be submitted as a group, see {@link #submit(List)}, whose elements share one row queue and are imported
+ * in one transaction.
+ *
+ * A file that fails to parse fails to import (i.e. its import is rolled back). A file that fails to import stops
+ * being parsed. Either way, the failure is confined to the file's {@link FileImportResult}.
+ */
+public class ImportPipeline implements AutoCloseable {
+
+	private final static Logger logger = LoggerFactory.getLogger(ImportPipeline.class);
+	private final static String PARSE_THREAD_ID = "import-parse-worker-%d";
+	private final static String WRITE_THREAD_ID = "import-writer-%d";
+
+	/*
+	 * How long a blocked parse worker waits before checking whether its file has been abandoned.
+	 */
+	private final static long OFFER_TIMEOUT_MILLIS = 100;
+
+	/*
+	 * Marks the end of a file's elements. Never imported.
+	 */
+	private final static ReportedTestElement END = new ReportedTestResultEntry();
+
+	/*
+	 * Tells a writer to stop. Never parsed.
+	 */
+	private final static ParsedFile STOP = new ParsedFile(Collections.emptyList(), 1);
+
+	private final ReportParser parser;
+	private final int rowQueueCapacity;
+	private final List<BlockingQueue<ParsedFile>> parsedFiles = new ArrayList<>();
+	private final Semaphore waitingFiles;
+	private final ExecutorService parseWorkers;
+	private final ExecutorService writers;
+
+	/**
+	 * @param parser Used to parse each file. Must not be null.
+	 * @param writers The writers that parsed files are imported with, each on a thread of its own. Must not be null
+	 * or empty.
+	 * @param parseWorkers The # of threads that parse files. Also the # of parsed files that can wait for a writer.
+	 * Must be > 0.
+	 * @param rowQueueCapacity The # of parsed elements of a file that can wait to be written. Must be > 0.
+	 */
+	public ImportPipeline(ReportParser parser, List<IBatchImporter> writers, int parseWorkers, int rowQueueCapacity) {
+		this(parser, writers, parseWorkers > 0 ? Executors.newFixedThreadPool(parseWorkers,
+			new ThreadFactoryBuilder().setNameFormat(PARSE_THREAD_ID).setDaemon(true).build()) : null, 
+			parseWorkers, rowQueueCapacity);
+	}
+
+	/**
+	 * @param parser Used to parse each file. Must not be null.
+	 * @param writers The writers that parsed files are imported with, each on a thread of its own. Must not be null
+	 * or empty.
+	 * @param parseWorkers Runs the parses, on up to <i>parseWorkerCount</i> threads. Must start its tasks in the order
+	 * they were submitted, as a writer can otherwise wait for a file whose parse is queued behind blocked parses. Shut 
+	 * down when the pipeline is closed. Must not be null.
+	 * @param parseWorkerCount The # of threads that parse files. Also the # of parsed files that can wait for a writer.
+	 * Must be > 0.
+	 * @param rowQueueCapacity The # of parsed elements of a file that can wait to be written. Must be > 0.
+	 */
+	ImportPipeline(ReportParser parser, List<IBatchImporter> writers, ExecutorService parseWorkers, int parseWorkerCount, 
+			int rowQueueCapacity) {
+		Preconditions.checkNotNull(parser, "parser must not be null.");
+		Preconditions.checkNotNull(writers, "writers must not be null.");
+		Preconditions.checkArgument(!writers.isEmpty(), "writers must not be empty.");
+		Preconditions.checkArgument(parseWorkerCount > 0, "parseWorkers must be greater than 0.");
+		Preconditions.checkNotNull(parseWorkers, "parseWorkers must not be null.");
+		Preconditions.checkArgument(rowQueueCapacity > 0, "rowQueueCapacity must be greater than 0.");
+
+		this.parser = parser;
+		this.rowQueueCapacity = rowQueueCapacity;
+		this.waitingFiles = new Semaphore(parseWorkerCount);
+		this.parseWorkers = parseWorkers;
+		this.writers = Executors.newFixedThreadPool(writers.size(),
+			new ThreadFactoryBuilder().setNameFormat(WRITE_THREAD_ID).setDaemon(true).build());
+
+		for (IBatchImporter writer : writers) {
+			final BlockingQueue<ParsedFile> writerFiles = new LinkedBlockingQueue<>();
+			parsedFiles.add(writerFiles);
+			this.writers.execute(() -> write(writer, writerFiles));
+		}
+	}
+
+	/**
+	 * Queues a file to be parsed and imported. Blocks while the pipeline is full.
+	 * @param file The Junit Report file. Must not be null.
+	 * @return Completed with the file's result once it has been imported, or has failed to import. Never completed
+	 * exceptionally.
+	 */
+	public CompletableFuture<FileImportResult> submit(Path file) {
+		Preconditions.checkNotNull(file, "file must not be null.");
+
+		return submit(new ParsedFile(Collections.singletonList(file), rowQueueCapacity)).thenApply(results -> results.get(0));
+	}
+
+	/**
+	 * Queues a group of files to be parsed one after the other and imported together, in one transaction (see 
+	 * {@link IBatchImporter#doImport(Stream)}). Blocks while the pipeline is full.
+	 * @param files Junit Report files, which should share a folder, as they are imported by the writer of the first. 
+	 * Must not be null or empty.
+	 * @return Completed with a result for each file, in order, once they have been imported. If the group fails to 
+	 * import, every file fails. Never completed exceptionally.
+	 */
+	public CompletableFuture<List<FileImportResult>> submit(List<Path> files) {
+		Preconditions.checkNotNull(files, "files must not be null.");
+		Preconditions.checkArgument(!files.isEmpty(), "files must not be empty.");
+
+		return submit(new ParsedFile(new ArrayList<>(files), rowQueueCapacity));
+	}
+
+	private synchronized CompletableFuture<List<FileImportResult>> submit(ParsedFile parsedFile) {
+		try {
+			waitingFiles.acquire();
+			parsedFiles.get(writerOf(parsedFile.paths.get(0))).put(parsedFile);
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw Throwables.propagate(ex);
+		}
+		/*
+		 * Parse tasks start in the order the files were queued. A parse that is blocked waits for a writer that is 
+		 * writing an earlier file, whose parse has started, so the file a writer waits for is always being parsed.
+		 */
+		parseWorkers.execute(() -> parse(parsedFile));
+		return parsedFile.results;
+	}
+
+	/**
+	 * Imports the files that have been submitted, then stops the pipeline's threads.
+	 */
+	@Override
+	public void close() {
+		try {
+			for (BlockingQueue<ParsedFile> writerFiles : parsedFiles) {
+				writerFiles.put(STOP);
+			}
+			writers.shutdown();
+			writers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw Throwables.propagate(ex);
+		}
+		finally {
+			parseWorkers.shutdown();
+		}
+	}
+
+	/*
+	 * Pushes the elements of the file (or of each file of a group) to its row queue until the file has been parsed, or
+	 * abandoned by its writer. The Test Cases of each file are counted.
+	 */
+	private void parse(ParsedFile file) {
+		file.startMillis = System.currentTimeMillis();
+		try {
+			for (int i = 0; i < file.paths.size(); i++) {
+				try (Stream<ReportedTestElement> elements = parser.parse(file.paths.get(i))) {
+					for (Iterator<ReportedTestElement> it = elements.iterator(); it.hasNext(); ) {
+						final ReportedTestElement element = it.next();
+						if (element instanceof ReportedTestResultEntry) { file.caseCounts[i]++; }
+						if (!file.offer(element)) return;
+					}
+				}
+			}
+		}
+		catch(Exception ex) {
+			file.parseFailure = ex;
+		}
+		finally {
+			file.offer(END);
+		}
+	}
+
+	/*
+	 * The index of the writer that imports the files of the file's folder.
+	 */
+	private int writerOf(Path file) {
+		final Path folder = file.toAbsolutePath().normalize().getParent();
+		return folder == null ? 0 : Math.floorMod(folder.hashCode(), parsedFiles.size());
+	}
+
+	/*
+	 * Imports the writer's parsed files, one at a time, until stopped.
+	 */
+	private void write(IBatchImporter writer, BlockingQueue<ParsedFile> writerFiles) {
+		while (true) {
+			final ParsedFile file;
+			try {
+				file = writerFiles.take();
+			}
+			catch(InterruptedException ex) {
+				return;
+			}
+			if (file == STOP) return;
+			waitingFiles.release();
+
+			try {
+				final int importedEntryCount = writer.doImport(file.elements());
+				file.results.complete(file.successful(importedEntryCount));
+			}
+			catch(Exception ex) {
+				logger.error("Failed to import file: " + (file.paths.size() == 1 ? file.paths.get(0) : file.paths), ex);
+				file.abandon();
+				file.results.complete(file.failed(ex));
+			}
+		}
+	}
+
+	/*
+	 * A file (or group of files) in the pipeline and the queue of its parsed elements, which ends with END.
+	 */
+	private static class ParsedFile {
+		private final List<Path> paths;
+		private final int[] caseCounts;
+		private final BlockingQueue<ReportedTestElement> rows;
+		private final CompletableFuture<List<FileImportResult>> results = new CompletableFuture<>();
+		private volatile long startMillis = System.currentTimeMillis();
+		private volatile Exception parseFailure = null;
+		private volatile boolean isAbandoned = false;
+
+		ParsedFile(List<Path> paths, int rowQueueCapacity) {
+			this.paths = paths;
+			this.caseCounts = new int[paths.size()];
+			this.rows = new ArrayBlockingQueue<>(rowQueueCapacity);
+		}
+
+		/*
+		 * A file is reported with the # of entries the writer imported. The files of a group are each reported with the
+		 * # of Test Cases parsed from them, and the time taken by the whole group.
+		 */
+		List<FileImportResult> successful(int importedEntryCount) {
+			final long elapsedMillis = elapsedMillis();
+			if (paths.size() == 1) {
+				return Collections.singletonList(FileImportResult.successful(paths.get(0), importedEntryCount, elapsedMillis));
+			}
+			final List<FileImportResult> fileResults = new ArrayList<>(paths.size());
+			for (int i = 0; i < paths.size(); i++) {
+				fileResults.add(FileImportResult.successful(paths.get(i), caseCounts[i], elapsedMillis));
+			}
+			return fileResults;
+		}
+
+		List<FileImportResult> failed(Exception ex) {
+			final long elapsedMillis = elapsedMillis();
+			return paths.stream().map(path -> FileImportResult.failed(path, ex, elapsedMillis)).collect(toList());
+		}
+
+		/*
+		 * Blocks until the element is queued. Returns false, having released the element, if the file was abandoned.
+		 */
+		boolean offer(ReportedTestElement element) {
+			try {
+				while (!isAbandoned) {
+					if (rows.offer(element, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+						if (isAbandoned) releaseQueued();
+						return !isAbandoned;
+					}
+				}
+			}
+			catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			FailureDetails.release(element);
+			return false;
+		}
+
+		/*
+		 * The file's elements, as they are parsed. Fails if the file fails to parse.
+		 */
+		Stream<ReportedTestElement> elements() {
+			final Iterator<ReportedTestElement> queued = new Iterator<ReportedTestElement>() {
+				private ReportedTestElement next = null;
+
+				@Override
+				public boolean hasNext() {
+					if (next == null) {
+						try {
+							next = rows.take();
+						}
+						catch(InterruptedException ex) {
+							Thread.currentThread().interrupt();
+							throw Throwables.propagate(ex);
+						}
+					}
+					if (next == END && parseFailure != null) {
+						throw Throwables.propagate(parseFailure);
+					}
+					return next != END;
+				}
+
+				@Override
+				public ReportedTestElement next() {
+					if (!hasNext()) throw new NoSuchElementException();
+					final ReportedTestElement element = next;
+					next = null;
+					return element;
+				}
+			};
+			return StreamSupport.stream(Spliterators.spliteratorUnknownSize(queued, Spliterator.ORDERED), false);
+		}
+
+		/*
+		 * Stops the parse, and releases the elements that won't be written.
+		 */
+		void abandon() {
+			isAbandoned = true;
+			releaseQueued();
+		}
+
+		long elapsedMillis() {
+			return System.currentTimeMillis() - startMillis;
+		}
+
+		private void releaseQueued() {
+			for (ReportedTestElement element = rows.poll(); element != null; element = rows.poll()) {
+				FailureDetails.release(element);
+			}
+		}
+	}
+}
@@ -18,13 +18,15 @@ import com.google.common.base.Throwables;
  * This class currently only supports the provision of Junit reports from the
  * file system in the form of a folder structure. It is pretty basic in that it
  * will recursively walk the folder structure adding any files that begin with
- * "TEST-" to the output.
+ * "TEST-" (plain or gzipped reports) and any zip / tar archives of reports to the output.
  * 
  * TODO: This can get more sophisticated in the types of input that can be handled (ie
  * web URLs). The output could also probably be made more generic. Currently however YAGNI.
  */
 public class ImportSource {
 
+	private static final String reportFilePrefix = "TEST-";
+
 	final String submittedPath;
 	final File file;
 	
@@ -46,7 +48,7 @@ public class ImportSource {
 		try {
 			fileList = Files.walk(file.toPath())
 					.map(p -> p.toFile())
-					.filter(f -> f.getName().startsWith("TEST-"))
+					.filter(f -> isReportFileName(f.getName()) || ReportFormat.of(f.getName()).isArchive())
 					.map(File::getAbsolutePath)
 					.collect(Collectors.toList());
 		} catch (IOException e) {
@@ -55,6 +57,14 @@ public class ImportSource {
 		return fileList.parallelStream();
 	}
 	
+	/**
+	 * @param fileName The name of a file, or of an archive entry.
+	 * @return True if the file is a Junit report, by name.
+	 */
+	static boolean isReportFileName(String fileName) {
+		return fileName.startsWith(reportFilePrefix);
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
@@ -0,0 +1,890 @@
+package importer;
+
+import static importer.ReportParser.classnameAttr;
+import static importer.ReportParser.errorEl;
+import static importer.ReportParser.errorsAttr;
+import static importer.ReportParser.failureEl;
+import static importer.ReportParser.failuresAttr;
+import static importer.ReportParser.message;
+import static importer.ReportParser.nameAttr;
+import static importer.ReportParser.skippedAttr;
+import static importer.ReportParser.skippedEl;
+import static importer.ReportParser.testcaseEl;
+import static importer.ReportParser.testsAttr;
+import static importer.ReportParser.testsuiteEl;
+import static importer.ReportParser.timeAttr;
+import static importer.ReportParser.timestampAttr;
+import static importer.ReportParser.type;
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Reads a UTF-8 Junit XML Report directly from the bytes of a memory-mapped {@link ByteBuffer}, without decoding 
+ * the report to chars first.
+ *
+ * Only the markup that the Junit schema needs is understood: elements, attributes, comments, CDATA sections,
+ * processing instructions and the predefined / numeric character references. Element names are matched against
+ * <b>testsuite</b>, <b>testcase</b>, <b>failure</b>, <b>error</b> and <b>skipped</b> byte for byte, and only the
+ * values of the attributes that are read are decoded. Text outside of failure details is skipped without decoding.
+ *
+ * Anything else (e.g. a DOCTYPE, a byte order mark, prefixed element names, unknown entities, invalid UTF-8 or
+ * unbalanced tags) hands the report over to a {@link CursorReportReader}, which re-parses it from the start and skips
+ * the elements that were already pushed. The pushed values are identical to the {@link CursorReportReader}'s,
+ * including its failures for malformed reports.
+ *
+ * A scanner that is resumed from a {@link ReportCheckpoint} tails a report that is still being written: a report that
+ * ends part way through an element ends the scan at the last complete element, which {@link #getCheckpoint()} then
+ * records. Content that can't be scanned is only handed over once the report's root element has been closed.
+ */
+class MappedReportScanner implements ReportReader {
+
+	private final static Logger logger = LoggerFactory.getLogger(MappedReportScanner.class);
+
+	private static final byte[] testsuiteName = testsuiteEl.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] testcaseName = testcaseEl.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] failureName = failureEl.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] errorName = errorEl.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] skippedName = skippedEl.getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] nameAttrName = nameAttr.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] timeAttrName = timeAttr.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] testsAttrName = testsAttr.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] timestampAttrName = timestampAttr.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] errorsAttrName = errorsAttr.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] failuresAttrName = failuresAttr.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] skippedAttrName = skippedAttr.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] classnameAttrName = classnameAttr.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] messageAttrName = message.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] typeAttrName = type.getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] xmlnsAttrName = "xmlns".getBytes(StandardCharsets.US_ASCII);
+
+	private static final byte[] commentOpen = "<!--".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] commentClose = "-->".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] cdataOpen = "<![CDATA[".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] cdataClose = "]]>".getBytes(StandardCharsets.US_ASCII);
+	private static final byte[] piClose = "?>".getBytes(StandardCharsets.US_ASCII);
+
+	private static final int START_TAG = 1;
+	private static final int END_TAG = 2;
+	private static final int OTHER_MARKUP = 3;
+
+	private static final int WINDOW_SIZE = 64 * 1024;
+	private static final int WINDOW_LOOK_BEHIND = 1024;
+	private static final int DETAILS_CHUNK_SIZE = 64 * 1024;
+	private static final int MAX_REFERENCE_LENGTH = 16;
+
+	/*
+	 * Discards the elements that the fallback re-parses.
+	 */
+	private static final ReportSink releasingSink = new ReportSink() {
+		@Override
+		public void testSuite(String qualifiedName, String packageName, String localName, String time, long durationMicros,
+				Path containingFolder, String containingFile, DateTime timestamp, long testsRun, long totalFailures, long totalErrors,
+				long totalSkipped) {
+		}
+
+		@Override
+		public void testCase(String qualifiedName, String packageName, String localName, String methodName, String time,
+				long durationMicros, boolean isSkipped, FailureInfo.Type failureType, String failureMessage, String exceptionName,
+				FailureDetails failureDetails) {
+			if (failureDetails != null) failureDetails.release();
+		}
+	};
+
+	private final Path fileLocation;
+	private final NameTable nameTable;
+	private final FailureDetailsPolicy failureDetailsPolicy;
+	private final ElementFields fields;
+	private final ByteBuffer report;
+	private final ByteBuffer view;
+	private final int limit;
+	private final XMLInputFactory inputFactory;
+
+	private final CharsetDecoder utf8Decoder = StandardCharsets.UTF_8.newDecoder()
+		.onMalformedInput(CodingErrorAction.REPORT)
+		.onUnmappableCharacter(CodingErrorAction.REPORT);
+	private final StringBuilder text = new StringBuilder();
+	private byte[] scratch = new byte[256];
+
+	private int pos = 0;
+	private boolean isRootSeen = false;
+	private int emittedCount = 0;
+	private ReportReader fallback = null;
+	private boolean isTailing = false;
+	private ReportCheckpoint checkpoint = ReportCheckpoint.START;
+
+	/*
+	 * Bytes are scanned from a heap window over the report, which is refilled from the report as the scan moves on.
+	 * Reading the mapping in bulk is much cheaper than reading it a byte at a time.
+	 */
+	private final byte[] window;
+	private int windowStart = 0;
+	private int windowLength = 0;
+
+	/*
+	 * Names of the currently open elements, innermost last. A name is copied out when its element is opened.
+	 */
+	private byte[] openNames = new byte[256];
+	private int[] openNameEnds = new int[16];
+	private int depth = 0;
+
+	/*
+	 * The most recently scanned start tag. Attribute offsets exclude the quotes and any namespace prefix.
+	 */
+	private int tagNameStart;
+	private int tagNameEnd;
+	private boolean isEmptyTag;
+	private int attributeCount;
+	private int[] attrNameStarts = new int[8];
+	private int[] attrNameEnds = new int[8];
+	private int[] attrValueStarts = new int[8];
+	private int[] attrValueEnds = new int[8];
+
+	/**
+	 * @param fileLocation The Junit Report file that the content originates from. Suites are attributed to this file.
+	 * @param report The report content, from position 0 to its limit. Its position is not changed.
+	 * @param inputFactory Used to create the {@link CursorReportReader} that content is handed to if it can't be scanned.
+	 * @param nameTable Provides the qualified / package / local names of parsed elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 */
+	MappedReportScanner(Path fileLocation, ByteBuffer report, XMLInputFactory inputFactory, NameTable nameTable, 
+			FailureDetailsPolicy failureDetailsPolicy) {
+		this.fileLocation = fileLocation;
+		this.nameTable = nameTable;
+		this.failureDetailsPolicy = failureDetailsPolicy;
+		this.fields = new ElementFields(nameTable);
+		this.report = report;
+		this.view = report.duplicate();
+		this.limit = report.limit();
+		this.window = new byte[Math.min(WINDOW_SIZE, limit)];
+		this.inputFactory = inputFactory;
+	}
+
+	/**
+	 * Maps the given report.
+	 * @param fileLocation The Junit Report file to be read.
+	 * @param inputFactory Used to create the {@link CursorReportReader} that content is handed to if it can't be scanned.
+	 * @param nameTable Provides the qualified / package / local names of parsed elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 * @return A scanner for the report, or null if the report is too large to be mapped as a single buffer.
+	 */
+	static MappedReportScanner open(Path fileLocation, XMLInputFactory inputFactory, NameTable nameTable, 
+			FailureDetailsPolicy failureDetailsPolicy) throws IOException {
+		try (FileChannel channel = FileChannel.open(fileLocation, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) return null;
+
+			return new MappedReportScanner(fileLocation, channel.map(MapMode.READ_ONLY, 0, channel.size()), inputFactory, nameTable, 
+				failureDetailsPolicy);
+		}
+	}
+
+	/**
+	 * Maps the given report, which may still be being written, and positions the scanner at the given checkpoint.
+	 * @param fileLocation The Junit Report file to be read.
+	 * @param from The checkpoint to resume from.
+	 * @param inputFactory Used to create the {@link CursorReportReader} that content is handed to if it can't be scanned.
+	 * @param nameTable Provides the qualified / package / local names of parsed elements.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 * @return A tailing scanner for the report, or null if the report is too large to be mapped as a single buffer.
+	 */
+	static MappedReportScanner resume(Path fileLocation, ReportCheckpoint from, XMLInputFactory inputFactory, 
+			NameTable nameTable, FailureDetailsPolicy failureDetailsPolicy) throws IOException {
+		try (FileChannel channel = FileChannel.open(fileLocation, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) return null;
+			if (channel.size() < from.getOffset()) {
+				throw new IllegalStateException("Report " + fileLocation + " is shorter than its checkpoint, it has been rewritten.");
+			}
+
+			MappedReportScanner scanner = new MappedReportScanner(fileLocation, channel.map(MapMode.READ_ONLY, 0, channel.size()), 
+				inputFactory, nameTable, failureDetailsPolicy);
+			scanner.restore(from);
+			scanner.isTailing = true;
+			return scanner;
+		}
+	}
+
+	/**
+	 * @return The checkpoint just after the last element that this tailing scanner pushed, which is complete once the
+	 * report has been read in its entirety.
+	 */
+	ReportCheckpoint getCheckpoint() {
+		return checkpoint;
+	}
+
+	@Override
+	public boolean next(ReportSink sink) throws XMLStreamException {
+		if (fallback != null) return nextFromFallback(sink);
+
+		/*
+		 * Values are only pushed once an element has been scanned in its entirety, so the sink never sees an element 
+		 * that is then re-parsed by the fallback.
+		 */
+		try {
+			if (!scanNextElement()) {
+				if (isTailing) checkpoint = ReportCheckpoint.complete(emittedCount, ReportCheckpoint.NO_SUITE);
+				return false;
+			}
+		}
+		catch(UnsupportedContentException ex) {
+			fields.reset();
+			if (isTailing && !isRootClosedAtEnd()) {
+				logger.debug("Tailing stopped at byte {} of {}: {}. Resuming from byte {} once more has been written.", 
+					pos, fileLocation, ex.getMessage(), checkpoint.offset);
+				restore(checkpoint);
+				return false;
+			}
+			logger.debug("Scanning stopped at byte {} of {}: {}. Continuing with the StAX cursor.", pos, fileLocation, ex.getMessage());
+			fallback = openFallback();
+			return nextFromFallback(sink);
+		}
+		
+		if (isTagNamed(testsuiteName)) {
+			fields.pushTestSuite(sink, fileLocation);
+		}
+		else {
+			fields.pushTestCase(sink);
+		}
+		emittedCount++;
+		if (isTailing) checkpoint = ReportCheckpoint.of(pos, emittedCount, openNames, openNameEnds, depth);
+		return true;
+	}
+
+	@Override
+	public void close() throws Exception {
+		fields.reset();
+		if (fallback != null) fallback.close();
+	}
+
+	private boolean nextFromFallback(ReportSink sink) throws XMLStreamException {
+		if (fallback.next(sink)) {
+			emittedCount++;
+			return true;
+		}
+		if (isTailing) checkpoint = ReportCheckpoint.complete(emittedCount, ReportCheckpoint.NO_SUITE);
+		return false;
+	}
+
+	/*
+	 * Returns to the given checkpoint, as if the elements up to it had just been scanned.
+	 */
+	private void restore(ReportCheckpoint restored) {
+		checkpoint = restored;
+		pos = restored.offset;
+		depth = restored.openNameEnds.length;
+		openNames = Arrays.copyOf(restored.openNames, Math.max(restored.openNames.length, openNames.length));
+		openNameEnds = Arrays.copyOf(restored.openNameEnds, Math.max(depth, openNameEnds.length));
+		isRootSeen = restored.elementCount > 0;
+		emittedCount = restored.elementCount;
+	}
+
+	/*
+	 * Whether the report ends with the end tag of its root element (of any element, if the root hasn't been scanned).
+	 * Content that can't be scanned in such a report is unsupported, rather than not yet written.
+	 */
+	private boolean isRootClosedAtEnd() {
+		int end = limit;
+		while (end > 0 && isWhitespace(at(end - 1))) end--;
+		if (end < 3 || at(end - 1) != '>') return false;
+
+		int markupStart = end - 1;
+		while (markupStart > 0 && at(markupStart) != '<') markupStart--;
+		if (at(markupStart) != '<' || at(markupStart + 1) != '/') return false;
+		if (!isRootSeen) return true;
+
+		int nameEnd = indexAfterName(markupStart + 2);
+		return isRange(markupStart + 2, nameEnd, Arrays.copyOf(openNames, openNameEnds[0]));
+	}
+
+	/*
+	 * Re-parses the report with the cursor API, skipping the elements that have already been pushed.
+	 */
+	private ReportReader openFallback() throws XMLStreamException {
+		ByteBuffer content = report.duplicate();
+		content.position(0).limit(limit);
+
+		ReportReader reader = null;
+		try {
+			reader = new CursorReportReader(fileLocation, new ByteBufferInputStream(content), inputFactory, nameTable, 
+				failureDetailsPolicy);
+		}
+		catch(IOException ex) {
+			Throwables.propagate(ex);
+		}
+
+		for (int i = 0; i < emittedCount && reader.next(releasingSink); i++);
+		return reader;
+	}
+
+	/*
+	 * Scans up to and including the next testsuite / testcase element, whose start tag is left as the current tag.
+	 * Returns false at the end of the report.
+	 */
+	private boolean scanNextElement() {
+		while (skipToMarkup()) {
+			if (scanMarkup() != START_TAG) continue;
+
+			if (isTagNamed(testsuiteName)) {
+				scanTestSuite();
+				return true;
+			}
+
+			if (isTagNamed(testcaseName)) {
+				scanTestCase();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void scanTestSuite() {
+		fields.reset();
+
+		for (int i = 0; i < attributeCount; i++) {
+			if (isAttributeNamed(i, nameAttrName)) {
+				fields.qualifiedName = attributeValue(i);
+			}
+			else if (isAttributeNamed(i, timeAttrName)) {
+				fields.time = attributeValue(i);
+			}
+			else if (isAttributeNamed(i, testsAttrName)) {
+				fields.testsRun = Long.parseLong(attributeValue(i));
+				fields.hasTestsRun = true;
+			}
+			else if (isAttributeNamed(i, timestampAttrName)) {
+				fields.timestamp = DateTime.parse(attributeValue(i));
+			}
+			else if (isAttributeNamed(i, errorsAttrName)) {
+				fields.totalErrors = Long.parseLong(attributeValue(i));
+				fields.hasTotalErrors = true;
+			}
+			else if (isAttributeNamed(i, failuresAttrName)) {
+				fields.totalFailures = Long.parseLong(attributeValue(i));
+				fields.hasTotalFailures = true;
+			}
+			else if (isAttributeNamed(i, skippedAttrName)) {
+				fields.totalSkipped = Long.parseLong(attributeValue(i));
+			}
+		}
+	}
+
+	private void scanTestCase() {
+		fields.reset();
+
+		for (int i = 0; i < attributeCount; i++) {
+			if (isAttributeNamed(i, classnameAttrName)) {
+				fields.qualifiedName = attributeValue(i);
+			}
+			else if (isAttributeNamed(i, nameAttrName)) {
+				fields.methodName = attributeValue(i);
+			}
+			else if (isAttributeNamed(i, timeAttrName)) {
+				fields.time = attributeValue(i);
+			}
+		}
+
+		if (!isEmptyTag) {
+			final int testCaseDepth = depth;
+			boolean isTestCaseScanned = false;
+			while (!isTestCaseScanned) {
+				if (!skipToMarkup()) throw new UnsupportedContentException("unclosed testcase");
+
+				int markup = scanMarkup();
+				if (markup == START_TAG) {
+					if (isTagNamed(failureName) || isTagNamed(errorName)) {
+						fields.failureType = isTagNamed(failureName) ? FailureInfo.Type.failure : FailureInfo.Type.error;
+						scanFailureInfo();
+					}
+					else if (isTagNamed(skippedName)) {
+						fields.isSkipped = true;
+					}
+					else if (isTagNamed(testcaseName)) {
+						throw new UnsupportedContentException("nested testcase");
+					}
+				}
+
+				isTestCaseScanned = markup == END_TAG && depth < testCaseDepth;
+			}
+		}
+	}
+
+	private void scanFailureInfo() {
+		fields.failureMessage = null;
+		fields.exceptionName = null;
+
+		for (int i = 0; i < attributeCount; i++) {
+			if (isAttributeNamed(i, messageAttrName)) {
+				fields.failureMessage = attributeValue(i);
+			}
+			else if (isAttributeNamed(i, typeAttrName)) {
+				fields.exceptionName = attributeValue(i);
+			}
+		}
+
+		FailureDetails.Builder details = failureDetailsPolicy.newBuilder();
+		if (!isEmptyTag) {
+			/*
+			 * Details are the text and CDATA up to the next other markup, which (as with the cursor) is consumed
+			 * without being interpreted.
+			 */
+			try {
+				boolean isReadingChars = true;
+				while (isReadingChars) {
+					int markupStart = indexOf('<', pos);
+					if (markupStart < 0) throw new UnsupportedContentException("unclosed failure");
+	
+					appendDetails(details, pos, markupStart, false);
+					pos = markupStart;
+	
+					if (startsWith(pos, cdataOpen)) {
+						int cdataEnd = indexOf(cdataClose, pos + cdataOpen.length);
+						appendDetails(details, pos + cdataOpen.length, cdataEnd, true);
+						pos = cdataEnd + cdataClose.length;
+					}
+					else {
+						isReadingChars = false;
+					}
+				}
+				scanMarkup();
+			}
+			catch(RuntimeException ex) {
+				details.discard();
+				throw ex;
+			}
+		}
+
+		fields.setFailureDetails(details.build());
+	}
+
+	/*
+	 * Moves pos to the next '<'. Only whitespace may appear outside of the root element.
+	 * Returns false at the end of a complete report.
+	 */
+	private boolean skipToMarkup() {
+		int markupStart = indexOf('<', pos);
+
+		if (depth == 0) {
+			int end = markupStart < 0 ? limit : markupStart;
+			for (int i = pos; i < end; i++) {
+				if (!isWhitespace(at(i))) throw new UnsupportedContentException("content outside of the root element");
+			}
+		}
+
+		if (markupStart < 0) {
+			if (depth > 0 || !isRootSeen) throw new UnsupportedContentException("incomplete report");
+			pos = limit;
+			return false;
+		}
+
+		pos = markupStart;
+		return true;
+	}
+
+	/*
+	 * Scans the markup starting at pos, maintaining the stack of open elements.
+	 */
+	private int scanMarkup() {
+		byte b = byteAt(pos + 1);
+
+		if (b == '!') {
+			if (startsWith(pos, commentOpen)) {
+				pos = indexOf(commentClose, pos + commentOpen.length) + commentClose.length;
+				return OTHER_MARKUP;
+			}
+			if (depth > 0 && startsWith(pos, cdataOpen)) {
+				pos = indexOf(cdataClose, pos + cdataOpen.length) + cdataClose.length;
+				return OTHER_MARKUP;
+			}
+			throw new UnsupportedContentException("DOCTYPE or misplaced CDATA");
+		}
+
+		if (b == '?') {
+			pos = indexOf(piClose, pos + 2) + piClose.length;
+			return OTHER_MARKUP;
+		}
+
+		if (b == '/') {
+			scanEndTag();
+			return END_TAG;
+		}
+
+		scanStartTag();
+		if (depth == 0) {
+			if (isRootSeen) throw new UnsupportedContentException("multiple root elements");
+			isRootSeen = true;
+		}
+		if (!isEmptyTag) pushOpenElement();
+		return START_TAG;
+	}
+
+	private void scanStartTag() {
+		tagNameStart = pos + 1;
+		tagNameEnd = indexAfterName(tagNameStart);
+		if (tagNameEnd == tagNameStart || indexOf(':', tagNameStart, tagNameEnd) >= 0) {
+			throw new UnsupportedContentException("unsupported element name");
+		}
+
+		attributeCount = 0;
+		int i = tagNameEnd;
+		while (true) {
+			int next = skipWhitespace(i);
+			byte b = byteAt(next);
+
+			if (b == '>') {
+				isEmptyTag = false;
+				pos = next + 1;
+				return;
+			}
+			if (b == '/' && byteAt(next + 1) == '>') {
+				isEmptyTag = true;
+				pos = next + 2;
+				return;
+			}
+			if (next == i) throw new UnsupportedContentException("malformed start tag");
+
+			int nameStart = next;
+			int nameEnd = indexAfterName(nameStart);
+			int equals = skipWhitespace(nameEnd);
+			int valueStart = skipWhitespace(equals + 1);
+			byte quote = byteAt(valueStart);
+			if (nameEnd == nameStart || byteAt(equals) != '=' || (quote != '"' && quote != '\'')) {
+				throw new UnsupportedContentException("malformed attribute");
+			}
+			int valueEnd = indexOf(quote, valueStart + 1);
+			if (valueEnd < 0) throw new UnsupportedContentException("unterminated attribute value");
+
+			/*
+			 * Namespace declarations aren't attributes. Prefixed attributes are matched by their local name.
+			 */
+			int prefixEnd = indexOf(':', nameStart, nameEnd);
+			boolean isNamespaceDeclaration =
+				isRange(nameStart, prefixEnd < 0 ? nameEnd : prefixEnd, xmlnsAttrName);
+			if (!isNamespaceDeclaration) {
+				addAttribute(prefixEnd < 0 ? nameStart : prefixEnd + 1, nameEnd, valueStart + 1, valueEnd);
+			}
+			i = valueEnd + 1;
+		}
+	}
+
+	private void scanEndTag() {
+		int nameStart = pos + 2;
+		int nameEnd = indexAfterName(nameStart);
+		int close = skipWhitespace(nameEnd);
+
+		if (byteAt(close) != '>' || depth == 0 || !isOpenElementNamed(nameStart, nameEnd)) {
+			throw new UnsupportedContentException("unbalanced end tag");
+		}
+		depth--;
+		pos = close + 1;
+	}
+
+	private void pushOpenElement() {
+		int namesStart = depth == 0 ? 0 : openNameEnds[depth - 1];
+		int namesEnd = namesStart + tagNameEnd - tagNameStart;
+		if (depth == openNameEnds.length) {
+			openNameEnds = Arrays.copyOf(openNameEnds, depth * 2);
+		}
+		if (namesEnd > openNames.length) {
+			openNames = Arrays.copyOf(openNames, Math.max(namesEnd, openNames.length * 2));
+		}
+		for (int i = tagNameStart; i < tagNameEnd; i++) {
+			openNames[namesStart++] = at(i);
+		}
+		openNameEnds[depth] = namesEnd;
+		depth++;
+	}
+
+	private boolean isOpenElementNamed(int nameStart, int nameEnd) {
+		int namesStart = depth == 1 ? 0 : openNameEnds[depth - 2];
+		if (nameEnd - nameStart != openNameEnds[depth - 1] - namesStart) return false;
+		for (int i = nameStart; i < nameEnd; i++) {
+			if (at(i) != openNames[namesStart++]) return false;
+		}
+		return true;
+	}
+
+	private void addAttribute(int nameStart, int nameEnd, int valueStart, int valueEnd) {
+		if (attributeCount == attrNameStarts.length) {
+			attrNameStarts = Arrays.copyOf(attrNameStarts, attributeCount * 2);
+			attrNameEnds = Arrays.copyOf(attrNameEnds, attributeCount * 2);
+			attrValueStarts = Arrays.copyOf(attrValueStarts, attributeCount * 2);
+			attrValueEnds = Arrays.copyOf(attrValueEnds, attributeCount * 2);
+		}
+		attrNameStarts[attributeCount] = nameStart;
+		attrNameEnds[attributeCount] = nameEnd;
+		attrValueStarts[attributeCount] = valueStart;
+		attrValueEnds[attributeCount] = valueEnd;
+		attributeCount++;
+	}
+
+	private boolean isTagNamed(byte[] name) {
+		return isRange(tagNameStart, tagNameEnd, name);
+	}
+
+	private boolean isAttributeNamed(int attribute, byte[] name) {
+		return isRange(attrNameStarts[attribute], attrNameEnds[attribute], name);
+	}
+
+	private String attributeValue(int attribute) {
+		int length = copyToScratch(attrValueStarts[attribute], attrValueEnds[attribute]);
+		if (indexOfSpecial(0, length, false, true) == length) {
+			return new String(scratch, 0, length, StandardCharsets.ISO_8859_1);
+		}
+		
+		StringBuilder value = new StringBuilder(length);
+		appendDecoded(value, length, false, true);
+		return value.toString();
+	}
+
+	/*
+	 * Decodes details a chunk at a time, so that memory use is bounded by the chunk size rather than by the details. 
+	 * Chunks never end part way through a UTF-8 sequence, a reference or a CR LF pair.
+	 */
+	private void appendDetails(FailureDetails.Builder details, int start, int end, boolean isCdata) {
+		while (start < end) {
+			int chunkEnd = end;
+			if (end - start > DETAILS_CHUNK_SIZE) {
+				chunkEnd = start + DETAILS_CHUNK_SIZE;
+				while ((at(chunkEnd) & 0xC0) == 0x80) chunkEnd--;
+				for (int i = chunkEnd - 1; i > chunkEnd - MAX_REFERENCE_LENGTH && at(i) != ';'; i--) {
+					if (at(i) == '&') { chunkEnd = i; break; }
+				}
+				if (at(chunkEnd - 1) == '\r') chunkEnd--;
+			}
+			
+			text.setLength(0);
+			appendDecoded(text, copyToScratch(start, chunkEnd), isCdata, false);
+			details.append(text);
+			start = chunkEnd;
+		}
+	}
+
+	/*
+	 * Appends the first length bytes of scratch. Plain ASCII is appended byte by byte. From the first byte that needs
+	 * more than that, the rest is UTF-8 decoded and then has its line breaks normalised and (outside of CDATA) its
+	 * references replaced. Attribute values also have their whitespace normalised.
+	 */
+	private void appendDecoded(StringBuilder out, int length, boolean isCdata, boolean isAttribute) {
+		int special = indexOfSpecial(0, length, isCdata, isAttribute);
+		for (int i = 0; i < special; i++) {
+			out.append((char)scratch[i]);
+		}
+		if (special == length) return;
+
+		CharBuffer chars;
+		try {
+			chars = utf8Decoder.decode(ByteBuffer.wrap(scratch, special, length - special));
+		}
+		catch(CharacterCodingException ex) {
+			throw new UnsupportedContentException("invalid UTF-8");
+		}
+
+		while (chars.hasRemaining()) {
+			char c = chars.get();
+			if (c == '\r') {
+				if (chars.hasRemaining() && chars.get(chars.position()) == '\n') chars.get();
+				out.append(isAttribute ? ' ' : '\n');
+			}
+			else if (isAttribute && (c == '\n' || c == '\t')) {
+				out.append(' ');
+			}
+			else if (c == '&' && !isCdata) {
+				appendReference(out, chars);
+			}
+			else {
+				out.append(c);
+			}
+		}
+	}
+
+	/*
+	 * Index of the first byte in scratch that can't be appended as a plain ASCII char.
+	 */
+	private int indexOfSpecial(int from, int to, boolean isCdata, boolean isAttribute) {
+		for (int i = from; i < to; i++) {
+			byte b = scratch[i];
+			if (b < 0 || b == '\r' || (b == '&' && !isCdata) || (isAttribute && (b == '\n' || b == '\t'))) return i;
+		}
+		return to;
+	}
+
+	/*
+	 * Bulk copies the content between start and end to scratch, returning its length.
+	 */
+	private int copyToScratch(int start, int end) {
+		int length = end - start;
+		if (length > scratch.length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		view.limit(end).position(start);
+		view.get(scratch, 0, length);
+		return length;
+	}
+
+	/*
+	 * Replaces the predefined entity or character reference following an '&'.
+	 */
+	private static void appendReference(StringBuilder out, CharBuffer chars) {
+		int start = chars.position();
+		int end = start;
+		while (end < chars.limit() && chars.get(end) != ';') end++;
+		if (end == chars.limit()) throw new UnsupportedContentException("unterminated reference");
+
+		String reference = chars.subSequence(0, end - start).toString();
+		chars.position(end + 1);
+
+		switch (reference) {
+			case "lt": out.append('<'); return;
+			case "gt": out.append('>'); return;
+			case "amp": out.append('&'); return;
+			case "quot": out.append('"'); return;
+			case "apos": out.append('\''); return;
+		}
+
+		if (reference.length() > 1 && reference.charAt(0) == '#') {
+			try {
+				int codePoint = reference.charAt(1) == 'x' ?
+					Integer.parseInt(reference.substring(2), 16) : Integer.parseInt(reference.substring(1));
+				out.appendCodePoint(codePoint);
+				return;
+			}
+			catch(IllegalArgumentException ex) {
+				// Not a valid character reference.
+			}
+		}
+		throw new UnsupportedContentException("unsupported reference &" + reference + ";");
+	}
+
+	private int indexAfterName(int i) {
+		while (i < limit) {
+			int offset = i - windowStart;
+			if (offset < 0 || offset >= windowLength) { at(i); continue; }
+			
+			/*
+			 * Scan the window through locals, so the loop doesn't re-read fields for every byte.
+			 */
+			final byte[] bytes = window;
+			final int end = windowLength;
+			while (offset < end) {
+				byte b = bytes[offset];
+				if (isWhitespace(b) || b == '>' || b == '/' || b == '=' || b == '<') return windowStart + offset;
+				offset++;
+			}
+			i = windowStart + offset;
+		}
+		return i;
+	}
+
+	private int skipWhitespace(int i) {
+		while (i < limit) {
+			int offset = i - windowStart;
+			if (offset < 0 || offset >= windowLength) { at(i); continue; }
+			
+			final byte[] bytes = window;
+			final int end = windowLength;
+			while (offset < end) {
+				if (!isWhitespace(bytes[offset])) return windowStart + offset;
+				offset++;
+			}
+			i = windowStart + offset;
+		}
+		return i;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\n' || b == '\t' || b == '\r';
+	}
+
+	private byte byteAt(int i) {
+		if (i >= limit) throw new UnsupportedContentException("unexpected end of report");
+		return at(i);
+	}
+
+	/*
+	 * The byte at index i, which must be less than the limit.
+	 */
+	private byte at(int i) {
+		int offset = i - windowStart;
+		if (offset >= 0 && offset < windowLength) return window[offset];
+
+		windowStart = Math.max(0, i - WINDOW_LOOK_BEHIND);
+		windowLength = Math.min(WINDOW_SIZE, limit - windowStart);
+		view.limit(windowStart + windowLength).position(windowStart);
+		view.get(window, 0, windowLength);
+		return window[i - windowStart];
+	}
+
+	private int indexOf(int b, int from) {
+		return indexOf(b, from, limit);
+	}
+
+	private int indexOf(int b, int from, int to) {
+		int i = from;
+		while (i < to) {
+			int offset = i - windowStart;
+			if (offset < 0 || offset >= windowLength) { at(i); continue; }
+			
+			final byte[] bytes = window;
+			final int end = Math.min(windowLength, to - windowStart);
+			while (offset < end) {
+				if (bytes[offset] == b) return windowStart + offset;
+				offset++;
+			}
+			i = windowStart + offset;
+		}
+		return -1;
+	}
+
+	/*
+	 * Index of the given terminator. Unterminated markup can't be scanned.
+	 */
+	private int indexOf(byte[] terminator, int from) {
+		for (int i = from; i <= limit - terminator.length; i++) {
+			if (startsWith(i, terminator)) return i;
+		}
+		throw new UnsupportedContentException("unterminated markup");
+	}
+
+	private boolean startsWith(int i, byte[] bytes) {
+		return i + bytes.length <= limit && isRange(i, i + bytes.length, bytes);
+	}
+
+	private boolean isRange(int start, int end, byte[] bytes) {
+		if (end - start != bytes.length) return false;
+		for (int j = 0; j < bytes.length; j++) {
+			if (at(start + j) != bytes[j]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Raised when the report contains content that the scanner doesn't handle.
+	 */
+	private static class UnsupportedContentException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		UnsupportedContentException(String message) {
+			super(message, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package importer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Deduplicates the qualified, package and local names of parsed {@link ReportedTestElement}s.
+ *
+ * Every Test Case in a suite repeats its class name, and {@link ReportedTestElement#setQualifiedName(String)} derives
+ * the package and local names from it with 2 more substrings. Elements that take their names from the same table share
+ * a single instance of each name, split once, so parsed batches retain one copy of each distinct name.
+ *
+ * Tables are safe to share between threads.
+ */
+public class NameTable {
+
+	private final ConcurrentMap<String, Names> qualifiedNames;
+	private final ConcurrentMap<String, String> packageNames;
+
+	private NameTable(ConcurrentMap<String, Names> qualifiedNames, ConcurrentMap<String, String> packageNames) {
+		this.qualifiedNames = qualifiedNames;
+		this.packageNames = packageNames;
+	}
+
+	/**
+	 * @return An unbounded table, intended to be used for the elements of a single import and then discarded.
+	 */
+	public static NameTable perParse() {
+		return new NameTable(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * @param maximumSize The maximum # qualified names (and separately, package names) held. Must be > 0.
+	 * @return A table that can be shared by all imports. The least recently used names are evicted once full.
+	 */
+	public static NameTable bounded(long maximumSize) {
+		Preconditions.checkArgument(maximumSize > 0, "maximumSize must be > 0.");
+
+		return new NameTable(
+			CacheBuilder.newBuilder().maximumSize(maximumSize).<String, Names>build().asMap(),
+			CacheBuilder.newBuilder().maximumSize(maximumSize).<String, String>build().asMap());
+	}
+
+	/**
+	 * @param qualifiedName A qualified class name. Must not be null.
+	 * @return The table's instance of the name, split into its package / local names.
+	 */
+	Names lookup(String qualifiedName) {
+		Names names = qualifiedNames.get(qualifiedName);
+		if (names != null) return names;
+
+		int lastDotIndex = qualifiedName.lastIndexOf(".");
+		String packageName = lastDotIndex >= 0 ? internPackageName(qualifiedName.substring(0, lastDotIndex)) : "";
+		names = new Names(qualifiedName, packageName, qualifiedName.substring(lastDotIndex + 1));
+
+		Names existing = qualifiedNames.putIfAbsent(qualifiedName, names);
+		return existing != null ? existing : names;
+	}
+
+	/**
+	 * @return The # distinct qualified names currently held.
+	 */
+	public int size() {
+		return qualifiedNames.size();
+	}
+
+	private String internPackageName(String packageName) {
+		String existing = packageNames.putIfAbsent(packageName, packageName);
+		return existing != null ? existing : packageName;
+	}
+
+	/**
+	 * A qualified name and the package / local names it splits into.
+	 */
+	static class Names {
+		final String qualifiedName;
+		final String packageName;
+		final String localName;
+
+		Names(String qualifiedName, String packageName, String localName) {
+			this.qualifiedName = qualifiedName;
+			this.packageName = packageName;
+			this.localName = localName;
+		}
+	}
+}
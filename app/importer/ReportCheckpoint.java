@@ -0,0 +1,105 @@
+package importer;
+
+import java.util.Arrays;
+
+/**
+ * The point up to which a Junit Report that is still being written has been parsed, see
+ * {@link ReportParser#parse(java.nio.file.Path, ReportCheckpoint, ReportSink)}. A checkpoint records the byte offset
+ * just after the last element that was pushed, the names of the elements that are open at that offset (e.g. the
+ * enclosing <b>testsuites</b> / <b>testsuite</b>) and the key under which the importer stored the report's most recent
+ * Test Suite, so that parsing can resume from it without re-reading the content before it.
+ *
+ * Checkpoints are immutable.
+ */
+public final class ReportCheckpoint {
+
+	/**
+	 * The key of a checkpoint whose report has no imported Test Suite.
+	 */
+	public static final long NO_SUITE = -1;
+
+	/**
+	 * The checkpoint of a report that hasn't been parsed.
+	 */
+	public static final ReportCheckpoint START = new ReportCheckpoint(0, 0, new byte[0], new int[0], false, NO_SUITE);
+
+	final int offset;
+	final int elementCount;
+	final byte[] openNames;
+	final int[] openNameEnds;
+	private final boolean isComplete;
+	private final long suiteKey;
+
+	/*
+	 * The open names are the concatenated names of the open elements, outermost first. openNameEnds holds the end of
+	 * each name. Both are owned by the checkpoint.
+	 */
+	ReportCheckpoint(int offset, int elementCount, byte[] openNames, int[] openNameEnds, boolean isComplete, long suiteKey) {
+		this.offset = offset;
+		this.elementCount = elementCount;
+		this.openNames = openNames;
+		this.openNameEnds = openNameEnds;
+		this.isComplete = isComplete;
+		this.suiteKey = suiteKey;
+	}
+
+	/**
+	 * @param elementCount The # elements that were pushed from the report.
+	 * @param suiteKey The key of the report's most recent Test Suite, or {@link #NO_SUITE}.
+	 * @return The checkpoint of a report that has been parsed in its entirety.
+	 */
+	static ReportCheckpoint complete(int elementCount, long suiteKey) {
+		return new ReportCheckpoint(0, elementCount, new byte[0], new int[0], true, suiteKey);
+	}
+
+	/*
+	 * Copies the given stack of open names.
+	 */
+	static ReportCheckpoint of(int offset, int elementCount, byte[] openNames, int[] openNameEnds, int depth) {
+		int namesEnd = depth == 0 ? 0 : openNameEnds[depth - 1];
+		return new ReportCheckpoint(offset, elementCount, Arrays.copyOf(openNames, namesEnd),
+			Arrays.copyOf(openNameEnds, depth), false, NO_SUITE);
+	}
+
+	/**
+	 * @return The byte offset that parsing resumes from.
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return The # elements that have been pushed from the report up to this checkpoint.
+	 */
+	public int getElementCount() {
+		return elementCount;
+	}
+
+	/**
+	 * @return True if the report's root element has been closed, i.e. there is nothing left to resume.
+	 */
+	public boolean isComplete() {
+		return isComplete;
+	}
+
+	/**
+	 * @return The key under which the report's most recent Test Suite was stored, or {@link #NO_SUITE}.
+	 */
+	public long getSuiteKey() {
+		return suiteKey;
+	}
+
+	/**
+	 * @param suiteKey The key under which the report's most recent Test Suite was stored, or {@link #NO_SUITE}.
+	 * @return A copy of this checkpoint with the given suite key.
+	 */
+	public ReportCheckpoint withSuiteKey(long suiteKey) {
+		return new ReportCheckpoint(offset, elementCount, openNames, openNameEnds, isComplete, suiteKey);
+	}
+
+	@Override
+	public String toString() {
+		return "ReportCheckpoint [offset=" + offset + ", elementCount=" + elementCount + ", depth=" + openNameEnds.length
+			+ ", isComplete=" + isComplete + ", suiteKey=" + suiteKey + "]";
+	}
+}
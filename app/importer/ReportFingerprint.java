@@ -0,0 +1,118 @@
+package importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Identifies the content of a Junit Report file that has been imported: its size, its last modified time and a
+ * SHA-256 hash of its content, see {@link IImportManifest}. Two fingerprints with the same size and hash are taken to
+ * be of the same content, whatever their modified times (e.g. a report that CI copied again).
+ *
+ * Fingerprints are immutable.
+ */
+public final class ReportFingerprint {
+
+	private final static String HASH_ALGORITHM = "SHA-256";
+	private final static int READ_BUFFER_SIZE = 64 * 1024;
+
+	private final long size;
+	private final long modifiedMillis;
+	private final String contentHash;
+
+	/**
+	 * @param size The file's size in bytes.
+	 * @param modifiedMillis The file's last modified time.
+	 * @param contentHash The hex encoded SHA-256 hash of the file's content. Must not be null.
+	 */
+	public ReportFingerprint(long size, long modifiedMillis, String contentHash) {
+		Preconditions.checkNotNull(contentHash, "contentHash must not be null.");
+
+		this.size = size;
+		this.modifiedMillis = modifiedMillis;
+		this.contentHash = contentHash;
+	}
+
+	/**
+	 * Fingerprints the file, hashing its content in a single streaming pass.
+	 * @param file The file. Must not be null.
+	 * @return The file's fingerprint.
+	 */
+	public static ReportFingerprint of(Path file) {
+		return of(file, null);
+	}
+
+	/**
+	 * Fingerprints the file, unless it has the size and modified time of its previous fingerprint, in which case it
+	 * is taken to be unchanged and isn't read.
+	 * @param file The file. Must not be null.
+	 * @param previous The file's previous fingerprint, or null if there is none.
+	 * @return The file's fingerprint.
+	 */
+	public static ReportFingerprint of(Path file, ReportFingerprint previous) {
+		Preconditions.checkNotNull(file, "file must not be null.");
+
+		try {
+			final long size = Files.size(file);
+			final long modifiedMillis = Files.getLastModifiedTime(file).toMillis();
+			if (previous != null && previous.size == size && previous.modifiedMillis == modifiedMillis) {
+				return previous;
+			}
+			return new ReportFingerprint(size, modifiedMillis, hash(file));
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public long getModifiedMillis() {
+		return modifiedMillis;
+	}
+
+	public String getContentHash() {
+		return contentHash;
+	}
+
+	/**
+	 * @param other Another fingerprint, or null.
+	 * @return True if the other fingerprint is of the same content.
+	 */
+	public boolean hasSameContent(ReportFingerprint other) {
+		return other != null && size == other.size && contentHash.equals(other.contentHash);
+	}
+
+	@Override
+	public String toString() {
+		return "ReportFingerprint [size=" + size + ", modifiedMillis=" + modifiedMillis + ", contentHash=" + contentHash + "]";
+	}
+
+	private static String hash(Path file) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		}
+		catch(NoSuchAlgorithmException ex) {
+			throw Throwables.propagate(ex);
+		}
+
+		final byte[] buffer = new byte[READ_BUFFER_SIZE];
+		try (InputStream in = Files.newInputStream(file)) {
+			for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+				digest.update(buffer, 0, read);
+			}
+		}
+
+		return BaseEncoding.base16().lowerCase().encode(digest.digest());
+	}
+}
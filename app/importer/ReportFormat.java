@@ -0,0 +1,48 @@
+package importer;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * The forms a Junit Report file may be submitted in, identified by file name extension.
+ * <ul>
+ * <li>XML - A plain report.
+ * <li>BINARY - A report in the compact binary form written by {@link BinaryReportWriter} (e.g. <i>TEST-a.b.C.rjb</i>).
+ * <li>GZIP - A single gzipped report (e.g. <i>TEST-a.b.C.xml.gz</i>).
+ * <li>ZIP, TAR, TAR_GZIP - A bundle of reports. Each entry whose name begins with "TEST-" is read as a report in its
+ * own right.
+ * </ul>
+ */
+enum ReportFormat {
+	XML, BINARY, GZIP, ZIP, TAR, TAR_GZIP;
+
+	/**
+	 * @param file A report file. Must not be null.
+	 * @return The format of the file.
+	 */
+	static ReportFormat of(Path file) {
+		return of(file.getFileName().toString());
+	}
+
+	/**
+	 * @param fileName The name of a report file, or of an archive entry. Must not be null.
+	 * @return The format of the file.
+	 */
+	static ReportFormat of(String fileName) {
+		fileName = fileName.toLowerCase(Locale.ROOT);
+
+		if (fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz")) return TAR_GZIP;
+		if (fileName.endsWith(".tar")) return TAR;
+		if (fileName.endsWith(".zip")) return ZIP;
+		if (fileName.endsWith(".gz")) return GZIP;
+		if (fileName.endsWith(BinaryReportWriter.FILE_EXTENSION)) return BINARY;
+		return XML;
+	}
+
+	/**
+	 * @return True if files of this format bundle several reports.
+	 */
+	boolean isArchive() {
+		return this == ZIP || this == TAR || this == TAR_GZIP;
+	}
+}
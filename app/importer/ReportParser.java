@@ -1,30 +1,23 @@
 package importer;
 
-import importer.ReportedTestResultEntry.FailureInfo;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.List;
-import java.util.UUID;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.GZIPInputStream;
 
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
-import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Attribute;
-import javax.xml.stream.events.EndElement;
-import javax.xml.stream.events.StartElement;
-import javax.xml.stream.events.XMLEvent;
-
-import org.joda.time.DateTime;
+import javax.xml.stream.XMLStreamReader;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
-import com.google.common.collect.Lists;
 
 /**
 Junit report schema here ...
@@ -124,23 +117,126 @@ Junit report schema here ...
  * Transforms a Junit XML Report to Java objects.
  */
 public class ReportParser {
-	private static final String testsuiteEl = "testsuite";
-	private static final String testsAttr = "tests";
-	private static final String testcaseEl = "testcase";
-	private static final String classnameAttr = "classname";
-	private static final String nameAttr = "name";
-	private static final String timeAttr = "time";
-	private static final String errorsAttr = "errors";
-	private static final String skippedAttr = "skipped";
-	private static final String failuresAttr = "failures";
-	private static final String errorEl = "error";
-	private static final String failureEl = "failure";
-	private static final String skippedEl = "skipped";
-	private static final String message = "message";
-	private static final String type = "type";
-	private static final String timestampAttr = "timestamp";
+	static final String testsuiteEl = "testsuite";
+	static final String testsAttr = "tests";
+	static final String testcaseEl = "testcase";
+	static final String classnameAttr = "classname";
+	static final String nameAttr = "name";
+	static final String timeAttr = "time";
+	static final String errorsAttr = "errors";
+	static final String skippedAttr = "skipped";
+	static final String failuresAttr = "failures";
+	static final String errorEl = "error";
+	static final String failureEl = "failure";
+	static final String skippedEl = "skipped";
+	static final String message = "message";
+	static final String type = "type";
+	static final String timestampAttr = "timestamp";
 	
 	private static final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	private static final int gzipBufferSize = 64 * 1024;
+	
+	/**
+	 * The StAX API used to read the report.
+	 * <ul>
+	 * <li>EVENT - {@link XMLEventReader}. Allocates an event object for every node in the report.
+	 * <li>CURSOR - {@link XMLStreamReader}. Reads names and attributes directly from the cursor. 
+	 * <li>SCANNER - A byte level scanner over the memory-mapped report that only understands the Junit schema. 
+	 * Reports it can't handle are read with the CURSOR engine.
+	 * </ul>
+	 * Gzipped reports and reports in archives can only be read sequentially, so are always read with the CURSOR engine.
+	 */
+	public static enum Engine { EVENT, CURSOR, SCANNER };
+	
+	private final Engine engine;
+	
+	/*
+	 * Parallel suite parsing is disabled unless a pool is configured.
+	 */
+	private ForkJoinPool suiteParsingPool = null;
+	private long parallelSuiteParsingMinBytes = Long.MAX_VALUE;
+	
+	/*
+	 * Each parse uses its own name table unless a shared table is configured.
+	 */
+	private NameTable sharedNameTable = null;
+	
+	private FailureDetailsPolicy failureDetailsPolicy = FailureDetailsPolicy.DEFAULT;
+	
+	private StorageIdGenerator storageIds = StorageIdGenerator.timeOrdered();
+	
+	/**
+	 * Creates a ReportParser that uses the {@link Engine#CURSOR} engine.
+	 */
+	public ReportParser() {
+		this(Engine.CURSOR);
+	}
+	
+	/**
+	 * @param engine The StAX API used to read reports. Must not be null.
+	 */
+	public ReportParser(Engine engine) {
+		Preconditions.checkNotNull(engine, "engine must not be null.");
+		this.engine = engine;
+	}
+	
+	/**
+	 * Enables parsing of large aggregated (<b>testsuites</b>) reports on multiple threads. The report is memory-mapped, 
+	 * its top level <b>testsuite</b> elements are located with a byte scan and each suite is parsed on the given pool. 
+	 * Elements are still returned in document order. Reports with fewer than 2 top level suites, or with content that 
+	 * can't be split safely (e.g. a DOCTYPE or namespace declarations), are parsed sequentially by this parser's engine. 
+	 * Suites are parsed by the SCANNER engine if this parser uses it, otherwise by the CURSOR engine.
+	 * @param pool The pool that suites are parsed on. Must not be null.
+	 * @param minFileBytes Reports smaller than this are always parsed sequentially. Must be >= 0.
+	 * @return This object.
+	 */
+	public ReportParser setParallelSuiteParsing(ForkJoinPool pool, long minFileBytes) {
+		Preconditions.checkNotNull(pool, "pool must not be null.");
+		Preconditions.checkArgument(minFileBytes >= 0, "minFileBytes must not be negative.");
+		
+		this.suiteParsingPool = pool;
+		this.parallelSuiteParsingMinBytes = minFileBytes;
+		return this;
+	}
+	
+	/**
+	 * Shares the given table between all reports parsed by this parser (e.g. a process wide {@link NameTable#bounded(long)} 
+	 * table). By default each parse deduplicates names with its own {@link NameTable#perParse()} table.
+	 * @param nameTable Must not be null.
+	 * @return This object.
+	 */
+	public ReportParser setNameTable(NameTable nameTable) {
+		Preconditions.checkNotNull(nameTable, "nameTable must not be null.");
+		
+		this.sharedNameTable = nameTable;
+		return this;
+	}
+	
+	/**
+	 * Bounds the memory used by the details of each failure / error. Defaults to {@link FailureDetailsPolicy#DEFAULT}.
+	 * Details that the policy spills to a temporary file should be released once stored, see {@link FailureDetails}.
+	 * @param policy Must not be null.
+	 * @return This object.
+	 */
+	public ReportParser setFailureDetailsPolicy(FailureDetailsPolicy policy) {
+		Preconditions.checkNotNull(policy, "policy must not be null.");
+		
+		this.failureDetailsPolicy = policy;
+		return this;
+	}
+	
+	/**
+	 * Sets the generator of the storage ids of the elements in parsed Streams. Defaults to 
+	 * {@link StorageIdGenerator#timeOrdered()}. A {@link ReportSink} generates its own ids for the values pushed to it.
+	 * @param storageIds Must not be null.
+	 * @return This object.
+	 */
+	public ReportParser setStorageIdGenerator(StorageIdGenerator storageIds) {
+		Preconditions.checkNotNull(storageIds, "storageIds must not be null.");
+		
+		this.storageIds = storageIds;
+		return this;
+	}
 	
 	public static class ImportResult {
 		
@@ -154,223 +250,188 @@ public class ReportParser {
 		public Stream<ReportedTestElement> importedElements;
 	}
 	
+	/**
+	 * Parses the given Junit Report lazily. The returned {@link Stream} is backed by a pull based 
+	 * {@link Spliterator}, so the next element is parsed only when the consumer asks for it. The 
+	 * underlying reader is released when the report is exhausted or when the Stream is closed, so 
+	 * callers that may not consume the whole Stream should close it (e.g. with try-with-resources). 
+	 * 
+	 * The report may be gzipped, be in the binary form written by {@link BinaryReportWriter}, or be a zip / tar archive 
+	 * of reports, see {@link ReportFormat}. Compressed content is decompressed as it is parsed. 
+	 * @param fileLocation The Junit Report file. Must not be null.
+	 * @return A lazily populated {@link Stream} of the report's elements in document order.
+	 */
 	public Stream<ReportedTestElement> parse(Path fileLocation) {
 		Preconditions.checkNotNull(fileLocation, "Argument fileLocation must not be null");
 		
-		final List<ReportedTestElement> testElements = Lists.newArrayList();
+		final ReportReader reader = openReader(fileLocation);
+		final ReportReaderSpliterator spliterator = new ReportReaderSpliterator(reader, storageIds);
+		return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+	}
+	
+	/**
+	 * Parses the given Junit Report, pushing the field values of each of its elements to the sink in document order. 
+	 * Unlike {@link #parse(Path)}, no {@link ReportedTestElement} is built per element (other than for reports that are 
+	 * parsed on multiple threads, see {@link #setParallelSuiteParsing(ForkJoinPool, long)}).
+	 * @param fileLocation The Junit Report file. Must not be null.
+	 * @param sink Receives the report's elements. Must not be null.
+	 * @return The # elements pushed to the sink.
+	 */
+	public int parse(Path fileLocation, ReportSink sink) {
+		Preconditions.checkNotNull(fileLocation, "Argument fileLocation must not be null");
+		Preconditions.checkNotNull(sink, "Argument sink must not be null");
 		
-		try (BufferedReader bs = Files.newBufferedReader(fileLocation, StandardCharsets.UTF_8);
-				AutoCloseEventReader eventReader = newEventReader(bs)) {
-
-			while (eventReader.hasNext()) {
-				XMLEvent event = eventReader.nextEvent();
-				
-				if (event.isStartElement()) {
-					StartElement startElement = event.asStartElement();
-					String elemName = startElement.getName().getLocalPart();
-					
-					if(testsuiteEl.equals(elemName)) {
-						ReportedTestSuiteEntry suiteEntry = parseTestSuiteEntry(startElement);
-						setFileAndFolderFromSubmittedFileLocation(fileLocation, suiteEntry);
-						suiteEntry.validateState();
-						testElements.add(suiteEntry);
-					}
-					
-					if(testcaseEl.equals(elemName)) {
-						ReportedTestResultEntry testCaseEntry = parseTestCaseEntry(startElement, eventReader);
-						testElements.add(testCaseEntry);
-					}
-				}
+		int elementCount = 0;
+		try (ReportReader reader = openReader(fileLocation)) {
+			while (reader.next(sink)) {
+				elementCount++;
 			}
 		}
 		catch(Exception ex) {
 			Throwables.propagate(ex);
 		}
-		return testElements.stream();
+		return elementCount;
 	}
-
-	private static void setFileAndFolderFromSubmittedFileLocation(Path fileLocation, ReportedTestSuiteEntry suiteEntry) {
-		
-		File reportFile = fileLocation.toFile();
-		if (!reportFile.isFile()) {
-			throw new IllegalArgumentException("File Location refer to a valid File: " + fileLocation + ".");
-		}
-		
-		String fileName = reportFile.getName();
-		
-		suiteEntry.setContainingFile(fileName);
-		suiteEntry.setContainingFolder(reportFile.getParentFile().toPath());
-	}
-
-	private static ReportedTestResultEntry parseTestCaseEntry(final StartElement testCaseElement, final XMLEventReader eventReader) 
-			throws XMLStreamException {
-		
-		final ReportedTestResultEntry testCaseEntry = new ReportedTestResultEntry();
-		//TODO: make this optional. PK is sequnec from DB.
-		testCaseEntry.setStorageId(UUID.randomUUID());
+	
+	/**
+	 * Parses the part of the given Junit Report that was written after the checkpoint, for reports that are still being 
+	 * written (e.g. by a long running suite that flushes its results as it goes). The elements that have been written 
+	 * in their entirety since the checkpoint are pushed to the sink, and the returned checkpoint is positioned just 
+	 * after the last of them, so that the next call only parses what is written after it. A report that ends part way 
+	 * through an element is not an error, the element is pushed once the rest of it has been written.
+	 * 
+	 * Plain XML reports are read by the {@link Engine#SCANNER} engine whatever this parser's engine is, as only it 
+	 * tracks byte offsets. Content that it can't handle is parsed once the report is complete. Gzipped and binary 
+	 * reports, archives and reports too large to be mapped can't be resumed, they are parsed in full from 
+	 * {@link ReportCheckpoint#START}.
+	 * @param fileLocation The Junit Report file. Must not be null.
+	 * @param from {@link ReportCheckpoint#START}, or the checkpoint returned by the previous call for the report. Must 
+	 * not be null or complete.
+	 * @param sink Receives the elements written since the checkpoint. Must not be null.
+	 * @return The checkpoint to resume from, carrying the suite key of <i>from</i>.
+	 */
+	public ReportCheckpoint parse(Path fileLocation, ReportCheckpoint from, ReportSink sink) {
+		Preconditions.checkNotNull(fileLocation, "Argument fileLocation must not be null");
+		Preconditions.checkNotNull(from, "Argument from must not be null");
+		Preconditions.checkNotNull(sink, "Argument sink must not be null");
+		Preconditions.checkArgument(!from.isComplete(), "The report has already been parsed in its entirety.");
 		
-		@SuppressWarnings("unchecked")
-		Iterator<Attribute> attributes = testCaseElement.getAttributes();
-		while(attributes.hasNext()) {
-			Attribute attribute = attributes.next();
-			if (attribute.getName().toString().equals(classnameAttr)) {
-		        testCaseEntry.setQualifiedName(attribute.getValue());
-		    }
-			if (attribute.getName().toString().equals(nameAttr)) {
-		        testCaseEntry.setMethodName(attribute.getValue());
-		    }
-			if (attribute.getName().toString().equals(timeAttr)) {
-		        testCaseEntry.setTime(attribute.getValue());
-		    }
-		}
+		final NameTable nameTable = sharedNameTable != null ? sharedNameTable : NameTable.perParse();
 		
-		boolean isTestCaseParsed = false;
-		while (eventReader.hasNext() && !isTestCaseParsed) {
-			XMLEvent testCaseElementEvent = eventReader.nextEvent();
-			if (testCaseElementEvent.isStartElement()) {
-				StartElement startElement = testCaseElementEvent.asStartElement();
-				String elemName = startElement.getName().getLocalPart();
-				
-				if(failureEl.equals(elemName) || errorEl.equals(elemName)) {
-					
-					FailureInfo.Type failType = 
-						failureEl.equals(elemName) ? FailureInfo.Type.failure : FailureInfo.Type.error; 
-					
-					FailureInfo failInfo = parseFailureInfo(eventReader, startElement, failType);
-					testCaseEntry.setFailInfo(failInfo);
-				}
-				
-				if (skippedEl.equals(elemName)) {
-					testCaseEntry.setSkipped(true);
-				}
+		ReportCheckpoint checkpoint = null;
+		try {
+			final MappedReportScanner scanner = ReportFormat.of(fileLocation) != ReportFormat.XML ? null : 
+				MappedReportScanner.resume(fileLocation, from, inputFactory, nameTable, failureDetailsPolicy);
+			
+			if (scanner == null) {
+				Preconditions.checkArgument(from.getOffset() == 0, "Report " + fileLocation + " can't be resumed.");
+				return ReportCheckpoint.complete(parse(fileLocation, sink), from.getSuiteKey());
 			}
 			
-			if (testCaseElementEvent.isEndElement()) {
-				EndElement endElement = testCaseElementEvent.asEndElement();
-				String tcEndElemName = endElement.getName().getLocalPart();
-				if(testcaseEl.equals(tcEndElemName)) {
-					isTestCaseParsed = true;
-				}
+			try (ReportReader reader = scanner) {
+				while (reader.next(sink));
 			}
+			checkpoint = scanner.getCheckpoint();
 		}
-		
-		testCaseEntry.validateState();
-		return testCaseEntry;
+		catch(Exception ex) {
+			Throwables.propagate(ex);
+		}
+		return checkpoint.withSuiteKey(from.getSuiteKey());
 	}
-
-	private static FailureInfo parseFailureInfo(final XMLEventReader eventReader, StartElement startElement, FailureInfo.Type failType)
-			throws XMLStreamException {
-		
-		String messageAttr = null;
-		String typeAttr = null;
-		String detailsString = null;
+	
+	private ReportReader openReader(Path fileLocation) {
+		final NameTable nameTable = sharedNameTable != null ? sharedNameTable : NameTable.perParse();
 		
-		@SuppressWarnings("unchecked")
-		Iterator<Attribute> failAttributes = startElement.getAttributes();
-		while(failAttributes.hasNext()) {
-			Attribute attribute = failAttributes.next();
-			if (attribute.getName().toString().equals(message)) {
-				messageAttr = attribute.getValue();
-		    }
-			if (attribute.getName().toString().equals(type)) {
-				typeAttr = attribute.getValue();
-		    }
-		}
+		final ReportFormat format = ReportFormat.of(fileLocation);
 		
-		StringBuilder detailsBuilder = new StringBuilder();
-		boolean isReadingChars = true;
-		while (eventReader.hasNext() && isReadingChars) {
-			XMLEvent nextEvent = eventReader.nextEvent();
-			if (nextEvent.isCharacters()) {
-				detailsBuilder.append(nextEvent.asCharacters().getData());
+		ReportReader reader = null;
+		try {
+			if (format.isArchive()) {
+				return ArchiveReportReader.open(fileLocation, format, inputFactory, nameTable, failureDetailsPolicy);
 			}
-			else {
-				isReadingChars = false;
+			
+			if (format == ReportFormat.GZIP) {
+				return new CursorReportReader(fileLocation, openGzip(fileLocation), inputFactory, nameTable, failureDetailsPolicy);
 			}
+			
+			if (format == ReportFormat.BINARY) {
+				return BinaryReportReader.open(fileLocation, nameTable, failureDetailsPolicy);
+			}
+			
+			if (suiteParsingPool != null && Files.size(fileLocation) >= parallelSuiteParsingMinBytes) {
+				reader = SegmentedReportReader.open(
+					fileLocation, suiteParsingPool, inputFactory, engine == Engine.SCANNER, nameTable, storageIds, failureDetailsPolicy);
+				if (reader != null) return reader;
+			}
+			
+			if (engine == Engine.SCANNER) {
+				reader = MappedReportScanner.open(fileLocation, inputFactory, nameTable, failureDetailsPolicy);
+				if (reader != null) return reader;
+			}
+			
+			reader = engine == Engine.EVENT ? 
+				new EventReportReader(fileLocation, inputFactory, nameTable, failureDetailsPolicy) : 
+				new CursorReportReader(fileLocation, inputFactory, nameTable, failureDetailsPolicy);
 		}
-		detailsString = detailsBuilder.toString();		
-		
-		FailureInfo failInfo = new FailureInfo(messageAttr, typeAttr, detailsString, failType);
-		return failInfo;
-	}
-
-	private static ReportedTestSuiteEntry parseTestSuiteEntry(StartElement startElement) {
-		ReportedTestSuiteEntry testSuiteEntry = new ReportedTestSuiteEntry();
-		testSuiteEntry.setStorageId(UUID.randomUUID());
-		
-		@SuppressWarnings("unchecked")
-		Iterator<Attribute> attributes = startElement.getAttributes();
-		
-		while(attributes.hasNext()) {
-			Attribute attribute = attributes.next();
-			if (attribute.getName().toString().equals(nameAttr)) {
-				testSuiteEntry.setQualifiedName(attribute.getValue());
-		    }
-			if (attribute.getName().toString().equals(timeAttr)) {
-				testSuiteEntry.setTime(attribute.getValue());
-		    }
-			if (attribute.getName().toString().equals(testsAttr)) {
-				testSuiteEntry.setTestsRun(Long.parseLong(attribute.getValue()));
-		    }
-			if (attribute.getName().toString().equals(timestampAttr)) {
-				testSuiteEntry.setTimestamp(DateTime.parse(attribute.getValue()));
-		    }
-			if (attribute.getName().toString().equals(errorsAttr)) {
-				testSuiteEntry.setTotalErrors(Long.parseLong(attribute.getValue()));
-		    }
-			if (attribute.getName().toString().equals(failuresAttr)) {
-				testSuiteEntry.setTotalFailures(Long.parseLong(attribute.getValue()));
-		    }
-			if (attribute.getName().toString().equals(skippedAttr)) {
-				testSuiteEntry.setTotalSkipped(Long.parseLong(attribute.getValue()));
-		    }
+		catch(Exception ex) {
+			Throwables.propagate(ex);
 		}
-		return testSuiteEntry;
+		return reader;
 	}
 	
-	private static AutoCloseableEventReader newEventReader(BufferedReader br){
-		XMLEventReader er = null;
+	private static InputStream openGzip(Path fileLocation) throws IOException {
+		final InputStream content = Files.newInputStream(fileLocation);
 		try {
-			er = inputFactory.createXMLEventReader(br);
-			return new AutoCloseableEventReader(er);
-		} catch (XMLStreamException e) {
-			Throwables.propagate(e);
+			return new GZIPInputStream(content, gzipBufferSize);
+		}
+		catch(IOException ex) {
+			content.close();
+			throw ex;
 		}
-		return null;
 	}
-	
-	/**
-	 * Convenience interface to bundle up {@link XMLReader} and {@link AutoCloseable} interfaces. 
-	 * This gives us a cleaner flow in the main parsing logic.
-	 */
-	private static interface AutoCloseEventReader extends XMLEventReader, AutoCloseable {}
-	
+
 	/**
-	 * Implements {@link AutoCloseEventReader} by wrapping an {@link XMLEventReader}.
-	 * The {@link AutoCloseable#close()} will be dispatched to {@link XMLEventReader#close()}. 
+	 * Adapts a {@link ReportReader} to a {@link Spliterator}. Each call to {@link #tryAdvance(Consumer)}
+	 * pulls a single element from the reader. The reader is closed once it is exhausted, if it fails or 
+	 * when the owning Stream is closed, whichever happens first.
 	 */
-	private static class AutoCloseableEventReader implements AutoCloseEventReader {
+	private static class ReportReaderSpliterator extends Spliterators.AbstractSpliterator<ReportedTestElement> {
 		
-		final XMLEventReader wrapped;
+		private final ReportReader reader;
+		private final ElementCollector collector;
+		private boolean isClosed = false;
 		
-		AutoCloseableEventReader(XMLEventReader wrapped) { this.wrapped = wrapped; }
-
-		@Override public Object next() { return wrapped.next(); }
-
-		@Override public void close() throws XMLStreamException { wrapped.close(); }
-
-		@Override public String getElementText() throws XMLStreamException { return wrapped.getElementText(); }
-
-		@Override public Object getProperty(String arg0) throws IllegalArgumentException {return wrapped.getProperty(arg0); }
-
-		@Override public boolean hasNext() {return wrapped.hasNext(); }
-
-		@Override public XMLEvent nextEvent() throws XMLStreamException { return wrapped.nextEvent(); }
-
-		@Override public XMLEvent nextTag() throws XMLStreamException { return wrapped.nextTag(); }
+		ReportReaderSpliterator(ReportReader reader, StorageIdGenerator storageIds) {
+			super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+			this.reader = reader;
+			this.collector = new ElementCollector(storageIds);
+		}
 
-		@Override public XMLEvent peek() throws XMLStreamException { return wrapped.peek(); }
+		@Override
+		public boolean tryAdvance(Consumer<? super ReportedTestElement> action) {
+			if (isClosed) return false;
+			
+			boolean isParsed = false;
+			try { isParsed = reader.next(collector); }
+			catch(Exception ex) {
+				close();
+				Throwables.propagate(ex);
+			}
+			
+			if (!isParsed) {
+				close();
+				return false;
+			}
+			action.accept(collector.getElement());
+			return true;
+		}
 		
+		void close() {
+			if (isClosed) return;
+			isClosed = true;
+			
+			try { reader.close(); }
+			catch(Exception ex) { Throwables.propagate(ex); }
+		}
 	}
-	
 }
@@ -0,0 +1,17 @@
+package importer;
+
+import javax.xml.stream.XMLStreamException;
+
+/**
+ * Pull based reader of the elements in a single Junit XML Report. Each call to {@link #next(ReportSink)}
+ * parses just enough of the report to push the next element's values to a sink.
+ */
+interface ReportReader extends AutoCloseable {
+
+	/**
+	 * Parses the next Test Suite or Test Case element in the report and passes its field values to the sink.
+	 * @param sink Receives the element.
+	 * @return False if there are no further elements in the report.
+	 */
+	boolean next(ReportSink sink) throws XMLStreamException;
+}
@@ -0,0 +1,74 @@
+package importer;
+
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.nio.file.Path;
+
+import org.joda.time.DateTime;
+
+/**
+ * Receives the field values of each element of a Junit Report, in document order, as the report is parsed (see
+ * {@link ReportParser#parse(Path, ReportSink)}). Nothing is built per element beyond the values themselves, so a sink
+ * that writes the values straight out (e.g. to an insert batch) avoids the intermediate {@link ReportedTestElement}s.
+ */
+public interface ReportSink {
+
+	/**
+	 * Receives a <b>testsuite</b> element.
+	 * @param qualifiedName The suite's qualified class name.
+	 * @param packageName The package of the qualified name. "" if it has no package.
+	 * @param localName The qualified name without its package.
+	 * @param time The time taken by the suite, as recorded by the report.
+	 * @param durationMicros The time in microseconds, or {@link Durations#UNKNOWN} if the time isn't a valid duration.
+	 * @param containingFolder The folder that the report is in.
+	 * @param containingFile The report's file name.
+	 * @param timestamp The timestamp as per the report.
+	 * @param testsRun # tests run.
+	 * @param totalFailures # failures.
+	 * @param totalErrors # errors.
+	 * @param totalSkipped # skipped tests.
+	 */
+	void testSuite(String qualifiedName, String packageName, String localName, String time, long durationMicros,
+		Path containingFolder, String containingFile, DateTime timestamp, long testsRun, long totalFailures, long totalErrors,
+		long totalSkipped);
+
+	/**
+	 * Receives a <b>testcase</b> element.
+	 * @param qualifiedName The test's qualified class name.
+	 * @param packageName The package of the qualified name. "" if it has no package.
+	 * @param localName The qualified name without its package.
+	 * @param methodName The test method name. May be null.
+	 * @param time The time taken by the test, as recorded by the report.
+	 * @param durationMicros The time in microseconds, or {@link Durations#UNKNOWN} if the time isn't a valid duration.
+	 * @param isSkipped True if the test was skipped.
+	 * @param failureType The type of the test's <b>failure</b> / <b>error</b>, or null if it has neither.
+	 * @param failureMessage The failure message. May be null.
+	 * @param exceptionName The failure's exception type. May be null.
+	 * @param failureDetails The failure details. May be null. If spilled, the sink is responsible for releasing them.
+	 */
+	void testCase(String qualifiedName, String packageName, String localName, String methodName, String time,
+		long durationMicros, boolean isSkipped, FailureInfo.Type failureType, String failureMessage, String exceptionName,
+		FailureDetails failureDetails);
+
+	/**
+	 * Receives an element that has already been built, e.g. one taken from a {@link ReportedTestElement} Stream.
+	 * By default its field values are passed to {@link #testSuite} / {@link #testCase}.
+	 * @param element A valid Test Suite or Test Case element.
+	 */
+	default void element(ReportedTestElement element) {
+		if (element instanceof ReportedTestSuiteEntry) {
+			ReportedTestSuiteEntry suite = (ReportedTestSuiteEntry)element;
+			testSuite(suite.getQualifiedName(), suite.getPackageName(), suite.getLocalTestCaseName(), suite.getTime(),
+				suite.getDurationMicros(), suite.getContainingFolder(), suite.getContainingFile(), suite.getTimestamp(), suite.getTestsRun(),
+				suite.getTotalFailures(), suite.getTotalErrors(), suite.getTotalSkipped());
+		}
+		else {
+			ReportedTestResultEntry result = (ReportedTestResultEntry)element;
+			FailureInfo fi = result.getFailureInfo();
+			testCase(result.getQualifiedName(), result.getPackageName(), result.getLocalTestCaseName(), result.getMethodName(),
+				result.getTime(), result.getDurationMicros(), result.isSkipped(), fi == null ? null : fi.getFailureType(),
+				fi == null ? null : fi.getMessage(), fi == null ? null : fi.getExceptionName(),
+				fi == null ? null : fi.getDetailsContent());
+		}
+	}
+}
@@ -18,6 +18,7 @@ public abstract class ReportedTestElement {
 	protected String packageName;
 	protected String localName;
 	protected String time;
+	protected long durationMicros = Durations.UNKNOWN;
 	
 	public UUID getStorageId() {
 		return this.storageId;
@@ -47,6 +48,31 @@ public abstract class ReportedTestElement {
 		return this;
 	}
 
+	/**
+	 * Equivalent to {@link #setQualifiedName(String)}, but the name and its package / local names are the instances
+	 * held by the given table. Elements with the same name then share them.
+	 * @param qualifiedName Must not be null.
+	 * @param nameTable Must not be null.
+	 * @return This object.
+	 */
+	public ReportedTestElement setQualifiedName(String qualifiedName, NameTable nameTable) {
+		Preconditions.checkNotNull(qualifiedName, "qualifiedName must not ne null");
+		Preconditions.checkNotNull(nameTable, "nameTable must not ne null");
+
+		NameTable.Names names = nameTable.lookup(qualifiedName);
+		return setNames(names.qualifiedName, names.packageName, names.localName);
+	}
+
+	/*
+	 * Sets a qualified name that has already been split into its package / local names.
+	 */
+	ReportedTestElement setNames(String qualifiedName, String packageName, String localName) {
+		this.qualifiedName = qualifiedName;
+		this.packageName = packageName;
+		this.localName = localName;
+		return this;
+	}
+
 	/**
 	 * @return The time taken by the Test, as recorded by the junit report "time" attribute.
 	 */
@@ -60,10 +86,25 @@ public abstract class ReportedTestElement {
 	 */
 	public ReportedTestElement setTime(String time) {
 		Preconditions.checkNotNull(time, "time must not ne null");
+		return setTime(time, Durations.toMicros(time));
+	}
+	
+	/*
+	 * Sets a time that has already been converted to microseconds.
+	 */
+	ReportedTestElement setTime(String time, long durationMicros) {
 		this.time = time;
+		this.durationMicros = durationMicros;
 		return this;
 	}
 	
+	/**
+	 * @return The time taken by the Test in microseconds, or {@link Durations#UNKNOWN} if the time isn't a valid duration.
+	 */
+	public long getDurationMicros() {
+		return durationMicros;
+	}
+	
 	public String getPackageName() {
 		return this.packageName;
 	}
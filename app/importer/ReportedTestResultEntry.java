@@ -20,13 +20,22 @@ public class ReportedTestResultEntry extends ReportedTestElement {
 	private boolean isSkipped = false;
 
 	public String getStatus() {
+		return status(isSkipped(), getFailureInfo() == null ? null : failInfo.getFailureType());
+	}
+	
+	/**
+	 * @param isSkipped True if the Test was skipped.
+	 * @param failureType The type of the Test's failure, or null if it didn't fail.
+	 * @return The status of a Test with the given outcome.
+	 */
+	public static String status(boolean isSkipped, Type failureType) {
 		
-		if (isSkipped()) {
+		if (isSkipped) {
 			return STATUS_SKIPPED;
 		}
 		
-		if (getFailureInfo() != null) {
-			return failInfo.getFailureType() == Type.failure ? STATUS_FAIL : STATUS_ERROR;
+		if (failureType != null) {
+			return failureType == Type.failure ? STATUS_FAIL : STATUS_ERROR;
 		}
 		return STATUS_PASS;
 	}
@@ -97,10 +106,14 @@ public class ReportedTestResultEntry extends ReportedTestElement {
 		
 		final String message;
 		final String exceptionName;
-		final String details;
+		final FailureDetails details;
 		final Type failureType;
 		
 		public FailureInfo(String message, String execptionName, String details, Type failureType) {
+			this(message, execptionName, FailureDetails.of(details), failureType);
+		}
+		
+		public FailureInfo(String message, String execptionName, FailureDetails details, Type failureType) {
 			this.message = message;
 			this.exceptionName = execptionName;
 			this.details = details;
@@ -115,7 +128,18 @@ public class ReportedTestResultEntry extends ReportedTestElement {
 			return exceptionName;
 		}
 
+		/**
+		 * @return The failure details. Details that were spilled to a temporary file while parsing are read back into 
+		 * memory. Use {@link #getDetailsContent()} to stream them instead.
+		 */
 		public String getDetails() {
+			return details == null ? null : details.toString();
+		}
+		
+		/**
+		 * @return The failure details, which may be held in memory or in a temporary file. May be null.
+		 */
+		public FailureDetails getDetailsContent() {
 			return details;
 		}
 
@@ -0,0 +1,297 @@
+package importer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+
+/**
+ * Reads a large aggregated (<b>testsuites</b>) Junit XML Report by parsing its top level <b>testsuite</b> 
+ * elements on multiple threads.
+ * 
+ * The report is memory-mapped and a byte scan locates the top level suite boundaries. Each suite segment is then
+ * parsed by its own {@link CursorReportReader} (or {@link MappedReportScanner}) on a {@link ForkJoinPool}. Parsed segments are handed out strictly
+ * in document order, so each Test Suite is still followed by its own Test Cases. Only a bounded window of segments 
+ * is parsed ahead of the consumer.
+ */
+class SegmentedReportReader implements ReportReader {
+
+	private static final byte[] suiteOpen = "<testsuite".getBytes();
+	private static final byte[] suiteClose = "</testsuite".getBytes();
+	private static final byte[] caseOpen = "<testcase".getBytes();
+	private static final byte[] commentOpen = "<!--".getBytes();
+	private static final byte[] commentClose = "-->".getBytes();
+	private static final byte[] cdataOpen = "<![CDATA[".getBytes();
+	private static final byte[] cdataClose = "]]>".getBytes();
+	private static final byte[] piOpen = "<?".getBytes();
+	private static final byte[] piClose = "?>".getBytes();
+	private static final byte[] xmlns = "xmlns".getBytes();
+	
+	private final Path fileLocation;
+	private final NameTable nameTable;
+	private final StorageIdGenerator storageIds;
+	private final FailureDetailsPolicy failureDetailsPolicy;
+	private final MappedByteBuffer mappedReport;
+	private final Iterator<Segment> segments;
+	private final ForkJoinPool pool;
+	private final XMLInputFactory inputFactory;
+	private final boolean isScanningSegments;
+	private final int maxSegmentsInFlight;
+	
+	private final Deque<ForkJoinTask<List<ReportedTestElement>>> parsedSegments = new ArrayDeque<>();
+	private Iterator<ReportedTestElement> currentSegment = Collections.emptyIterator();
+	
+	/*
+	 * Parsed segments that have not been handed to the consumer yet. Guards isClosed.
+	 */
+	private final Set<List<ReportedTestElement>> unconsumedSegments = Collections.newSetFromMap(new IdentityHashMap<>());
+	private boolean isClosed = false;
+	
+	private SegmentedReportReader(Path fileLocation, MappedByteBuffer mappedReport, List<Segment> segments, 
+			ForkJoinPool pool, XMLInputFactory inputFactory, boolean isScanningSegments, NameTable nameTable, 
+			StorageIdGenerator storageIds, FailureDetailsPolicy failureDetailsPolicy) {
+		this.fileLocation = fileLocation;
+		this.nameTable = nameTable;
+		this.storageIds = storageIds;
+		this.failureDetailsPolicy = failureDetailsPolicy;
+		this.mappedReport = mappedReport;
+		this.segments = segments.iterator();
+		this.pool = pool;
+		this.inputFactory = inputFactory;
+		this.isScanningSegments = isScanningSegments;
+		this.maxSegmentsInFlight = pool.getParallelism() * 2;
+	}
+	
+	/**
+	 * Maps the given report and locates its top level suites.
+	 * @param fileLocation The Junit Report file to be read.
+	 * @param pool The pool that suite segments will be parsed on.
+	 * @param inputFactory Used to create the {@link CursorReportReader} for each suite segment.
+	 * @param isScanningSegments True to read each suite segment with a {@link MappedReportScanner}.
+	 * @param nameTable Provides the qualified / package / local names of parsed elements. Shared by all segments.
+	 * @param storageIds Generates the storage ids of parsed elements. Shared by all segments.
+	 * @param failureDetailsPolicy Bounds the memory used by the details of each failure.
+	 * @return A reader for the report, or null if the report does not contain multiple top level suites or contains
+	 * content that can't be safely parsed a segment at a time. These reports should be parsed sequentially.
+	 */
+	static SegmentedReportReader open(Path fileLocation, ForkJoinPool pool, XMLInputFactory inputFactory, 
+			boolean isScanningSegments, NameTable nameTable, StorageIdGenerator storageIds, 
+			FailureDetailsPolicy failureDetailsPolicy) throws IOException {
+		try (FileChannel channel = FileChannel.open(fileLocation, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) return null;
+			
+			MappedByteBuffer mappedReport = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			List<Segment> segments = findTopLevelSuites(mappedReport);
+			
+			return segments == null || segments.size() < 2 ? 
+				null : new SegmentedReportReader(fileLocation, mappedReport, segments, pool, inputFactory, isScanningSegments, 
+					nameTable, storageIds, failureDetailsPolicy);
+		}
+	}
+
+	/**
+	 * Segments are parsed ahead of the consumer, so their elements are built before being passed to the sink.
+	 */
+	@Override
+	public boolean next(ReportSink sink) throws XMLStreamException {
+		while (!currentSegment.hasNext()) {
+			fillWindow();
+			if (parsedSegments.isEmpty()) return false;
+			List<ReportedTestElement> elements = parsedSegments.removeFirst().join();
+			synchronized (unconsumedSegments) { unconsumedSegments.remove(elements); }
+			currentSegment = elements.iterator();
+		}
+		sink.element(currentSegment.next());
+		return true;
+	}
+
+	/**
+	 * Failure details that were spilled to temporary files by segments that will never be consumed are released. 
+	 * Segments that are still parsing release their own when they finish.
+	 */
+	@Override
+	public void close() throws Exception {
+		synchronized (unconsumedSegments) {
+			isClosed = true;
+			unconsumedSegments.forEach(elements -> elements.forEach(FailureDetails::release));
+			unconsumedSegments.clear();
+		}
+		currentSegment.forEachRemaining(FailureDetails::release);
+		
+		parsedSegments.forEach(parse -> parse.cancel(false));
+		parsedSegments.clear();
+	}
+	
+	/*
+	 * Keep up to maxSegmentsInFlight segments parsing ahead of the consumer.
+	 */
+	private void fillWindow() {
+		while (parsedSegments.size() < maxSegmentsInFlight && segments.hasNext()) {
+			final Segment segment = segments.next();
+			parsedSegments.addLast(pool.submit(() -> parseSegment(segment)));
+		}
+	}
+	
+	private List<ReportedTestElement> parseSegment(Segment segment) {
+		final List<ReportedTestElement> elements = Lists.newArrayList();
+		
+		ByteBuffer segmentBytes = mappedReport.duplicate();
+		segmentBytes.limit(segment.end).position(segment.start);
+		
+		try (ReportReader reader = isScanningSegments ?
+				new MappedReportScanner(fileLocation, segmentBytes.slice(), inputFactory, nameTable, failureDetailsPolicy) :
+				new CursorReportReader(fileLocation, new ByteBufferInputStream(segmentBytes.slice()), inputFactory, nameTable, 
+					failureDetailsPolicy)) {
+			ElementCollector collector = new ElementCollector(storageIds);
+			while (reader.next(collector)) {
+				elements.add(collector.getElement());
+			}
+		}
+		catch(Exception ex) {
+			elements.forEach(FailureDetails::release);
+			Throwables.propagate(ex);
+		}
+		
+		synchronized (unconsumedSegments) {
+			if (isClosed) {
+				elements.forEach(FailureDetails::release);
+				return Collections.emptyList();
+			}
+			unconsumedSegments.add(elements);
+		}
+		return elements;
+	}
+	
+	/*
+	 * Scans the report for the start / end offsets of its top level testsuite elements. Comments, CDATA sections and
+	 * processing instructions are skipped over. 
+	 * Returns null if the report contains a DOCTYPE, namespace declarations or Test Cases outside of a suite, as the 
+	 * segments could not then be parsed independently.
+	 */
+	private static List<Segment> findTopLevelSuites(ByteBuffer report) {
+		final List<Segment> segments = Lists.newArrayList();
+		final int length = report.limit();
+		
+		int depth = 0;
+		int segmentStart = -1;
+		int i = 0;
+		while (i < length) {
+			if (report.get(i) != '<') { i++; continue; }
+			
+			if (startsWith(report, i, commentOpen)) { i = indexAfter(report, i, commentClose); }
+			else if (startsWith(report, i, cdataOpen)) { i = indexAfter(report, i, cdataClose); }
+			else if (startsWith(report, i, piOpen)) { i = indexAfter(report, i, piClose); }
+			else if (i + 1 < length && report.get(i + 1) == '!') { return null; }
+			else if (isTag(report, i, suiteOpen)) {
+				int tagEnd = indexAfterTag(report, i);
+				if (tagEnd < 0) return null;
+				
+				boolean isEmptyElement = report.get(tagEnd - 2) == '/';
+				if (depth == 0) {
+					segmentStart = i;
+					if (isEmptyElement) { segments.add(new Segment(segmentStart, tagEnd)); }
+				}
+				if (!isEmptyElement) { depth++; }
+				i = tagEnd;
+			}
+			else if (isTag(report, i, suiteClose)) {
+				int tagEnd = indexAfterTag(report, i);
+				if (tagEnd < 0 || depth == 0) return null;
+				
+				if (--depth == 0) { segments.add(new Segment(segmentStart, tagEnd)); }
+				i = tagEnd;
+			}
+			else if (depth == 0 && isTag(report, i, caseOpen)) { return null; }
+			else if (depth == 0 && segments.isEmpty()) {
+				/*
+				 * Segments are parsed without their enclosing elements, so they can't see any namespaces declared there.
+				 */
+				int tagEnd = indexAfterTag(report, i);
+				if (tagEnd < 0 || indexOf(report, i, tagEnd, xmlns) >= 0) return null;
+				i = tagEnd;
+			}
+			else { i++; }
+			
+			if (i < 0) return null;
+		}
+		return depth == 0 ? segments : null;
+	}
+	
+	/*
+	 * True if the given name starts at index i and is followed by the end of the name (whitespace, '>' or '/').
+	 */
+	private static boolean isTag(ByteBuffer report, int i, byte[] name) {
+		if (!startsWith(report, i, name)) return false;
+		
+		int next = i + name.length;
+		if (next >= report.limit()) return false;
+		
+		byte b = report.get(next);
+		return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+	
+	/*
+	 * Index after the '>' that ends the tag starting at index i. Quoted attribute values may contain '>'.
+	 */
+	private static int indexAfterTag(ByteBuffer report, int i) {
+		byte quote = 0;
+		for (int j = i + 1; j < report.limit(); j++) {
+			byte b = report.get(j);
+			if (quote != 0) { if (b == quote) quote = 0; }
+			else if (b == '"' || b == '\'') { quote = b; }
+			else if (b == '>') { return j + 1; }
+		}
+		return -1;
+	}
+	
+	private static int indexAfter(ByteBuffer report, int from, byte[] terminator) {
+		int found = indexOf(report, from, report.limit(), terminator);
+		return found < 0 ? -1 : found + terminator.length;
+	}
+	
+	private static int indexOf(ByteBuffer report, int from, int to, byte[] bytes) {
+		for (int i = from; i <= to - bytes.length; i++) {
+			if (startsWith(report, i, bytes)) return i;
+		}
+		return -1;
+	}
+	
+	private static boolean startsWith(ByteBuffer report, int i, byte[] bytes) {
+		if (i + bytes.length > report.limit()) return false;
+		for (int j = 0; j < bytes.length; j++) {
+			if (report.get(i + j) != bytes[j]) return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Byte offsets of a single top level testsuite element within the report.
+	 */
+	private static class Segment {
+		final int start;
+		final int end;
+		
+		Segment(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+	}
+}
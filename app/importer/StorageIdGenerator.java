@@ -0,0 +1,32 @@
+package importer;
+
+import java.util.UUID;
+
+/**
+ * Generates the storage ids of imported elements (see {@link ReportedTestElement#getStorageId()}). 
+ * 
+ * Generators are safe to share between threads. {@link #timeOrdered()} is used unless another generator is configured.
+ */
+@FunctionalInterface
+public interface StorageIdGenerator {
+
+	/**
+	 * @return An id that hasn't been returned before.
+	 */
+	UUID nextId();
+
+	/**
+	 * @return A generator of random (version 4) UUIDs. Each id is drawn from the shared {@link java.security.SecureRandom}, 
+	 * which serializes concurrent imports.
+	 */
+	static StorageIdGenerator random() {
+		return UUID::randomUUID;
+	}
+
+	/**
+	 * @return A generator of time-ordered UUIDs, see {@link TimeOrderedIdGenerator}.
+	 */
+	static StorageIdGenerator timeOrdered() {
+		return new TimeOrderedIdGenerator();
+	}
+}
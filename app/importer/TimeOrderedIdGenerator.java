@@ -0,0 +1,38 @@
+package importer;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates version 7 (Unix time-ordered) UUIDs. The most significant 48 bits are the Unix time in milliseconds and 
+ * the following 12 bits (after the version) count the ids generated within the same millisecond, so ids from a single 
+ * generator are strictly increasing, both as UUIDs and as their String form. The remaining 62 bits are random.
+ * 
+ * Unlike {@link UUID#randomUUID()}, the random bits come from a {@link ThreadLocalRandom}, so concurrent imports 
+ * don't contend for a shared {@link java.security.SecureRandom}. Ids are unique rather than unguessable. Ids that are
+ * inserted in the order that they are generated stay append-ordered in an index on the storage id.
+ */
+class TimeOrderedIdGenerator implements StorageIdGenerator {
+
+	private static final int COUNTER_BITS = 12;
+	private static final long VERSION = 0x7000L;
+	private static final long VARIANT = 0x8000000000000000L;
+	private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+	/*
+	 * The time (ms) and counter of the most recent id, as (time << COUNTER_BITS) | counter. A counter that overflows 
+	 * carries into the time, which stays at most a few ms ahead of the clock even at very high rates.
+	 */
+	private final AtomicLong lastTimeAndCounter = new AtomicLong();
+
+	@Override
+	public UUID nextId() {
+		final long now = System.currentTimeMillis() << COUNTER_BITS;
+		final long timeAndCounter = lastTimeAndCounter.updateAndGet(last -> Math.max(last + 1, now));
+
+		final long mostSigBits = (timeAndCounter >>> COUNTER_BITS) << 16 | VERSION | (timeAndCounter & 0xFFF);
+		final long leastSigBits = ThreadLocalRandom.current().nextLong() & RANDOM_MASK | VARIANT;
+		return new UUID(mostSigBits, leastSigBits);
+	}
+}
@@ -0,0 +1,156 @@
+package importer.jdbc;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Chooses the # of Test Cases that are sent to the database per batch from the measured latency of the batches sent so
+ * far. The best size depends on the width of the rows (e.g. large failure details vs. all-pass runs) and on the
+ * database, so rather than being fixed it is searched for between configured bounds:
+ * <ul>
+ * <li> The rows/sec of every <i>sampleBatches</i> full batches is measured at the current size.
+ * <li> The size is then stepped further in the same direction (larger or smaller) if rows/sec rose, and turned back
+ * if it fell. Each turn shrinks the step, so the size settles near the best one, while a large change in
+ * rows/sec (e.g. a report with much wider rows) restarts the search with a full step.
+ * <li> If a maximum latency is set, the size is reduced whenever the batches take longer than that to execute.
+ * </ul>
+ * Sizes are shared by the sinks of an importer, which record their batches with {@link #record(int, long)}. Thread safe.
+ */
+public class AdaptiveBatchSize {
+
+	/**
+	 * The # of batches that rows/sec is measured over before the size is changed.
+	 */
+	public final static int DEFAULT_SAMPLE_BATCHES = 4;
+
+	private final static double MAX_STEP = 2.0;
+	private final static double MIN_STEP = 1.1;
+
+	/*
+	 * Changes in rows/sec larger than this fraction, once the search has turned, are taken as a change of workload.
+	 */
+	private final static double WORKLOAD_CHANGE = 0.5;
+
+	private final int minSize;
+	private final int maxSize;
+	private final int sampleBatches;
+	private long maxBatchNanos = Long.MAX_VALUE;
+
+	private volatile int size;
+	private volatile double rowsPerSecond = 0;
+	private volatile long lastBatchNanos = 0;
+
+	private double step = MAX_STEP;
+	private boolean isGrowing = true;
+	private long sampledRows = 0;
+	private long sampledNanos = 0;
+	private int sampledBatches = 0;
+
+	/**
+	 * @param initialSize The size of the first batches, clamped to the bounds.
+	 * @param minSize The smallest size chosen. Must be > 0.
+	 * @param maxSize The largest size chosen. Must be >= minSize.
+	 */
+	public AdaptiveBatchSize(int initialSize, int minSize, int maxSize) {
+		this(initialSize, minSize, maxSize, DEFAULT_SAMPLE_BATCHES);
+	}
+
+	/**
+	 * @param initialSize The size of the first batches, clamped to the bounds.
+	 * @param minSize The smallest size chosen. Must be > 0.
+	 * @param maxSize The largest size chosen. Must be >= minSize.
+	 * @param sampleBatches The # of batches that rows/sec is measured over before the size is changed. Must be > 0.
+	 */
+	public AdaptiveBatchSize(int initialSize, int minSize, int maxSize, int sampleBatches) {
+		Preconditions.checkArgument(minSize > 0, "minSize must be greater than 0.");
+		Preconditions.checkArgument(maxSize >= minSize, "maxSize must not be less than minSize.");
+		Preconditions.checkArgument(sampleBatches > 0, "sampleBatches must be greater than 0.");
+
+		this.minSize = minSize;
+		this.maxSize = maxSize;
+		this.sampleBatches = sampleBatches;
+		this.size = clamp(initialSize);
+	}
+
+	/**
+	 * @param maxBatchMillis The longest that a batch should take to execute. The size is reduced while batches take
+	 * longer. Must be > 0.
+	 * @return This object.
+	 */
+	public synchronized AdaptiveBatchSize setMaxBatchMillis(long maxBatchMillis) {
+		Preconditions.checkArgument(maxBatchMillis > 0, "maxBatchMillis must be greater than 0.");
+
+		this.maxBatchNanos = maxBatchMillis * 1000000;
+		return this;
+	}
+
+	/**
+	 * @return The # of Test Cases to send per batch.
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return The rows/sec measured over the most recent sample, 0 until a sample has been taken.
+	 */
+	public double getRowsPerSecond() {
+		return rowsPerSecond;
+	}
+
+	/**
+	 * @return How long the most recently recorded batch took to execute, in ms.
+	 */
+	public long getLastBatchMillis() {
+		return lastBatchNanos / 1000000;
+	}
+
+	/**
+	 * Records a full batch. Batches that are sent part full (e.g. the last of a report) should not be recorded, as
+	 * their rows/sec says little about the current size.
+	 * @param rows The # of Test Cases in the batch.
+	 * @param nanos How long the batch took to execute.
+	 */
+	public synchronized void record(int rows, long nanos) {
+		lastBatchNanos = nanos;
+		sampledRows += rows;
+		sampledNanos += Math.max(nanos, 1);
+		if (++sampledBatches < sampleBatches) return;
+
+		final double sampleRowsPerSecond = sampledRows * 1e9 / sampledNanos;
+		final long meanBatchNanos = sampledNanos / sampledBatches;
+		sampledRows = sampledNanos = sampledBatches = 0;
+
+		final double previousRowsPerSecond = rowsPerSecond;
+		rowsPerSecond = sampleRowsPerSecond;
+		if (meanBatchNanos > maxBatchNanos) {
+			isGrowing = false;
+		}
+		else if (previousRowsPerSecond > 0) {
+			final double change = sampleRowsPerSecond / previousRowsPerSecond - 1;
+			final boolean isWorkloadChange = step < MAX_STEP && Math.abs(change) > WORKLOAD_CHANGE;
+			if (change < 0) {
+				isGrowing = !isGrowing;
+				step = Math.max(MIN_STEP, Math.sqrt(step));
+			}
+			if (isWorkloadChange) {
+				/*
+				 * Once the search has turned, steps are too small to explain such a change in rows/sec.
+				 */
+				step = MAX_STEP;
+			}
+		}
+
+		final int next = clamp((int)Math.round(isGrowing ? size * step : size / step));
+		if (next == size) {
+			/*
+			 * At a bound, or the step is too small to change the size: probe the other way next time.
+			 */
+			isGrowing = !isGrowing;
+		}
+		size = next;
+	}
+
+	private int clamp(int batchSize) {
+		return Math.min(maxSize, Math.max(minSize, batchSize));
+	}
+}
@@ -1,58 +1,143 @@
 package importer.jdbc;
 
-import folderManager.Folder;
 import folderManager.IFolderData;
 import importer.IBatchImporter;
+import importer.ReportCheckpoint;
+import importer.ReportParser;
 import importer.ReportedTestElement;
-import importer.ReportedTestResultEntry;
-import importer.ReportedTestResultEntry.FailureInfo;
-import importer.ReportedTestSuiteEntry;
+import importer.StorageIdGenerator;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Timestamp;
-import java.util.stream.Collectors;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
 import com.google.common.base.Preconditions;
-import com.google.common.base.Throwables;
 
 /**
- * Encapsulates bulk DB Import logic for TestEntries.
+ * Encapsulates bulk DB Import logic for TestEntries. Each import is one transaction, which is committed once the 
+ * import is complete and rolled back if it fails (see {@link JdbcBatchSink}), so a failed file can be imported again
+ * cleanly. Several small files can be imported in one transaction with {@link #doImport(List, ReportParser)}.
+ * 
+ * By default each import checks out a connection and prepares its statements. With 
+ * {@link #setSessionMaxImports(int)} the importer keeps them in a long-lived {@link ImportSession} instead, and must
+ * then be closed once it is no longer needed.
+ * 
+ * The importer may be used from several threads (e.g. by a pipeline's writer while the watch thread replaces a
+ * modified report), but its imports, replaces and deletes run one at a time in its session. One that is called while
+ * another is in progress waits for it to end, so their statements never interleave on the session's connection, nor
+ * their table locks in the database.
+ * 
+ * Each batch holds <i>importBatchSize</i> Test Cases, unless {@link #setAdaptiveBatchSize(int, int)} is used to 
+ * choose the size from the latency of the batches, see {@link AdaptiveBatchSize}.
  * SAMPLE QUERY:
  * SELECT TESTENTRY.CLASSNAME, TESTENTRY.METHODNAME,TESTSUITE.CLASSNAME 
  * FROM TESTENTRY INNER JOIN TESTSUITE ON TESTENTRY.SUITE_ID = TESTSUITE.ID  
  * WHERE TESTENTRY.SUITE_ID = 3
  */
-public class BatchJdbcImporter implements IBatchImporter {
+public class BatchJdbcImporter implements IBatchImporter, AutoCloseable {
 
-	private static final String insertTestCaseSQL = 
-			"insert into testEntry (uuid, className, methodName, time, status, failexception, failmessage, faildetail, suite_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?)";
-	private static final String insertTestSuiteSQL = 
-			"insert into testSuite (uuid, packageName, className, time, folder, file, tests, failures, errors, skipped, timestamp, folder_id) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-	
 	private final DataSource ds;
 	private final IFolderData folderData;
+	private final StorageIdGenerator storageIds;
+	private final SequenceBlocks suiteIds;
 	private final int importBatchSize;
+	private ImportSession session;
+	private AdaptiveBatchSize batchSizes = null;
+	private final StoredDetailHashes storedDetails = new StoredDetailHashes(StoredDetailHashes.DEFAULT_MAXIMUM_SIZE);
+	private TextCodec detailCodec = TextCodec.DEFAULT;
 	
 	/**
-	 * 
+	 * Creates an importer that stores elements under {@link StorageIdGenerator#timeOrdered()} ids.
 	 * @param ds The target {@link DataSource}s for the import. Must not be null.
 	 * @param folderData Used to manage Folder data in the DBs.
 	 * @param importBatchSize Controls the size of the INSERT batch that is sent to the database. Must be > 0.
 	 */
 	public BatchJdbcImporter(DataSource ds, IFolderData folderData, int importBatchSize) {
+		this(ds, folderData, StorageIdGenerator.timeOrdered(), importBatchSize);
+	}
+	
+	/**
+	 * 
+	 * @param ds The target {@link DataSource}s for the import. Must not be null.
+	 * @param folderData Used to manage Folder data in the DBs.
+	 * @param storageIds Generates the storage ids of elements that are imported as they are parsed (see 
+	 * {@link #doImport(Path, ReportParser)}). Must not be null.
+	 * @param importBatchSize Controls the size of the INSERT batch that is sent to the database. Must be > 0.
+	 */
+	public BatchJdbcImporter(DataSource ds, IFolderData folderData, StorageIdGenerator storageIds, int importBatchSize) {
 		Preconditions.checkNotNull(ds, "ds must not be null.");
 		Preconditions.checkNotNull(folderData, "folderData must not be null.");
+		Preconditions.checkNotNull(storageIds, "storageIds must not be null.");
 		Preconditions.checkArgument(importBatchSize > 0, "batchSize must be greater than 0.");
 		
 		this.ds = ds;
 		this.folderData = folderData;
+		this.storageIds = storageIds;
+		this.suiteIds = SequenceBlocks.testSuiteIds(ds);
 		this.importBatchSize = importBatchSize;
+		this.session = ImportSession.perUse(ds);
+	}
+	
+	/**
+	 * Runs the imports in a long-lived {@link ImportSession}, so its connection and statements are reused from import
+	 * to import. The session is recycled after the given # of imports, and after any import that fails.
+	 * @param maxImports The # of imports after which the session's connection is recycled. Must be > 0.
+	 * @return This object.
+	 */
+	public synchronized BatchJdbcImporter setSessionMaxImports(int maxImports) {
+		session.close();
+		session = new ImportSession(ds, maxImports);
+		return this;
+	}
+	
+	/**
+	 * Chooses the batch size of the importer's imports from the measured latency of their batches, starting from 
+	 * <i>importBatchSize</i>.
+	 * @param minBatchSize The smallest batch size chosen. Must be > 0.
+	 * @param maxBatchSize The largest batch size chosen. Must be >= minBatchSize.
+	 * @return This object.
+	 */
+	public BatchJdbcImporter setAdaptiveBatchSize(int minBatchSize, int maxBatchSize) {
+		batchSizes = new AdaptiveBatchSize(importBatchSize, minBatchSize, maxBatchSize);
+		return this;
+	}
+	
+	/**
+	 * Packs failure details into BLOBs when they are longer than the codec's threshold. By default details over 
+	 * {@link TextCodec#DEFAULT}'s threshold are packed.
+	 * @param detailCodec The codec. Must not be null.
+	 * @return This object.
+	 */
+	public BatchJdbcImporter setDetailCodec(TextCodec detailCodec) {
+		Preconditions.checkNotNull(detailCodec, "detailCodec must not be null.");
+		
+		this.detailCodec = detailCodec;
+		return this;
+	}
+	
+	/**
+	 * @return The # of Test Cases that the next batch will hold.
+	 */
+	public int getBatchSize() {
+		return batchSizes != null ? batchSizes.getSize() : importBatchSize;
+	}
+	
+	/**
+	 * @return The batch sizes chosen for the importer, or null if its batch size is fixed.
+	 */
+	public AdaptiveBatchSize getAdaptiveBatchSize() {
+		return batchSizes;
+	}
+	
+	/**
+	 * Releases the session's connection, once any import in progress has ended.
+	 */
+	@Override
+	public synchronized void close() {
+		session.close();
 	}
 	
 	/* (non-Javadoc)
@@ -61,112 +146,139 @@ public class BatchJdbcImporter implements IBatchImporter {
 	@Override
 	public int doImport(Stream<ReportedTestElement> testCaseEntries) {
 		Preconditions.checkNotNull(testCaseEntries, "testCaseEntries must not be null.");
-		Integer count = 0;
-				
-		try {
-			Connection conn = ds.getConnection();
-			PreparedStatement insertTestCaseStmt = conn.prepareStatement(insertTestCaseSQL);
-			PreparedStatement insertTestSuiteStmt = conn.prepareStatement(insertTestSuiteSQL);
-			try {
-				
-				Long currentSuiteId = null;
-				
-				for (ReportedTestElement te: testCaseEntries.collect(Collectors.toList())) {
-					
-					if (te instanceof ReportedTestSuiteEntry) {
-						/*
-						 * If we come across a Test Suite Entry, we immediately insert it and
-						 * use the returned key for the following Test Result Entries.
-						 */
-						currentSuiteId = insertTestSuiteEntryAndReturnID(insertTestSuiteStmt, te);
-					}
-					
-					if (te instanceof ReportedTestResultEntry) {
-						/*
-						 * Test Results are inserted with a FK to their containing Test Suites.
-						 */
-						addTestResultToInsertBatch(te, insertTestCaseStmt, currentSuiteId);
-						/*
-						 * Send bulk insert to DB if we hit the batch limit.
-						 */
-						if(++count % importBatchSize == 0) {
-					    	insertTestCaseStmt.executeBatch();
-					    }
-					}
-				}
-				/*
-				 * Insert any remaining Test Entries.
-				 */
-				insertTestCaseStmt.executeBatch();
-			}
-			finally {
-				insertTestCaseStmt.close();
-				insertTestSuiteStmt.close();
-				conn.close();
-			}
-		} catch (SQLException e) {
-			Throwables.propagate(e);
-		}
 		
-		return count;
+		return withSink(sink -> {
+			/*
+			 * Iterate the Stream rather than collecting it so that a lazily parsed report is
+			 * never held in memory in its entirety.
+			 */
+			final Iterable<ReportedTestElement> elements = testCaseEntries::iterator;
+			for (ReportedTestElement te: elements) {
+				sink.element(te);
+			}
+			sink.commit();
+			return sink.getImportedCount();
+		});
 	}
-
-	private static void addTestResultToInsertBatch(ReportedTestElement te, PreparedStatement insertTestCase, Long keyOfLastCreatedSuite)
-			throws SQLException {
-		ReportedTestResultEntry tre = (ReportedTestResultEntry)te;
-		insertTestCase.setString(1, tre.getStorageId().toString());
-		insertTestCase.setString(2, tre.getQualifiedName());
-		insertTestCase.setString(3, tre.getMethodName());
-		insertTestCase.setString(4, tre.getTime());
-		
-		insertTestCase.setString(5, tre.getStatus());
-		
-		FailureInfo fi = tre.getFailureInfo();
-		
-		insertTestCase.setString(6, fi == null ? null : fi.getExceptionName());
-		insertTestCase.setString(7, fi == null ? null : fi.getMessage());
-		insertTestCase.setString(8, fi == null ? null : fi.getDetails());
+	
+	/**
+	 * Parses the report straight into the INSERT batch, see {@link JdbcBatchSink}.
+	 */
+	@Override
+	public int doImport(Path report, ReportParser parser) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+		Preconditions.checkNotNull(parser, "parser must not be null.");
 		
-		insertTestCase.setLong(9, keyOfLastCreatedSuite);
-		insertTestCase.addBatch();
+		return withSink(sink -> {
+			parser.parse(report, sink);
+			sink.commit();
+			return sink.getImportedCount();
+		});
 	}
-
-	private Long insertTestSuiteEntryAndReturnID(PreparedStatement insertTestSuite, ReportedTestElement te)
-			throws SQLException {
-		ReportedTestSuiteEntry tse = (ReportedTestSuiteEntry)te;
-		insertTestSuite.setString(1, tse.getStorageId().toString());
-		insertTestSuite.setString(2, tse.getPackageName());
-		insertTestSuite.setString(3, tse.getLocalTestCaseName());
-		insertTestSuite.setString(4, tse.getTime());
-		insertTestSuite.setString(5, tse.getContainingFolder().toString());
-		insertTestSuite.setString(6, tse.getContainingFile());
-		
-		
-		insertTestSuite.setLong(7, tse.getTestsRun());
-		insertTestSuite.setLong(8, tse.getTotalFailures());
-		insertTestSuite.setLong(9, tse.getTotalErrors());
-		insertTestSuite.setLong(10, tse.getTotalSkipped());
-		
-		insertTestSuite.setTimestamp(11,  new Timestamp(tse.getTimestamp().getMillis()));
-		
-		Folder parentFolder = folderData.getFolder(tse.getContainingFolder(), true);
-		insertTestSuite.setLong(12, parentFolder.getId());
+	
+	/**
+	 * Deletes the report's Test Suites (and with them its Test Cases) and parses the report straight into the INSERT
+	 * batch, in one transaction.
+	 */
+	@Override
+	public int doReplace(Path report, ReportParser parser) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+		Preconditions.checkNotNull(parser, "parser must not be null.");
 		
-		Long idOfInsertedRecord = null;
+		return withSink(sink -> {
+			sink.deleteReport(report);
+			parser.parse(report, sink);
+			sink.commit();
+			return sink.getImportedCount();
+		});
+	}
+	
+	/**
+	 * Deletes the report's Test Cases a chunk at a time, committing each chunk, then its Test Suites, see
+	 * {@link JdbcBatchSink#purgeReport(Path)}.
+	 */
+	@Override
+	public int doDelete(Path report) {
+		Preconditions.checkNotNull(report, "report must not be null.");
 		
-		int affectedRows = insertTestSuite.executeUpdate();
-		if (affectedRows == 0) {
-		    throw new RuntimeException("Creating test suite entry failed, no rows affected.");
-		}
+		return withSink(sink -> {
+			final int deletedCount = sink.purgeReport(report);
+			sink.commit();
+			return deletedCount;
+		});
+	}
+	
+	/**
+	 * Parses the reports straight into the INSERT batch and commits them together, so small reports share a single 
+	 * transaction (and log flush). If any report fails, none of them are imported.
+	 */
+	@Override
+	public int[] doImport(List<Path> reports, ReportParser parser) {
+		Preconditions.checkNotNull(reports, "reports must not be null.");
+		Preconditions.checkNotNull(parser, "parser must not be null.");
 		
-		ResultSet generatedKeys = insertTestSuite.getGeneratedKeys();
+		return withSink(sink -> {
+			final int[] importedCounts = new int[reports.size()];
+			for (int i = 0; i < importedCounts.length; i++) {
+				final int importedBefore = sink.getImportedCount();
+				parser.parse(reports.get(i), sink);
+				importedCounts[i] = sink.getImportedCount() - importedBefore;
+			}
+			sink.commit();
+			return importedCounts;
+		});
+	}
+	
+	/**
+	 * Parses the part of the report written since the checkpoint straight into the INSERT batch. The checkpoint's suite
+	 * key is the key of the report's most recent Test Suite, which the Test Cases that follow it refer to.
+	 */
+	@Override
+	public ReportCheckpoint doImport(Path report, ReportParser parser, ReportCheckpoint from) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+		Preconditions.checkNotNull(parser, "parser must not be null.");
+		Preconditions.checkNotNull(from, "from must not be null.");
 		
-		if (generatedKeys.next()) {
-			idOfInsertedRecord = generatedKeys.getLong(1);
-		} else {
-		    throw new RuntimeException("Creating test suite entry failed, no generated key obtained.");
+		return withSink(sink -> {
+			if (from.getSuiteKey() != ReportCheckpoint.NO_SUITE) {
+				sink.resumeSuite(from.getSuiteKey());
+			}
+			final ReportCheckpoint checkpoint = parser.parse(report, from, sink);
+			sink.commit();
+			
+			final Long suiteId = sink.getCurrentSuiteId();
+			return checkpoint.withSuiteKey(suiteId != null ? suiteId : ReportCheckpoint.NO_SUITE);
+		});
+	}
+	
+	/*
+	 * Runs an import with a sink of its own, in the importer's session. Imports on other threads wait until the sink is 
+	 * closed.
+	 */
+	private synchronized <T> T withSink(Function<JdbcBatchSink, T> use) {
+		try (JdbcBatchSink sink = newSink()) {
+			return use.apply(sink);
 		}
-		
-		return idOfInsertedRecord;
+	}
+	
+	private JdbcBatchSink newSink() {
+		final JdbcBatchSink sink = openSink(session, folderData, storageIds, suiteIds, getBatchSize())
+			.shareStoredDetails(storedDetails)
+			.setDetailCodec(detailCodec);
+		return batchSizes != null ? sink.adaptBatchSize(batchSizes) : sink;
+	}
+	
+	/**
+	 * Opens the sink that each import pushes its elements to. The caller closes it.
+	 * @param session The session that the import runs in.
+	 * @param folderData Used to manage Folder data in the DBs.
+	 * @param storageIds Generates the storage ids of pushed elements.
+	 * @param suiteIds Reserves the keys of pushed Test Suites. Shared by all of the importer's sinks.
+	 * @param batchSize Controls the # of Test Cases that are sent to the database at a time.
+	 * @return A {@link JdbcBatchSink} that inserts one row per Test Case into its batch.
+	 */
+	protected JdbcBatchSink openSink(ImportSession session, IFolderData folderData, StorageIdGenerator storageIds, 
+			SequenceBlocks suiteIds, int batchSize) {
+		return new JdbcBatchSink(session, folderData, storageIds, suiteIds, batchSize);
 	}
 }
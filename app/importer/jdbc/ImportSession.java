@@ -0,0 +1,167 @@
+package importer.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * A long-lived connection, with autocommit off, and the statements prepared on it. A session is used by one import
+ * (or Folder update) at a time, from {@link #begin()} to {@link #end(boolean)}, and is reused by the imports that
+ * follow, so the connection is checked out and each statement prepared once per session rather than once per import.
+ *
+ * The connection is recycled, i.e. rolled back, closed with its statements and replaced on the next use, after
+ * <i>maxUses</i> uses or after any use that did not end cleanly (e.g. after an exception), so that neither a broken
+ * connection nor a statement with a part executed batch is reused.
+ *
+ * Sessions are not thread safe. A session that is begun while it is in use, on any thread, fails.
+ */
+public class ImportSession implements AutoCloseable {
+
+	private final static Logger logger = LoggerFactory.getLogger(ImportSession.class);
+
+	private final DataSource ds;
+	private final int maxUses;
+	private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+	private Connection conn = null;
+	private int uses = 0;
+	private final AtomicBoolean isInUse = new AtomicBoolean(false);
+
+	/**
+	 * @param ds Provides the session's connection. Must not be null.
+	 * @param maxUses The # of uses after which the connection is recycled. Must be > 0.
+	 */
+	public ImportSession(DataSource ds, int maxUses) {
+		Preconditions.checkNotNull(ds, "ds must not be null.");
+		Preconditions.checkArgument(maxUses > 0, "maxUses must be greater than 0.");
+
+		this.ds = ds;
+		this.maxUses = maxUses;
+	}
+
+	/**
+	 * @param ds Provides the session's connection. Must not be null.
+	 * @return A session whose connection is checked out for each use and released at its end, i.e. one that is not
+	 * reused.
+	 */
+	public static ImportSession perUse(DataSource ds) {
+		return new ImportSession(ds, 1);
+	}
+
+	/**
+	 * Begins a use of the session. The connection is checked out if the session doesn't hold one.
+	 */
+	public void begin() {
+		Preconditions.checkState(isInUse.compareAndSet(false, true), "The session is already in use.");
+
+		if (conn == null) {
+			try {
+				conn = ds.getConnection();
+				conn.setAutoCommit(false);
+			}
+			catch(SQLException ex) {
+				recycle();
+				isInUse.set(false);
+				throw Throwables.propagate(ex);
+			}
+		}
+	}
+
+	/**
+	 * @return The session's connection. Autocommit is off.
+	 */
+	public Connection getConnection() {
+		Preconditions.checkState(isInUse.get(), "The session is not in use.");
+
+		return conn;
+	}
+
+	/**
+	 * @param sql The statement's SQL. Must not be null.
+	 * @return The statement prepared for the given SQL on the session's connection. The statement is owned by the
+	 * session and must not be closed.
+	 */
+	public PreparedStatement prepare(String sql) throws SQLException {
+		Preconditions.checkNotNull(sql, "sql must not be null.");
+		Preconditions.checkState(isInUse.get(), "The session is not in use.");
+
+		PreparedStatement stmt = statements.get(sql);
+		if (stmt == null) {
+			stmt = conn.prepareStatement(sql);
+			statements.put(sql, stmt);
+		}
+		return stmt;
+	}
+
+	/**
+	 * Commits the current transaction.
+	 */
+	public void commit() throws SQLException {
+		Preconditions.checkState(isInUse.get(), "The session is not in use.");
+
+		conn.commit();
+	}
+
+	/**
+	 * Ends the current use of the session.
+	 * @param isClean True if everything the use did was committed. If false, or if the session has been used
+	 * <i>maxUses</i> times, its connection is recycled.
+	 */
+	public void end(boolean isClean) {
+		if (!isClean || ++uses >= maxUses) {
+			recycle();
+		}
+		isInUse.set(false);
+	}
+
+	/**
+	 * Releases the connection. Anything that was not committed is rolled back.
+	 */
+	@Override
+	public void close() {
+		recycle();
+		isInUse.set(false);
+	}
+
+	/*
+	 * Failures are logged rather than thrown, so that they don't hide the failure that caused the recycle. The
+	 * connection is closed whatever happens.
+	 */
+	private void recycle() {
+		uses = 0;
+		if (conn == null) return;
+		try {
+			conn.rollback();
+			conn.setAutoCommit(true);
+		}
+		catch(SQLException ex) {
+			logger.warn("Failed to reset the import session's connection. It will be closed.", ex);
+		}
+		for (PreparedStatement stmt : statements.values()) {
+			closeQuietly(stmt);
+		}
+		statements.clear();
+		closeQuietly(conn);
+		conn = null;
+	}
+
+	private static void closeQuietly(AutoCloseable closeable) {
+		try {
+			closeable.close();
+		}
+		catch(Exception ex) {
+			logger.warn("Failed to close " + closeable + ".", ex);
+		}
+	}
+}
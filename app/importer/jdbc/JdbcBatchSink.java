@@ -0,0 +1,549 @@
+package importer.jdbc;
+
+import folderManager.Folder;
+import folderManager.IFolderData;
+import importer.Durations;
+import importer.FailureDetails;
+import importer.ReportSink;
+import importer.ReportedTestElement;
+import importer.ReportedTestResultEntry;
+import importer.ReportedTestResultEntry.FailureInfo;
+import importer.StorageIdGenerator;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * A {@link ReportSink} that binds the pushed field values straight into the import's INSERT statements.
+ * Each Test Suite is given a key reserved from the <b>TestSuiteIdSeq</b> sequence (see {@link SequenceBlocks}), which
+ * the Test Cases that follow it refer to, so Test Suites are batched just like Test Cases rather than inserted one at
+ * a time for their generated key. Test Cases are added to a batch that is sent to the database every <i>batchSize</i>
+ * Test Cases, preceded by the batch of Test Suites they refer to. Test Suites are also sent every <i>batchSize</i>
+ * Test Suites. The # of round trips per report is proportional to its # of rows / <i>batchSize</i>. With
+ * {@link #adaptBatchSize(AdaptiveBatchSize)} the batch size is chosen from the latency of the batches instead.
+ *
+ * Failure details are stored once per distinct content in the <b>FailureDetail</b> table, keyed by their normalised
+ * hash (see {@link FailureDetails#contentHash()}), which the Test Case refers to. A detail is batched for insertion
+ * ahead of its Test Case only if it isn't known to be stored already (see {@link StoredDetailHashes}) and isn't found
+ * by a lookup, so the trace of a test that fails run after run is written once. Details over the threshold of the
+ * sink's {@link TextCodec} are packed into the <i>packedDetail</i> BLOB rather than stored in the <i>detail</i> CLOB.
+ * Details are kept when the Test Cases that refer to them are deleted (see {@link #deleteReport(Path)}). Other sinks, 
+ * of this importer or of others, may hold the hash of a detail as stored and insert Test Cases that refer to it 
+ * without storing it again, so deleting a detail that is no longer referred to could fail their inserts.
+ *
+ * The sink uses an {@link ImportSession} from the time it is created until it is closed. Everything it inserts is one
+ * transaction, with autocommit off, so the log is flushed once per transaction rather than once per batch. 
+ * {@link #commit()} sends the last, partial batch and commits the transaction. Work that is not committed when the
+ * sink is closed (e.g. after a failure part way through a report) is rolled back, so no partial import is left behind,
+ * and the session's connection is recycled. Folders are stored by the {@link IFolderData} in transactions of their own.
+ */
+public class JdbcBatchSink implements ReportSink, AutoCloseable {
+
+	/**
+	 * The # of parameters bound per Test Case.
+	 */
+	static final int testCaseParameterCount = 10;
+
+	private static final String insertTestCaseSQL = insertTestCasesSQL(1);
+	private static final String insertTestSuiteSQL =
+			"insert into testSuite (id, uuid, packageName, className, time, folder, file, tests, failures, errors, skipped, timestamp, folder_id, durationMicros) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	/*
+	 * The Test Suites of a report, found through the unique path of their folder and the (folder_Id, file) index. The 
+	 * report is either a file, or an archive whose entries are matched by "archive-name!/%" with '\', '%' and '_' 
+	 * escaped in the name. Test Cases are deleted with their Test Suite.
+	 */
+	private static final String selectReportSuitesSQL =
+			"select testSuite.id from testSuite join folder on folder.id = testSuite.folder_Id " +
+			"where folder.path = ? and (testSuite.file = ? or testSuite.file like ? escape '\\')";
+
+	private static final String deleteReportEntriesSQL =
+			"delete from testEntry where suite_Id in (" + selectReportSuitesSQL + ") limit ?";
+
+	private static final String deleteReportSuitesSQL =
+			"delete from testSuite where id in (" + selectReportSuitesSQL + ")";
+
+	/*
+	 * The # of Test Cases deleted per statement, so that the deletion of a large report is done in steps of bounded size.
+	 */
+	private static final int DELETE_CHUNK_ROWS = 10000;
+
+	private static final String selectDetailSQL = "select hash from failureDetail where hash = ?";
+
+	/*
+	 * Merged rather than inserted, so that an import that stores the same detail concurrently waits for the other's
+	 * row instead of failing on the primary key.
+	 */
+	private static final String mergeDetailSQL = 
+			"merge into failureDetail (hash, detail, packedDetail) key (hash) values (?, ?, ?)";
+
+	private final IFolderData folderData;
+	private final StorageIdGenerator storageIds;
+	private final SequenceBlocks suiteIds;
+	int batchSize;
+	final ImportSession session;
+	final PreparedStatement insertTestCaseStmt;
+	private final PreparedStatement insertTestSuiteStmt;
+	private final PreparedStatement mergeDetailStmt;
+	final SpilledDetails spilledDetails = new SpilledDetails();
+	private AdaptiveBatchSize batchSizes = null;
+	private StoredDetailHashes storedDetails = new StoredDetailHashes(StoredDetailHashes.DEFAULT_MAXIMUM_SIZE);
+	private TextCodec detailCodec = TextCodec.DEFAULT;
+	private final Set<String> batchedDetails = new HashSet<>();
+
+	Long currentSuiteId = null;
+	private UUID elementStorageId = null;
+	int importedCount = 0;
+	private int batchedSuiteCount = 0;
+	private int batchedCaseCount = 0;
+	private int batchedDetailCount = 0;
+	boolean isCommitted = true;
+
+	/**
+	 * @param session The session that the import runs in. Begun by the sink and ended when the sink is closed. 
+	 * Must not be null.
+	 * @param folderData Used to manage Folder data in the DBs. Must not be null.
+	 * @param storageIds Generates the storage ids of pushed elements. Must not be null.
+	 * @param suiteIds Reserves the keys of pushed Test Suites, see {@link SequenceBlocks#testSuiteIds(DataSource)}. 
+	 * Should be shared by the sinks of an importer, so that a block of keys isn't reserved per report. Must not be null.
+	 * @param batchSize Controls the size of the INSERT batch that is sent to the database. Must be > 0.
+	 */
+	public JdbcBatchSink(ImportSession session, IFolderData folderData, StorageIdGenerator storageIds,
+			SequenceBlocks suiteIds, int batchSize) {
+		Preconditions.checkNotNull(session, "session must not be null.");
+		Preconditions.checkNotNull(folderData, "folderData must not be null.");
+		Preconditions.checkNotNull(storageIds, "storageIds must not be null.");
+		Preconditions.checkNotNull(suiteIds, "suiteIds must not be null.");
+		Preconditions.checkArgument(batchSize > 0, "batchSize must be greater than 0.");
+
+		this.folderData = folderData;
+		this.storageIds = storageIds;
+		this.suiteIds = suiteIds;
+		this.batchSize = batchSize;
+		this.session = session;
+
+		session.begin();
+		try {
+			this.insertTestCaseStmt = session.prepare(insertTestCaseSQL);
+			this.insertTestSuiteStmt = session.prepare(insertTestSuiteSQL);
+			this.mergeDetailStmt = session.prepare(mergeDetailSQL);
+		}
+		catch(SQLException ex) {
+			session.end(false);
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Sizes the sink's batches from now on, recording the latency of each full batch.
+	 * @param batchSizes Chooses the batch size. Must not be null.
+	 * @return This object.
+	 */
+	public JdbcBatchSink adaptBatchSize(AdaptiveBatchSize batchSizes) {
+		Preconditions.checkNotNull(batchSizes, "batchSizes must not be null.");
+
+		this.batchSizes = batchSizes;
+		this.batchSize = batchSizes.getSize();
+		return this;
+	}
+
+	/**
+	 * Shares the hashes of stored failure details with other sinks, e.g. those of the same importer. By default a
+	 * sink knows only of the details it has stored itself.
+	 * @param storedDetails The hashes of stored details. Must not be null.
+	 * @return This object.
+	 */
+	public JdbcBatchSink shareStoredDetails(StoredDetailHashes storedDetails) {
+		Preconditions.checkNotNull(storedDetails, "storedDetails must not be null.");
+
+		this.storedDetails = storedDetails;
+		return this;
+	}
+
+	/**
+	 * @param detailCodec Packs the failure details that are long enough to be packed. Must not be null.
+	 * @return This object.
+	 */
+	public JdbcBatchSink setDetailCodec(TextCodec detailCodec) {
+		Preconditions.checkNotNull(detailCodec, "detailCodec must not be null.");
+
+		this.detailCodec = detailCodec;
+		return this;
+	}
+
+	/**
+	 * Deletes the Test Suites and Test Cases that were imported from the report, as part of the sink's transaction.
+	 * Their failure details are kept, see {@link JdbcBatchSink}. Must be called before anything is pushed to the sink.
+	 * @param report The Junit Report file, or archive of reports. Must not be null.
+	 * @return The # of deleted Test Cases.
+	 */
+	public int deleteReport(Path report) {
+		return deleteReport(report, false);
+	}
+
+	/**
+	 * Deletes the Test Suites and Test Cases that were imported from the report, committing each chunk of Test Cases 
+	 * as it is deleted, so that the deletion of a large report doesn't hold its locks until it is done. The Test 
+	 * Suites are deleted last, so a purge that fails part way can be retried. Their failure details are kept, see 
+	 * {@link JdbcBatchSink}. Must be called before anything is pushed to the sink.
+	 * @param report The Junit Report file, or archive of reports. Must not be null.
+	 * @return The # of deleted Test Cases.
+	 */
+	public int purgeReport(Path report) {
+		return deleteReport(report, true);
+	}
+
+	/*
+	 * Test Cases are deleted DELETE_CHUNK_ROWS at a time, then their Test Suites.
+	 */
+	private int deleteReport(Path report, boolean isChunkCommitted) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+
+		isCommitted = false;
+		int deletedCount = 0;
+		try {
+			final PreparedStatement deleteEntriesStmt = bindReport(session.prepare(deleteReportEntriesSQL), report);
+			deleteEntriesStmt.setInt(4, DELETE_CHUNK_ROWS);
+			for (int deleted = DELETE_CHUNK_ROWS; deleted == DELETE_CHUNK_ROWS; deletedCount += deleted) {
+				deleted = deleteEntriesStmt.executeUpdate();
+				if (isChunkCommitted) { session.commit(); }
+			}
+			bindReport(session.prepare(deleteReportSuitesSQL), report).executeUpdate();
+			if (isChunkCommitted) {
+				session.commit();
+				isCommitted = true;
+			}
+		}
+		catch(SQLException ex) {
+			throw Throwables.propagate(ex);
+		}
+		return deletedCount;
+	}
+
+	/*
+	 * Binds the report's folder, its file and the pattern of the files of its entries (if it is an archive).
+	 */
+	private static PreparedStatement bindReport(PreparedStatement stmt, Path report) throws SQLException {
+		final File reportFile = report.toFile();
+		final String fileName = reportFile.getName();
+		stmt.setString(1, reportFile.getParentFile().toPath().toString());
+		stmt.setString(2, fileName);
+		stmt.setString(3, fileName.replaceAll("[\\\\%_]", "\\\\$0") + "!/%");
+		return stmt;
+	}
+
+	/**
+	 * @return The # of Test Cases imported so far.
+	 */
+	public int getImportedCount() {
+		return importedCount;
+	}
+
+	/**
+	 * Continues the import of a report whose most recent Test Suite was inserted by an earlier sink. Test Cases that
+	 * are pushed before the next Test Suite refer to the given suite.
+	 * @param suiteId The key of the Test Suite.
+	 * @return This object.
+	 */
+	public JdbcBatchSink resumeSuite(long suiteId) {
+		this.currentSuiteId = suiteId;
+		return this;
+	}
+
+	/**
+	 * @return The key of the most recently batched (or resumed) Test Suite, or null if there is none.
+	 */
+	public Long getCurrentSuiteId() {
+		return currentSuiteId;
+	}
+
+	/**
+	 * Elements that have already been built are stored under their own storage id. Elements pushed as field values are
+	 * given a new one by the sink's {@link StorageIdGenerator}.
+	 */
+	@Override
+	public void element(ReportedTestElement element) {
+		elementStorageId = element.getStorageId();
+		try {
+			ReportSink.super.element(element);
+		}
+		finally {
+			elementStorageId = null;
+		}
+	}
+
+	/**
+	 * Adds the Test Suite to its INSERT batch under a reserved key, which is kept for the following Test Cases. The 
+	 * batch is sent to the database if it is full.
+	 */
+	@Override
+	public void testSuite(String qualifiedName, String packageName, String localName, String time, long durationMicros,
+			Path containingFolder, String containingFile, DateTime timestamp, long testsRun, long totalFailures, long totalErrors,
+			long totalSkipped) {
+		isCommitted = false;
+		try {
+			final long suiteId = suiteIds.next();
+			insertTestSuiteStmt.setLong(1, suiteId);
+			insertTestSuiteStmt.setString(2, nextStorageId());
+			insertTestSuiteStmt.setString(3, packageName);
+			insertTestSuiteStmt.setString(4, localName);
+			insertTestSuiteStmt.setString(5, time);
+			insertTestSuiteStmt.setString(6, containingFolder.toString());
+			insertTestSuiteStmt.setString(7, containingFile);
+
+			insertTestSuiteStmt.setLong(8, testsRun);
+			insertTestSuiteStmt.setLong(9, totalFailures);
+			insertTestSuiteStmt.setLong(10, totalErrors);
+			insertTestSuiteStmt.setLong(11, totalSkipped);
+
+			insertTestSuiteStmt.setTimestamp(12, new Timestamp(timestamp.getMillis()));
+
+			Folder parentFolder = folderData.getFolder(containingFolder, true);
+			insertTestSuiteStmt.setLong(13, parentFolder.getId());
+			setDurationMicros(insertTestSuiteStmt, 14, durationMicros);
+
+			insertTestSuiteStmt.addBatch();
+			currentSuiteId = suiteId;
+
+			if (++batchedSuiteCount >= batchSize) {
+				executeReferencedBatches();
+			}
+		}
+		catch(SQLException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Adds the Test Case to the INSERT batch, with a FK to its containing Test Suite. The batch is sent to the database
+	 * if it is full.
+	 */
+	@Override
+	public void testCase(String qualifiedName, String packageName, String localName, String methodName, String time,
+			long durationMicros, boolean isSkipped, FailureInfo.Type failureType, String failureMessage, String exceptionName,
+			FailureDetails failureDetails) {
+		isCommitted = false;
+		try {
+			bindTestCase(insertTestCaseStmt, 0, nextStorageId(), qualifiedName, methodName, time,
+				ReportedTestResultEntry.status(isSkipped, failureType), exceptionName, failureMessage, failureDetails, currentSuiteId,
+				durationMicros);
+			insertTestCaseStmt.addBatch();
+			importedCount++;
+
+			if (++batchedCaseCount >= batchSize) {
+				final long startNanos = System.nanoTime();
+				executeBatch();
+				recordBatch(batchedCaseCount, System.nanoTime() - startNanos);
+			}
+		}
+		catch(SQLException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Sends any Test Suites and Test Cases that are still batched to the database.
+	 */
+	public void flush() {
+		try {
+			executeBatch();
+		}
+		catch(SQLException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Sends any Test Suites and Test Cases that are still batched to the database and commits everything inserted since the sink was
+	 * created, or since the previous commit.
+	 */
+	public void commit() {
+		flush();
+		try {
+			session.commit();
+			isCommitted = true;
+			storedDetails.addAll(batchedDetails);
+			batchedDetails.clear();
+		}
+		catch(SQLException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Ends the sink's use of the session. If anything was not committed it is rolled back, and the session's
+	 * connection recycled.
+	 */
+	@Override
+	public void close() {
+		try {
+			spilledDetails.release();
+		}
+		finally {
+			session.end(isCommitted);
+		}
+	}
+
+	private void executeBatch() throws SQLException {
+		try {
+			executeReferencedBatches();
+			insertTestCaseStmt.executeBatch();
+			spilledDetails.release();
+		}
+		finally {
+			batchedCaseCount = 0;
+		}
+	}
+
+	/**
+	 * Records a full batch of Test Cases with the sink's {@link AdaptiveBatchSize}, if it has one, and takes up the
+	 * size it chooses for the next batch.
+	 * @param rows The # of Test Cases in the batch.
+	 * @param nanos How long the batch took to execute.
+	 */
+	void recordBatch(int rows, long nanos) {
+		if (batchSizes == null) return;
+		batchSizes.record(rows, nanos);
+		batchSize = batchSizes.getSize();
+	}
+
+	/**
+	 * Sends the batched Test Suites and failure details to the database. Must be called before Test Cases are sent, as
+	 * they may refer to them.
+	 */
+	void executeReferencedBatches() throws SQLException {
+		if (batchedSuiteCount > 0) {
+			insertTestSuiteStmt.executeBatch();
+			batchedSuiteCount = 0;
+		}
+		if (batchedDetailCount > 0) {
+			mergeDetailStmt.executeBatch();
+			batchedDetailCount = 0;
+		}
+	}
+
+	/**
+	 * @param rows The # of Test Cases inserted by the statement. Must be > 0.
+	 * @return An INSERT of the given # of Test Cases, each bound to {@link #testCaseParameterCount} parameters.
+	 */
+	static String insertTestCasesSQL(int rows) {
+		StringBuilder sql = new StringBuilder(
+			"insert into testEntry (uuid, className, methodName, time, status, failexception, failmessage, failDetailHash, suite_id, durationMicros) values ");
+		for (int i = 0; i < rows; i++) {
+			sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		}
+		return sql.toString();
+	}
+
+	/**
+	 * Binds the values of a Test Case to the statement's parameters, following the given offset. The failure details
+	 * are bound by their hash, and batched for insertion if they aren't stored yet.
+	 */
+	void bindTestCase(PreparedStatement stmt, int offset, String storageId, String qualifiedName, String methodName,
+			String time, String status, String exceptionName, String failureMessage, FailureDetails failureDetails,
+			Long suiteId, long durationMicros) throws SQLException {
+		stmt.setString(offset + 1, storageId);
+		stmt.setString(offset + 2, qualifiedName);
+		stmt.setString(offset + 3, methodName);
+		stmt.setString(offset + 4, time);
+		stmt.setString(offset + 5, status);
+		stmt.setString(offset + 6, exceptionName);
+		stmt.setString(offset + 7, failureMessage);
+
+		stmt.setString(offset + 8, failureDetails == null ? null : storeDetail(failureDetails));
+
+		stmt.setLong(offset + 9, suiteId);
+		setDurationMicros(stmt, offset + 10, durationMicros);
+	}
+
+	/*
+	 * Batches the details for insertion unless they are known to be stored, have been batched in this transaction or
+	 * are found by a lookup, in which case the details are released straight away. Spilled details are streamed to the
+	 * DB rather than read back into memory, those that are packed are packed to a temporary file and streamed from 
+	 * there. Their readers and files are released with the next batch of Test Cases.
+	 */
+	private String storeDetail(FailureDetails details) throws SQLException {
+		final String hash = details.contentHash();
+		if (batchedDetails.contains(hash) || storedDetails.contains(hash) || isDetailStored(hash)) {
+			details.release();
+			return hash;
+		}
+
+		mergeDetailStmt.setString(1, hash);
+		if (detailCodec.shouldPack(details)) {
+			mergeDetailStmt.setNull(2, Types.CLOB);
+			if (details.isSpilled()) {
+				mergeDetailStmt.setBinaryStream(3, spilledDetails.openPacked(details, detailCodec));
+			}
+			else {
+				mergeDetailStmt.setBytes(3, detailCodec.pack(details));
+			}
+		}
+		else {
+			if (details.isSpilled()) {
+				mergeDetailStmt.setCharacterStream(2, spilledDetails.open(details), details.length());
+			}
+			else {
+				mergeDetailStmt.setString(2, details.toString());
+			}
+			mergeDetailStmt.setNull(3, Types.BLOB);
+		}
+		mergeDetailStmt.addBatch();
+		batchedDetails.add(hash);
+		batchedDetailCount++;
+		return hash;
+	}
+
+	private boolean isDetailStored(String hash) throws SQLException {
+		final PreparedStatement selectDetailStmt = session.prepare(selectDetailSQL);
+		selectDetailStmt.setString(1, hash);
+		try (ResultSet rs = selectDetailStmt.executeQuery()) {
+			if (!rs.next()) return false;
+		}
+		storedDetails.addAll(Collections.singleton(hash));
+		return true;
+	}
+
+	/*
+	 * Times that aren't valid durations are stored as NULL.
+	 */
+	private static void setDurationMicros(PreparedStatement stmt, int parameterIndex, long durationMicros) throws SQLException {
+		if (durationMicros == Durations.UNKNOWN) {
+			stmt.setNull(parameterIndex, Types.BIGINT);
+		}
+		else {
+			stmt.setLong(parameterIndex, durationMicros);
+		}
+	}
+
+	String nextStorageId() {
+		return (elementStorageId != null ? elementStorageId : storageIds.nextId()).toString();
+	}
+
+	static void closeUnchecked(AutoCloseable closeable) {
+		if (closeable == null) return;
+		try {
+			closeable.close();
+		}
+		catch(Exception ex) {
+			Throwables.propagate(ex);
+		}
+	}
+}
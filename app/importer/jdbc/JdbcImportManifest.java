@@ -0,0 +1,151 @@
+package importer.jdbc;
+
+import importer.IImportManifest;
+import importer.ReportFingerprint;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import javax.sql.DataSource;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * Implementation of {@link IImportManifest} that stores a row per imported report in the <b>ImportManifest</b> table,
+ * keyed by the report's path.
+ *
+ * Rows are read and written through an {@link ImportSession}, one report at a time, each in a transaction of its own.
+ * Thread safe.
+ */
+public class JdbcImportManifest implements IImportManifest {
+
+	private static final String selectEntrySQL =
+		"select size, modifiedOn, contentHash from importManifest where path = ?";
+
+	private static final String updateEntrySQL =
+		"update importManifest set size = ?, modifiedOn = ?, contentHash = ?, importedOn = ? where path = ?";
+
+	private static final String insertEntrySQL =
+		"insert into importManifest (size, modifiedOn, contentHash, importedOn, path) values (?, ?, ?, ?, ?)";
+
+	private static final String deleteEntrySQL = "delete from importManifest where path = ?";
+
+	/*
+	 * Session for manifest storage. Used by one thread at a time.
+	 */
+	private final ImportSession session;
+
+	/**
+	 * Creates a manifest that checks out a connection for each report.
+	 * @param ds JDBC data source for persistent storage. Must not be null.
+	 */
+	public JdbcImportManifest(DataSource ds) {
+		this(ImportSession.perUse(ds));
+	}
+
+	/**
+	 * @param session The session that the manifest is read and written in. The caller remains responsible for closing
+	 * it. Must not be null.
+	 */
+	public JdbcImportManifest(ImportSession session) {
+		Preconditions.checkNotNull(session, "session must not be null.");
+
+		this.session = session;
+	}
+
+	@Override
+	public ReportFingerprint get(Path report) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+
+		synchronized (session) {
+			session.begin();
+			boolean isCommitted = false;
+			try {
+				final PreparedStatement selectStmt = session.prepare(selectEntrySQL);
+				selectStmt.setString(1, report.toString());
+				final ReportFingerprint fingerprint;
+				try (ResultSet rs = selectStmt.executeQuery()) {
+					fingerprint = rs.next()
+						? new ReportFingerprint(rs.getLong(1), rs.getTimestamp(2).getTime(), rs.getString(3))
+						: null;
+				}
+				session.commit();
+				isCommitted = true;
+				return fingerprint;
+			}
+			catch(SQLException ex) {
+				throw Throwables.propagate(ex);
+			}
+			finally {
+				session.end(isCommitted);
+			}
+		}
+	}
+
+	/**
+	 * Updates the report's row, or inserts it if the report hasn't been imported before.
+	 */
+	@Override
+	public void put(Path report, ReportFingerprint fingerprint) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+		Preconditions.checkNotNull(fingerprint, "fingerprint must not be null.");
+
+		synchronized (session) {
+			session.begin();
+			boolean isCommitted = false;
+			try {
+				if (bindEntry(session.prepare(updateEntrySQL), report, fingerprint).executeUpdate() == 0) {
+					bindEntry(session.prepare(insertEntrySQL), report, fingerprint).executeUpdate();
+				}
+				session.commit();
+				isCommitted = true;
+			}
+			catch(SQLException ex) {
+				throw Throwables.propagate(ex);
+			}
+			finally {
+				session.end(isCommitted);
+			}
+		}
+	}
+
+	@Override
+	public void remove(Path report) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+
+		synchronized (session) {
+			session.begin();
+			boolean isCommitted = false;
+			try {
+				final PreparedStatement deleteStmt = session.prepare(deleteEntrySQL);
+				deleteStmt.setString(1, report.toString());
+				deleteStmt.executeUpdate();
+				session.commit();
+				isCommitted = true;
+			}
+			catch(SQLException ex) {
+				throw Throwables.propagate(ex);
+			}
+			finally {
+				session.end(isCommitted);
+			}
+		}
+	}
+
+	/*
+	 * The update and insert statements bind the same values in the same order.
+	 */
+	private static PreparedStatement bindEntry(PreparedStatement stmt, Path report, ReportFingerprint fingerprint)
+			throws SQLException {
+		stmt.setLong(1, fingerprint.getSize());
+		stmt.setTimestamp(2, new Timestamp(fingerprint.getModifiedMillis()));
+		stmt.setString(3, fingerprint.getContentHash());
+		stmt.setTimestamp(4, new Timestamp(System.currentTimeMillis()));
+		stmt.setString(5, report.toString());
+		return stmt;
+	}
+}
@@ -0,0 +1,209 @@
+package importer.jdbc;
+
+import folderManager.IFolderData;
+import importer.FailureDetails;
+import importer.ReportedTestResultEntry;
+import importer.ReportedTestResultEntry.FailureInfo;
+import importer.StorageIdGenerator;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * A {@link JdbcBatchSink} that inserts Test Cases <i>rowsPerInsert</i> at a time, with multi-row
+ * <b>INSERT ... VALUES (...), (...)</b> statements. The driver parses, plans and executes one statement per
+ * <i>rowsPerInsert</i> Test Cases, rather than one parameter set per Test Case.
+ *
+ * Test Cases are held until there are enough of them for a statement. Full statements are added to a batch that is
+ * sent to the database every <i>batchSize</i> Test Cases (rounded up to a whole statement). {@link #flush()} inserts
+ * the Test Cases that don't fill a statement with the single-row statement of a {@link JdbcBatchSink}, batched, so
+ * a long-lived session doesn't prepare (and cache) a statement per remainder.
+ */
+public class MultiRowInsertSink extends JdbcBatchSink {
+
+	private final int rowsPerInsert;
+	private final PreparedStatement insertRowsStmt;
+	private final PendingRow[] pendingRows;
+
+	private int pendingCount = 0;
+	private int batchedCount = 0;
+
+	/**
+	 * @param session The session that the import runs in. Must not be null.
+	 * @param folderData Used to manage Folder data in the DBs. Must not be null.
+	 * @param storageIds Generates the storage ids of pushed elements. Must not be null.
+	 * @param suiteIds Reserves the keys of pushed Test Suites, see {@link SequenceBlocks#testSuiteIds(DataSource)}. 
+	 * Must not be null.
+	 * @param batchSize Controls the # of Test Cases that are sent to the database at a time. Must be > 0.
+	 * @param rowsPerInsert The # of Test Cases inserted by each statement. Must be > 0.
+	 */
+	public MultiRowInsertSink(ImportSession session, IFolderData folderData, StorageIdGenerator storageIds,
+			SequenceBlocks suiteIds, int batchSize, int rowsPerInsert) {
+		super(session, folderData, storageIds, suiteIds, batchSize);
+		Preconditions.checkArgument(rowsPerInsert > 0, "rowsPerInsert must be greater than 0.");
+
+		this.rowsPerInsert = rowsPerInsert;
+		this.pendingRows = new PendingRow[rowsPerInsert];
+		for (int i = 0; i < rowsPerInsert; i++) {
+			pendingRows[i] = new PendingRow();
+		}
+
+		try {
+			this.insertRowsStmt = session.prepare(insertTestCasesSQL(rowsPerInsert));
+		}
+		catch(SQLException ex) {
+			session.end(false);
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Holds the Test Case until there are enough for a statement. The statement is added to the batch, which is sent
+	 * to the database if it is full.
+	 */
+	@Override
+	public void testCase(String qualifiedName, String packageName, String localName, String methodName, String time,
+			long durationMicros, boolean isSkipped, FailureInfo.Type failureType, String failureMessage, String exceptionName,
+			FailureDetails failureDetails) {
+
+		isCommitted = false;
+		PendingRow row = pendingRows[pendingCount++];
+		row.storageId = nextStorageId();
+		row.qualifiedName = qualifiedName;
+		row.methodName = methodName;
+		row.time = time;
+		row.status = ReportedTestResultEntry.status(isSkipped, failureType);
+		row.exceptionName = exceptionName;
+		row.failureMessage = failureMessage;
+		row.failureDetails = failureDetails;
+		row.suiteId = currentSuiteId;
+		row.durationMicros = durationMicros;
+		importedCount++;
+
+		if (pendingCount < rowsPerInsert) return;
+		try {
+			bindPendingRows(insertRowsStmt);
+			insertRowsStmt.addBatch();
+			batchedCount += rowsPerInsert;
+
+			if (batchedCount >= batchSize) {
+				final int rows = batchedCount;
+				final long startNanos = System.nanoTime();
+				executeRowsBatch();
+				recordBatch(rows, System.nanoTime() - startNanos);
+			}
+		}
+		catch(SQLException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Sends the batched Test Suites, failure details and statements to the database, then inserts any Test Cases that
+	 * don't fill a statement, a row at a time in one batch.
+	 */
+	@Override
+	public void flush() {
+		try {
+			executeReferencedBatches();
+			if (batchedCount > 0) {
+				executeRowsBatch();
+			}
+			if (pendingCount > 0) {
+				try {
+					for (int i = 0; i < pendingCount; i++) {
+						bindPendingRow(insertTestCaseStmt, 0, pendingRows[i]);
+						insertTestCaseStmt.addBatch();
+					}
+					clearPendingRows();
+					executeReferencedBatches();
+					insertTestCaseStmt.executeBatch();
+				}
+				finally {
+					spilledDetails.release();
+				}
+			}
+		}
+		catch(SQLException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Ends the sink's use of the session, rolling back anything that was not committed. Test Cases that are still held
+	 * are discarded.
+	 */
+	@Override
+	public void close() {
+		try {
+			for (int i = 0; i < pendingCount; i++) {
+				if (pendingRows[i].failureDetails != null) pendingRows[i].failureDetails.release();
+			}
+			pendingCount = 0;
+		}
+		finally {
+			super.close();
+		}
+	}
+
+	private void executeRowsBatch() throws SQLException {
+		try {
+			executeReferencedBatches();
+			insertRowsStmt.executeBatch();
+		}
+		finally {
+			spilledDetails.release();
+			batchedCount = 0;
+		}
+	}
+
+	/*
+	 * Binds the pending rows in order and clears them, after which their spilled details are released with the 
+	 * statement's batch.
+	 */
+	private void bindPendingRows(PreparedStatement stmt) throws SQLException {
+		for (int i = 0; i < pendingCount; i++) {
+			bindPendingRow(stmt, i * testCaseParameterCount, pendingRows[i]);
+		}
+		clearPendingRows();
+	}
+
+	private void bindPendingRow(PreparedStatement stmt, int offset, PendingRow row) throws SQLException {
+		bindTestCase(stmt, offset, row.storageId, row.qualifiedName, row.methodName, row.time, row.status,
+			row.exceptionName, row.failureMessage, row.failureDetails, row.suiteId, row.durationMicros);
+	}
+
+	private void clearPendingRows() {
+		for (int i = 0; i < pendingCount; i++) {
+			pendingRows[i].clear();
+		}
+		pendingCount = 0;
+	}
+
+	/**
+	 * The values of a Test Case that is waiting for a statement. Rows are reused from statement to statement.
+	 */
+	private static class PendingRow {
+		String storageId;
+		String qualifiedName;
+		String methodName;
+		String time;
+		String status;
+		String exceptionName;
+		String failureMessage;
+		FailureDetails failureDetails;
+		Long suiteId;
+		long durationMicros;
+
+		void clear() {
+			storageId = qualifiedName = methodName = time = status = exceptionName = failureMessage = null;
+			failureDetails = null;
+			suiteId = null;
+		}
+	}
+}
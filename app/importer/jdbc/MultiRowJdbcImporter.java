@@ -0,0 +1,43 @@
+package importer.jdbc;
+
+import folderManager.IFolderData;
+import importer.StorageIdGenerator;
+
+import javax.sql.DataSource;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A bulk-load {@link BatchJdbcImporter} that inserts Test Cases with multi-row INSERT statements, see
+ * {@link MultiRowInsertSink}. Suites and Folders are stored as they are by {@link BatchJdbcImporter}.
+ */
+public class MultiRowJdbcImporter extends BatchJdbcImporter {
+
+	/**
+	 * The # of Test Cases inserted by each statement, unless otherwise configured.
+	 */
+	public static final int DEFAULT_ROWS_PER_INSERT = 100;
+
+	private final int rowsPerInsert;
+
+	/**
+	 * @param ds The target {@link DataSource}s for the import. Must not be null.
+	 * @param folderData Used to manage Folder data in the DBs.
+	 * @param storageIds Generates the storage ids of imported elements. Must not be null.
+	 * @param importBatchSize Controls the # of Test Cases that are sent to the database at a time. Must be > 0.
+	 * @param rowsPerInsert The # of Test Cases inserted by each statement. Must be > 0.
+	 */
+	public MultiRowJdbcImporter(DataSource ds, IFolderData folderData, StorageIdGenerator storageIds, int importBatchSize,
+			int rowsPerInsert) {
+		super(ds, folderData, storageIds, importBatchSize);
+		Preconditions.checkArgument(rowsPerInsert > 0, "rowsPerInsert must be greater than 0.");
+
+		this.rowsPerInsert = rowsPerInsert;
+	}
+
+	@Override
+	protected JdbcBatchSink openSink(ImportSession session, IFolderData folderData, StorageIdGenerator storageIds,
+			SequenceBlocks suiteIds, int batchSize) {
+		return new MultiRowInsertSink(session, folderData, storageIds, suiteIds, batchSize, rowsPerInsert);
+	}
+}
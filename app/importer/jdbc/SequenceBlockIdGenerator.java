@@ -0,0 +1,39 @@
+package importer.jdbc;
+
+import importer.StorageIdGenerator;
+
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+/**
+ * Hands out ids from blocks of the <b>StorageIdSeq</b> database sequence. The sequence is incremented by
+ * {@link #BLOCK_SIZE}, so each value it returns reserves the block of ids starting at that value for this generator.
+ * The database is only visited once per block, see {@link SequenceBlocks}.
+ *
+ * Ids are carried in the least significant bits of a {@link UUID} (e.g. 00000000-0000-0000-0000-0000000003e9),
+ * so they fit the existing storage id columns, and ids that are inserted in the order they are generated stay
+ * append-ordered in an index on them. Each importer should have its own generator, so that imports running in
+ * parallel don't contend for the same block.
+ */
+public class SequenceBlockIdGenerator implements StorageIdGenerator {
+
+	/**
+	 * The increment of StorageIdSeq, see evolution 2.sql.
+	 */
+	public static final int BLOCK_SIZE = SequenceBlocks.STORAGE_ID_BLOCK_SIZE;
+
+	private final SequenceBlocks blocks;
+
+	/**
+	 * @param ds The {@link DataSource} that holds the sequence. Must not be null.
+	 */
+	public SequenceBlockIdGenerator(DataSource ds) {
+		this.blocks = new SequenceBlocks(ds, "StorageIdSeq", BLOCK_SIZE);
+	}
+
+	@Override
+	public UUID nextId() {
+		return new UUID(0, blocks.next());
+	}
+}
@@ -0,0 +1,85 @@
+package importer.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+
+/**
+ * Hands out values from blocks of a database sequence whose increment is the block size, so each value the sequence
+ * returns reserves the block of values starting at it. The database is only visited once per block. Values are handed
+ * out in increasing order.
+ */
+public class SequenceBlocks {
+
+	/**
+	 * The increment of StorageIdSeq, see evolution 2.sql.
+	 */
+	public static final int STORAGE_ID_BLOCK_SIZE = 1000;
+
+	/**
+	 * The increment of TestSuiteIdSeq, see evolution 4.sql.
+	 */
+	public static final int TEST_SUITE_ID_BLOCK_SIZE = 1000;
+
+	private final DataSource ds;
+	private final String nextBlockSQL;
+	private final int blockSize;
+
+	private long nextValue = 0;
+	private long blockEnd = 0;
+
+	/**
+	 * @param ds The {@link DataSource} that holds the sequence. Must not be null.
+	 * @param sequenceName The name of the sequence. Must not be null.
+	 * @param blockSize The increment of the sequence. Must be > 0.
+	 */
+	public SequenceBlocks(DataSource ds, String sequenceName, int blockSize) {
+		Preconditions.checkNotNull(ds, "ds must not be null.");
+		Preconditions.checkNotNull(sequenceName, "sequenceName must not be null.");
+		Preconditions.checkArgument(blockSize > 0, "blockSize must be greater than 0.");
+
+		this.ds = ds;
+		this.nextBlockSQL = "select nextval('" + sequenceName + "')";
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * @param ds The {@link DataSource} that holds the sequence. Must not be null.
+	 * @return Blocks of the keys of Test Suites, which are reserved before the Test Suites are inserted.
+	 */
+	public static SequenceBlocks testSuiteIds(DataSource ds) {
+		return new SequenceBlocks(ds, "TestSuiteIdSeq", TEST_SUITE_ID_BLOCK_SIZE);
+	}
+
+	/**
+	 * @return The next value of the current block. A new block is reserved if the current one is used up.
+	 */
+	public synchronized long next() {
+		if (nextValue == blockEnd) {
+			nextValue = fetchNextBlock();
+			blockEnd = nextValue + blockSize;
+		}
+		return nextValue++;
+	}
+
+	private long fetchNextBlock() {
+		try (Connection conn = ds.getConnection();
+			 PreparedStatement nextBlockStmt = conn.prepareStatement(nextBlockSQL);
+			 ResultSet rs = nextBlockStmt.executeQuery()) {
+
+			if (!rs.next()) {
+				throw new RuntimeException("Reserving a block of sequence values failed, no sequence value obtained.");
+			}
+			return rs.getLong(1);
+		}
+		catch(SQLException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package importer.jdbc;
+
+import folderManager.IFolderData;
+import folderManager.JdbcFolderData;
+import importer.IBatchImporter;
+import importer.ReportCheckpoint;
+import importer.ReportParser;
+import importer.ReportedTestElement;
+import importer.ReportedTestSuiteEntry;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.sql.DataSource;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Imports with N {@link BatchJdbcImporter} shards, each with a writer thread, a connection (see {@link ImportSession})
+ * and {@link JdbcFolderData} of its own. Reports are partitioned by their containing folder, so the Test Suites and
+ * Test Cases of a folder, and the folder's row in the Folder table, are always written by the same shard. Reports
+ * in different folders are imported concurrently, while the reports of a folder are imported one at a time, in the
+ * order they were handed to the importer.
+ *
+ * Replaces and deletes run one at a time, while no shard is importing, and imports wait for them. A delete locks
+ * TestEntry before TestSuite, the reverse of an import, so on a database that locks whole tables (e.g. H2 without
+ * MVCC) a delete that ran alongside another shard's import could deadlock with it. Imports take their locks in the
+ * same order, so those of different shards wait for each other's tables (up to the database's lock timeout) rather
+ * than deadlock.
+ *
+ * Imports are run on the shard's thread, and the calling thread waits for them. A report's elements are pushed to
+ * the shard from the caller's Stream, see {@link #doImport(Stream)}, which must therefore not be used by the calling
+ * thread until the import returns. Several reports imported together (see {@link #doImport(List, ReportParser)})
+ * should share a folder, they are imported by the shard of the first.
+ */
+public class ShardedJdbcImporter implements IBatchImporter, AutoCloseable {
+
+	private final static String SHARD_THREAD_ID = "import-shard-%d";
+
+	private final List<BatchJdbcImporter> shards = new ArrayList<>();
+	private final List<ImportSession> folderSessions = new ArrayList<>();
+	private final List<ExecutorService> shardThreads = new ArrayList<>();
+	/*
+	 * Shared by imports, held exclusively by replaces and deletes. Fair, so a waiting delete isn't starved by imports.
+	 */
+	private final ReadWriteLock deleteLock = new ReentrantReadWriteLock(true);
+
+	/**
+	 * @param ds The target {@link DataSource} for the imports. Must not be null.
+	 * @param shardCount The # of shards, i.e. of concurrent writer connections. Must be > 0.
+	 * @param sessionMaxImports The # of imports after which each shard's connections are recycled, see
+	 * {@link BatchJdbcImporter#setSessionMaxImports(int)}. Must be > 0.
+	 * @param newShard Creates the importer of a shard, given the shard's Folder data. Must not be null.
+	 */
+	public ShardedJdbcImporter(DataSource ds, int shardCount, int sessionMaxImports,
+			Function<IFolderData, BatchJdbcImporter> newShard) {
+		Preconditions.checkNotNull(ds, "ds must not be null.");
+		Preconditions.checkArgument(shardCount > 0, "shardCount must be greater than 0.");
+		Preconditions.checkArgument(sessionMaxImports > 0, "sessionMaxImports must be greater than 0.");
+		Preconditions.checkNotNull(newShard, "newShard must not be null.");
+
+		for (int i = 0; i < shardCount; i++) {
+			final ImportSession folderSession = new ImportSession(ds, sessionMaxImports);
+			folderSessions.add(folderSession);
+			shards.add(newShard.apply(new JdbcFolderData(ds, folderSession)).setSessionMaxImports(sessionMaxImports));
+			shardThreads.add(Executors.newSingleThreadExecutor(
+				new ThreadFactoryBuilder().setNameFormat(String.format(SHARD_THREAD_ID, i)).setDaemon(true).build()));
+		}
+	}
+
+	/**
+	 * @return The # of shards.
+	 */
+	public int getShardCount() {
+		return shards.size();
+	}
+
+	/**
+	 * @param folder A folder that contains reports. Must not be null.
+	 * @return The index of the shard that imports the reports in the folder.
+	 */
+	public int shardOf(Path folder) {
+		Preconditions.checkNotNull(folder, "folder must not be null.");
+
+		return Math.floorMod(folder.toAbsolutePath().normalize().hashCode(), shards.size());
+	}
+
+	/**
+	 * Imports the elements with the shard of the folder of the first Test Suite.
+	 */
+	@Override
+	public int doImport(Stream<ReportedTestElement> testCaseEntries) {
+		Preconditions.checkNotNull(testCaseEntries, "testCaseEntries must not be null.");
+
+		final Iterator<ReportedTestElement> elements = testCaseEntries.iterator();
+		if (!elements.hasNext()) return 0;
+
+		final ReportedTestElement first = elements.next();
+		final int shard = first instanceof ReportedTestSuiteEntry
+			? shardOf(((ReportedTestSuiteEntry)first).getContainingFolder()) : 0;
+		final Stream<ReportedTestElement> rest =
+			StreamSupport.stream(Spliterators.spliteratorUnknownSize(elements, Spliterator.ORDERED), false);
+
+		return onShard(shard, deleteLock.readLock(), () -> shards.get(shard).doImport(Stream.concat(Stream.of(first), rest)));
+	}
+
+	@Override
+	public int doImport(Path report, ReportParser parser) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+
+		final int shard = shardOfReport(report);
+		return onShard(shard, deleteLock.readLock(), () -> shards.get(shard).doImport(report, parser));
+	}
+
+	@Override
+	public int doReplace(Path report, ReportParser parser) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+
+		final int shard = shardOfReport(report);
+		return onShard(shard, deleteLock.writeLock(), () -> shards.get(shard).doReplace(report, parser));
+	}
+
+	@Override
+	public int doDelete(Path report) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+
+		final int shard = shardOfReport(report);
+		return onShard(shard, deleteLock.writeLock(), () -> shards.get(shard).doDelete(report));
+	}
+
+	@Override
+	public int[] doImport(List<Path> reports, ReportParser parser) {
+		Preconditions.checkNotNull(reports, "reports must not be null.");
+		if (reports.isEmpty()) return new int[0];
+
+		final int shard = shardOfReport(reports.get(0));
+		return onShard(shard, deleteLock.readLock(), () -> shards.get(shard).doImport(reports, parser));
+	}
+
+	@Override
+	public ReportCheckpoint doImport(Path report, ReportParser parser, ReportCheckpoint from) {
+		Preconditions.checkNotNull(report, "report must not be null.");
+
+		final int shard = shardOfReport(report);
+		return onShard(shard, deleteLock.readLock(), () -> shards.get(shard).doImport(report, parser, from));
+	}
+
+	/**
+	 * Waits for the imports that are in progress, then releases the shards' connections and stops their threads.
+	 */
+	@Override
+	public void close() {
+		for (int i = 0; i < shards.size(); i++) {
+			final BatchJdbcImporter shard = shards.get(i);
+			final ImportSession folderSession = folderSessions.get(i);
+			onShard(i, () -> {
+				shard.close();
+				folderSession.close();
+				return null;
+			});
+		}
+		shardThreads.forEach(ExecutorService::shutdown);
+	}
+
+	private int shardOfReport(Path report) {
+		final Path folder = report.toAbsolutePath().getParent();
+		return folder == null ? 0 : shardOf(folder);
+	}
+
+	/*
+	 * Runs the task on the shard's thread, holding the lock, and waits for it.
+	 */
+	private <T> T onShard(int shard, Lock lock, Callable<T> task) {
+		return onShard(shard, () -> {
+			lock.lock();
+			try {
+				return task.call();
+			}
+			finally {
+				lock.unlock();
+			}
+		});
+	}
+
+	/*
+	 * Runs the task on the shard's thread and waits for it. Its failure is rethrown unwrapped.
+	 */
+	private <T> T onShard(int shard, Callable<T> task) {
+		try {
+			return shardThreads.get(shard).submit(task).get();
+		}
+		catch(ExecutionException ex) {
+			throw Throwables.propagate(ex.getCause());
+		}
+		catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw Throwables.propagate(ex);
+		}
+	}
+}
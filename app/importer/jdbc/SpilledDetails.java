@@ -0,0 +1,80 @@
+package importer.jdbc;
+
+import importer.FailureDetails;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Tracks the spilled {@link FailureDetails} of the current batch. Their readers must stay open until the batch is
+ * executed, after which the readers are closed and the temporary files deleted. Spilled details that are packed are
+ * packed to a temporary file of their own, which is tracked the same way.
+ */
+class SpilledDetails {
+
+	private final List<FailureDetails> details = new ArrayList<>();
+	private final List<Closeable> streams = new ArrayList<>();
+	private final List<Path> packedFiles = new ArrayList<>();
+
+	Reader open(FailureDetails spilled) {
+		details.add(spilled);
+		try {
+			Reader reader = spilled.openReader();
+			streams.add(reader);
+			return reader;
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * Packs the details to a temporary file, which is streamed from rather than read back into memory.
+	 * @return A stream over the packed details.
+	 */
+	InputStream openPacked(FailureDetails spilled, TextCodec codec) {
+		details.add(spilled);
+		try {
+			final Path packedFile = Files.createTempFile("rj8-packed", ".rjz");
+			packedFiles.add(packedFile);
+			try (OutputStream out = Files.newOutputStream(packedFile)) {
+				codec.pack(spilled, out);
+			}
+			InputStream in = Files.newInputStream(packedFile);
+			streams.add(in);
+			return in;
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	void release() {
+		try {
+			for (Closeable stream : streams) {
+				stream.close();
+			}
+			for (Path packedFile : packedFiles) {
+				Files.deleteIfExists(packedFile);
+			}
+		}
+		catch(IOException ex) {
+			Throwables.propagate(ex);
+		}
+		finally {
+			streams.clear();
+			packedFiles.clear();
+			details.forEach(FailureDetails::release);
+			details.clear();
+		}
+	}
+}
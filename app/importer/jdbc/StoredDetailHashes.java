@@ -0,0 +1,48 @@
+package importer.jdbc;
+
+import java.util.Collection;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * The hashes of recently stored failure details, i.e. of rows that are known to be committed to the 
+ * <b>FailureDetail</b> table. A detail whose hash is held is referred to without being looked up or inserted. The 
+ * least recently used hashes are evicted once the set is full, after which their details are looked up again.
+ *
+ * Sets are safe to share between threads, and should be shared by the sinks of an importer.
+ */
+public class StoredDetailHashes {
+
+	/**
+	 * The default # hashes held.
+	 */
+	public static final long DEFAULT_MAXIMUM_SIZE = 10000;
+
+	private final Cache<String, Boolean> hashes;
+
+	/**
+	 * @param maximumSize The maximum # hashes held. Must be > 0.
+	 */
+	public StoredDetailHashes(long maximumSize) {
+		Preconditions.checkArgument(maximumSize > 0, "maximumSize must be > 0.");
+
+		this.hashes = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+	}
+
+	/**
+	 * @param hash The hash of a failure detail. Must not be null.
+	 * @return True if the detail is known to be stored.
+	 */
+	public boolean contains(String hash) {
+		return hashes.getIfPresent(hash) != null;
+	}
+
+	/**
+	 * @param committed The hashes of failure details that have been committed. Must not be null.
+	 */
+	public void addAll(Collection<String> committed) {
+		committed.forEach(hash -> hashes.put(hash, Boolean.TRUE));
+	}
+}
@@ -0,0 +1,136 @@
+package importer.jdbc;
+
+import importer.FailureDetails;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.io.CharStreams;
+
+/**
+ * Packs large text (e.g. {@link FailureDetails}) into BLOBs: the text is encoded as UTF-8 and deflated, behind a 
+ * header that marks the BLOB as packed text. Stack traces repeat the same frames and packages throughout, so they 
+ * shrink many times over, and so does the DB file and the pages that are read to query it. Text within the threshold
+ * is stored as it is, as packing it saves little.
+ *
+ * Packed BLOBs are unpacked when they are read, see {@link #unpack(byte[])}. Immutable.
+ */
+public class TextCodec {
+
+	/**
+	 * Text over 4k chars is packed.
+	 */
+	public static final TextCodec DEFAULT = new TextCodec(4 * 1024);
+
+	/*
+	 * "RJZ" and the format version.
+	 */
+	private static final byte[] HEADER = { 'R', 'J', 'Z', 1 };
+
+	private final long thresholdChars;
+
+	/**
+	 * @param thresholdChars Text longer than this is packed. Must be >= 0.
+	 */
+	public TextCodec(long thresholdChars) {
+		Preconditions.checkArgument(thresholdChars >= 0, "thresholdChars must be >= 0.");
+
+		this.thresholdChars = thresholdChars;
+	}
+
+	/**
+	 * @return Text longer than this is packed.
+	 */
+	public long getThresholdChars() {
+		return thresholdChars;
+	}
+
+	/**
+	 * @param details Failure details. Must not be null.
+	 * @return True if the details are long enough to be packed.
+	 */
+	public boolean shouldPack(FailureDetails details) {
+		return details.length() > thresholdChars;
+	}
+
+	/**
+	 * Packs the details into memory. Suits details held in memory, spilled details should be packed to a file, see
+	 * {@link #pack(FailureDetails, OutputStream)}.
+	 * @param details Failure details. Must not be null.
+	 * @return The packed details.
+	 */
+	public byte[] pack(FailureDetails details) {
+		final ByteArrayOutputStream packed = new ByteArrayOutputStream();
+		try {
+			pack(details, packed);
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+		return packed.toByteArray();
+	}
+
+	/**
+	 * Packs the details to the given stream, streaming spilled details from their file, so neither the details nor
+	 * the packed details are held in memory in their entirety.
+	 * @param details Failure details. Must not be null.
+	 * @param out Receives the packed details. Must not be null. Isn't closed.
+	 */
+	public void pack(FailureDetails details, OutputStream out) throws IOException {
+		Preconditions.checkNotNull(details, "details must not be null.");
+		Preconditions.checkNotNull(out, "out must not be null.");
+
+		out.write(HEADER);
+		final Deflater deflater = new Deflater();
+		try (Reader text = details.openReader()) {
+			final DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater);
+			final Writer packed = new OutputStreamWriter(deflated, StandardCharsets.UTF_8);
+			CharStreams.copy(text, packed);
+			packed.flush();
+			deflated.finish();
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * @param value The value of a binary column. May be null.
+	 * @return True if the value is text packed by a codec.
+	 */
+	public static boolean isPacked(byte[] value) {
+		if (value == null || value.length < HEADER.length) return false;
+		for (int i = 0; i < HEADER.length; i++) {
+			if (value[i] != HEADER[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @param value Text packed by a codec. Must not be null.
+	 * @return The text.
+	 */
+	public static String unpack(byte[] value) {
+		Preconditions.checkArgument(isPacked(value), "value must be packed text.");
+
+		final ByteArrayInputStream packed = new ByteArrayInputStream(value, HEADER.length, value.length - HEADER.length);
+		try (Reader text = new InputStreamReader(new InflaterInputStream(packed), StandardCharsets.UTF_8)) {
+			return CharStreams.toString(text);
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+}
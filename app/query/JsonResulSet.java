@@ -1,10 +1,13 @@
 package query;
 
+import importer.jdbc.TextCodec;
+
 import java.io.IOException;
 import java.io.StringWriter;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.Types;
 import java.util.Map;
 import java.util.stream.Stream;
 
@@ -16,6 +19,7 @@ import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
+import com.google.common.io.BaseEncoding;
 
 /**
  * Wraps a JDBC {@link ResultSet} as JSON Strings. There are 2 components:
@@ -23,18 +27,23 @@ import com.google.common.collect.Maps;
  * <li> The ResultSet metadata that gives Column name / type information.
  * <li> The ResultSet data itself.
  * </ol>
+ * Binary columns that hold text packed by a {@link TextCodec} (e.g. large failure details) are unpacked as each row is
+ * written, so text is only unpacked for the columns and rows that a query selects. Other binary values are written 
+ * as hex.
  */
 public class JsonResulSet {
 	
 	private static class ColumnMetaData {
 		
-		ColumnMetaData(String columnName, String columnType) {
+		ColumnMetaData(String columnName, String columnType, boolean isBinary) {
 			this.columnName = columnName;
 			this.columnType = columnType;
+			this.isBinary = isBinary;
 		}
 		
 		final String columnName;
 		final  String columnType;
+		final boolean isBinary;
 	}
 	
 	final ResultSet jdbcResultSet;
@@ -71,7 +80,7 @@ public class JsonResulSet {
 				final JsonGenerator jg = new JsonFactory().createGenerator(sw).useDefaultPrettyPrinter();
 				jg.writeStartObject();
 					jg.writeArrayFieldStart("row");
-						this.columnMetadata.forEach(Unchecked.biConsumer((k, v) -> jg.writeString(row.getString(k))));
+						this.columnMetadata.forEach(Unchecked.biConsumer((k, v) -> jg.writeString(readValue(row, v))));
 					jg.writeEndArray();
 				jg.writeEndObject();
 				jg.close();
@@ -105,6 +114,17 @@ public class JsonResulSet {
 		return null;
 	}
 	
+	/*
+	 * Read a column value as a String, unpacking packed text.
+	 */
+	private static String readValue(ResultSet row, ColumnMetaData mdt) throws SQLException {
+		if (!mdt.isBinary) return row.getString(mdt.columnName);
+		
+		final byte[] value = row.getBytes(mdt.columnName);
+		if (value == null) return null;
+		return TextCodec.isPacked(value) ? TextCodec.unpack(value) : BaseEncoding.base16().lowerCase().encode(value);
+	}
+	
 	/*
 	 * Write out a ColumnMetadata object to a given JSON generator.
 	 */
@@ -130,7 +150,7 @@ public class JsonResulSet {
 			ResultSetMetaData rmd = rs.getMetaData();
 			for (int i=1; i<= rmd.getColumnCount(); i++) {
 				ColumnMetaData cmd = 
-					new ColumnMetaData(rmd.getColumnName(i), rmd.getColumnTypeName(i));
+					new ColumnMetaData(rmd.getColumnName(i), rmd.getColumnTypeName(i), isBinary(rmd.getColumnType(i)));
 				columnMap.put(cmd.columnName, cmd);
 			}
 		} catch (SQLException e) {
@@ -138,4 +158,16 @@ public class JsonResulSet {
 		}
 		return columnMap;
 	}
+	
+	private static boolean isBinary(int columnType) {
+		switch (columnType) {
+			case Types.BLOB:
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+				return true;
+			default:
+				return false;
+		}
+	}
 }
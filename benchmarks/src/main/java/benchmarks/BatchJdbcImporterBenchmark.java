@@ -0,0 +1,89 @@
+package benchmarks;
+
+import folderManager.JdbcFolderData;
+import importer.ReportParser;
+import importer.ReportedTestElement;
+import importer.jdbc.BatchJdbcImporter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Imports a report into an in-memory H2 database, across batch sizes. {@link #doImport()} imports elements that were
+ * parsed up front, so only the import is measured. The other benchmarks parse the report as it is imported, through
+ * the element Stream or straight into the INSERT batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BatchJdbcImporterBenchmark {
+
+	@Param({ "1", "100", "1000" })
+	public int batchSize;
+
+	@Param({ "0.1" })
+	public double failureRatio;
+
+	private static final int testCases = 5000;
+
+	private final ReportParser parser = new ReportParser();
+	private JdbcConnectionPool ds;
+	private Path report;
+	private List<ReportedTestElement> elements;
+	private BatchJdbcImporter importer;
+
+	@Setup
+	public void setUp() throws IOException {
+		report = BenchmarkData.generateReport(testCases, failureRatio);
+		elements = BenchmarkData.parseAll(report);
+		ds = BenchmarkData.createDatabase("importer" + batchSize);
+	}
+
+	/*
+	 * Stops the tables growing across iterations. The importer is recreated so its folder cache is emptied too.
+	 */
+	@Setup(Level.Iteration)
+	public void clearDatabase() {
+		BenchmarkData.clearDatabase(ds);
+		importer = new BatchJdbcImporter(ds, new JdbcFolderData(ds), batchSize);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		ds.dispose();
+		Files.delete(report);
+	}
+
+	@Benchmark
+	public int doImport() {
+		return importer.doImport(elements.stream());
+	}
+
+	@Benchmark
+	public int parseAndImportStream() {
+		try (Stream<ReportedTestElement> parsed = parser.parse(report)) {
+			return importer.doImport(parsed);
+		}
+	}
+
+	@Benchmark
+	public int parseAndImportToSink() {
+		return importer.doImport(report, parser);
+	}
+}
@@ -0,0 +1,152 @@
+package benchmarks;
+
+import importer.ReportParser;
+import importer.ReportedTestElement;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import com.google.common.base.Throwables;
+
+/**
+ * Generates the reports and databases that the benchmarks run against.
+ */
+final class BenchmarkData {
+
+	private static final String evolutionResource = "/evolutions/default/%d.sql";
+	private static final String[] packageNames = { "com.foo.db", "com.foo.model", "com.foo.model.orm", "com.foo.view" };
+
+	/*
+	 * The stack trace of a failure, ending with the frame of the failing test. Each failure's details are therefore
+	 * distinct, as they are across the tests of a real run.
+	 */
+	private static final String failureDetailsPrefix =
+		"junit.framework.AssertionFailedError: expected:&lt;1&gt; but was:&lt;2&gt;\n" +
+		"\tat junit.framework.Assert.fail(Assert.java:57)\n" +
+		"\tat junit.framework.Assert.failNotEquals(Assert.java:329)\n" +
+		"\tat junit.framework.Assert.assertEquals(Assert.java:78)\n";
+
+	private BenchmarkData() {}
+
+	/**
+	 * Writes a single suite Junit report to a temporary file.
+	 * @param testCases The # Test Cases in the report.
+	 * @param failureRatio The proportion (0 - 1) of the Test Cases that fail, with a stack trace.
+	 * @return The report file. The caller should delete it.
+	 */
+	static Path generateReport(int testCases, double failureRatio) {
+		try {
+			Path report = Files.createTempFile("TEST-benchmark", ".xml");
+			int failures = (int)Math.round(testCases * failureRatio);
+
+			try (Writer out = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+				out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n");
+				out.write("<testsuite errors=\"0\" failures=\"" + failures + "\" hostname=\"bench\" " +
+					"name=\"com.foo.AllTests\" skipped=\"0\" tests=\"" + testCases + "\" time=\"1.5\" " +
+					"timestamp=\"2014-05-19T08:45:56\">\n");
+				out.write("  <properties>\n    <property name=\"java.version\" value=\"1.8.0\" />\n  </properties>\n");
+
+				/*
+				 * Failures are spread evenly through the suite.
+				 */
+				int failed = 0;
+				for (int i = 0; i < testCases; i++) {
+					String className = packageNames[i % packageNames.length] + ".Test" + (i / 20);
+					out.write("  <testcase classname=\"" + className + "\" name=\"test_" + i + "\" time=\"0.012\"");
+
+					if ((long)(i + 1) * failures / testCases > failed) {
+						failed++;
+						out.write(">\n    <failure message=\"expected:&lt;1&gt; but was:&lt;2&gt;\" " +
+							"type=\"junit.framework.AssertionFailedError\">" + failureDetailsPrefix + 
+							"\tat " + className + ".test_" + i + "(Test" + (i / 20) + ".java:" + (33 + i % 20) + ")\n" +
+							"</failure>\n  </testcase>\n");
+					}
+					else {
+						out.write(" />\n");
+					}
+				}
+				out.write("  <system-out><![CDATA[]]></system-out>\n  <system-err><![CDATA[]]></system-err>\n");
+				out.write("</testsuite>\n");
+			}
+			return report;
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	/**
+	 * @param report The report to be parsed.
+	 * @return The report's elements, parsed in their entirety.
+	 */
+	static List<ReportedTestElement> parseAll(Path report) {
+		try (Stream<ReportedTestElement> elements = new ReportParser().parse(report)) {
+			return elements.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Creates an in-memory H2 database with the application's schema, by applying each of its evolution scripts.
+	 * @param name The database name. Must be unique to the caller.
+	 * @return A pooled data source for the database. The caller should dispose of it.
+	 */
+	static JdbcConnectionPool createDatabase(String name) {
+		JdbcConnectionPool ds = JdbcConnectionPool.create("jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+		for (int i = 1; BenchmarkData.class.getResource(String.format(evolutionResource, i)) != null; i++) {
+			for (String ddl : readEvolution(String.format(evolutionResource, i))) {
+				execute(ds, ddl);
+			}
+		}
+		return ds;
+	}
+
+	/**
+	 * Deletes all imported data.
+	 */
+	static void clearDatabase(DataSource ds) {
+		execute(ds, "DELETE FROM TESTENTRY");
+		execute(ds, "DELETE FROM FAILUREDETAIL");
+		execute(ds, "DELETE FROM TESTSUITE");
+		execute(ds, "DELETE FROM FOLDER");
+	}
+
+	private static void execute(DataSource ds, String sql) {
+		try (Connection conn = ds.getConnection(); Statement stmt = conn.createStatement()) {
+			stmt.execute(sql);
+		}
+		catch(SQLException ex) {
+			Throwables.propagate(ex);
+		}
+	}
+
+	/*
+	 * The DDL statements in the "Ups" section of an evolution script.
+	 */
+	private static String[] readEvolution(String resource) {
+		try (BufferedReader in = new BufferedReader(
+				new InputStreamReader(BenchmarkData.class.getResourceAsStream(resource), StandardCharsets.UTF_8))) {
+
+			String script = in.lines().collect(Collectors.joining("\n"));
+			String ups = script.substring(script.indexOf("# --- !Ups") + "# --- !Ups".length(), script.indexOf("# --- !Downs"));
+			return Stream.of(ups.split(";")).map(String::trim).filter(ddl -> !ddl.isEmpty()).toArray(String[]::new);
+		}
+		catch(IOException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import folderManager.JdbcFolderData;
+import importer.ReportParser;
+import importer.StorageIdGenerator;
+import importer.jdbc.BatchJdbcImporter;
+import importer.jdbc.MultiRowJdbcImporter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Parses a 40k Test Case report straight into an in-memory H2 database, over a single connection. Scores are Test Case
+ * rows per second, for the batched single-row INSERT path and the multi-row INSERT bulk-load path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BulkLoadBenchmark {
+
+	@Param({ "1000" })
+	public int batchSize;
+
+	@Param({ "10", "100", "500" })
+	public int rowsPerInsert;
+
+	@Param({ "0.1" })
+	public double failureRatio;
+
+	private static final int testCases = 40000;
+
+	private final ReportParser parser = new ReportParser();
+	private JdbcConnectionPool ds;
+	private Path report;
+	private BatchJdbcImporter batchImporter;
+	private MultiRowJdbcImporter multiRowImporter;
+
+	@Setup
+	public void setUp() throws IOException {
+		report = BenchmarkData.generateReport(testCases, failureRatio);
+		ds = BenchmarkData.createDatabase("bulkLoad" + rowsPerInsert);
+	}
+
+	/*
+	 * Stops the tables growing across iterations. The importers are recreated so their folder caches are emptied too.
+	 */
+	@Setup(Level.Iteration)
+	public void clearDatabase() {
+		BenchmarkData.clearDatabase(ds);
+		batchImporter = new BatchJdbcImporter(ds, new JdbcFolderData(ds), batchSize);
+		multiRowImporter = new MultiRowJdbcImporter(ds, new JdbcFolderData(ds), StorageIdGenerator.timeOrdered(), batchSize,
+			rowsPerInsert);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		ds.dispose();
+		Files.delete(report);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(testCases)
+	public int batchInsert() {
+		return batchImporter.doImport(report, parser);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(testCases)
+	public int multiRowInsert() {
+		return multiRowImporter.doImport(report, parser);
+	}
+}
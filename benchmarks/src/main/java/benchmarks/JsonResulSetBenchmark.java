@@ -0,0 +1,71 @@
+package benchmarks;
+
+import folderManager.JdbcFolderData;
+import importer.jdbc.BatchJdbcImporter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import query.JsonResulSet;
+
+/**
+ * Streams the Test Entries of an in-memory H2 database as JSON rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonResulSetBenchmark {
+
+	@Param({ "1000", "10000" })
+	public int rows;
+
+	private static final String selectTestEntriesSQL = "select * from testEntry";
+
+	private JdbcConnectionPool ds;
+
+	@Setup
+	public void setUp() throws IOException {
+		ds = BenchmarkData.createDatabase("query" + rows);
+
+		Path report = BenchmarkData.generateReport(rows, 0.1);
+		try {
+			new BatchJdbcImporter(ds, new JdbcFolderData(ds), 1000).doImport(BenchmarkData.parseAll(report).stream());
+		}
+		finally {
+			Files.delete(report);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		ds.dispose();
+	}
+
+	@Benchmark
+	public void rowsAsStream(Blackhole bh) throws SQLException {
+		try (Connection conn = ds.getConnection(); 
+			 PreparedStatement stmt = conn.prepareStatement(selectTestEntriesSQL);
+			 ResultSet rs = stmt.executeQuery()) {
+
+			JsonResulSet.initialiseFrom(rs).rowsAsStream().forEach(bh::consume);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package benchmarks;
+
+import importer.NameTable;
+import importer.ReportedTestResultEntry;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Sets the qualified name of a Test Case, which splits it into its package / local names. Names are cycled through a
+ * fixed set, as Test Cases in a report repeat their class names.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QualifiedNameBenchmark {
+
+	@Param({ "10", "1000" })
+	public int distinctNames;
+
+	private String[] names;
+	private NameTable nameTable;
+	private int next = 0;
+
+	@Setup
+	public void setUp() {
+		names = new String[distinctNames];
+		for (int i = 0; i < distinctNames; i++) {
+			names[i] = "com.foo.pkg" + (i % 10) + ".SomeTest" + i;
+		}
+		nameTable = NameTable.perParse();
+	}
+
+	@Benchmark
+	public ReportedTestResultEntry setQualifiedName() {
+		return (ReportedTestResultEntry)new ReportedTestResultEntry().setQualifiedName(nextName());
+	}
+
+	@Benchmark
+	public ReportedTestResultEntry setQualifiedName_nameTable() {
+		return (ReportedTestResultEntry)new ReportedTestResultEntry().setQualifiedName(nextName(), nameTable);
+	}
+
+	/*
+	 * A copy of the next name, as the parser would produce a new String for each occurrence.
+	 */
+	private String nextName() {
+		String name = names[next];
+		next = (next + 1) % names.length;
+		return new String(name);
+	}
+}
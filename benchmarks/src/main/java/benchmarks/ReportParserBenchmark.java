@@ -0,0 +1,76 @@
+package benchmarks;
+
+import importer.BinaryReportWriter;
+import importer.ReportParser;
+import importer.ReportedTestElement;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses a generated report in its entirety, across report sizes, failure ratios and parse engines. The same report is
+ * also parsed in its binary form, which is read the same way whatever the engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ReportParserBenchmark {
+
+	@Param({ "100", "10000", "100000" })
+	public int testCases;
+
+	@Param({ "0.0", "0.1", "0.5" })
+	public double failureRatio;
+
+	@Param({ "EVENT", "CURSOR", "SCANNER" })
+	public ReportParser.Engine engine;
+
+	private Path report;
+	private Path binaryReport;
+	private ReportParser parser;
+
+	@Setup
+	public void setUp() throws IOException {
+		report = BenchmarkData.generateReport(testCases, failureRatio);
+		parser = new ReportParser(engine);
+
+		binaryReport = Files.createTempFile("TEST-benchmark", BinaryReportWriter.FILE_EXTENSION);
+		try (BinaryReportWriter writer = BinaryReportWriter.create(binaryReport)) {
+			parser.parse(report, writer);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.delete(report);
+		Files.delete(binaryReport);
+	}
+
+	@Benchmark
+	public void parse(Blackhole bh) {
+		try (Stream<ReportedTestElement> elements = parser.parse(report)) {
+			elements.forEach(bh::consume);
+		}
+	}
+
+	@Benchmark
+	public void parseBinary(Blackhole bh) {
+		try (Stream<ReportedTestElement> elements = parser.parse(binaryReport)) {
+			elements.forEach(bh::consume);
+		}
+	}
+}
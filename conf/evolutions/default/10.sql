@@ -0,0 +1,16 @@
+# --- !Ups
+
+DROP VIEW IF EXISTS TestEntryDetail;
+CREATE VIEW TestEntryDetail AS 
+  SELECT TestEntry.id, TestEntry.uuid, TestEntry.className, TestEntry.methodName, TestEntry.time, TestEntry.status, 
+    TestEntry.failException, TestEntry.failMessage, COALESCE(FailureDetail.detail, TestEntry.failDetail) AS failDetail, 
+    TestEntry.suite_Id, TestEntry.durationMicros, TestEntry.failDetailHash, FailureDetail.packedDetail AS packedFailDetail 
+  FROM TestEntry LEFT JOIN FailureDetail ON FailureDetail.hash = TestEntry.failDetailHash;
+
+# --- !Downs
+
+DROP VIEW IF EXISTS TestEntryDetail;
+CREATE VIEW TestEntryDetail AS 
+  SELECT TestEntry.id, TestEntry.uuid, COALESCE(FailureDetail.detail, TestEntry.failDetail) AS failDetail, 
+    FailureDetail.packedDetail AS packedFailDetail 
+  FROM TestEntry LEFT JOIN FailureDetail ON FailureDetail.hash = TestEntry.failDetailHash;
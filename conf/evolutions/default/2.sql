@@ -0,0 +1,7 @@
+# --- !Ups
+
+CREATE SEQUENCE StorageIdSeq START WITH 1 INCREMENT BY 1000;
+
+# --- !Downs
+
+DROP SEQUENCE IF EXISTS StorageIdSeq;
@@ -0,0 +1,19 @@
+# --- !Ups
+
+ALTER TABLE TestSuite ADD COLUMN durationMicros bigint;
+ALTER TABLE TestEntry ADD COLUMN durationMicros bigint;
+
+UPDATE TestSuite SET durationMicros = CAST(ROUND(CAST(REPLACE(time, ',', '') AS DECIMAL(24, 6)) * 1000000) AS BIGINT) 
+  WHERE time IS NOT NULL AND time <> '';
+UPDATE TestEntry SET durationMicros = CAST(ROUND(CAST(REPLACE(time, ',', '') AS DECIMAL(24, 6)) * 1000000) AS BIGINT) 
+  WHERE time IS NOT NULL AND time <> '';
+
+CREATE INDEX testSuiteDurationIdx ON TestSuite (durationMicros);
+CREATE INDEX testEntryDurationIdx ON TestEntry (durationMicros);
+
+# --- !Downs
+
+DROP INDEX IF EXISTS testEntryDurationIdx;
+DROP INDEX IF EXISTS testSuiteDurationIdx;
+ALTER TABLE TestEntry DROP COLUMN durationMicros;
+ALTER TABLE TestSuite DROP COLUMN durationMicros;
@@ -0,0 +1,8 @@
+# --- !Ups
+
+CREATE SEQUENCE TestSuiteIdSeq START WITH 1 INCREMENT BY 1000;
+ALTER SEQUENCE TestSuiteIdSeq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM TestSuite);
+
+# --- !Downs
+
+DROP SEQUENCE IF EXISTS TestSuiteIdSeq;
@@ -0,0 +1,15 @@
+# --- !Ups
+
+CREATE TABLE ImportManifest (
+  path			varchar(2056) not null,
+  size			bigint,
+  modifiedOn	timestamp,
+  contentHash	varchar(64),
+  importedOn	timestamp,
+  
+  CONSTRAINT importManifestPK PRIMARY KEY (path)
+);
+
+# --- !Downs
+
+DROP TABLE IF EXISTS ImportManifest;
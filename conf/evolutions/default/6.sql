@@ -0,0 +1,22 @@
+# --- !Ups
+
+CREATE TABLE FailureDetail (
+  hash			varchar(64) not null,
+  detail		CLOB,
+  
+  CONSTRAINT failureDetailPK PRIMARY KEY (hash)
+);
+
+ALTER TABLE TestEntry ADD COLUMN failDetailHash varchar(64);
+ALTER TABLE TestEntry ADD CONSTRAINT failureDetailFK FOREIGN KEY (failDetailHash) REFERENCES FailureDetail (hash);
+
+CREATE VIEW TestEntryDetail AS 
+  SELECT TestEntry.id, TestEntry.uuid, COALESCE(FailureDetail.detail, TestEntry.failDetail) AS failDetail 
+  FROM TestEntry LEFT JOIN FailureDetail ON FailureDetail.hash = TestEntry.failDetailHash;
+
+# --- !Downs
+
+DROP VIEW IF EXISTS TestEntryDetail;
+ALTER TABLE TestEntry DROP CONSTRAINT IF EXISTS failureDetailFK;
+ALTER TABLE TestEntry DROP COLUMN failDetailHash;
+DROP TABLE IF EXISTS FailureDetail;
@@ -0,0 +1,15 @@
+# --- !Ups
+
+ALTER TABLE FailureDetail ADD COLUMN packedDetail BLOB;
+
+CREATE OR REPLACE VIEW TestEntryDetail AS 
+  SELECT TestEntry.id, TestEntry.uuid, COALESCE(FailureDetail.detail, TestEntry.failDetail) AS failDetail, 
+    FailureDetail.packedDetail AS packedFailDetail 
+  FROM TestEntry LEFT JOIN FailureDetail ON FailureDetail.hash = TestEntry.failDetailHash;
+
+# --- !Downs
+
+CREATE OR REPLACE VIEW TestEntryDetail AS 
+  SELECT TestEntry.id, TestEntry.uuid, COALESCE(FailureDetail.detail, TestEntry.failDetail) AS failDetail 
+  FROM TestEntry LEFT JOIN FailureDetail ON FailureDetail.hash = TestEntry.failDetailHash;
+ALTER TABLE FailureDetail DROP COLUMN packedDetail;
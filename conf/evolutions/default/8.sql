@@ -0,0 +1,7 @@
+# --- !Ups
+
+CREATE INDEX testSuiteFolderFileIdx ON TestSuite (folder_Id, file);
+
+# --- !Downs
+
+DROP INDEX IF EXISTS testSuiteFolderFileIdx;
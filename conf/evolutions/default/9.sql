@@ -0,0 +1,7 @@
+# --- !Ups
+
+ALTER TABLE TestSuite ALTER COLUMN id SET DEFAULT NEXT VALUE FOR TestSuiteIdSeq;
+
+# --- !Downs
+
+ALTER TABLE TestSuite ALTER COLUMN id bigint auto_increment;
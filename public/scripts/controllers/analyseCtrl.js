@@ -5,7 +5,7 @@ analyseControllers.controller('AnalyseCtrl', ['$scope', '$location',
 
   function($scope, $location) {
 
-	$scope.query='SELECT * FROM TESTENTRY';
+	$scope.query='SELECT * FROM TESTENTRYDETAIL';
 	
 	$scope.analysisData = [];
 	
@@ -16,7 +16,7 @@ testRunViewControllers.controller('TestRunViewCtrl', ['$scope', '$routeParams',
 	$scope.getNonPassesForSuite = function(dataRowHandler) {		
     	
 		return adhocQuerySocketService.query({
-			sql: "SELECT * FROM TESTENTRY WHERE STATUS != 'PASS' AND SUITE_ID = " + $scope.currentTestRunId,
+			sql: "SELECT * FROM TESTENTRYDETAIL WHERE STATUS != 'PASS' AND SUITE_ID = " + $scope.currentTestRunId,
 			
 			onRowData: function(testResultData) {
             	testResultData.id 			= +(testResultData[0]);
@@ -27,7 +27,7 @@ testRunViewControllers.controller('TestRunViewCtrl', ['$scope', '$routeParams',
             	testResultData.status 		= testResultData[5];
             	testResultData.exception 	= testResultData[6];
             	testResultData.message 		= testResultData[7];
-            	testResultData.detail	 	= testResultData[8];
+            	testResultData.detail	 	= testResultData[8] || testResultData[12];
             	
 				$scope.$apply( new function() {
 					dataRowHandler(testResultData);
@@ -17,7 +17,7 @@ testViewControllers.controller('TestViewCtrl', ['$scope', '$routeParams', 'adhoc
 	$scope.getSelectedTest = function(dataRowHandler) {		
     	
 		return adhocQuerySocketService.query({
-			sql: "SELECT * FROM TESTENTRY WHERE ID = " + $scope.currentTestRunId,
+			sql: "SELECT * FROM TESTENTRYDETAIL WHERE ID = " + $scope.currentTestRunId,
 			
 			onRowData: function(testData) {
             	testData.id 		= +(testData[0]);
@@ -28,7 +28,7 @@ testViewControllers.controller('TestViewCtrl', ['$scope', '$routeParams', 'adhoc
             	testData.status 	= testData[5];
             	testData.exception 	= testData[6];
             	testData.message 	= testData[7];
-            	testData.detail	 	= testData[8];
+            	testData.detail	 	= testData[8] || testData[12];
             	
 				$scope.$apply( new function() {
 					dataRowHandler(testData);
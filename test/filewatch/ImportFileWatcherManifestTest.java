@@ -0,0 +1,165 @@
+package filewatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import importer.ReportFingerprint;
+import importer.jdbc.JdbcImportManifest;
+import utils.H2DataSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.jolbox.bonecp.BoneCPDataSource;
+
+/**
+ * Covers the {@link ImportFileWatcher}'s use of an {@link importer.IImportManifest}, stored in the test database, see
+ * {@link H2DataSource}. Reports are imported by a {@link RecordingImporter}.
+ *
+ * The watcher handles events one at a time, in order, so a report that is delivered after an event and imported
+ * shows that the event was handled without a call to the importer.
+ */
+public class ImportFileWatcherManifestTest {
+
+	private static final String REPORT = "<testsuite name=\"a.b.Suite\" tests=\"0\"></testsuite>\n";
+	private static final String CHANGED_REPORT = "<testsuite name=\"a.b.Suite\" tests=\"1\"></testsuite>\n";
+
+	private final BoneCPDataSource DS;
+	private Path watchFolder;
+	private Path stagingFolder;
+	private RecordingImporter importer;
+	private JdbcImportManifest manifest;
+	private ImportFileWatcher watcher;
+
+	public ImportFileWatcherManifestTest() {
+		DS = H2DataSource.create();
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		H2DataSource.clear(DS);
+		watchFolder = Files.createTempDirectory("watch");
+		stagingFolder = Files.createTempDirectory("staging");
+		importer = new RecordingImporter();
+		manifest = new JdbcImportManifest(DS);
+		watcher = new ImportFileWatcher(watchFolder, importer).setImportManifest(manifest);
+		startWatching(watcher, importer, stagingFolder);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		watcher.stop();
+		deleteTree(watchFolder);
+		deleteTree(stagingFolder);
+	}
+
+	/**
+	 * A report that is written again with the content it was imported with is skipped.
+	 */
+	@Test
+	public void testModify_sameContentIsSkipped() throws Exception {
+		Path report = deliver(watchFolder, stagingFolder, "TEST-a.xml", REPORT);
+		assertEquals("import TEST-a.xml", importer.nextCall());
+
+		Files.write(report, REPORT.getBytes(StandardCharsets.UTF_8));
+
+		deliver(watchFolder, stagingFolder, "TEST-next.xml", REPORT);
+		assertEquals("import TEST-next.xml", importer.nextCall());
+	}
+
+	/**
+	 * A report whose modified time is touched is skipped, and its fingerprint takes up the new modified time, so it
+	 * isn't hashed again at the next modification.
+	 */
+	@Test
+	public void testModify_touchedReportIsSkippedAndFingerprintIsRefreshed() throws Exception {
+		Path report = deliver(watchFolder, stagingFolder, "TEST-a.xml", REPORT);
+		assertEquals("import TEST-a.xml", importer.nextCall());
+
+		FileTime touched = FileTime.fromMillis(Files.getLastModifiedTime(report).toMillis() + 60000);
+		Files.setLastModifiedTime(report, touched);
+
+		deliver(watchFolder, stagingFolder, "TEST-next.xml", REPORT);
+		assertEquals("import TEST-next.xml", importer.nextCall());
+		assertEquals(touched.toMillis(), manifest.get(report).getModifiedMillis());
+	}
+
+	/**
+	 * A report whose content has changed replaces the data of its previous import. Writing the content may take
+	 * several modifications, each of which is a replace.
+	 */
+	@Test
+	public void testModify_changedContentIsReimported() throws Exception {
+		Path report = deliver(watchFolder, stagingFolder, "TEST-a.xml", REPORT);
+		assertEquals("import TEST-a.xml", importer.nextCall());
+
+		Files.write(report, CHANGED_REPORT.getBytes(StandardCharsets.UTF_8));
+		assertEquals("replace TEST-a.xml", importer.nextCall());
+
+		deliver(watchFolder, stagingFolder, "TEST-next.xml", REPORT);
+		String call;
+		while ((call = importer.nextCall()).equals("replace TEST-a.xml")) {}
+		assertEquals("import TEST-next.xml", call);
+		assertEquals(ReportFingerprint.of(report).getContentHash(), manifest.get(report).getContentHash());
+	}
+
+	/**
+	 * A deleted report is forgotten, so it is imported afresh if it is delivered again.
+	 */
+	@Test
+	public void testDelete_deletedReportIsForgotten() throws Exception {
+		Path report = deliver(watchFolder, stagingFolder, "TEST-a.xml", REPORT);
+		assertEquals("import TEST-a.xml", importer.nextCall());
+		assertNotNull(manifest.get(report));
+
+		Files.delete(report);
+		assertEquals("delete TEST-a.xml", importer.nextCall());
+		assertNull(manifest.get(report));
+
+		deliver(watchFolder, stagingFolder, "TEST-a.xml", REPORT);
+		assertEquals("import TEST-a.xml", importer.nextCall());
+	}
+
+	/**
+	 * Starts the watcher and waits until it imports a report, i.e. until it is watching its folder.
+	 */
+	static void startWatching(ImportFileWatcher watcher, RecordingImporter importer, Path stagingFolder)
+			throws Exception {
+		watcher.start();
+		for (int i = 0; i < 50; i++) {
+			deliver(watcher.getWatchFolder(), stagingFolder, "TEST-started-" + i + ".xml", REPORT);
+			String call = importer.nextCall(200);
+			if (call != null) {
+				assertEquals("import TEST-started-" + i + ".xml", call);
+				return;
+			}
+		}
+		throw new AssertionError("The watcher didn't start.");
+	}
+
+	/**
+	 * Writes the report in the staging folder and moves it into the watch folder, so that it appears there complete.
+	 */
+	static Path deliver(Path watchFolder, Path stagingFolder, String fileName, String content) throws IOException {
+		Path staged = Files.write(stagingFolder.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+		return Files.move(staged, watchFolder.resolve(fileName), StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	static void deleteTree(Path folder) throws IOException {
+		try (Stream<Path> paths = Files.walk(folder)) {
+			for (Path path : (Iterable<Path>)paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package filewatch;
+
+import static filewatch.ImportFileWatcherManifestTest.deleteTree;
+import static filewatch.ImportFileWatcherManifestTest.deliver;
+import static filewatch.ImportFileWatcherManifestTest.startWatching;
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Covers the {@link ImportFileWatcher}'s handling of modified reports when it has no {@link importer.IImportManifest}.
+ * Reports are imported by a {@link RecordingImporter}.
+ */
+public class ImportFileWatcherReplaceTest {
+
+	private static final String REPORT = "<testsuite name=\"a.b.Suite\" tests=\"0\"></testsuite>\n";
+	private static final String CHANGED_REPORT = "<testsuite name=\"a.b.Suite\" tests=\"1\"></testsuite>\n";
+
+	private Path watchFolder;
+	private Path stagingFolder;
+	private RecordingImporter importer;
+	private ImportFileWatcher watcher;
+
+	@Before
+	public void setUp() throws Exception {
+		watchFolder = Files.createTempDirectory("watch");
+		stagingFolder = Files.createTempDirectory("staging");
+		importer = new RecordingImporter();
+		watcher = new ImportFileWatcher(watchFolder, importer);
+		startWatching(watcher, importer, stagingFolder);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		watcher.stop();
+		deleteTree(watchFolder);
+		deleteTree(stagingFolder);
+	}
+
+	/**
+	 * A report that is modified after it was imported replaces the data of its import. Writing the content may take 
+	 * several modifications, each of which is a replace, and nothing else is imported on its account.
+	 */
+	@Test
+	public void testModify_modifiedReportIsReplaced() throws Exception {
+		Path report = deliver(watchFolder, stagingFolder, "TEST-a.xml", REPORT);
+		assertEquals("import TEST-a.xml", importer.nextCall());
+
+		FileTime modified = FileTime.fromMillis(Files.getLastModifiedTime(report).toMillis() + 60000);
+		Files.write(report, CHANGED_REPORT.getBytes(StandardCharsets.UTF_8));
+		Files.setLastModifiedTime(report, modified);
+		assertEquals("replace TEST-a.xml", importer.nextCall());
+
+		deliver(watchFolder, stagingFolder, "TEST-next.xml", REPORT);
+		String call;
+		while ((call = importer.nextCall()).equals("replace TEST-a.xml")) {}
+		assertEquals("import TEST-next.xml", call);
+	}
+}
@@ -0,0 +1,64 @@
+package filewatch;
+
+import importer.IBatchImporter;
+import importer.ReportCheckpoint;
+import importer.ReportParser;
+import importer.ReportedTestElement;
+
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Records the imports, replaces and deletes that an {@link ImportFileWatcher} asks for, without parsing the reports.
+ * Each call is recorded as its kind and the report's file name, e.g. "import TEST-a.xml".
+ */
+class RecordingImporter implements IBatchImporter {
+
+	private final BlockingQueue<String> calls = new LinkedBlockingQueue<>();
+
+	/**
+	 * @return The next call, waiting up to 10s for it, or null if there is none.
+	 */
+	String nextCall() throws InterruptedException {
+		return nextCall(10000);
+	}
+
+	/**
+	 * @param timeoutMillis How long to wait for the call.
+	 * @return The next call, or null if there is none in time.
+	 */
+	String nextCall(long timeoutMillis) throws InterruptedException {
+		return calls.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public int doImport(Path report, ReportParser parser) {
+		calls.add("import " + report.getFileName());
+		return 1;
+	}
+
+	@Override
+	public int doReplace(Path report, ReportParser parser) {
+		calls.add("replace " + report.getFileName());
+		return 1;
+	}
+
+	@Override
+	public int doDelete(Path report) {
+		calls.add("delete " + report.getFileName());
+		return 1;
+	}
+
+	@Override
+	public int doImport(Stream<ReportedTestElement> testCaseEntries) {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public ReportCheckpoint doImport(Path report, ReportParser parser, ReportCheckpoint from) {
+		throw new UnsupportedOperationException();
+	}
+}
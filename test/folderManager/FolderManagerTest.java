@@ -3,6 +3,7 @@ package folderManager;
 import static java.util.stream.Collectors.toSet;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import importer.ReportParser;
 import importer.ReportedTestElement;
 import importer.jdbc.BatchJdbcImporter;
 
@@ -168,5 +169,10 @@ public class FolderManagerTest {
 		public int doImport(Stream<ReportedTestElement> testCaseEntries) {
 			throw new RuntimeException(message);
 		}
+		
+		@Override
+		public int doImport(Path report, ReportParser parser) {
+			throw new RuntimeException(message);
+		}
 	}
 }
@@ -1,15 +1,36 @@
 package importer;
 
+import importer.jdbc.AdaptiveBatchSizeTest;
+import importer.jdbc.ImportSessionTest;
+import importer.jdbc.SequenceBlocksTest;
+import importer.jdbc.ShardedJdbcImporterTest;
+import importer.jdbc.StoredDetailHashesTest;
+import importer.jdbc.TextCodecTest;
+
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
 
 @RunWith(Suite.class)
 @SuiteClasses({ 
+	AdaptiveBatchSizeTest.class,
+	BinaryReportTest.class,
+	BulkImportEngineTest.class,
+	DurationsTest.class,
+	FailureDetailsTest.class,
+	ImportPipelineTest.class,
+	ImportSessionTest.class,
 	ImportSourceTest.class,
+	NameTableTest.class,
 	ReportedTestResultEntryTest.class,
 	ReportedTestSuiteEntryTest.class,
-	ReportParserTest.class
+	ReportFingerprintTest.class,
+	ReportParserTest.class,
+	SequenceBlocksTest.class,
+	ShardedJdbcImporterTest.class,
+	StorageIdGeneratorTest.class,
+	StoredDetailHashesTest.class,
+	TextCodecTest.class
 })
 
 /**
@@ -0,0 +1,131 @@
+package importer;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import importer.ReportedTestResultEntry.FailureInfo;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import testdata.TestDataInfo;
+
+public class BinaryReportTest {
+
+	/**
+	 * A report converted to the binary form is parsed to the same elements as the XML report.
+	 */
+	@Test
+	public void testParse_convertedReportMatchesXmlReport() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		Path testReportPath = Paths.get(is.computePaths().sorted().findFirst().get());
+		Path binaryReport = Files.createTempFile("TEST-binary", BinaryReportWriter.FILE_EXTENSION);
+		try {
+			try (BinaryReportWriter writer = BinaryReportWriter.create(binaryReport)) {
+				new ReportParser().parse(testReportPath, writer);
+			}
+
+			try (Stream<ReportedTestElement> xml = new ReportParser().parse(testReportPath);
+				 Stream<ReportedTestElement> binary = new ReportParser().parse(binaryReport)) {
+				List<String> expected = xml.map(ReportParserTest::describeContent).collect(toList());
+				assertTrue(expected.size() > 1);
+				assertEquals(expected, binary.map(ReportParserTest::describeContent).collect(toList()));
+			}
+			assertTrue("The binary report is smaller.", Files.size(binaryReport) < Files.size(testReportPath));
+		}
+		finally {
+			Files.delete(binaryReport);
+		}
+	}
+
+	/**
+	 * Elements built by a producer are written as they are, including nulls, repeated names, non-ASCII text and details
+	 * that are longer than a chunk.
+	 */
+	@Test
+	public void testParse_writtenElementsAreRead() throws Exception {
+		/*
+		 * The first surrogate pair straddles the end of the writer's first chunk of details.
+		 */
+		StringBuilder longDetails = new StringBuilder();
+		while (longDetails.length() < 8 * 1024 - 1) {
+			longDetails.append('x');
+		}
+		while (longDetails.length() < 20000) {
+			longDetails.append("\uD83D\uDE00 \u00E9 at a.b.Test.m(Test.java:1)\n");
+		}
+
+		ReportedTestSuiteEntry suite = new ReportedTestSuiteEntry()
+			.setTimestamp(new DateTime(2014, 5, 19, 8, 45, 56))
+			.setTestsRun(3L)
+			.setTotalErrors(1L)
+			.setTotalFailures(1L)
+			.setTotalSkipped(1L);
+		suite.setQualifiedName("a.b.Suite").setTime("1.5");
+
+		ReportedTestResultEntry failed = new ReportedTestResultEntry().setMethodName("m\u00E9");
+		failed.setQualifiedName("a.b.Test").setTime("0.5");
+		failed.setFailInfo(new FailureInfo("expected <1>", "java.lang.AssertionError", longDetails.toString(), FailureInfo.Type.failure));
+
+		ReportedTestResultEntry errored = new ReportedTestResultEntry();
+		errored.setQualifiedName("a.b.Test").setTime("x");
+		errored.setFailInfo(new FailureInfo(null, null, (String)null, FailureInfo.Type.error));
+
+		ReportedTestResultEntry skipped = new ReportedTestResultEntry().setMethodName("s");
+		skipped.setQualifiedName("Test").setTime("0");
+		skipped.setSkipped(true);
+
+		List<ReportedTestElement> written = Arrays.asList(suite, failed, errored, skipped);
+		Path binaryReport = Files.createTempFile("TEST-binary", BinaryReportWriter.FILE_EXTENSION);
+		try {
+			try (BinaryReportWriter writer = BinaryReportWriter.create(binaryReport)) {
+				written.forEach(writer::element);
+			}
+
+			try (Stream<ReportedTestElement> read = new ReportParser().parse(binaryReport)) {
+				assertEquals(
+					written.stream().map(ReportParserTest::describeContent).collect(toList()),
+					read.map(ReportParserTest::describeContent).collect(toList()));
+			}
+		}
+		finally {
+			Files.delete(binaryReport);
+		}
+	}
+
+	/**
+	 * A report that ends without its end record (e.g. one whose producer died) fails rather than being imported in part.
+	 */
+	@Test
+	public void testParse_truncatedReportFails() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		Path testReportPath = Paths.get(is.computePaths().sorted().findFirst().get());
+		Path binaryReport = Files.createTempFile("TEST-binary", BinaryReportWriter.FILE_EXTENSION);
+		try {
+			try (BinaryReportWriter writer = BinaryReportWriter.create(binaryReport)) {
+				new ReportParser().parse(testReportPath, writer);
+			}
+			byte[] content = Files.readAllBytes(binaryReport);
+			Files.write(binaryReport, Arrays.copyOf(content, content.length - 1));
+
+			try (Stream<ReportedTestElement> read = new ReportParser().parse(binaryReport)) {
+				read.count();
+				fail("A truncated report is not parsed.");
+			}
+			catch(IllegalStateException ex) {
+				assertTrue(ex.getMessage(), ex.getMessage().contains("truncated report"));
+			}
+		}
+		finally {
+			Files.delete(binaryReport);
+		}
+	}
+}
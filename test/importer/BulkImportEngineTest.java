@@ -0,0 +1,185 @@
+package importer;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import testdata.TestDataInfo;
+
+public class BulkImportEngineTest {
+
+	private Path sourceFolder;
+	private long caseCount;
+
+	/*
+	 * Four copies of the test report, one of which fails to import.
+	 */
+	@Before
+	public void setUp() throws IOException {
+		sourceFolder = Files.createTempDirectory("bulk-import");
+		Path testReportPath = Paths.get(TestDataInfo.getImportSource().computePaths().sorted().findFirst().get());
+		for (int i = 0; i < 4; i++) {
+			Files.copy(testReportPath, sourceFolder.resolve("TEST-" + i + ".xml"));
+		}
+		try (Stream<ReportedTestElement> elements = new ReportParser().parse(testReportPath)) {
+			caseCount = elements.filter(element -> element instanceof ReportedTestResultEntry).count();
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.list(sourceFolder)) {
+			for (Path file : files.collect(toList())) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(sourceFolder);
+	}
+
+	/**
+	 * Small files are imported in groups of up to the given size. A group that fails is imported again a file at a
+	 * time, so only the file that fails on its own is reported as failed.
+	 */
+	@Test
+	public void testImportFrom_smallFilesAreGroupedIntoTransactions() {
+		RecordingImporter importer = new RecordingImporter("TEST-3.xml");
+		BulkImportEngine engine = new BulkImportEngine(new ReportParser(), Collections.singletonList(importer), 1)
+			.setSmallFileTransactions(Long.MAX_VALUE, 2);
+
+		List<FileImportResult> results = engine.importFrom(new ImportSource(sourceFolder.toString()));
+		engine.shutDown();
+
+		assertEquals(4, results.size());
+		for (FileImportResult result : results) {
+			boolean isFailing = result.getFile().getFileName().toString().equals("TEST-3.xml");
+			assertEquals(result.getFile().toString(), !isFailing, result.isSuccessful());
+			assertEquals(isFailing ? 0 : caseCount, result.getImportedEntryCount());
+		}
+
+		List<Integer> groupSizes = importer.groupSizes;
+		assertEquals("Two groups are imported, one of which fails.", 2, groupSizes.size());
+		assertTrue(groupSizes.stream().allMatch(size -> size == 2));
+		assertEquals("The files of the failed group are imported one at a time.", 2, importer.singleImports);
+	}
+
+	/**
+	 * By default every file is imported on its own.
+	 */
+	@Test
+	public void testImportFrom_filesAreImportedOnTheirOwnByDefault() {
+		RecordingImporter importer = new RecordingImporter(null);
+		BulkImportEngine engine = new BulkImportEngine(new ReportParser(), Collections.singletonList(importer), 1);
+
+		List<FileImportResult> results = engine.importFrom(new ImportSource(sourceFolder.toString()));
+		engine.shutDown();
+
+		assertEquals(4, results.size());
+		assertFalse(results.stream().anyMatch(result -> !result.isSuccessful()));
+		assertTrue(results.stream().allMatch(result -> result.getImportedEntryCount() == caseCount));
+		assertTrue(importer.groupSizes.isEmpty());
+		assertEquals(4, importer.singleImports);
+	}
+
+	/**
+	 * Files are parsed on every thread of the pool while a single writer is busy with the first of them.
+	 */
+	@Test
+	public void testImportFrom_filesAreParsedWhileTheWriterIsBusy() {
+		final CountDownLatch parsesStarted = new CountDownLatch(3);
+		ReportParser parser = new ReportParser() {
+			@Override
+			public Stream<ReportedTestElement> parse(Path fileLocation) {
+				parsesStarted.countDown();
+				return super.parse(fileLocation);
+			}
+		};
+		RecordingImporter importer = new RecordingImporter(null) {
+			@Override
+			public int doImport(Stream<ReportedTestElement> testCaseEntries) {
+				try {
+					if (!parsesStarted.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("Files aren't parsed.");
+				}
+				catch(InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+				return super.doImport(testCaseEntries);
+			}
+		};
+		BulkImportEngine engine = new BulkImportEngine(parser, Collections.singletonList(importer), 3);
+
+		List<FileImportResult> results = engine.importFrom(new ImportSource(sourceFolder.toString()));
+		engine.shutDown();
+
+		assertEquals(4, results.size());
+		assertTrue(results.toString(), results.stream().allMatch(FileImportResult::isSuccessful));
+	}
+
+	/*
+	 * Imports the elements of one report, or of a group of reports, without storing them. Imports that include the 
+	 * failing report fail.
+	 */
+	private static class RecordingImporter implements IBatchImporter {
+		private final String failingReport;
+		private final List<Integer> groupSizes = Collections.synchronizedList(new ArrayList<>());
+		private volatile int singleImports = 0;
+
+		RecordingImporter(String failingReport) {
+			this.failingReport = failingReport;
+		}
+
+		@Override
+		public int doImport(Stream<ReportedTestElement> testCaseEntries) {
+			final Set<String> reports = new HashSet<>();
+			int importedCount = 0;
+			for (ReportedTestElement element : (Iterable<ReportedTestElement>)testCaseEntries::iterator) {
+				if (element instanceof ReportedTestSuiteEntry) {
+					reports.add(((ReportedTestSuiteEntry)element).getContainingFile());
+				}
+				else {
+					importedCount++;
+				}
+			}
+			if (reports.size() == 1) { singleImports++; } else { groupSizes.add(reports.size()); }
+			if (reports.contains(failingReport)) throw new IllegalStateException("Failed to import " + reports);
+			return importedCount;
+		}
+
+		@Override
+		public int doImport(Path report, ReportParser parser) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ReportCheckpoint doImport(Path report, ReportParser parser, ReportCheckpoint from) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int doReplace(Path report, ReportParser parser) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int doDelete(Path report) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
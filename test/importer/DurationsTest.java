@@ -0,0 +1,57 @@
+package importer;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class DurationsTest {
+
+	@Test
+	public void testToMicros_plainDecimals() {
+		assertEquals(0, Durations.toMicros("0"));
+		assertEquals(12000, Durations.toMicros("0.012"));
+		assertEquals(1500000, Durations.toMicros("1.5"));
+		assertEquals(500000, Durations.toMicros(".5"));
+		assertEquals(3000000, Durations.toMicros("3."));
+		assertEquals(123456789, Durations.toMicros("123.456789"));
+	}
+	
+	/**
+	 * Fractions of a microsecond are rounded half up.
+	 */
+	@Test
+	public void testToMicros_rounding() {
+		assertEquals(1, Durations.toMicros("0.0000005"));
+		assertEquals(0, Durations.toMicros("0.0000004999"));
+		assertEquals(1000000, Durations.toMicros("0.99999999"));
+	}
+	
+	@Test
+	public void testToMicros_separatorsAndNotation() {
+		assertEquals(1234500000L, Durations.toMicros("1,234.5"));
+		assertEquals(12000, Durations.toMicros("0,012"));
+		assertEquals(100, Durations.toMicros("1.0E-4"));
+		assertEquals(2000000, Durations.toMicros(" 2 "));
+	}
+	
+	@Test
+	public void testToMicros_invalidTimes() {
+		for (String time : new String[] { null, "", ".", ",", "-1.5", "NaN", "1.2.3", "abc", "99999999999999999999" }) {
+			assertEquals("Time: " + time, Durations.UNKNOWN, Durations.toMicros(time));
+		}
+	}
+	
+	/**
+	 * Setting a Test's time converts it to microseconds.
+	 */
+	@Test
+	public void testSetTime_convertsDuration() {
+		ReportedTestResultEntry entry = new ReportedTestResultEntry();
+		
+		entry.setTime("0.25");
+		assertEquals(250000, entry.getDurationMicros());
+		
+		entry.setTime("n/a");
+		assertEquals(Durations.UNKNOWN, entry.getDurationMicros());
+	}
+}
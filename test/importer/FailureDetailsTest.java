@@ -0,0 +1,162 @@
+package importer;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FailureDetailsTest {
+
+	private Path spillFolder;
+	private Path reportFile;
+	private String expectedDetails;
+
+	/*
+	 * A report with a single failure whose details are long enough to be decoded in several chunks by the scanner,
+	 * and which has multi-byte chars, references and CR LF pairs throughout.
+	 */
+	@Before
+	public void createReport() throws IOException {
+		spillFolder = Files.createTempDirectory("spill");
+
+		StringBuilder reportDetails = new StringBuilder();
+		StringBuilder details = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			reportDetails.append("at a.b.C").append(i).append(" \u00e9\u20ac\ud83d\ude00 &lt;&#x41;&gt;\r\n");
+			details.append("at a.b.C").append(i).append(" \u00e9\u20ac\ud83d\ude00 <A>\n");
+		}
+		expectedDetails = details.toString();
+
+		String report =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<testsuite name=\"a.b.Suite\" tests=\"1\" errors=\"0\" failures=\"1\" skipped=\"0\" time=\"0.1\" timestamp=\"2014-05-19T08:45:56\">\n" +
+			"  <testcase classname=\"a.b.Test\" name=\"m\" time=\"0.1\"><failure message=\"m\" type=\"E\">" + reportDetails +
+			"</failure></testcase>\n" +
+			"</testsuite>\n";
+
+		reportFile = Files.createTempFile("TEST-details", ".xml");
+		Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void deleteReport() throws IOException {
+		Files.delete(reportFile);
+		Files.delete(spillFolder);
+	}
+
+	/**
+	 * Details over the spill threshold are written to the spill folder by every engine, and are deleted on release.
+	 */
+	@Test
+	public void testParse_longDetailsAreSpilled() throws Exception {
+		FailureDetailsPolicy policy = new FailureDetailsPolicy(1000, Long.MAX_VALUE, spillFolder, "[truncated]");
+
+		for (ReportParser.Engine engine : ReportParser.Engine.values()) {
+			FailureDetails details = parseDetails(new ReportParser(engine).setFailureDetailsPolicy(policy));
+
+			assertTrue(engine + " spills details.", details.isSpilled());
+			assertFalse(details.isTruncated());
+			assertEquals(1, countSpilledFiles());
+			assertEquals(expectedDetails.length(), details.length());
+			assertEquals(engine + " parses the details.", expectedDetails, details.toString());
+			assertEquals(expectedDetails, read(details));
+
+			details.release();
+			assertEquals("Release deletes the spilled details.", 0, countSpilledFiles());
+		}
+	}
+
+	/**
+	 * Details over the maximum length are cut short and marked as truncated.
+	 */
+	@Test
+	public void testParse_longDetailsAreTruncated() throws Exception {
+		FailureDetailsPolicy policy = new FailureDetailsPolicy(1000, 100, spillFolder, "[truncated]");
+
+		for (ReportParser.Engine engine : ReportParser.Engine.values()) {
+			FailureDetails details = parseDetails(new ReportParser(engine).setFailureDetailsPolicy(policy));
+
+			assertFalse(details.isSpilled());
+			assertTrue(engine + " truncates details.", details.isTruncated());
+			assertEquals(expectedDetails.substring(0, 100) + "[truncated]", details.toString());
+			assertEquals(0, countSpilledFiles());
+		}
+	}
+
+	/**
+	 * Details within the spill threshold are held in memory.
+	 */
+	@Test
+	public void testParse_shortDetailsAreHeldInMemory() throws Exception {
+		for (ReportParser.Engine engine : ReportParser.Engine.values()) {
+			FailureDetails details = parseDetails(new ReportParser(engine));
+
+			assertFalse(details.isSpilled());
+			assertFalse(details.isTruncated());
+			assertEquals(engine + " parses the details.", expectedDetails, details.toString());
+		}
+	}
+
+	/**
+	 * Details that differ only in line endings and trailing whitespace have the same hash, whether spilled or not.
+	 */
+	@Test
+	public void testContentHash_isOfNormalisedContent() throws Exception {
+		String hash = FailureDetails.of("at a.b.C\nat a.b.D").contentHash();
+
+		assertEquals(64, hash.length());
+		assertEquals(hash, FailureDetails.of("\r\nat a.b.C  \r\nat a.b.D\t\r\n\r\n").contentHash());
+		assertEquals(hash, FailureDetails.of("at a.b.C\rat a.b.D ").contentHash());
+		assertFalse(hash.equals(FailureDetails.of("at a.b.C\nat a.b.E").contentHash()));
+		assertFalse(hash.equals(FailureDetails.of("at a.b.C\n\nat a.b.D").contentHash()));
+
+		FailureDetails spilled = parseDetails(new ReportParser()
+			.setFailureDetailsPolicy(new FailureDetailsPolicy(1000, Long.MAX_VALUE, spillFolder, "[truncated]")));
+		try {
+			assertTrue(spilled.isSpilled());
+			assertEquals(FailureDetails.of(expectedDetails).contentHash(), spilled.contentHash());
+		}
+		finally {
+			spilled.release();
+		}
+	}
+
+	private FailureDetails parseDetails(ReportParser parser) {
+		try (Stream<ReportedTestElement> elements = parser.parse(reportFile)) {
+			List<ReportedTestResultEntry> results = elements
+				.filter(e -> e instanceof ReportedTestResultEntry).map(e -> (ReportedTestResultEntry)e).collect(toList());
+
+			assertEquals(1, results.size());
+			return results.get(0).getFailureInfo().getDetailsContent();
+		}
+	}
+
+	private long countSpilledFiles() throws IOException {
+		try (Stream<Path> files = Files.list(spillFolder)) {
+			return files.count();
+		}
+	}
+
+	private static String read(FailureDetails details) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[4096];
+		try (Reader reader = details.openReader()) {
+			for (int n = reader.read(buffer); n >= 0; n = reader.read(buffer)) {
+				sb.append(buffer, 0, n);
+			}
+		}
+		return sb.toString();
+	}
+}
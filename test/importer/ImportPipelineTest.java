@@ -0,0 +1,179 @@
+package importer;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import testdata.TestDataInfo;
+
+public class ImportPipelineTest {
+
+	private Path sourceFolder;
+	private Path testReportPath;
+
+	@Before
+	public void setUp() throws IOException {
+		sourceFolder = Files.createTempDirectory("import-pipeline");
+		testReportPath = Paths.get(TestDataInfo.getImportSource().computePaths().sorted().findFirst().get());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.list(sourceFolder)) {
+			for (Path file : files.collect(toList())) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(sourceFolder);
+	}
+
+	/**
+	 * Every element of every file is written, in order, through a row queue that is much smaller than a file.
+	 */
+	@Test
+	public void testSubmit_filesAreWrittenThroughBoundedQueue() throws Exception {
+		List<String> expected;
+		try (Stream<ReportedTestElement> elements = new ReportParser().parse(testReportPath)) {
+			expected = elements.map(ReportParserTest::describeContent).collect(toList());
+		}
+		assertTrue(expected.size() > 2);
+
+		List<Path> files = copies(4);
+		CountingImporter writer = new CountingImporter(expected);
+		List<CompletableFuture<FileImportResult>> results;
+		try (ImportPipeline pipeline = new ImportPipeline(new ReportParser(), Collections.singletonList(writer), 2, 1)) {
+			results = files.stream().map(pipeline::submit).collect(toList());
+		}
+
+		for (int i = 0; i < files.size(); i++) {
+			FileImportResult result = results.get(i).get();
+			assertEquals(files.get(i), result.getFile());
+			assertTrue(result.isSuccessful());
+			assertEquals(expected.size(), result.getImportedEntryCount());
+		}
+		assertEquals(files.size(), writer.importCount.get());
+	}
+
+	/**
+	 * A file that fails to parse, or to import, fails on its own. The files after it are imported.
+	 */
+	@Test
+	public void testSubmit_failuresAreConfinedToTheirFile() throws Exception {
+		List<Path> files = copies(3);
+		Path malformed = sourceFolder.resolve("TEST-malformed.xml");
+		Files.write(malformed, Arrays.copyOf(Files.readAllBytes(testReportPath), 600));
+
+		CountingImporter writer = new CountingImporter(null);
+		writer.failingImport = 2;
+		FileImportResult[] results = new FileImportResult[4];
+		try (ImportPipeline pipeline = new ImportPipeline(new ReportParser(), Collections.singletonList(writer), 1, 2)) {
+			CompletableFuture<FileImportResult> malformedResult = pipeline.submit(malformed);
+			List<CompletableFuture<FileImportResult>> copyResults = files.stream().map(pipeline::submit).collect(toList());
+			results[0] = malformedResult.get();
+			for (int i = 0; i < copyResults.size(); i++) {
+				results[i + 1] = copyResults.get(i).get();
+			}
+		}
+
+		assertFalse("The malformed file fails to parse.", results[0].isSuccessful());
+		assertTrue(results[1].isSuccessful());
+		assertFalse("The second copy fails to import.", results[2].isSuccessful());
+		assertTrue(results[3].isSuccessful());
+	}
+
+	/**
+	 * The files of a group are written together, by one import, and each is reported with its own # of Test Cases. 
+	 * A group that fails to import fails for every file.
+	 */
+	@Test
+	public void testSubmitGroup_filesAreImportedTogether() throws Exception {
+		long caseCount;
+		try (Stream<ReportedTestElement> elements = new ReportParser().parse(testReportPath)) {
+			caseCount = elements.filter(element -> element instanceof ReportedTestResultEntry).count();
+		}
+
+		List<Path> files = copies(4);
+		CountingImporter writer = new CountingImporter(null);
+		writer.failingImport = 1;
+		List<FileImportResult> imported;
+		List<FileImportResult> failed;
+		try (ImportPipeline pipeline = new ImportPipeline(new ReportParser(), Collections.singletonList(writer), 2, 1)) {
+			CompletableFuture<List<FileImportResult>> importedGroup = pipeline.submit(files.subList(0, 2));
+			CompletableFuture<List<FileImportResult>> failedGroup = pipeline.submit(files.subList(2, 4));
+			imported = importedGroup.get();
+			failed = failedGroup.get();
+		}
+
+		assertEquals(2, writer.importCount.get());
+		assertEquals(files.subList(0, 2), imported.stream().map(FileImportResult::getFile).collect(toList()));
+		assertTrue(imported.stream().allMatch(result -> result.isSuccessful() && result.getImportedEntryCount() == caseCount));
+		assertEquals(files.subList(2, 4), failed.stream().map(FileImportResult::getFile).collect(toList()));
+		assertTrue(failed.stream().noneMatch(FileImportResult::isSuccessful));
+	}
+
+	private List<Path> copies(int count) throws IOException {
+		List<Path> copies = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			copies.add(Files.copy(testReportPath, sourceFolder.resolve("TEST-" + i + ".xml")));
+		}
+		return copies;
+	}
+
+	/*
+	 * Consumes each file's elements, checking them against the expected elements if given. Fails the given import, 
+	 * part way through its file.
+	 */
+	private static class CountingImporter implements IBatchImporter {
+		private final List<String> expected;
+		private final AtomicInteger importCount = new AtomicInteger();
+		private volatile int failingImport = -1;
+
+		CountingImporter(List<String> expected) {
+			this.expected = expected;
+		}
+
+		@Override
+		public int doImport(Stream<ReportedTestElement> testCaseEntries) {
+			int importNumber = importCount.getAndIncrement();
+			int count = 0;
+			for (ReportedTestElement element : (Iterable<ReportedTestElement>)testCaseEntries::iterator) {
+				if (expected != null) assertEquals(expected.get(count), ReportParserTest.describeContent(element));
+				if (importNumber == failingImport) throw new IllegalStateException("Import " + importNumber + " failed.");
+				count++;
+			}
+			return count;
+		}
+
+		@Override
+		public ReportCheckpoint doImport(Path report, ReportParser parser, ReportCheckpoint from) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int doReplace(Path report, ReportParser parser) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int doDelete(Path report) {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
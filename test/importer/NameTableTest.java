@@ -0,0 +1,93 @@
+package importer;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import testdata.TestDataInfo;
+
+public class NameTableTest {
+
+	/**
+	 * Names are split the same way as {@link ReportedTestElement#setQualifiedName(String)} splits them.
+	 */
+	@Test
+	public void testSetQualifiedName_matchesUnsharedNames() {
+		NameTable nameTable = NameTable.perParse();
+		
+		for (String name : new String[] { "a.b.C", "C", "a.C", ".C", "a.b." }) {
+			ReportedTestResultEntry unshared = new ReportedTestResultEntry();
+			unshared.setQualifiedName(name);
+			ReportedTestResultEntry shared = new ReportedTestResultEntry();
+			shared.setQualifiedName(name, nameTable);
+			
+			assertEquals(unshared.getQualifiedName(), shared.getQualifiedName());
+			assertEquals(unshared.getPackageName(), shared.getPackageName());
+			assertEquals(unshared.getLocalTestCaseName(), shared.getLocalTestCaseName());
+		}
+	}
+	
+	/**
+	 * Equal names (and the package / local names derived from them) are the same instances.
+	 */
+	@Test
+	public void testSetQualifiedName_sharesInstances() {
+		NameTable nameTable = NameTable.perParse();
+		
+		ReportedTestResultEntry first = new ReportedTestResultEntry();
+		first.setQualifiedName(new String("a.b.C"), nameTable);
+		ReportedTestResultEntry second = new ReportedTestResultEntry();
+		second.setQualifiedName(new String("a.b.C"), nameTable);
+		ReportedTestResultEntry samePackage = new ReportedTestResultEntry();
+		samePackage.setQualifiedName(new String("a.b.D"), nameTable);
+		
+		assertSame(first.getQualifiedName(), second.getQualifiedName());
+		assertSame(first.getPackageName(), second.getPackageName());
+		assertSame(first.getLocalTestCaseName(), second.getLocalTestCaseName());
+		assertSame(first.getPackageName(), samePackage.getPackageName());
+		assertEquals(2, nameTable.size());
+	}
+	
+	/**
+	 * A bounded table evicts names once it is full.
+	 */
+	@Test
+	public void testBounded_evictsNames() {
+		NameTable nameTable = NameTable.bounded(10);
+		
+		for (int i = 0; i < 100; i++) {
+			new ReportedTestResultEntry().setQualifiedName("a.b.C" + i, nameTable);
+		}
+		assertTrue(nameTable.size() <= 10);
+	}
+	
+	/**
+	 * All Test Cases of a parsed report share the names of their class.
+	 */
+	@Test
+	public void testParse_sharesNamesWithinReport() {
+		String testReportPath = TestDataInfo.getImportSource().computePaths().sorted().findFirst().get();
+		
+		for (ReportParser.Engine engine : ReportParser.Engine.values()) {
+			List<ReportedTestElement> elements;
+			try (Stream<ReportedTestElement> parsedElements = new ReportParser(engine).parse(Paths.get(testReportPath))) {
+				elements = parsedElements.collect(toList());
+			}
+			
+			for (ReportedTestElement element : elements) {
+				ReportedTestElement firstWithName = elements.stream()
+					.filter(e -> e.getQualifiedName().equals(element.getQualifiedName())).findFirst().get();
+				
+				assertSame(engine.toString(), firstWithName.getQualifiedName(), element.getQualifiedName());
+				assertSame(engine.toString(), firstWithName.getPackageName(), element.getPackageName());
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.Test;
+
+import testdata.TestDataInfo;
+
+public class ReportFingerprintTest {
+
+	/**
+	 * A copy of a report has the same content, whatever its modified time. A change of a single byte is a change of
+	 * content.
+	 */
+	@Test
+	public void testOf_copiesHaveSameContent() throws Exception {
+		Path testReportPath = Paths.get(TestDataInfo.getImportSource().computePaths().sorted().findFirst().get());
+		Path copy = Files.createTempFile("TEST-copy", ".xml");
+		try {
+			Files.copy(testReportPath, copy, StandardCopyOption.REPLACE_EXISTING);
+			Files.setLastModifiedTime(copy, FileTime.fromMillis(Files.getLastModifiedTime(testReportPath).toMillis() + 60000));
+
+			ReportFingerprint original = ReportFingerprint.of(testReportPath);
+			ReportFingerprint copied = ReportFingerprint.of(copy);
+			assertEquals(Files.size(testReportPath), original.getSize());
+			assertEquals(64, original.getContentHash().length());
+			assertTrue(original.getModifiedMillis() != copied.getModifiedMillis());
+			assertTrue(copied.hasSameContent(original));
+
+			byte[] content = Files.readAllBytes(copy);
+			content[content.length / 2]++;
+			Files.write(copy, content);
+			ReportFingerprint changed = ReportFingerprint.of(copy);
+			assertEquals(original.getSize(), changed.getSize());
+			assertFalse(changed.hasSameContent(original));
+			assertFalse(changed.hasSameContent(null));
+		}
+		finally {
+			Files.delete(copy);
+		}
+	}
+
+	/**
+	 * A file with the size and modified time of its previous fingerprint isn't read again.
+	 */
+	@Test
+	public void testOf_unchangedFileIsNotHashed() throws Exception {
+		Path report = Files.createTempFile("TEST-unchanged", ".xml");
+		try {
+			Files.write(report, "<testsuite/>".getBytes("UTF-8"));
+			ReportFingerprint previous = new ReportFingerprint(Files.size(report),
+				Files.getLastModifiedTime(report).toMillis(), "not-a-hash");
+
+			assertSame(previous, ReportFingerprint.of(report, previous));
+
+			Files.setLastModifiedTime(report, FileTime.fromMillis(previous.getModifiedMillis() + 60000));
+			ReportFingerprint touched = ReportFingerprint.of(report, previous);
+			assertFalse("not-a-hash".equals(touched.getContentHash()));
+			assertEquals(ReportFingerprint.of(report).getContentHash(), touched.getContentHash());
+		}
+		finally {
+			Files.delete(report);
+		}
+	}
+}
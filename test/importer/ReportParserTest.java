@@ -4,12 +4,28 @@ import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.*;
 import importer.ReportedTestResultEntry.FailureInfo;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.joda.time.DateTime;
 import org.junit.Test;
 
 import testdata.TestDataInfo;
@@ -163,4 +179,368 @@ public class ReportParserTest {
 		assertEquals("Result has a 0.0 Time value.", "0.0", testCaseSkipped.getTime());
 		assertEquals("Result has expected status string.", ReportedTestResultEntry.STATUS_SKIPPED, testCaseSkipped.getStatus());
 	}
+	
+	/**
+	 * The cursor and event engines must produce the same elements, in the same order, for a given report.
+	 */
+	@Test
+	public void testParse_cursorEngineMatchesEventEngine() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		String testReportPath = is.computePaths().sorted().findFirst().get();
+		
+		List<String> eventElements = 
+			new ReportParser(ReportParser.Engine.EVENT).parse(Paths.get(testReportPath)).map(ReportParserTest::describe).collect(toList());
+		List<String> cursorElements = 
+			new ReportParser(ReportParser.Engine.CURSOR).parse(Paths.get(testReportPath)).map(ReportParserTest::describe).collect(toList());
+		
+		assertEquals("Engines parse the same # elements.", eventElements.size(), cursorElements.size());
+		assertEquals("Engines parse the same elements.", eventElements, cursorElements);
+	}
+	
+	@Test
+	public void testParse_scannerEngineMatchesCursorEngine() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		String testReportPath = is.computePaths().sorted().findFirst().get();
+		
+		List<String> cursorElements = 
+			new ReportParser(ReportParser.Engine.CURSOR).parse(Paths.get(testReportPath)).map(ReportParserTest::describe).collect(toList());
+		List<String> scannerElements = 
+			new ReportParser(ReportParser.Engine.SCANNER).parse(Paths.get(testReportPath)).map(ReportParserTest::describe).collect(toList());
+		
+		assertEquals("Engines parse the same elements.", cursorElements, scannerElements);
+	}
+	
+	/**
+	 * The scanner hands over to the StAX cursor when it meets content it doesn't handle (here a prefixed element name 
+	 * after the first Test Case). Elements that were scanned before the hand over are not returned twice.
+	 */
+	@Test
+	public void testParse_scannerEngineFallsBackToCursorEngine() throws Exception {
+		String report = 
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n" +
+			"<testsuite name=\"a.b.Suite\" tests=\"2\" errors=\"0\" failures=\"1\" skipped=\"0\" time=\"0.3\" timestamp=\"2014-05-19T08:45:56\">\r\n" +
+			"  <testcase classname=\"a.b.Test\" name=\"m&#x41;\ttab\" time=\"0.1\"><failure message=\"&lt;1&gt;\" type=\"E\">l1\r\nl2 &amp;" +
+			"<![CDATA[ <raw> ]]></failure></testcase>\r\n" +
+			"  <x:extension xmlns:x=\"urn:x\"/>\r\n" +
+			"  <testcase classname=\"a.b.Test\" name=\"n\" time=\"0.2\"><skipped/></testcase>\r\n" +
+			"</testsuite>\r\n";
+		
+		Path reportFile = Files.createTempFile("TEST-scanned", ".xml");
+		Files.write(reportFile, report.getBytes(StandardCharsets.UTF_8));
+		try {
+			List<String> cursorElements = new ReportParser(ReportParser.Engine.CURSOR).parse(reportFile)
+				.map(ReportParserTest::describe).collect(toList());
+			List<String> scannerElements = new ReportParser(ReportParser.Engine.SCANNER).parse(reportFile)
+				.map(ReportParserTest::describe).collect(toList());
+			
+			assertEquals(3, scannerElements.size());
+			assertEquals("Engines parse the same elements.", cursorElements, scannerElements);
+		}
+		finally {
+			Files.delete(reportFile);
+		}
+	}
+	
+	/**
+	 * Elements are parsed on demand. A report that is truncated part way through still yields the elements 
+	 * preceding the truncation point before the parse failure is raised to the consumer.
+	 */
+	@Test
+	public void testParse_isLazy() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		Path testReportPath = Paths.get(is.computePaths().sorted().findFirst().get());
+		
+		byte[] reportBytes = Files.readAllBytes(testReportPath);
+		Path truncatedReport = Files.createTempFile("TEST-truncated", ".xml");
+		Files.write(truncatedReport, Arrays.copyOf(reportBytes, reportBytes.length / 2));
+		
+		try (Stream<ReportedTestElement> parsedElements = new ReportParser().parse(truncatedReport)) {
+			Iterator<ReportedTestElement> elements = parsedElements.iterator();
+			assertTrue("1st element is the Test Suite.", elements.next() instanceof ReportedTestSuiteEntry);
+			assertTrue("2nd element is a Test Result.", elements.next() instanceof ReportedTestResultEntry);
+			
+			boolean isParseFailureRaised = false;
+			try { while (elements.hasNext()) { elements.next(); } }
+			catch (RuntimeException ex) { isParseFailureRaised = true; }
+			assertTrue("Truncation is only detected when the parse reaches it.", isParseFailureRaised);
+		}
+		finally {
+			Files.delete(truncatedReport);
+		}
+	}
+	
+	/**
+	 * Aggregated reports parsed a suite at a time in parallel should produce the same elements, 
+	 * in the same order, as a sequential parse.
+	 */
+	@Test
+	public void testParse_parallelSuitesMatchSequential() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		Path testReportPath = Paths.get(is.computePaths().sorted().findFirst().get());
+		
+		/*
+		 * Build an aggregated report from several copies of the test report's <testsuite>.
+		 */
+		String report = new String(Files.readAllBytes(testReportPath), StandardCharsets.UTF_8);
+		String suite = report.substring(report.indexOf("<testsuite"));
+		StringBuilder aggregated = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<testsuites>\n");
+		for (int i = 0; i < 5; i++) { aggregated.append(suite).append('\n'); }
+		aggregated.append("</testsuites>\n");
+		
+		Path aggregatedReport = Files.createTempFile("TEST-aggregated", ".xml");
+		Files.write(aggregatedReport, aggregated.toString().getBytes(StandardCharsets.UTF_8));
+		
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try (Stream<ReportedTestElement> sequential = new ReportParser().parse(aggregatedReport);
+			 Stream<ReportedTestElement> parallel = new ReportParser().setParallelSuiteParsing(pool, 0).parse(aggregatedReport)) {
+			
+			List<String> expected = sequential.map(ReportParserTest::describe).collect(toList());
+			List<String> actual = parallel.map(ReportParserTest::describe).collect(toList());
+			
+			assertEquals("Every suite is parsed.", 5, expected.stream().filter(d -> d.contains("TEST-aggregated")).count());
+			assertEquals(expected, actual);
+		}
+		finally {
+			pool.shutdown();
+			Files.delete(aggregatedReport);
+		}
+	}
+	
+	/**
+	 * A gzipped report is decompressed as it is parsed, and produces the same elements as the plain report.
+	 */
+	@Test
+	public void testParse_gzippedReportMatchesPlainReport() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		Path testReportPath = Paths.get(is.computePaths().sorted().findFirst().get());
+		byte[] report = Files.readAllBytes(testReportPath);
+		
+		Path gzippedReport = Files.createTempFile("TEST-gzipped", ".xml.gz");
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzippedReport))) {
+			out.write(report);
+		}
+		
+		try (Stream<ReportedTestElement> plain = new ReportParser().parse(testReportPath);
+			 Stream<ReportedTestElement> gzipped = new ReportParser(ReportParser.Engine.SCANNER).parse(gzippedReport)) {
+			
+			assertEquals(
+				plain.map(ReportParserTest::describeContent).collect(toList()), 
+				gzipped.map(ReportParserTest::describeContent).collect(toList()));
+		}
+		finally {
+			Files.delete(gzippedReport);
+		}
+	}
+	
+	/**
+	 * Each report entry in a zip or tar archive is parsed as a report in its own right. Other entries are skipped.
+	 */
+	@Test
+	public void testParse_archivedReportsAreParsedPerEntry() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		Path testReportPath = Paths.get(is.computePaths().sorted().findFirst().get());
+		byte[] report = Files.readAllBytes(testReportPath);
+		byte[] gzippedReport = gzip(report);
+		
+		List<String> expected;
+		try (Stream<ReportedTestElement> plain = new ReportParser().parse(testReportPath)) {
+			expected = plain.map(ReportParserTest::describeContent).collect(toList());
+		}
+		
+		Path zipArchive = Files.createTempFile("bundle", ".zip");
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(zipArchive))) {
+			zip.putNextEntry(new ZipEntry("reports/"));
+			zip.putNextEntry(new ZipEntry("reports/TEST-a.xml"));
+			zip.write(report);
+			zip.putNextEntry(new ZipEntry("reports/index.html"));
+			zip.write("<html/>".getBytes(StandardCharsets.UTF_8));
+			zip.putNextEntry(new ZipEntry("TEST-b.xml.gz"));
+			zip.write(gzippedReport);
+		}
+		
+		Path tarArchive = Files.createTempFile("bundle", ".tar.gz");
+		try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GZIPOutputStream(Files.newOutputStream(tarArchive)))) {
+			tar.putArchiveEntry(new TarArchiveEntry("reports/"));
+			tar.closeArchiveEntry();
+			for (String name : new String[] { "reports/TEST-a.xml", "reports/index.html", "TEST-b.xml.gz" }) {
+				byte[] content = name.endsWith(".gz") ? gzippedReport : name.endsWith(".xml") ? report : new byte[1];
+				TarArchiveEntry entry = new TarArchiveEntry(name);
+				entry.setSize(content.length);
+				tar.putArchiveEntry(entry);
+				tar.write(content);
+				tar.closeArchiveEntry();
+			}
+		}
+		
+		try {
+			for (Path archive : new Path[] { zipArchive, tarArchive }) {
+				try (Stream<ReportedTestElement> archived = new ReportParser().parse(archive)) {
+					List<ReportedTestElement> elements = archived.collect(toList());
+					
+					List<String> expectedBoth = Stream.concat(expected.stream(), expected.stream()).collect(toList());
+					assertEquals(expectedBoth, elements.stream().map(ReportParserTest::describeContent).collect(toList()));
+					
+					List<String> suiteFiles = elements.stream().filter(e -> e instanceof ReportedTestSuiteEntry)
+						.map(e -> ((ReportedTestSuiteEntry)e).getContainingFile()).collect(toList());
+					String archiveName = archive.getFileName().toString();
+					assertEquals(Arrays.asList(archiveName + "!/reports/TEST-a.xml", archiveName + "!/TEST-b.xml.gz"), suiteFiles);
+				}
+			}
+		}
+		finally {
+			Files.delete(zipArchive);
+			Files.delete(tarArchive);
+		}
+	}
+	
+	/**
+	 * Parsing to a sink pushes the same values, in the same order, as the elements of the parsed Stream. 
+	 */
+	@Test
+	public void testParse_sinkReceivesSameElementsAsStream() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		Path testReportPath = Paths.get(is.computePaths().sorted().findFirst().get());
+		
+		for (ReportParser.Engine engine : ReportParser.Engine.values()) {
+			List<String> expected;
+			try (Stream<ReportedTestElement> parsed = new ReportParser(engine).parse(testReportPath)) {
+				expected = parsed.map(ReportParserTest::describe).collect(toList());
+			}
+			
+			List<String> pushed = new ArrayList<>();
+			int pushedCount = new ReportParser(engine).parse(testReportPath, describingSink(pushed));
+			
+			assertEquals(engine + " pushes every element.", expected.size(), pushedCount);
+			assertEquals(engine + " pushes the same elements.", expected, pushed);
+		}
+	}
+	
+	/**
+	 * A report that is still being written is parsed a part at a time, each part resuming from the previous part's 
+	 * checkpoint. Every element is pushed exactly once, in document order, wherever the report was cut off. Content that 
+	 * the scanner doesn't handle is handed over to the cursor once the report is complete.
+	 */
+	@Test
+	public void testParse_resumesReportThatIsStillBeingWritten() throws Exception {
+		ImportSource is = TestDataInfo.getImportSource();
+		byte[] testReport = Files.readAllBytes(Paths.get(is.computePaths().sorted().findFirst().get()));
+		byte[] unsupportedReport = (
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+			"<testsuites>\n" +
+			" <testsuite name=\"a.b.Suite\" tests=\"2\" errors=\"0\" failures=\"1\" time=\"0.3\" timestamp=\"2014-05-19T08:45:56\">\n" +
+			"  <testcase classname=\"a.b.Test\" name=\"m\" time=\"0.1\"><failure message=\"&lt;1&gt;\" type=\"E\">l1\nl2</failure></testcase>\n" +
+			"  <x:extension xmlns:x=\"urn:x\"/>\n" +
+			"  <testcase classname=\"a.b.Test\" name=\"n\" time=\"0.2\"><skipped/></testcase>\n" +
+			" </testsuite>\n" +
+			"</testsuites>\n").getBytes(StandardCharsets.UTF_8);
+		
+		for (byte[] report : Arrays.asList(testReport, unsupportedReport)) {
+			Path reportFile = Files.createTempFile("TEST-tailed", ".xml");
+			try {
+				Files.write(reportFile, report);
+				List<String> expected = new ArrayList<>();
+				new ReportParser(ReportParser.Engine.CURSOR).parse(reportFile, describingSink(expected));
+				
+				Files.write(reportFile, new byte[0]);
+				ReportParser parser = new ReportParser();
+				List<String> pushed = new ArrayList<>();
+				ReportCheckpoint checkpoint = ReportCheckpoint.START;
+				for (int written = 0; written < report.length; ) {
+					int length = Math.min(37, report.length - written);
+					try (OutputStream out = Files.newOutputStream(reportFile, StandardOpenOption.APPEND)) {
+						out.write(report, written, length);
+					}
+					written += length;
+					
+					assertFalse("Parsing stops at the end of the written content.", checkpoint.isComplete());
+					checkpoint = parser.parse(reportFile, checkpoint, describingSink(pushed));
+					assertEquals(pushed.size(), checkpoint.getElementCount());
+				}
+				
+				assertTrue("The report is parsed in its entirety.", checkpoint.isComplete());
+				assertEquals("Every element is pushed once.", expected, pushed);
+			}
+			finally {
+				Files.delete(reportFile);
+			}
+		}
+	}
+	
+	/*
+	 * A sink that describes each element pushed to it, see describe().
+	 */
+	private static ReportSink describingSink(List<String> described) {
+		return new ElementCollector(StorageIdGenerator.random()) {
+			@Override
+			public void testSuite(String qualifiedName, String packageName, String localName, String time, long durationMicros, 
+					Path containingFolder, String containingFile, DateTime timestamp, long testsRun, long totalFailures, 
+					long totalErrors, long totalSkipped) {
+				super.testSuite(qualifiedName, packageName, localName, time, durationMicros, containingFolder, containingFile, 
+					timestamp, testsRun, totalFailures, totalErrors, totalSkipped);
+				described.add(describe(getElement()));
+			}
+			
+			@Override
+			public void testCase(String qualifiedName, String packageName, String localName, String methodName, 
+					String time, long durationMicros, boolean isSkipped, FailureInfo.Type failureType, String failureMessage, 
+					String exceptionName, FailureDetails failureDetails) {
+				super.testCase(qualifiedName, packageName, localName, methodName, time, durationMicros, isSkipped, failureType, 
+					failureMessage, exceptionName, failureDetails);
+				described.add(describe(getElement()));
+			}
+		};
+	}
+	
+	private static byte[] gzip(byte[] content) throws IOException {
+		Path gzipped = Files.createTempFile("TEST-gzipped", ".gz");
+		try {
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipped))) {
+				out.write(content);
+			}
+			return Files.readAllBytes(gzipped);
+		}
+		finally {
+			Files.delete(gzipped);
+		}
+	}
+	
+	/*
+	 * Summarise an element as describe() does, but without the folder / file that suites are attributed to.
+	 */
+	static String describeContent(ReportedTestElement element) {
+		if (!(element instanceof ReportedTestSuiteEntry)) return describe(element);
+		
+		String[] fields = describe(element).split("\\|", -1);
+		fields[4] = fields[5] = "";
+		return String.join("|", fields);
+	}
+	
+	/*
+	 * Summarise the parsed content of an element. Storage IDs are excluded as they are generated per parse.
+	 */
+	static String describe(ReportedTestElement element) {
+		StringBuilder sb = new StringBuilder()
+			.append(element.getQualifiedName()).append("|")
+			.append(element.getPackageName()).append("|")
+			.append(element.getLocalTestCaseName()).append("|")
+			.append(element.getTime());
+		
+		if (element instanceof ReportedTestSuiteEntry) {
+			ReportedTestSuiteEntry suite = (ReportedTestSuiteEntry)element;
+			sb.append("|").append(suite.getContainingFolder()).append("|").append(suite.getContainingFile())
+				.append("|").append(suite.getTimestamp()).append("|").append(suite.getTestsRun())
+				.append("|").append(suite.getTotalErrors()).append("|").append(suite.getTotalFailures())
+				.append("|").append(suite.getTotalSkipped());
+		}
+		else {
+			ReportedTestResultEntry result = (ReportedTestResultEntry)element;
+			sb.append("|").append(result.getMethodName()).append("|").append(result.getStatus());
+			FailureInfo fi = result.getFailureInfo();
+			if (fi != null) {
+				sb.append("|").append(fi.getExceptionName()).append("|").append(fi.getMessage())
+					.append("|").append(fi.getDetails()).append("|").append(fi.getFailureType());
+			}
+		}
+		return sb.append("|").append(element.getDurationMicros()).toString();
+	}
 }
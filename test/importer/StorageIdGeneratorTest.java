@@ -0,0 +1,72 @@
+package importer;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import testdata.TestDataInfo;
+
+public class StorageIdGeneratorTest {
+
+	/**
+	 * Ids are version 7 UUIDs that increase strictly, in their String form too, so they stay append-ordered in an index.
+	 */
+	@Test
+	public void testTimeOrdered_idsIncrease() {
+		StorageIdGenerator storageIds = StorageIdGenerator.timeOrdered();
+		long startMillis = System.currentTimeMillis();
+		
+		UUID previous = storageIds.nextId();
+		for (int i = 0; i < 100000; i++) {
+			UUID id = storageIds.nextId();
+			assertEquals(7, id.version());
+			assertEquals(2, id.variant());
+			assertTrue("Ids increase.", id.toString().compareTo(previous.toString()) > 0);
+			previous = id;
+		}
+		
+		long idMillis = previous.getMostSignificantBits() >>> 16;
+		assertTrue("Ids carry the time they were generated.", idMillis >= startMillis);
+	}
+	
+	@Test
+	public void testTimeOrdered_idsAreUniqueAcrossThreads() {
+		StorageIdGenerator storageIds = StorageIdGenerator.timeOrdered();
+		
+		List<UUID> ids = IntStream.range(0, 200000).parallel().mapToObj(i -> storageIds.nextId()).collect(toList());
+		
+		assertEquals(ids.size(), new HashSet<>(ids).size());
+	}
+	
+	/**
+	 * Parsed elements are given ids by the parser's generator, in document order.
+	 */
+	@Test
+	public void testParse_elementsTakeIdsFromGenerator() throws Exception {
+		Path testReportPath = Paths.get(TestDataInfo.getImportSource().computePaths().sorted().findFirst().get());
+		StorageIdGenerator storageIds = StorageIdGenerator.timeOrdered();
+		
+		UUID previous = storageIds.nextId();
+		List<UUID> parsedIds;
+		try (Stream<ReportedTestElement> elements = new ReportParser().setStorageIdGenerator(storageIds).parse(testReportPath)) {
+			parsedIds = elements.map(ReportedTestElement::getStorageId).collect(toList());
+		}
+		
+		assertTrue(parsedIds.size() > 1);
+		for (UUID id : parsedIds) {
+			assertTrue(id.compareTo(previous) > 0);
+			previous = id;
+		}
+		assertTrue(storageIds.nextId().compareTo(previous) > 0);
+	}
+}
@@ -1,7 +1,10 @@
 package importer.integration;
 
+import importer.integration.bulkdata.BulkImportEngineBulkTest;
 import importer.integration.bulkdata.ImportSourceBulkTest;
 import importer.integration.bulkdata.ReportParserBulkTest;
+import importer.jdbc.BatchJdbcImporterTest;
+import importer.jdbc.MultiRowJdbcImporterTest;
 
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
@@ -10,7 +13,10 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({ 
 	ImportSourceBulkTest.class,
-	ReportParserBulkTest.class
+	ReportParserBulkTest.class,
+	BulkImportEngineBulkTest.class,
+	BatchJdbcImporterTest.class,
+	MultiRowJdbcImporterTest.class
 })
 
 /**
@@ -0,0 +1,94 @@
+package importer.integration.bulkdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import folderManager.IFolderData;
+import folderManager.JdbcFolderData;
+import importer.BulkImportEngine;
+import importer.FileImportResult;
+import importer.ImportSource;
+import importer.ReportParser;
+import importer.StorageIdGenerator;
+import importer.integration.bulkdata.BulkTestReportGenerator.BulkDataInfo;
+import importer.jdbc.BatchJdbcImporter;
+import importer.jdbc.MultiRowJdbcImporter;
+
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import utils.H2DataSource;
+
+import com.google.common.collect.Lists;
+import com.jolbox.bonecp.BoneCPDataSource;
+
+/**
+ * Imports the bulk test data set through {@link BulkImportEngine}.
+ */
+public class BulkImportEngineBulkTest {
+	
+	private static BulkDataInfo bulkTestData = null;
+	
+	private static BoneCPDataSource DS = null;
+		
+	@BeforeClass
+	public static void setUp() throws Exception {
+		DS = H2DataSource.create();
+		H2DataSource.clear(DS);
+		bulkTestData = BulkTestReportGenerator.initialiseTestReportStructure();
+	}
+	
+	@AfterClass
+	public static void tearDown() {
+		DS.close();
+	}
+
+	@Test
+	public void testImportFrom() throws Exception {
+		
+		final IFolderData folderData = new JdbcFolderData(DS);
+		assertImportsBulkData(new BulkImportEngine(new ReportParser(), Lists.newArrayList(
+			new BatchJdbcImporter(DS, folderData, 1000),
+			new BatchJdbcImporter(DS, folderData, 1000)), 4));
+	}
+	
+	/**
+	 * Small files imported several to a transaction are imported in full.
+	 */
+	@Test
+	public void testImportFrom_smallFileTransactions() throws Exception {
+		
+		final IFolderData folderData = new JdbcFolderData(DS);
+		assertImportsBulkData(new BulkImportEngine(new ReportParser(), Lists.newArrayList(
+			new BatchJdbcImporter(DS, folderData, 1000),
+			new BatchJdbcImporter(DS, folderData, 1000)), 4)
+			.setSmallFileTransactions(Long.MAX_VALUE, 10));
+	}
+	
+	/**
+	 * Multi-row INSERTs import every Test Case, including those that don't fill a statement.
+	 */
+	@Test
+	public void testImportFrom_multiRowInsert() throws Exception {
+		
+		final IFolderData folderData = new JdbcFolderData(DS);
+		assertImportsBulkData(new BulkImportEngine(new ReportParser(), Lists.newArrayList(
+			new MultiRowJdbcImporter(DS, folderData, StorageIdGenerator.timeOrdered(), 1000, 7),
+			new MultiRowJdbcImporter(DS, folderData, StorageIdGenerator.timeOrdered(), 1000, 7)), 4));
+	}
+	
+	private void assertImportsBulkData(BulkImportEngine engine) {
+		final List<FileImportResult> results = engine.importFrom(new ImportSource(bulkTestData.rootFolder.getAbsolutePath()));
+		engine.shutDown();
+		
+		int expectedFileCount = bulkTestData.subFolderCount * bulkTestData.reportFilesPerSubfolderCount;
+		assertEquals("A result is reported for every file.", expectedFileCount, results.size());
+		assertTrue("Every file was imported successfully.", results.stream().allMatch(FileImportResult::isSuccessful));
+		
+		int expectedTestCount = expectedFileCount * bulkTestData.testResultsPerTestReportCount;
+		int actualImportedTestResultCount = results.stream().mapToInt(FileImportResult::getImportedEntryCount).sum();
+		assertEquals("Expected number of test result records where imported.", expectedTestCount, actualImportedTestResultCount);
+	}
+}
@@ -0,0 +1,77 @@
+package importer.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class AdaptiveBatchSizeTest {
+
+	/**
+	 * Batches cost a fixed round trip plus a cost per row that grows once a batch is larger than 2000 rows (e.g. as the
+	 * driver's buffers spill), so rows/sec is best at around 2000 rows. The size settles near it from either side.
+	 */
+	@Test
+	public void testRecord_sizeSettlesNearBestSize() {
+		for (int initialSize : new int[] { 100, 50000 }) {
+			AdaptiveBatchSize batchSizes = new AdaptiveBatchSize(initialSize, 10, 100000);
+			for (int i = 0; i < 400; i++) {
+				int size = batchSizes.getSize();
+				batchSizes.record(size, cost(size, 2000));
+			}
+			int size = batchSizes.getSize();
+			assertTrue("From " + initialSize + " the size settled at " + size, size > 1000 && size < 4000);
+			assertTrue(batchSizes.getRowsPerSecond() > 0);
+		}
+	}
+
+	/**
+	 * When rows get much wider, and the best size smaller, the search restarts and follows it.
+	 */
+	@Test
+	public void testRecord_sizeFollowsChangeOfWorkload() {
+		AdaptiveBatchSize batchSizes = new AdaptiveBatchSize(1000, 10, 100000);
+		for (int i = 0; i < 400; i++) {
+			int size = batchSizes.getSize();
+			batchSizes.record(size, cost(size, 2000));
+		}
+		for (int i = 0; i < 400; i++) {
+			int size = batchSizes.getSize();
+			batchSizes.record(size, 20 * cost(size, 100));
+		}
+		int size = batchSizes.getSize();
+		assertTrue("The size settled at " + size, size > 50 && size < 400);
+	}
+
+	/**
+	 * The size stays within its bounds, and below the size at which batches take longer than the maximum latency.
+	 */
+	@Test
+	public void testRecord_sizeIsBounded() {
+		AdaptiveBatchSize batchSizes = new AdaptiveBatchSize(1000000, 10, 5000);
+		assertEquals(5000, batchSizes.getSize());
+		for (int i = 0; i < 400; i++) {
+			int size = batchSizes.getSize();
+			batchSizes.record(size, 1000000 + size * 1000L);
+			assertTrue(size >= 10 && size <= 5000);
+		}
+
+		batchSizes = new AdaptiveBatchSize(5000, 10, 100000).setMaxBatchMillis(100);
+		for (int i = 0; i < 400; i++) {
+			int size = batchSizes.getSize();
+			batchSizes.record(size, size * 100000L);
+		}
+		assertTrue("The size settled at " + batchSizes.getSize(), batchSizes.getSize() <= 2000);
+	}
+
+	/*
+	 * 1ms per round trip, 10us per row, rising steeply for the rows over the best size.
+	 */
+	private static long cost(int size, int bestSize) {
+		long nanos = 1000000 + size * 10000L;
+		if (size > bestSize) {
+			nanos += (long)(size - bestSize) * (size - bestSize) * 50L;
+		}
+		return nanos;
+	}
+}
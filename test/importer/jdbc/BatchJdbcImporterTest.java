@@ -0,0 +1,519 @@
+package importer.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import folderManager.JdbcFolderData;
+import importer.FailureDetailsPolicy;
+import importer.FileImportResult;
+import importer.IBatchImporter;
+import importer.ImportPipeline;
+import importer.ReportCheckpoint;
+import importer.ReportParser;
+import importer.ReportedTestElement;
+import query.JdbcQueryService;
+import query.JsonResulSet;
+import utils.H2DataSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.jolbox.bonecp.BoneCPDataSource;
+
+/**
+ * Imports reports to the test database, see {@link H2DataSource}.
+ */
+public class BatchJdbcImporterTest {
+
+	private final BoneCPDataSource DS;
+	private Path reportFolder;
+
+	public BatchJdbcImporterTest() {
+		DS = H2DataSource.create();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		H2DataSource.clear(DS);
+		reportFolder = Files.createTempDirectory("batch-import");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(reportFolder)) {
+			for (Path file : (Iterable<Path>)files.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	/**
+	 * Test Cases that are batched after their Test Suite has been sent to the database still refer to the suite.
+	 */
+	@Test
+	public void testDoImport_suiteIdIsResolvedAcrossBatches() throws IOException {
+		Path report = reportFolder.resolve("TEST-AllTests.xml");
+		Files.write(report, ("<testsuites>" + suite("a.b.First", 5, i -> null) + suite("a.b.Second", 5, i -> null) +
+			"</testsuites>").getBytes(StandardCharsets.UTF_8));
+
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 3)) {
+			importer.doImport(report, new ReportParser());
+		}
+
+		String casesOfSuiteSQL = "select count(*) from TestEntry e join TestSuite s on s.id = e.suite_Id " +
+			"where s.className = ? and e.className = ?";
+		assertEquals(5, queryLong(casesOfSuiteSQL, "First", "a.b.First"));
+		assertEquals(5, queryLong(casesOfSuiteSQL, "Second", "a.b.Second"));
+		assertEquals(10, queryLong("select count(*) from TestEntry"));
+	}
+
+	/**
+	 * A Test Suite that is inserted without a key takes a block of its own from the key sequence, so it doesn't
+	 * collide with the keys that importers have reserved.
+	 */
+	@Test
+	public void testDoImport_defaultSuiteIdDoesNotCollide() throws IOException {
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)) {
+			importer.doImport(writeReport("TEST-a.b.First.xml", suite("a.b.First", 2, i -> null)), new ReportParser());
+			update("insert into TestSuite (className, folder_Id) select 'Inserted', id from Folder");
+			importer.doImport(writeReport("TEST-a.b.Second.xml", suite("a.b.Second", 2, i -> null)), new ReportParser());
+		}
+
+		assertEquals(3, queryLong("select count(distinct id) from TestSuite"));
+		assertEquals(1, queryLong("select count(*) from TestSuite where className = 'Inserted' and " +
+			"id > (select max(id) from TestSuite where className <> 'Inserted')"));
+	}
+
+	/**
+	 * A report is replaced on one thread while the importer writes another report on the pipeline's writer thread. 
+	 * Both share the importer's session, so the replace waits until the import is done, and both succeed.
+	 */
+	@Test
+	public void testDoReplace_duringPipelinedImport() throws Exception {
+		Path large = writeReport("TEST-a.b.Large.xml", suite("a.b.Large", 20000, i -> null));
+		Path small = writeReport("TEST-a.b.Small.xml", suite("a.b.Small", 2, i -> null));
+
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100).setSessionMaxImports(10)) {
+			importer.doImport(small, new ReportParser());
+			final CountDownLatch isImporting = new CountDownLatch(1);
+			final IBatchImporter writer = new LatchedWriter(importer, 1000, isImporting, 0);
+			try (ImportPipeline pipeline = new ImportPipeline(new ReportParser(), Collections.singletonList(writer), 1, 100)) {
+				CompletableFuture<FileImportResult> imported = pipeline.submit(large);
+				assertTrue(isImporting.await(30, TimeUnit.SECONDS));
+
+				assertEquals(2, importer.doReplace(small, new ReportParser()));
+				assertTrue(imported.isDone());
+				assertTrue(imported.get().toString(), imported.get().isSuccessful());
+				assertEquals(20000, imported.get().getImportedEntryCount());
+			}
+		}
+
+		assertEquals(20000, queryLong("select count(*) from TestEntry where className = 'a.b.Large'"));
+		assertEquals(2, queryLong("select count(*) from TestEntry where className = 'a.b.Small'"));
+		assertEquals(1, queryLong("select count(*) from TestSuite where className = 'Small'"));
+	}
+
+	/**
+	 * A report is replaced on one shard while another shard imports a large report. The import holds its table locks
+	 * for longer than the database's lock timeout (1s by default), so the replace must wait until the import is done
+	 * rather than for the locks. Both succeed.
+	 */
+	@Test
+	public void testShardedDoReplace_duringImportOnAnotherShard() throws Exception {
+		try (ShardedJdbcImporter importer = new ShardedJdbcImporter(DS, 2, 10, 
+				fd -> new BatchJdbcImporter(DS, fd, 100))) {
+			final Path largeFolder = Files.createDirectory(reportFolder.resolve("large"));
+			Path smallFolder = null;
+			for (int i = 0; smallFolder == null; i++) {
+				Path folder = reportFolder.resolve("small-" + i);
+				if (importer.shardOf(folder) != importer.shardOf(largeFolder)) { smallFolder = Files.createDirectory(folder); }
+			}
+			final Path large = Files.write(largeFolder.resolve("TEST-a.b.Large.xml"), 
+				suite("a.b.Large", 20000, i -> null).getBytes(StandardCharsets.UTF_8));
+			final Path small = Files.write(smallFolder.resolve("TEST-a.b.Small.xml"), 
+				suite("a.b.Small", 2, i -> null).getBytes(StandardCharsets.UTF_8));
+			importer.doImport(small, new ReportParser());
+
+			final CountDownLatch isImporting = new CountDownLatch(1);
+			final IBatchImporter writer = new LatchedWriter(importer, 1000, isImporting, 3000);
+			CompletableFuture<Integer> imported = CompletableFuture.supplyAsync(
+				() -> writer.doImport(new ReportParser().parse(large)));
+			assertTrue(isImporting.await(30, TimeUnit.SECONDS));
+
+			assertEquals(2, importer.doReplace(small, new ReportParser()));
+			assertTrue(imported.isDone());
+			assertEquals(20000, imported.get().intValue());
+		}
+
+		assertEquals(20000, queryLong("select count(*) from TestEntry where className = 'a.b.Large'"));
+		assertEquals(2, queryLong("select count(*) from TestEntry where className = 'a.b.Small'"));
+		assertEquals(1, queryLong("select count(*) from TestSuite where className = 'Small'"));
+	}
+
+	/**
+	 * A report is replaced by its modified content, in place of the data of its previous import.
+	 */
+	@Test
+	public void testDoReplace_replacesTheDataOfTheReport() throws IOException {
+		Path report = writeReport("TEST-a.b.First.xml", suite("a.b.First", 1, i -> null));
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)) {
+			importer.doImport(report, new ReportParser());
+			writeReport("TEST-a.b.First.xml", suite("a.b.First", 3, i -> null));
+			assertEquals(3, importer.doReplace(report, new ReportParser()));
+		}
+
+		assertEquals(3, queryLong("select count(*) from TestEntry where className = 'a.b.First'"));
+		assertEquals(1, queryLong("select count(*) from TestSuite"));
+	}
+
+	/**
+	 * A report of more Test Cases than are deleted per statement is deleted in several chunks, and the other reports 
+	 * of its folder are kept.
+	 */
+	@Test
+	public void testDoDelete_reportLargerThanAChunk() throws IOException {
+		Path large = writeReport("TEST-a.b.Large.xml", suite("a.b.Large", 25000, i -> null));
+		Path small = writeReport("TEST-a.b.Small.xml", suite("a.b.Small", 2, i -> null));
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 1000)) {
+			importer.doImport(Arrays.asList(large, small), new ReportParser());
+			assertEquals(25000, importer.doDelete(large));
+		}
+
+		assertEquals(0, queryLong("select count(*) from TestEntry where className = 'a.b.Large'"));
+		assertEquals(2, queryLong("select count(*) from TestEntry where className = 'a.b.Small'"));
+		assertEquals(1, queryLong("select count(*) from TestSuite"));
+	}
+
+	/**
+	 * The entries of an archive are found by a pattern of its name, in which '_' and '%' are matched literally.
+	 */
+	@Test
+	public void testDoDelete_archiveNameIsMatchedLiterally() throws IOException {
+		Path underscored = writeArchive("TEST-a_b.zip", "TEST-x.xml", suite("a.b.Underscored", 1, i -> null));
+		writeArchive("TEST-aXb.zip", "TEST-x.xml", suite("a.b.Kept", 1, i -> null));
+		Path percent = writeArchive("TEST-a%.zip", "TEST-x.xml", suite("a.b.Percent", 1, i -> null));
+		writeArchive("TEST-ab.zip", "TEST-x.xml", suite("a.b.AlsoKept", 1, i -> null));
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)) {
+			importer.doImport(listReports(), new ReportParser());
+			assertEquals(1, importer.doDelete(underscored));
+			assertEquals(1, importer.doDelete(percent));
+		}
+
+		assertEquals(Arrays.asList("a.b.AlsoKept", "a.b.Kept"), queryClassNames());
+	}
+
+	/**
+	 * A report whose name starts with the name of a deleted archive isn't taken to be one of its entries.
+	 */
+	@Test
+	public void testDoDelete_siblingSharingPrefixIsKept() throws IOException {
+		Path archive = writeArchive("TEST-a.zip", "TEST-x.xml", suite("a.b.Deleted", 1, i -> null));
+		writeArchive("TEST-a.zip.zip", "TEST-x.xml", suite("a.b.KeptArchive", 1, i -> null));
+		writeReport("TEST-a.zip.xml", suite("a.b.KeptReport", 1, i -> null));
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)) {
+			importer.doImport(listReports(), new ReportParser());
+			assertEquals(1, importer.doDelete(archive));
+		}
+
+		assertEquals(Arrays.asList("a.b.KeptArchive", "a.b.KeptReport"), queryClassNames());
+	}
+
+	/**
+	 * The details of a failing Test Case are read back by the query of the UI's Test Run view.
+	 */
+	@Test
+	public void testDoImport_detailsAreReadByTheUI() throws IOException {
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)) {
+			importer.doImport(writeReport("TEST-a.b.First.xml", suite("a.b.First", 3, i -> i == 1 ? "at a.b.First.m1" : null)), 
+				new ReportParser());
+		}
+
+		List<List<String>> rows = queryUI("SELECT * FROM TESTENTRYDETAIL WHERE STATUS != 'PASS' AND SUITE_ID = " + 
+			queryLong("select id from TestSuite"));
+		assertEquals(1, rows.size());
+		assertEquals("m1", rows.get(0).get(3));
+		assertEquals("at a.b.First.m1", rows.get(0).get(8));
+	}
+
+	/**
+	 * Details over the codec's threshold are packed, and come back unpacked through the UI's query, whether they were
+	 * held in memory or spilled to a file while the report was parsed. The spilled and packed files are deleted.
+	 */
+	@Test
+	public void testDoImport_packedDetailsAreReadByTheUI() throws IOException {
+		final String inMemory = packableDetail("a.b.First.m0");
+		final String spilled = packableDetail("a.b.First.m1") + packableDetail("a.b.First.m1");
+		Path report = writeReport("TEST-a.b.First.xml", suite("a.b.First", 2, i -> i == 0 ? inMemory : spilled));
+		ReportParser parser = new ReportParser().setFailureDetailsPolicy(
+			new FailureDetailsPolicy(inMemory.length(), Long.MAX_VALUE, reportFolder, "..."));
+
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)
+				.setDetailCodec(new TextCodec(100))) {
+			importer.doImport(report, parser);
+		}
+
+		assertEquals(2, queryLong("select count(*) from FailureDetail where detail is null and packedDetail is not null"));
+		List<List<String>> rows = queryUI("SELECT * FROM TESTENTRYDETAIL ORDER BY METHODNAME");
+		assertEquals(2, rows.size());
+		assertNull(rows.get(0).get(8));
+		assertEquals(inMemory, rows.get(0).get(12));
+		assertEquals(spilled, rows.get(1).get(12));
+		try (Stream<Path> files = Files.list(reportFolder)) {
+			assertEquals(Collections.singletonList(report), files.collect(Collectors.toList()));
+		}
+	}
+
+	/**
+	 * A detail that fails several Test Cases of a batch is stored once.
+	 */
+	@Test
+	public void testDoImport_detailIsStoredOncePerBatch() throws IOException {
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)) {
+			importer.doImport(writeReport("TEST-a.b.First.xml", suite("a.b.First", 3, i -> "at a.b.C")), new ReportParser());
+		}
+
+		assertEquals(1, queryLong("select count(*) from FailureDetail"));
+		assertEquals(3, queryLong("select count(*) from TestEntryDetail where failDetail = 'at a.b.C'"));
+	}
+
+	/**
+	 * A detail that was stored by an earlier import, of the same importer or of another one, is referred to rather 
+	 * than stored again.
+	 */
+	@Test
+	public void testDoImport_detailIsStoredOnceAcrossImports() throws IOException {
+		Path first = writeReport("TEST-a.b.First.xml", suite("a.b.First", 1, i -> "at a.b.C"));
+		Path second = writeReport("TEST-a.b.Second.xml", suite("a.b.Second", 1, i -> "at a.b.C"));
+		Path third = writeReport("TEST-a.b.Third.xml", suite("a.b.Third", 1, i -> "at a.b.C"));
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)) {
+			importer.doImport(first, new ReportParser());
+			importer.doImport(second, new ReportParser());
+		}
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 100)) {
+			importer.doImport(third, new ReportParser());
+		}
+
+		assertEquals(1, queryLong("select count(*) from FailureDetail"));
+		assertEquals(3, queryLong("select count(*) from TestEntryDetail where failDetail = 'at a.b.C'"));
+	}
+
+	/**
+	 * The details of an import that is rolled back aren't taken to be stored, so a later import stores them.
+	 */
+	@Test
+	public void testDoImport_rolledBackDetailIsStoredAgain() throws IOException {
+		Path failing = writeReport("TEST-a.b.Failing.xml", "<testsuites>" + suite("a.b.Failing", 2, i -> "at a.b.C") + 
+			"<testsuite name=\"broken\">");
+		Path valid = writeReport("TEST-a.b.Valid.xml", suite("a.b.Valid", 1, i -> "at a.b.C"));
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 1)) {
+			try {
+				importer.doImport(failing, new ReportParser());
+				fail("The import of a malformed report fails.");
+			}
+			catch(RuntimeException ex) {
+				assertEquals(0, queryLong("select count(*) from FailureDetail"));
+			}
+			importer.doImport(valid, new ReportParser());
+		}
+
+		assertEquals(1, queryLong("select count(*) from FailureDetail"));
+		assertEquals(1, queryLong("select count(*) from TestEntryDetail where failDetail = 'at a.b.C'"));
+	}
+
+	/*
+	 * A stack trace of 100 frames in the given method.
+	 */
+	static String packableDetail(String method) {
+		StringBuilder detail = new StringBuilder("java.lang.AssertionError\n");
+		for (int i = 0; i < 100; i++) {
+			detail.append("\tat ").append(method).append("(Test.java:").append(i).append(")\n");
+		}
+		return detail.toString();
+	}
+
+	/*
+	 * Imports elements with the importer, opening the latch once the given # of elements has been pulled, i.e. while 
+	 * the import is in progress. The import then pauses for the given time, holding whatever it has locked.
+	 */
+	static class LatchedWriter implements IBatchImporter {
+		private final IBatchImporter importer;
+		private final int elementCount;
+		private final CountDownLatch latch;
+		private final long pauseMillis;
+
+		LatchedWriter(IBatchImporter importer, int elementCount, CountDownLatch latch, long pauseMillis) {
+			this.importer = importer;
+			this.elementCount = elementCount;
+			this.latch = latch;
+			this.pauseMillis = pauseMillis;
+		}
+
+		@Override
+		public int doImport(Stream<ReportedTestElement> testCaseEntries) {
+			final AtomicInteger pulledCount = new AtomicInteger();
+			return importer.doImport(testCaseEntries.peek(element -> {
+				if (pulledCount.incrementAndGet() == elementCount) { 
+					latch.countDown();
+					Uninterruptibles.sleepUninterruptibly(pauseMillis, TimeUnit.MILLISECONDS);
+				}
+			}));
+		}
+
+		@Override
+		public int doImport(Path report, ReportParser parser) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ReportCheckpoint doImport(Path report, ReportParser parser, ReportCheckpoint from) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int doReplace(Path report, ReportParser parser) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public int doDelete(Path report) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/*
+	 * Runs the query as the UI does, see {@link JdbcQueryService}, and returns the values of each row.
+	 */
+	@SuppressWarnings("unchecked")
+	List<List<String>> queryUI(String sql) throws IOException {
+		final ObjectMapper mapper = new ObjectMapper();
+		final JsonResulSet rs = JsonResulSet.initialiseFrom(new JdbcQueryService(DS).runQuery(sql));
+		final List<List<String>> rows = new ArrayList<>();
+		for (String row : (Iterable<String>)rs.rowsAsStream()::iterator) {
+			rows.add((List<String>)mapper.readValue(row, Map.class).get("row"));
+		}
+		return rows;
+	}
+
+	/*
+	 * Writes a report of the given content to the report folder.
+	 */
+	Path writeReport(String fileName, String content) throws IOException {
+		return Files.write(reportFolder.resolve(fileName), content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/*
+	 * Writes a zip archive of a single report to the report folder.
+	 */
+	Path writeArchive(String fileName, String entryName, String content) throws IOException {
+		Path archive = reportFolder.resolve(fileName);
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive), StandardCharsets.UTF_8)) {
+			zip.putNextEntry(new ZipEntry(entryName));
+			zip.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+		return archive;
+	}
+
+	/*
+	 * The reports and archives in the report folder, by name.
+	 */
+	List<Path> listReports() throws IOException {
+		try (Stream<Path> files = Files.list(reportFolder)) {
+			return files.sorted().collect(Collectors.toList());
+		}
+	}
+
+	/*
+	 * The distinct class names of the stored Test Cases, in order.
+	 */
+	List<String> queryClassNames() {
+		try (Connection conn = DS.getConnection();
+			 PreparedStatement stmt = conn.prepareStatement("select distinct className from TestEntry order by className");
+			 ResultSet rs = stmt.executeQuery()) {
+			final List<String> classNames = new ArrayList<>();
+			while (rs.next()) {
+				classNames.add(rs.getString(1));
+			}
+			return classNames;
+		}
+		catch(SQLException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	/*
+	 * A Test Suite of the given # of Test Cases. Cases that have details fail.
+	 */
+	static String suite(String name, int caseCount, IntFunction<String> detailsOfCase) {
+		StringBuilder suite = new StringBuilder()
+			.append("<testsuite name=\"").append(name).append("\" tests=\"").append(caseCount)
+			.append("\" errors=\"0\" failures=\"0\" skipped=\"0\" time=\"0.1\" timestamp=\"2014-05-19T08:45:56\">\n");
+		for (int i = 0; i < caseCount; i++) {
+			String details = detailsOfCase.apply(i);
+			suite.append("  <testcase classname=\"").append(name).append("\" name=\"m").append(i).append("\" time=\"0.1\">");
+			if (details != null) {
+				suite.append("<failure message=\"m\" type=\"E\">").append(details).append("</failure>");
+			}
+			suite.append("</testcase>\n");
+		}
+		return suite.append("</testsuite>\n").toString();
+	}
+
+	long queryLong(String sql, Object... args) {
+		try (Connection conn = DS.getConnection();
+			 PreparedStatement stmt = prepare(conn, sql, args);
+			 ResultSet rs = stmt.executeQuery()) {
+			rs.next();
+			return rs.getLong(1);
+		}
+		catch(SQLException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	void update(String sql, Object... args) {
+		try (Connection conn = DS.getConnection();
+			 PreparedStatement stmt = prepare(conn, sql, args)) {
+			stmt.executeUpdate();
+		}
+		catch(SQLException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+
+	private static PreparedStatement prepare(Connection conn, String sql, Object... args) throws SQLException {
+		PreparedStatement stmt = conn.prepareStatement(sql);
+		for (int i = 0; i < args.length; i++) {
+			stmt.setObject(i + 1, args[i]);
+		}
+		return stmt;
+	}
+}
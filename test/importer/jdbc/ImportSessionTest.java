@@ -0,0 +1,132 @@
+package importer.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+public class ImportSessionTest {
+
+	/**
+	 * A session checks out one connection, and prepares each statement once, for all of its clean uses.
+	 */
+	@Test
+	public void testBegin_connectionAndStatementsAreReused() throws Exception {
+		FakeDataSource ds = new FakeDataSource();
+		try (ImportSession session = new ImportSession(ds.proxy, 100)) {
+			PreparedStatement first = null;
+			for (int i = 0; i < 10; i++) {
+				session.begin();
+				PreparedStatement stmt = session.prepare("insert into folder (path) values (?)");
+				if (first == null) first = stmt;
+				assertSame(first, stmt);
+				session.commit();
+				session.end(true);
+			}
+		}
+		assertEquals(1, ds.connections.size());
+		assertEquals(1, ds.connections.get(0).preparedCount);
+		assertEquals(10, ds.connections.get(0).commitCount);
+		assertTrue("The connection is released when the session is closed.", ds.connections.get(0).isClosed);
+	}
+
+	/**
+	 * A use that doesn't end cleanly rolls back and closes the connection, and the next use gets a fresh one.
+	 */
+	@Test
+	public void testEnd_connectionIsRecycledAfterFailure() throws Exception {
+		FakeDataSource ds = new FakeDataSource();
+		try (ImportSession session = new ImportSession(ds.proxy, 100)) {
+			session.begin();
+			PreparedStatement failed = session.prepare("insert into folder (path) values (?)");
+			session.end(false);
+
+			FakeConnection recycled = ds.connections.get(0);
+			assertEquals(1, recycled.rollbackCount);
+			assertTrue(recycled.isClosed);
+			assertTrue(recycled.isAutoCommit);
+
+			session.begin();
+			assertNotSame(failed, session.prepare("insert into folder (path) values (?)"));
+			session.end(true);
+		}
+		assertEquals(2, ds.connections.size());
+	}
+
+	/**
+	 * The connection is recycled after the maximum # of uses.
+	 */
+	@Test
+	public void testEnd_connectionIsRecycledAfterMaxUses() {
+		FakeDataSource ds = new FakeDataSource();
+		try (ImportSession session = new ImportSession(ds.proxy, 3)) {
+			for (int i = 0; i < 7; i++) {
+				session.begin();
+				session.end(true);
+			}
+		}
+		assertEquals(3, ds.connections.size());
+	}
+
+	/**
+	 * A session is used by one import at a time.
+	 */
+	@Test
+	public void testBegin_sessionInUseFails() {
+		try (ImportSession session = new ImportSession(new FakeDataSource().proxy, 3)) {
+			session.begin();
+			session.begin();
+			fail("A session that is in use is not begun.");
+		}
+		catch(IllegalStateException ex) {
+			assertTrue(ex.getMessage(), ex.getMessage().contains("already in use"));
+		}
+	}
+
+	/*
+	 * Records the connections that are checked out and what is done with them.
+	 */
+	private static class FakeDataSource {
+		final List<FakeConnection> connections = new ArrayList<>();
+		final DataSource proxy = (DataSource)Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { DataSource.class }, (p, method, args) -> {
+				if (!method.getName().equals("getConnection")) throw new UnsupportedOperationException(method.getName());
+				FakeConnection conn = new FakeConnection();
+				connections.add(conn);
+				return conn.proxy;
+			});
+	}
+
+	private static class FakeConnection {
+		boolean isAutoCommit = true;
+		boolean isClosed = false;
+		int preparedCount = 0;
+		int commitCount = 0;
+		int rollbackCount = 0;
+		final Connection proxy = (Connection)Proxy.newProxyInstance(getClass().getClassLoader(),
+			new Class<?>[] { Connection.class }, (p, method, args) -> {
+				switch (method.getName()) {
+					case "setAutoCommit": isAutoCommit = (Boolean)args[0]; return null;
+					case "commit": commitCount++; return null;
+					case "rollback": rollbackCount++; return null;
+					case "close": isClosed = true; return null;
+					case "prepareStatement":
+						preparedCount++;
+						return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+							(s, stmtMethod, stmtArgs) -> null);
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+			});
+	}
+}
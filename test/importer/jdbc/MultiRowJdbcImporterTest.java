@@ -0,0 +1,111 @@
+package importer.jdbc;
+
+import static importer.jdbc.BatchJdbcImporterTest.suite;
+import static org.junit.Assert.assertEquals;
+import folderManager.JdbcFolderData;
+import importer.ReportParser;
+import importer.StorageIdGenerator;
+import utils.H2DataSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Throwables;
+import com.jolbox.bonecp.BoneCPDataSource;
+
+/**
+ * Imports reports to the test database, see {@link H2DataSource}, and compares the stored rows with those of a
+ * {@link BatchJdbcImporter}.
+ */
+public class MultiRowJdbcImporterTest {
+
+	private static final int ROWS_PER_INSERT = 10;
+
+	/*
+	 * Each Test Case with the Test Suite that its suite_Id refers to.
+	 */
+	private static final String STORED_CASES_SQL = 
+		"select e.className, e.methodName, e.status, e.failDetailHash, s.className, s.tests from TestEntry e " + 
+		"join TestSuite s on s.id = e.suite_Id order by e.className, e.methodName";
+
+	private static final String STORED_DETAILS_SQL = "select hash, detail from FailureDetail order by hash";
+
+	private final BoneCPDataSource DS;
+	private Path report;
+
+	public MultiRowJdbcImporterTest() {
+		DS = H2DataSource.create();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		H2DataSource.clear(DS);
+		report = Files.createTempFile("TEST-multi-row", ".xml");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.delete(report);
+	}
+
+	/**
+	 * Test Cases that don't fill a statement, at the end of the report and of each batch, are stored with the same 
+	 * Test Suites and failure details as a {@link BatchJdbcImporter} stores them.
+	 */
+	@Test
+	public void testDoImport_unevenCaseCountStoresSameRows() throws IOException {
+		Files.write(report, ("<testsuites>" + 
+			suite("a.b.First", ROWS_PER_INSERT * 4 + 1, i -> i % 3 == 0 ? "at a.b.First.m" + (i % 2) : null) + 
+			suite("a.b.Second", ROWS_PER_INSERT * 2 + 2, i -> i % 5 == 0 ? "at a.b.Second.m" + i : null) + 
+			"</testsuites>").getBytes(StandardCharsets.UTF_8));
+
+		try (BatchJdbcImporter importer = new BatchJdbcImporter(DS, new JdbcFolderData(DS), 25)) {
+			assertEquals(ROWS_PER_INSERT * 6 + 3, importer.doImport(report, new ReportParser()));
+		}
+		final List<List<String>> batchedCases = queryRows(STORED_CASES_SQL);
+		final List<List<String>> batchedDetails = queryRows(STORED_DETAILS_SQL);
+
+		H2DataSource.clear(DS);
+		try (BatchJdbcImporter importer = new MultiRowJdbcImporter(DS, new JdbcFolderData(DS), 
+				StorageIdGenerator.timeOrdered(), 25, ROWS_PER_INSERT)) {
+			assertEquals(ROWS_PER_INSERT * 6 + 3, importer.doImport(report, new ReportParser()));
+		}
+
+		assertEquals(ROWS_PER_INSERT * 6 + 3, batchedCases.size());
+		assertEquals(batchedCases, queryRows(STORED_CASES_SQL));
+		assertEquals(batchedDetails, queryRows(STORED_DETAILS_SQL));
+	}
+
+	private List<List<String>> queryRows(String sql) {
+		try (Connection conn = DS.getConnection();
+			 PreparedStatement stmt = conn.prepareStatement(sql);
+			 ResultSet rs = stmt.executeQuery()) {
+			final ResultSetMetaData columns = rs.getMetaData();
+			final List<List<String>> rows = new ArrayList<>();
+			while (rs.next()) {
+				final List<String> row = new ArrayList<>();
+				for (int i = 1; i <= columns.getColumnCount(); i++) {
+					row.add(rs.getString(i));
+				}
+				rows.add(row);
+			}
+			return rows;
+		}
+		catch(SQLException ex) {
+			throw Throwables.propagate(ex);
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package importer.jdbc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+public class SequenceBlocksTest {
+
+	/**
+	 * Values are handed out from the current block, and the next block is reserved once it is used up.
+	 */
+	@Test
+	public void testNext_blocksRollOver() {
+		FakeSequence sequence = new FakeSequence(1, 3);
+		SequenceBlocks blocks = new SequenceBlocks(sequence.proxy, "TestSeq", 3);
+
+		assertEquals(1, blocks.next());
+		assertEquals(2, blocks.next());
+		assertEquals(3, blocks.next());
+		assertEquals(1, sequence.fetchCount);
+
+		assertEquals(4, blocks.next());
+		assertEquals(2, sequence.fetchCount);
+		assertEquals(5, blocks.next());
+		assertEquals(6, blocks.next());
+		assertEquals(7, blocks.next());
+		assertEquals(3, sequence.fetchCount);
+	}
+
+	/**
+	 * A block reserved elsewhere (e.g. by a Test Suite inserted with the column default) is skipped.
+	 */
+	@Test
+	public void testNext_blocksReservedElsewhereAreSkipped() {
+		FakeSequence sequence = new FakeSequence(1, 10);
+		SequenceBlocks blocks = new SequenceBlocks(sequence.proxy, "TestSeq", 10);
+
+		for (int i = 1; i <= 10; i++) {
+			assertEquals(i, blocks.next());
+		}
+		sequence.nextValue += 10;
+		assertEquals(21, blocks.next());
+	}
+
+	/*
+	 * A sequence that starts at the given value and is incremented by the given block size per fetch.
+	 */
+	private static class FakeSequence {
+		long nextValue;
+		int fetchCount = 0;
+		final DataSource proxy;
+
+		FakeSequence(long start, int increment) {
+			this.nextValue = start;
+			this.proxy = (DataSource)Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { DataSource.class }, (p, method, args) -> {
+					if (!method.getName().equals("getConnection")) throw new UnsupportedOperationException(method.getName());
+					return connection(increment);
+				});
+		}
+
+		private Connection connection(int increment) {
+			return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+				(c, method, args) -> {
+					switch (method.getName()) {
+						case "prepareStatement": return statement(increment);
+						case "close": return null;
+						default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		}
+
+		private PreparedStatement statement(int increment) {
+			return (PreparedStatement)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class },
+				(s, method, args) -> {
+					switch (method.getName()) {
+						case "executeQuery":
+							fetchCount++;
+							final long value = nextValue;
+							nextValue += increment;
+							return resultSet(value);
+						case "close": return null;
+						default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		}
+
+		private ResultSet resultSet(long value) {
+			final boolean[] isRead = { false };
+			return (ResultSet)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { ResultSet.class },
+				(r, method, args) -> {
+					switch (method.getName()) {
+						case "next":
+							final boolean hasNext = !isRead[0];
+							isRead[0] = true;
+							return hasNext;
+						case "getLong": return value;
+						case "close": return null;
+						default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package importer.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import folderManager.JdbcFolderData;
+import importer.ReportParser;
+import importer.StorageIdGenerator;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import javax.sql.DataSource;
+
+import org.junit.Test;
+
+public class ShardedJdbcImporterTest {
+
+	private final static DataSource NO_DATA_SOURCE = (DataSource)Proxy.newProxyInstance(
+		ShardedJdbcImporterTest.class.getClassLoader(), new Class<?>[] { DataSource.class }, (p, method, args) -> {
+			throw new UnsupportedOperationException(method.getName());
+		});
+
+	/**
+	 * The reports of a folder are all imported by the same shard, on its thread, while the reports of other folders are
+	 * spread over the other shards.
+	 */
+	@Test
+	public void testDoImport_reportsArePartitionedByFolder() throws Exception {
+		List<RecordingShard> shards = Collections.synchronizedList(new ArrayList<>());
+		List<Path> reports = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			reports.add(Paths.get("/reports", "folder-" + (i % 8), "TEST-" + i + ".xml").toAbsolutePath());
+		}
+
+		try (ShardedJdbcImporter importer = new ShardedJdbcImporter(NO_DATA_SOURCE, 4, 1, fd -> {
+				RecordingShard shard = new RecordingShard();
+				shards.add(shard);
+				return shard;
+			})) {
+			List<CompletableFuture<Integer>> imports = new ArrayList<>();
+			for (Path report : reports) {
+				imports.add(CompletableFuture.supplyAsync(() -> importer.doImport(report, new ReportParser())));
+			}
+			for (CompletableFuture<Integer> result : imports) {
+				assertEquals(1, result.get().intValue());
+			}
+
+			Map<Path, Set<Thread>> folderThreads = new HashMap<>();
+			Set<Thread> threads = new HashSet<>();
+			for (RecordingShard shard : shards) {
+				for (int i = 0; i < shard.imported.size(); i++) {
+					Path report = shard.imported.get(i);
+					folderThreads.computeIfAbsent(report.getParent(), folder -> new HashSet<>()).add(shard.threads.get(i));
+					threads.add(shard.threads.get(i));
+					assertEquals(importer.shardOf(report.getParent()), shards.indexOf(shard));
+				}
+			}
+			assertEquals(8, folderThreads.size());
+			assertTrue(folderThreads.values().stream().allMatch(folderThread -> folderThread.size() == 1));
+			assertTrue("Folders are spread over the shards.", threads.size() > 1);
+			assertEquals(reports.size(), shards.stream().mapToInt(shard -> shard.imported.size()).sum());
+		}
+	}
+
+	/**
+	 * A shard's failure is rethrown to the caller as it is, and the shard goes on importing.
+	 */
+	@Test
+	public void testDoImport_failuresAreRethrown() {
+		try (ShardedJdbcImporter importer = new ShardedJdbcImporter(NO_DATA_SOURCE, 2, 1, fd -> new RecordingShard())) {
+			try {
+				importer.doImport(Paths.get("/reports", "failing", "TEST-1.xml"), new ReportParser());
+				fail("The failure is rethrown.");
+			}
+			catch(IllegalStateException ex) {
+				assertEquals("Import failed.", ex.getMessage());
+			}
+			assertEquals(1, importer.doImport(Paths.get("/reports", "failing", "TEST-2.xml"), new ReportParser()));
+		}
+	}
+
+	/**
+	 * A report's data is deleted by the shard that imported it.
+	 */
+	@Test
+	public void testDoDelete_reportIsDeletedByItsShard() {
+		List<RecordingShard> shards = Collections.synchronizedList(new ArrayList<>());
+		try (ShardedJdbcImporter importer = new ShardedJdbcImporter(NO_DATA_SOURCE, 4, 1, fd -> {
+				RecordingShard shard = new RecordingShard();
+				shards.add(shard);
+				return shard;
+			})) {
+			for (int i = 0; i < 8; i++) {
+				Path report = Paths.get("/reports", "folder-" + i, "TEST-" + i + ".xml").toAbsolutePath();
+				importer.doImport(report, new ReportParser());
+				assertEquals(1, importer.doDelete(report));
+			}
+			for (RecordingShard shard : shards) {
+				assertEquals(shard.imported, shard.deleted);
+			}
+		}
+	}
+
+	/*
+	 * Records the reports it imports and the threads it imports them on, without touching the database. Fails
+	 * "TEST-1.xml" of the "failing" folder.
+	 */
+	private static class RecordingShard extends BatchJdbcImporter {
+		private final List<Path> imported = new ArrayList<>();
+		private final List<Thread> threads = new ArrayList<>();
+		private final List<Path> deleted = new ArrayList<>();
+
+		RecordingShard() {
+			super(NO_DATA_SOURCE, new JdbcFolderData(NO_DATA_SOURCE), StorageIdGenerator.timeOrdered(), 1);
+		}
+
+		@Override
+		public int doImport(Path report, ReportParser parser) {
+			if (report.endsWith(Paths.get("failing", "TEST-1.xml"))) throw new IllegalStateException("Import failed.");
+			imported.add(report);
+			threads.add(Thread.currentThread());
+			return 1;
+		}
+
+		@Override
+		public int doDelete(Path report) {
+			deleted.add(report);
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package importer.jdbc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class StoredDetailHashesTest {
+
+	/**
+	 * Added hashes are held, up to the maximum size.
+	 */
+	@Test
+	public void testAddAll_holdsUpToMaximumSize() {
+		StoredDetailHashes hashes = new StoredDetailHashes(10);
+		assertFalse(hashes.contains("a"));
+
+		hashes.addAll(Arrays.asList("a", "b"));
+		assertTrue(hashes.contains("a"));
+		assertTrue(hashes.contains("b"));
+
+		List<String> added = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			added.add("hash" + i);
+		}
+		hashes.addAll(added);
+		assertTrue(added.stream().filter(hashes::contains).count() <= 10);
+	}
+}
@@ -0,0 +1,47 @@
+package importer.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import importer.FailureDetails;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class TextCodecTest {
+
+	/**
+	 * Details over the threshold are packed into far fewer bytes, and unpack to the same text.
+	 */
+	@Test
+	public void testPack_detailsUnpackToSameText() {
+		StringBuilder trace = new StringBuilder("java.lang.AssertionError: expected \u00e9\u20ac\ud83d\ude00\n");
+		for (int i = 0; i < 1000; i++) {
+			trace.append("\tat org.junit.runners.ParentRunner$").append(i % 10).append(".run(ParentRunner.java:238)\n");
+		}
+		FailureDetails details = FailureDetails.of(trace.toString());
+		TextCodec codec = new TextCodec(100);
+
+		assertTrue(codec.shouldPack(details));
+		byte[] packed = codec.pack(details);
+		assertTrue(TextCodec.isPacked(packed));
+		assertTrue(packed.length * 10 < trace.toString().getBytes(StandardCharsets.UTF_8).length);
+		assertEquals(trace.toString(), TextCodec.unpack(packed));
+	}
+
+	/**
+	 * Details within the threshold aren't packed, and only packed values are taken to be packed.
+	 */
+	@Test
+	public void testIsPacked_onlyOverThreshold() {
+		TextCodec codec = new TextCodec(5);
+
+		assertFalse(codec.shouldPack(FailureDetails.of("12345")));
+		assertTrue(codec.shouldPack(FailureDetails.of("123456")));
+		assertFalse(TextCodec.isPacked(null));
+		assertFalse(TextCodec.isPacked(new byte[] { 'R', 'J' }));
+		assertFalse(TextCodec.isPacked("plain text".getBytes(StandardCharsets.UTF_8)));
+		assertEquals("", TextCodec.unpack(codec.pack(FailureDetails.of(""))));
+	}
+}
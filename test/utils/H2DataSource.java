@@ -36,7 +36,9 @@ public class H2DataSource {
 		try (Connection conn = ds.getConnection()){
 			conn.prepareStatement("DELETE FROM TESTSUITE").executeUpdate();
 			conn.prepareStatement("DELETE FROM TESTENTRY").executeUpdate();
+			conn.prepareStatement("DELETE FROM FAILUREDETAIL").executeUpdate();
 			conn.prepareStatement("DELETE FROM FOLDER").executeUpdate();
+			conn.prepareStatement("DELETE FROM IMPORTMANIFEST").executeUpdate();
 		} catch (SQLException e) {
 			Throwables.propagate(e);
 		}